@@ -0,0 +1,124 @@
+package com.rizikh.wfc.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rizikh.wfc.model.DomainKernel;
+import com.rizikh.wfc.model.Wave;
+
+/**
+ * Scalar vs Vector API domain kernels on multi-word tilesets.
+ *
+ * Each operation mirrors one propagation step: OR-accumulate the masks of
+ * the tiles left in a source domain, AND the result into a neighbour
+ * (with change detection), and popcount the neighbour for entropy.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class DomainKernelBenchmark {
+
+    @Param({ "128", "512", "2048" })
+    public int tiles;
+
+    // Tiles remaining in the source domain whose masks are OR-ed together.
+    private static final int SOURCE_TILES = 16;
+
+    private DomainKernel scalar;
+    private DomainKernel vector;
+
+    private int words;
+    private long[] masks;
+    private int[] sourceTiles;
+    private long[] neighbour;
+    private long[] scratch;
+    private long[] support;
+
+    @Setup
+    public void setup() {
+        scalar = DomainKernel.scalar();
+        vector = DomainKernel.vector();
+
+        Random rng = new Random(42);
+        words = Wave.wordsFor(tiles);
+        masks = new long[SOURCE_TILES * words];
+        sourceTiles = new int[SOURCE_TILES];
+
+        for (int i = 0; i < masks.length; i++) {
+            // ~12% density per mask: sparse rules, dense union
+            masks[i] = rng.nextLong() & rng.nextLong() & rng.nextLong();
+        }
+        for (int i = 0; i < SOURCE_TILES; i++) {
+            sourceTiles[i] = i * words;
+        }
+
+        neighbour = new long[words];
+        for (int i = 0; i < words; i++) {
+            neighbour[i] = rng.nextLong();
+        }
+        scratch = new long[words];
+        support = new long[words];
+        // The restrict benchmarks AND against this union; left at zero they would only clear words
+        accumulate(scalar);
+    }
+
+    private long[] accumulate(DomainKernel kernel) {
+        for (int i = 0; i < words; i++) {
+            support[i] = 0L;
+        }
+        for (int off : sourceTiles) {
+            kernel.or(support, 0, masks, off, words);
+        }
+        return support;
+    }
+
+    private boolean restrict(DomainKernel kernel) {
+        System.arraycopy(neighbour, 0, scratch, 0, words);
+        return kernel.and(scratch, 0, support, 0, words);
+    }
+
+    @Benchmark
+    public long[] supportScalar() {
+        return accumulate(scalar);
+    }
+
+    @Benchmark
+    public long[] supportVector() {
+        return accumulate(vector);
+    }
+
+    @Benchmark
+    public boolean restrictScalar() {
+        return restrict(scalar);
+    }
+
+    @Benchmark
+    public boolean restrictVector() {
+        return restrict(vector);
+    }
+
+    @Benchmark
+    public int popcountScalar() {
+        return scalar.popcount(neighbour, 0, words);
+    }
+
+    @Benchmark
+    public int popcountVector() {
+        return vector.popcount(neighbour, 0, words);
+    }
+}
@@ -0,0 +1,85 @@
+package com.rizikh.wfc.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.rules.RoadRuleset;
+import com.rizikh.wfc.solver.WfcSolver;
+
+/**
+ * Time to a solved road map (the ruleset most prone to contradictions)
+ * with full restarts only versus localized repair, counting restarts and
+ * repaired blocks. Maps that fail {@value #MAX_ATTEMPTS} attempts are
+ * counted as given up.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RepairBenchmark {
+    private static final int MAX_ATTEMPTS = 200;
+
+    @Param({ "0", "4" })
+    public int radius;
+
+    @Param({ "64" })
+    public int size;
+
+    private WfcSolver solver;
+    private long seed;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long attempts;
+        public long repairs;
+        public long givenUp;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            attempts = 0;
+            repairs = 0;
+            givenUp = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        RoadRuleset ruleset = new RoadRuleset();
+        solver = new WfcSolver(new Grid(size, size, ruleset.tileCount()), ruleset);
+        solver.setRepairRadius(radius);
+    }
+
+    @Benchmark
+    public WfcSolver.Status solvedMap(Outcomes outcomes) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            solver.reset(seed++);
+            while (solver.step()) {
+            }
+
+            outcomes.attempts++;
+            outcomes.repairs += solver.getRepairCount();
+            if (solver.isSolved()) {
+                return solver.getStatus();
+            }
+        }
+        outcomes.givenUp++;
+        return solver.getStatus();
+    }
+}
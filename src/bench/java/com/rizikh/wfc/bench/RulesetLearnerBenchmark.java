@@ -0,0 +1,85 @@
+package com.rizikh.wfc.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.rules.LearnedRuleset;
+import com.rizikh.wfc.rules.RulesetLearner;
+import com.rizikh.wfc.rules.TerrainRuleset;
+import com.rizikh.wfc.solver.ScanlineHeuristic;
+import com.rizikh.wfc.solver.WfcSolver;
+
+/**
+ * Time to learn the terrain ruleset back from a corpus of solved 256 x 256
+ * terrain maps of about one and sixteen million cells.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RulesetLearnerBenchmark {
+    private static final int SIZE = 256;
+
+    @Param({ "16", "256" })
+    public int maps;
+
+    private TerrainRuleset ruleset;
+    private List<RulesetLearner.Sample> corpus;
+
+    @Setup
+    public void setup() {
+        ruleset = new TerrainRuleset();
+        List<RulesetLearner.Sample> distinct = new ArrayList<>();
+        for (int seed = 0; distinct.size() < 4; seed++) {
+            int[] tiles = solve(seed);
+            if (tiles != null) {
+                distinct.add(new RulesetLearner.Sample(SIZE, SIZE, tiles));
+            }
+        }
+
+        corpus = new ArrayList<>();
+        for (int i = 0; i < maps; i++) {
+            corpus.add(distinct.get(i % distinct.size()));
+        }
+    }
+
+    private int[] solve(long seed) {
+        Grid grid = new Grid(SIZE, SIZE, ruleset.tileCount());
+        WfcSolver solver = new WfcSolver(grid, ruleset);
+        solver.setSelectionHeuristic(new ScanlineHeuristic());
+        solver.setRepairRadius(4);
+        solver.setSeed(seed);
+        while (solver.step()) {
+        }
+        if (!solver.isSolved()) {
+            return null;
+        }
+
+        int[] tiles = new int[grid.cellCount()];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = grid.getWave().firstTile(i);
+        }
+        return tiles;
+    }
+
+    @Benchmark
+    public LearnedRuleset learn() {
+        return new RulesetLearner(ruleset.tileCount()).add(corpus).build();
+    }
+}
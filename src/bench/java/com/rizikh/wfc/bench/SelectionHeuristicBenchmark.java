@@ -0,0 +1,100 @@
+package com.rizikh.wfc.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.rules.RoadRuleset;
+import com.rizikh.wfc.rules.Ruleset;
+import com.rizikh.wfc.rules.TerrainRuleset;
+import com.rizikh.wfc.solver.EntropyHeuristic;
+import com.rizikh.wfc.solver.FrontierHeuristic;
+import com.rizikh.wfc.solver.MrvHeuristic;
+import com.rizikh.wfc.solver.ScanlineHeuristic;
+import com.rizikh.wfc.solver.SelectionHeuristic;
+import com.rizikh.wfc.solver.WfcSolver;
+
+/**
+ * Cell-selection heuristics: time per full solve, with solved and
+ * contradicted runs reported as secondary counters (their ratio is the
+ * contradiction rate). Each invocation solves a fresh map with the next seed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SelectionHeuristicBenchmark {
+
+    @Param({ "mrv", "entropy", "frontier", "scanline" })
+    public String heuristic;
+
+    @Param({ "terrain", "road" })
+    public String rules;
+
+    @Param({ "48" })
+    public int size;
+
+    private Ruleset ruleset;
+    private long seed;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long solved;
+        public long contradictions;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            solved = 0;
+            contradictions = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        ruleset = rules.equals("road") ? new RoadRuleset() : new TerrainRuleset();
+        seed = 0;
+    }
+
+    private SelectionHeuristic newHeuristic() {
+        return switch (heuristic) {
+            case "entropy" -> new EntropyHeuristic();
+            case "frontier" -> new FrontierHeuristic();
+            case "scanline" -> new ScanlineHeuristic();
+            default -> new MrvHeuristic();
+        };
+    }
+
+    @Benchmark
+    public WfcSolver.Status solve(Outcomes outcomes) {
+        Grid grid = new Grid(size, size, ruleset.tileCount());
+        WfcSolver solver = new WfcSolver(grid, ruleset);
+        solver.setSeed(seed++);
+        solver.setSelectionHeuristic(newHeuristic());
+
+        while (solver.step()) {
+        }
+
+        if (solver.isSolved()) {
+            outcomes.solved++;
+        } else {
+            outcomes.contradictions++;
+        }
+        return solver.getStatus();
+    }
+}
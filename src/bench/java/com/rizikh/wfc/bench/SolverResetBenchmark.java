@@ -0,0 +1,57 @@
+package com.rizikh.wfc.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.rules.TerrainRuleset;
+import com.rizikh.wfc.solver.SolverPool;
+import com.rizikh.wfc.solver.WfcSolver;
+
+/**
+ * Per-map setup cost before the first step: building a grid and solver
+ * versus resetting this thread's pooled solver.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverResetBenchmark {
+    @Param({ "64", "512" })
+    public int size;
+
+    private TerrainRuleset ruleset;
+    private SolverPool pool;
+    private long seed;
+
+    @Setup
+    public void setup() {
+        ruleset = new TerrainRuleset();
+        pool = new SolverPool(ruleset, size, size);
+    }
+
+    @Benchmark
+    public WfcSolver fresh() {
+        WfcSolver solver = new WfcSolver(new Grid(size, size, ruleset.tileCount()), ruleset);
+        solver.setSeed(seed++);
+        return solver;
+    }
+
+    @Benchmark
+    public WfcSolver pooled() {
+        return pool.acquire(seed++);
+    }
+}
@@ -0,0 +1,106 @@
+package com.rizikh.wfc.bench;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.rules.CompiledRuleset;
+import com.rizikh.wfc.rules.Ruleset;
+import com.rizikh.wfc.solver.QueuePropagator;
+import com.rizikh.wfc.solver.WfcSolver;
+
+/**
+ * Time per solved map for a synthetic 5000-tile ruleset (tiles are (h, v)
+ * pairs; east/west neighbours share h, 5 compatible tiles, north/south
+ * neighbours share v, 1000 compatible tiles), compiled all dense vs with
+ * sparse id lists for the east/west entries. The compiled size is printed
+ * at setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SparseRulesetBenchmark {
+    private static final int H_VALUES = 1000;
+    private static final int V_VALUES = 5;
+
+    @Param({ "dense", "auto" })
+    public String compile;
+
+    @Param({ "32" })
+    public int size;
+
+    private Ruleset ruleset;
+    private CompiledRuleset rules;
+    private long seed;
+
+    @Setup
+    public void setup() {
+        ruleset = pairs(H_VALUES, V_VALUES);
+        rules = compile.equals("dense") ? CompiledRuleset.compileDense(ruleset) : CompiledRuleset.compile(ruleset);
+        System.out.println("compiled " + compile + ": " + rules.footprintBytes() + " bytes");
+    }
+
+    private static Ruleset pairs(int hValues, int vValues) {
+        int tileCount = hValues * vValues;
+        BitSet[] allowed = new BitSet[tileCount * 4];
+        for (int t = 0; t < tileCount; t++) {
+            for (int d = 0; d < 4; d++) {
+                BitSet mask = new BitSet(tileCount);
+                for (int o = 0; o < tileCount; o++) {
+                    // Odd directions (E, W) match h, even ones (N, S) match v
+                    if (d % 2 == 1 ? o / vValues == t / vValues : o % vValues == t % vValues) {
+                        mask.set(o);
+                    }
+                }
+                allowed[t * 4 + d] = mask;
+            }
+        }
+
+        return new Ruleset() {
+            @Override
+            public int tileCount() {
+                return tileCount;
+            }
+
+            @Override
+            public int directionCount() {
+                return 4;
+            }
+
+            @Override
+            public BitSet allowedMaskRef(int tileId, int dir) {
+                return allowed[tileId * 4 + dir];
+            }
+
+            @Override
+            public double weight(int tileId) {
+                return 1.0;
+            }
+        };
+    }
+
+    @Benchmark
+    public boolean solve() {
+        Grid grid = new Grid(size, size, ruleset.tileCount());
+        WfcSolver solver = new WfcSolver(grid, ruleset, new QueuePropagator(grid, rules));
+        solver.setSeed(seed++);
+        while (solver.step()) {
+        }
+        return solver.isSolved();
+    }
+}
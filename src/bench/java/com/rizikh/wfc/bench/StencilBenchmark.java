@@ -0,0 +1,77 @@
+package com.rizikh.wfc.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rizikh.wfc.core.BoundedTopology;
+import com.rizikh.wfc.core.Stencil;
+import com.rizikh.wfc.core.StencilTopology;
+import com.rizikh.wfc.core.Topology;
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.rules.Ruleset;
+import com.rizikh.wfc.rules.StencilRuleset;
+import com.rizikh.wfc.rules.TerrainRuleset;
+import com.rizikh.wfc.solver.WfcSolver;
+
+/**
+ * Time per solved terrain map with the 4-neighbour rules, the 8-neighbour
+ * corner rules, and the 4-neighbour rules extended to 8 neighbours by their
+ * implied diagonal masks (same solutions, twice the directions to
+ * propagate).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StencilBenchmark {
+    private static final int MAX_ATTEMPTS = 20;
+
+    @Param({ "square", "corners", "implied" })
+    public String rules;
+
+    @Param({ "64" })
+    public int size;
+
+    private Ruleset ruleset;
+    private Topology topology;
+    private long seed;
+
+    @Setup
+    public void setup() {
+        TerrainRuleset terrain = new TerrainRuleset();
+        switch (rules) {
+            case "corners" -> ruleset = terrain.withCorners();
+            case "implied" -> ruleset = StencilRuleset.implied(terrain, Stencil.moore());
+            default -> ruleset = terrain;
+        }
+        topology = rules.equals("square") ? new BoundedTopology(size, size)
+                : new StencilTopology(Stencil.moore(), size, size, false);
+    }
+
+    @Benchmark
+    public boolean solve() {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            WfcSolver solver = new WfcSolver(new Grid(topology, ruleset.tileCount()), ruleset);
+            solver.setSeed(seed++);
+            while (solver.step()) {
+            }
+            if (solver.isSolved()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
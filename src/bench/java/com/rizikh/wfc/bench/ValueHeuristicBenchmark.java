@@ -0,0 +1,102 @@
+package com.rizikh.wfc.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.rules.TerrainRuleset;
+import com.rizikh.wfc.solver.FrontierHeuristic;
+import com.rizikh.wfc.solver.LcvHeuristic;
+import com.rizikh.wfc.solver.MrvHeuristic;
+import com.rizikh.wfc.solver.SupportWeightedHeuristic;
+import com.rizikh.wfc.solver.UniformValueHeuristic;
+import com.rizikh.wfc.solver.ValueHeuristic;
+import com.rizikh.wfc.solver.WfcSolver;
+
+/**
+ * Value-ordering heuristics on large terrain maps: time per first attempt,
+ * with solved and contradicted attempts as secondary counters (their ratio
+ * is the first-try success rate). Seeds cycle through a fixed set, so every
+ * heuristic sees the same maps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ValueHeuristicBenchmark {
+    private static final int SEEDS = 64;
+
+    @Param({ "uniform", "lcv", "support" })
+    public String value;
+
+    @Param({ "mrv", "frontier" })
+    public String selection;
+
+    @Param({ "128" })
+    public int size;
+
+    private TerrainRuleset ruleset;
+    private int seed;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long solved;
+        public long contradictions;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            solved = 0;
+            contradictions = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        ruleset = new TerrainRuleset();
+        seed = 0;
+    }
+
+    private ValueHeuristic newValueHeuristic() {
+        return switch (value) {
+            case "lcv" -> new LcvHeuristic();
+            case "support" -> new SupportWeightedHeuristic();
+            default -> new UniformValueHeuristic();
+        };
+    }
+
+    @Benchmark
+    public WfcSolver.Status firstAttempt(Outcomes outcomes) {
+        Grid grid = new Grid(size, size, ruleset.tileCount());
+        WfcSolver solver = new WfcSolver(grid, ruleset);
+        solver.setSeed(seed);
+        seed = (seed + 1) % SEEDS;
+        solver.setSelectionHeuristic(selection.equals("frontier") ? new FrontierHeuristic() : new MrvHeuristic());
+        solver.setValueHeuristic(newValueHeuristic());
+
+        while (solver.step()) {
+        }
+
+        if (solver.isSolved()) {
+            outcomes.solved++;
+        } else {
+            outcomes.contradictions++;
+        }
+        return solver.getStatus();
+    }
+}
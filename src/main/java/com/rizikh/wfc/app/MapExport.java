@@ -0,0 +1,101 @@
+package com.rizikh.wfc.app;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.rizikh.wfc.core.BoundedTopology;
+import com.rizikh.wfc.core.Stencil;
+import com.rizikh.wfc.core.StencilTopology;
+import com.rizikh.wfc.core.Topology;
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.render.MapRenderer;
+import com.rizikh.wfc.render.TileAtlas;
+import com.rizikh.wfc.rules.RoadRuleset;
+import com.rizikh.wfc.rules.Ruleset;
+import com.rizikh.wfc.rules.TerrainRuleset;
+import com.rizikh.wfc.solver.ScanlineHeuristic;
+import com.rizikh.wfc.solver.WfcSolver;
+
+/**
+ * Headless generator: solves one map and writes it as an image, no display
+ * needed.
+ *
+ * Usage: MapExport terrain|terrain8|road width height seed out.png|out.ppm|out.raw [tileSize]
+ *
+ * terrain8 is terrain with 8-neighbour corner rules (see
+ * {@link TerrainRuleset#withCorners()}).
+ *
+ * Cells are collapsed in scanline order with localized repair, which keeps
+ * solving linear in the map size; PPM and raw output are streamed, so maps
+ * too large for a PNG still export.
+ */
+public class MapExport {
+    private static final int DEFAULT_TILE_SIZE = 16;
+    private static final int REPAIR_RADIUS = 4;
+    private static final int ATTEMPTS = 8;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 5) {
+            System.err.println("Usage: MapExport terrain|terrain8|road width height seed out.png|out.ppm|out.raw [tileSize]");
+            System.exit(2);
+        }
+
+        boolean roads = args[0].equals("road");
+        int width = Integer.parseInt(args[1]);
+        int height = Integer.parseInt(args[2]);
+        long seed = Long.parseLong(args[3]);
+        Path out = Path.of(args[4]);
+        int tileSize = args.length > 5 ? Integer.parseInt(args[5]) : DEFAULT_TILE_SIZE;
+
+        boolean corners = args[0].equals("terrain8");
+        Ruleset ruleset = roads ? new RoadRuleset()
+                : corners ? new TerrainRuleset().withCorners() : new TerrainRuleset();
+        Topology topology = corners ? new StencilTopology(Stencil.moore(), width, height, false)
+                : new BoundedTopology(width, height);
+        TileAtlas atlas = roads ? TileAtlas.roads(tileSize) : TileAtlas.terrain(tileSize);
+
+        long start = System.nanoTime();
+        int[] tiles = solve(ruleset, topology, seed);
+        long solved = System.nanoTime();
+
+        MapRenderer renderer = new MapRenderer(atlas);
+        String name = out.getFileName().toString().toLowerCase();
+        try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(out), 1 << 16)) {
+            if (name.endsWith(".ppm")) {
+                renderer.writePpm(tiles, width, height, stream);
+            } else if (name.endsWith(".raw")) {
+                renderer.writeRaw(tiles, width, height, stream);
+            } else {
+                renderer.writePng(tiles, width, height, stream);
+            }
+        }
+        long written = System.nanoTime();
+
+        System.out.printf("Solved in %d ms, exported in %d ms: %s%n",
+                (solved - start) / 1_000_000, (written - solved) / 1_000_000, out);
+    }
+
+    private static int[] solve(Ruleset ruleset, Topology topology, long seed) {
+        Grid grid = new Grid(topology, ruleset.tileCount());
+        WfcSolver solver = new WfcSolver(grid, ruleset);
+        solver.setSelectionHeuristic(new ScanlineHeuristic());
+        solver.setRepairRadius(REPAIR_RADIUS);
+
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            solver.reset(seed + attempt);
+            while (solver.step()) {
+            }
+            if (solver.isSolved()) {
+                int[] tiles = new int[grid.cellCount()];
+                for (int i = 0; i < tiles.length; i++) {
+                    tiles[i] = grid.getWave().firstTile(i);
+                }
+                return tiles;
+            }
+        }
+        throw new IllegalStateException("No solution after " + ATTEMPTS + " attempts");
+    }
+}
@@ -6,12 +6,17 @@ import processing.event.MouseEvent;
 
 import com.rizikh.wfc.model.Grid;
 import com.rizikh.wfc.model.Cell;
+import com.rizikh.wfc.post.RegionCleaner;
 import com.rizikh.wfc.rules.Ruleset;
+import com.rizikh.wfc.rules.RulesetAnalysis;
 import com.rizikh.wfc.rules.TerrainRuleset;      // <-- your terrain ruleset
+import com.rizikh.wfc.solver.SolveLog;
+import com.rizikh.wfc.solver.SolveReplayer;
 import com.rizikh.wfc.solver.WfcSolver;
 import com.rizikh.wfc.tiles.TerrainTile;
 
 import java.util.EnumMap;
+import java.util.Random;
 
 /**
  * Processing-based runner for the TERRAIN Wave Function Collapse solver.
@@ -21,16 +26,24 @@ import java.util.EnumMap;
  * - Mouse wheel: zoom centered on mouse
  * - Left-drag: pan (drag the world)
  * - Space: restart simulation
+ * - C: remove small biome regions from a solved map
+ * - R: replay the last solve from its recorded log
  */
 public class TerrainSketch extends PApplet {
 
     private static final int GRID_WIDTH  = 30;
     private static final int GRID_HEIGHT = 30;
     private static final int CELL_SIZE   = 30;
+    private static final int MIN_REGION_SIZE = 6;
+    private static final int KEYFRAME_INTERVAL = 512;
 
     private Grid grid;
     private Ruleset ruleset;
+    private RulesetAnalysis analysis;
     private WfcSolver solver;
+    private final Random seeds = new Random();
+    private SolveLog log;
+    private SolveReplayer replayer;
 
     private EnumMap<TerrainTile, PImage> tileImages;
 
@@ -73,7 +86,10 @@ public class TerrainSketch extends PApplet {
     public void draw() {
         background(220);
 
-        if (solver.getStatus() == WfcSolver.Status.RUNNING) {
+        if (replayer != null) {
+            for (int i = 0; i < stepsPerFrame && replayer.step(); i++) {
+            }
+        } else if (solver.getStatus() == WfcSolver.Status.RUNNING) {
             for (int i = 0; i < stepsPerFrame; i++) {
                 solver.step();
             }
@@ -90,24 +106,64 @@ public class TerrainSketch extends PApplet {
     }
 
     // ------------------------------------------------------------
-    // Restart on Space
+    // Restart on Space, cleanup on C, replay on R
     // ------------------------------------------------------------
     @Override
     public void keyPressed() {
         if (key == ' ') {
             resetSimulation();
+        } else if ((key == 'c' || key == 'C') && solver.isSolved() && replayer == null) {
+            cleanupRegions();
+        } else if ((key == 'r' || key == 'R') && solver.getStatus() != WfcSolver.Status.RUNNING) {
+            startReplay();
         }
     }
 
+    // Plays the recorded solve back into the solver's grid; no solver work is repeated.
+    private void startReplay() {
+        replayer = new SolveReplayer(log, grid.getWave());
+    }
+
+    private void cleanupRegions() {
+        int cells = grid.cellCount();
+        int[] tiles = new int[cells];
+        for (int i = 0; i < cells; i++) {
+            tiles[i] = grid.getWave().firstTile(i);
+        }
+
+        // Base tiles are biomes; transition tiles are not counted as regions
+        int baseTiles = TerrainTile.FOREST_TREES.ordinal() + 1;
+        RegionCleaner cleaner = new RegionCleaner(ruleset, t -> t < baseTiles ? t : -1, MIN_REGION_SIZE,
+                seeds.nextLong());
+        int replaced = cleaner.clean(tiles, GRID_WIDTH, GRID_HEIGHT);
+
+        for (int i = 0; i < cells; i++) {
+            grid.getWave().collapse(i, tiles[i]);
+        }
+        System.out.println("Region cleanup replaced " + replaced + " small regions");
+    }
+
+    // Builds the ruleset, grid and solver once; restarts only refill the wave.
     private void resetSimulation() {
-        ruleset = new TerrainRuleset(); // must match TerrainTile.count()
-        grid = new Grid(GRID_WIDTH, GRID_HEIGHT, ruleset.tileCount());
-        solver = new WfcSolver(grid, ruleset);
+        if (solver == null) {
+            ruleset = new TerrainRuleset(); // must match TerrainTile.count()
+            grid = new Grid(GRID_WIDTH, GRID_HEIGHT, ruleset.tileCount());
+            analysis = RulesetAnalysis.analyze(ruleset, grid.getTopology());
+            solver = new WfcSolver(grid, ruleset);
 
-        if (tileImages == null) {
+            analysis.warnings().forEach(System.out::println);
             loadTerrainTileImages();
+        } else {
+            solver.reset(seeds.nextLong());
         }
 
+        // Prune tiles that can never be placed before any CPU goes into solving
+        analysis.applyTo(grid);
+
+        log = new SolveLog(grid.cellCount(), ruleset.tileCount(), KEYFRAME_INTERVAL);
+        solver.setSolveLog(log);
+        replayer = null;
+
         // Optional: start centered (nice default)
         centerCamera();
     }
@@ -250,7 +306,10 @@ public class TerrainSketch extends PApplet {
 
     private void drawStatus() {
         fill(0);
-        text(solver.getStatus().toString(), width / 2f, 14);
-        text("Wheel: zoom | Drag: pan | Space: restart", width / 2f, 30);
+        String status = replayer != null
+                ? "REPLAY " + replayer.position() + "/" + replayer.stepCount()
+                : solver.getStatus().toString();
+        text(status, width / 2f, 14);
+        text("Wheel: zoom | Drag: pan | Space: restart | C: cleanup | R: replay", width / 2f, 30);
     }
 }
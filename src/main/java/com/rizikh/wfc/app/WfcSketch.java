@@ -8,6 +8,7 @@ import com.rizikh.wfc.model.Grid;
 import com.rizikh.wfc.model.Cell;
 import com.rizikh.wfc.rules.Ruleset;
 import com.rizikh.wfc.rules.RoadRuleset;
+import com.rizikh.wfc.solver.ConnectivityConstraint;
 import com.rizikh.wfc.solver.WfcSolver;
 import com.rizikh.wfc.tiles.RoadTile;
 
@@ -100,10 +101,14 @@ public class WfcSketch extends PApplet {
     }
 
     private void resetSimulation() {
-        ruleset = new RoadRuleset();
+        RoadRuleset roads = new RoadRuleset();
+        ruleset = roads;
         grid = new Grid(GRID_WIDTH, GRID_HEIGHT, ruleset.tileCount());
         solver = new WfcSolver(grid, ruleset);
 
+        // One road network instead of disconnected fragments (socket 1 = open)
+        solver.setConnectivityConstraint(new ConnectivityConstraint(grid, roads, 1));
+
         if (tileImages == null) {
             loadRoadTileImages();
         }
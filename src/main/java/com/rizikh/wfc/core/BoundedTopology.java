@@ -0,0 +1,30 @@
+package com.rizikh.wfc.core;
+
+/**
+ * Rectangular 2D grid with hard edges; directions are {@link Direction} ordinals.
+ */
+public final class BoundedTopology extends Topology {
+
+    public BoundedTopology(int width, int height) {
+        super(width, height, squareOpposites(), build(width, height));
+    }
+
+    private static int[] build(int width, int height) {
+        Direction[] dirs = Direction.values();
+        int[] table = new int[Math.multiplyExact(width * height, dirs.length)];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int base = (y * width + x) * dirs.length;
+
+                for (Direction d : dirs) {
+                    int nx = x + d.dx;
+                    int ny = y + d.dy;
+                    boolean inside = nx >= 0 && nx < width && ny >= 0 && ny < height;
+                    table[base + d.ordinal()] = inside ? ny * width + nx : -1;
+                }
+            }
+        }
+        return table;
+    }
+}
@@ -0,0 +1,77 @@
+package com.rizikh.wfc.core;
+
+/**
+ * Bounded 3D voxel grid with six face neighbours.
+ *
+ * Directions 0..3 match {@link Direction} ordinals in the xy-plane, then
+ * 4 = UP (+z) and 5 = DOWN (-z). Cells are indexed (z * height + y) * width + x,
+ * so the 2D footprint is width x (height * depth): z-layers stacked along y.
+ */
+public final class CubeTopology extends Topology {
+    public static final int UP = 4;
+    public static final int DOWN = 5;
+
+    private static final int DIRECTIONS = 6;
+
+    private final int layerHeight;
+    private final int depth;
+
+    public CubeTopology(int width, int height, int depth) {
+        super(width, Math.multiplyExact(height, depth), opposites(), build(width, height, depth));
+        this.layerHeight = height;
+        this.depth = depth;
+    }
+
+    /**
+     * Height of a single z-layer.
+     */
+    public int layerHeight() {
+        return layerHeight;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    public int index(int x, int y, int z) {
+        return (z * layerHeight + y) * width() + x;
+    }
+
+    private static int[] opposites() {
+        int[] opposite = squareOpposites();
+        int[] all = new int[DIRECTIONS];
+        System.arraycopy(opposite, 0, all, 0, opposite.length);
+        all[UP] = DOWN;
+        all[DOWN] = UP;
+        return all;
+    }
+
+    private static int[] build(int width, int height, int depth) {
+        if (width <= 0 || height <= 0 || depth <= 0) {
+            throw new IllegalArgumentException("Width, height and depth must be positive integers.");
+        }
+
+        Direction[] dirs = Direction.values();
+        int[] table = new int[Math.multiplyExact(Math.multiplyExact(width * height, depth), DIRECTIONS)];
+
+        for (int z = 0; z < depth; z++) {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int cell = (z * height + y) * width + x;
+                    int base = cell * DIRECTIONS;
+
+                    for (Direction d : dirs) {
+                        int nx = x + d.dx;
+                        int ny = y + d.dy;
+                        boolean inside = nx >= 0 && nx < width && ny >= 0 && ny < height;
+                        table[base + d.ordinal()] = inside ? (z * height + ny) * width + nx : -1;
+                    }
+
+                    table[base + UP] = z + 1 < depth ? cell + width * height : -1;
+                    table[base + DOWN] = z > 0 ? cell - width * height : -1;
+                }
+            }
+        }
+        return table;
+    }
+}
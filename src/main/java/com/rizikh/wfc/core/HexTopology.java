@@ -0,0 +1,55 @@
+package com.rizikh.wfc.core;
+
+/**
+ * Pointy-top hexagonal grid in "odd-r" offset coordinates: odd rows are
+ * shifted half a cell east. Rows increase northwards, like the square grid.
+ *
+ * Directions: 0 = E, 1 = NE, 2 = NW, 3 = W, 4 = SW, 5 = SE; the opposite
+ * of d is (d + 3) % 6.
+ */
+public final class HexTopology extends Topology {
+    public static final int EAST = 0;
+    public static final int NORTH_EAST = 1;
+    public static final int NORTH_WEST = 2;
+    public static final int WEST = 3;
+    public static final int SOUTH_WEST = 4;
+    public static final int SOUTH_EAST = 5;
+
+    private static final int DIRECTIONS = 6;
+
+    // {dx, dy} per direction, for even and odd rows
+    private static final int[][] EVEN_ROW = { { 1, 0 }, { 0, 1 }, { -1, 1 }, { -1, 0 }, { -1, -1 }, { 0, -1 } };
+    private static final int[][] ODD_ROW = { { 1, 0 }, { 1, 1 }, { 0, 1 }, { -1, 0 }, { 0, -1 }, { 1, -1 } };
+
+    public HexTopology(int width, int height) {
+        super(width, height, opposites(), build(width, height));
+    }
+
+    private static int[] opposites() {
+        int[] opposite = new int[DIRECTIONS];
+        for (int d = 0; d < DIRECTIONS; d++) {
+            opposite[d] = (d + 3) % DIRECTIONS;
+        }
+        return opposite;
+    }
+
+    private static int[] build(int width, int height) {
+        int[] table = new int[Math.multiplyExact(width * height, DIRECTIONS)];
+
+        for (int y = 0; y < height; y++) {
+            int[][] offsets = (y & 1) == 0 ? EVEN_ROW : ODD_ROW;
+
+            for (int x = 0; x < width; x++) {
+                int base = (y * width + x) * DIRECTIONS;
+
+                for (int d = 0; d < DIRECTIONS; d++) {
+                    int nx = x + offsets[d][0];
+                    int ny = y + offsets[d][1];
+                    boolean inside = nx >= 0 && nx < width && ny >= 0 && ny < height;
+                    table[base + d] = inside ? ny * width + nx : -1;
+                }
+            }
+        }
+        return table;
+    }
+}
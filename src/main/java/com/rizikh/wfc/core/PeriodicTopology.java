@@ -0,0 +1,30 @@
+package com.rizikh.wfc.core;
+
+/**
+ * Rectangular 2D grid that wraps around on both axes (torus), so solved maps
+ * tile seamlessly. Directions are {@link Direction} ordinals.
+ */
+public final class PeriodicTopology extends Topology {
+
+    public PeriodicTopology(int width, int height) {
+        super(width, height, squareOpposites(), build(width, height));
+    }
+
+    private static int[] build(int width, int height) {
+        Direction[] dirs = Direction.values();
+        int[] table = new int[Math.multiplyExact(width * height, dirs.length)];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int base = (y * width + x) * dirs.length;
+
+                for (Direction d : dirs) {
+                    int nx = Math.floorMod(x + d.dx, width);
+                    int ny = Math.floorMod(y + d.dy, height);
+                    table[base + d.ordinal()] = ny * width + nx;
+                }
+            }
+        }
+        return table;
+    }
+}
@@ -0,0 +1,151 @@
+package com.rizikh.wfc.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A neighbourhood on the square grid: the (dx, dy) offsets a cell is
+ * constrained against, numbered as directions 0..size-1.
+ *
+ * The set is closed under negation, so every direction has an opposite. The
+ * built-in stencils list the four {@link Direction} offsets first, in
+ * ordinal order, so square rulesets keep their direction numbers.
+ */
+public final class Stencil {
+    private final int[] dx;
+    private final int[] dy;
+    private final int[] opposite;
+
+    private Stencil(int[] dx, int[] dy) {
+        this.dx = dx;
+        this.dy = dy;
+        this.opposite = new int[dx.length];
+
+        for (int d = 0; d < dx.length; d++) {
+            if (dx[d] == 0 && dy[d] == 0) {
+                throw new IllegalArgumentException("Offset (0, 0) is not a neighbour");
+            }
+            opposite[d] = -1;
+            for (int e = 0; e < dx.length; e++) {
+                if (e != d && dx[e] == dx[d] && dy[e] == dy[d]) {
+                    throw new IllegalArgumentException("Duplicate offset (" + dx[d] + ", " + dy[d] + ")");
+                }
+                if (dx[e] == -dx[d] && dy[e] == -dy[d]) {
+                    opposite[d] = e;
+                }
+            }
+            if (opposite[d] < 0) {
+                throw new IllegalArgumentException("Offset (" + dx[d] + ", " + dy[d] + ") has no opposite");
+            }
+        }
+    }
+
+    /**
+     * A stencil of explicit offsets; direction d is offsets[d] = {dx, dy}.
+     *
+     * @throws IllegalArgumentException if an offset is (0, 0), malformed,
+     *                                  duplicated or lacks its negation.
+     */
+    public static Stencil of(int[][] offsets) {
+        if (offsets == null || offsets.length == 0) {
+            throw new IllegalArgumentException("A stencil needs at least one offset");
+        }
+        int[] dx = new int[offsets.length];
+        int[] dy = new int[offsets.length];
+        for (int d = 0; d < offsets.length; d++) {
+            if (offsets[d] == null || offsets[d].length != 2) {
+                throw new IllegalArgumentException("Offsets must be {dx, dy} pairs");
+            }
+            dx[d] = offsets[d][0];
+            dy[d] = offsets[d][1];
+        }
+        return new Stencil(dx, dy);
+    }
+
+    /**
+     * The four orthogonal neighbours, numbered like {@link Direction}.
+     */
+    public static Stencil vonNeumann() {
+        return diamond(1);
+    }
+
+    /**
+     * The eight surrounding cells: N, E, S, W, then NE, SE, SW, NW.
+     */
+    public static Stencil moore() {
+        return of(new int[][] {
+                { 0, 1 }, { 1, 0 }, { 0, -1 }, { -1, 0 },
+                { 1, 1 }, { 1, -1 }, { -1, -1 }, { -1, 1 } });
+    }
+
+    /**
+     * All cells within Manhattan distance radius: N, E, S, W first, then the
+     * farther offsets by distance, row by row from the north.
+     *
+     * @throws IllegalArgumentException if radius is not positive.
+     */
+    public static Stencil diamond(int radius) {
+        if (radius <= 0) {
+            throw new IllegalArgumentException("Radius must be a positive integer.");
+        }
+
+        List<int[]> offsets = new ArrayList<>();
+        for (Direction d : Direction.values()) {
+            offsets.add(new int[] { d.dx, d.dy });
+        }
+        for (int dist = 2; dist <= radius; dist++) {
+            for (int y = dist; y >= -dist; y--) {
+                for (int x = -dist; x <= dist; x++) {
+                    if (Math.abs(x) + Math.abs(y) == dist) {
+                        offsets.add(new int[] { x, y });
+                    }
+                }
+            }
+        }
+        return of(offsets.toArray(new int[0][]));
+    }
+
+    public int size() {
+        return dx.length;
+    }
+
+    public int dx(int dir) {
+        return dx[dir];
+    }
+
+    public int dy(int dir) {
+        return dy[dir];
+    }
+
+    public int opposite(int dir) {
+        return opposite[dir];
+    }
+
+    /**
+     * The direction of offset (dx, dy), or -1 if it is not in the stencil.
+     */
+    public int indexOf(int dx, int dy) {
+        for (int d = 0; d < this.dx.length; d++) {
+            if (this.dx[d] == dx && this.dy[d] == dy) {
+                return d;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Largest |dx| or |dy| of any offset.
+     */
+    public int reach() {
+        int reach = 0;
+        for (int d = 0; d < dx.length; d++) {
+            reach = Math.max(reach, Math.max(Math.abs(dx[d]), Math.abs(dy[d])));
+        }
+        return reach;
+    }
+
+    int[] opposites() {
+        return Arrays.copyOf(opposite, opposite.length);
+    }
+}
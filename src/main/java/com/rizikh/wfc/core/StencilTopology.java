@@ -0,0 +1,97 @@
+package com.rizikh.wfc.core;
+
+/**
+ * Rectangular 2D grid whose neighbourhood is an arbitrary {@link Stencil},
+ * e.g. 8-neighbour or a radius-2 diamond, either with hard edges or
+ * wrapping around on both axes.
+ *
+ * Away from the border a neighbour is the cell index plus a fixed flat
+ * delta per direction, so the table is filled with one addition per entry
+ * there; only border cells pay for bounds checks or wrapping.
+ */
+public final class StencilTopology extends Topology {
+    private final Stencil stencil;
+    private final int[] deltas;
+
+    /**
+     * Constructs a StencilTopology.
+     *
+     * @param stencil  The neighbour offsets; directions are its indices.
+     * @param width    Grid width.
+     * @param height   Grid height.
+     * @param periodic Whether the grid wraps around (torus).
+     * @throws IllegalArgumentException if stencil is null or the size is
+     *                                  not positive.
+     */
+    public StencilTopology(Stencil stencil, int width, int height, boolean periodic) {
+        super(width, height, checked(stencil).opposites(), build(stencil, width, height, periodic));
+        this.stencil = stencil;
+        this.deltas = deltas(stencil, width);
+    }
+
+    private static Stencil checked(Stencil stencil) {
+        if (stencil == null) {
+            throw new IllegalArgumentException("Stencil cannot be null");
+        }
+        return stencil;
+    }
+
+    private static int[] deltas(Stencil stencil, int width) {
+        int[] deltas = new int[stencil.size()];
+        for (int d = 0; d < deltas.length; d++) {
+            deltas[d] = stencil.dy(d) * width + stencil.dx(d);
+        }
+        return deltas;
+    }
+
+    private static int[] build(Stencil stencil, int width, int height, boolean periodic) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Width and height must be positive integers.");
+        }
+
+        int dirs = stencil.size();
+        int reach = stencil.reach();
+        int[] deltas = deltas(stencil, width);
+        int[] table = new int[Math.multiplyExact(width * height, dirs)];
+
+        for (int y = 0; y < height; y++) {
+            boolean innerRow = y >= reach && y < height - reach;
+
+            for (int x = 0; x < width; x++) {
+                int cell = y * width + x;
+                int base = cell * dirs;
+
+                if (innerRow && x >= reach && x < width - reach) {
+                    for (int d = 0; d < dirs; d++) {
+                        table[base + d] = cell + deltas[d];
+                    }
+                    continue;
+                }
+
+                for (int d = 0; d < dirs; d++) {
+                    int nx = x + stencil.dx(d);
+                    int ny = y + stencil.dy(d);
+                    if (periodic) {
+                        table[base + d] = Math.floorMod(ny, height) * width + Math.floorMod(nx, width);
+                    } else {
+                        boolean inside = nx >= 0 && nx < width && ny >= 0 && ny < height;
+                        table[base + d] = inside ? ny * width + nx : -1;
+                    }
+                }
+            }
+        }
+        return table;
+    }
+
+    public Stencil stencil() {
+        return stencil;
+    }
+
+    /**
+     * Flat index delta of direction dir: the neighbour of an interior cell is
+     * cell + delta(dir).
+     */
+    public int delta(int dir) {
+        return deltas[dir];
+    }
+}
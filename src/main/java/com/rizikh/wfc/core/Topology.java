@@ -0,0 +1,87 @@
+package com.rizikh.wfc.core;
+
+/**
+ * Cell connectivity for the solver.
+ *
+ * Cells are numbered 0..cellCount-1 and directions 0..directionCount-1.
+ * Every neighbour is precomputed into one flat table so propagation never
+ * does coordinate arithmetic or bounds checks: neighbor(cell, dir) is a
+ * single array read, with -1 meaning "no neighbour in that direction".
+ *
+ * Rulesets used with a topology must number their directions the same way.
+ */
+public abstract class Topology {
+    private final int width;
+    private final int height;
+    private final int directionCount;
+    private final int[] opposite;
+    private final int[] neighbors;
+
+    /**
+     * @param width     2D footprint width (cells are laid out row-major as y * width + x).
+     * @param height    2D footprint height.
+     * @param opposite  opposite[d] is the direction pointing back along d.
+     * @param neighbors Flat table, neighbors[cell * directionCount + dir].
+     */
+    protected Topology(int width, int height, int[] opposite, int[] neighbors) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Width and height must be positive integers.");
+        }
+        if (neighbors.length != Math.multiplyExact(width * height, opposite.length)) {
+            throw new IllegalArgumentException("Neighbor table does not match cell and direction counts");
+        }
+
+        this.width = width;
+        this.height = height;
+        this.directionCount = opposite.length;
+        this.opposite = opposite;
+        this.neighbors = neighbors;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public int cellCount() {
+        return width * height;
+    }
+
+    public int directionCount() {
+        return directionCount;
+    }
+
+    public int opposite(int dir) {
+        return opposite[dir];
+    }
+
+    /**
+     * Returns the neighbour of cell in direction dir, or -1 if there is none.
+     */
+    public int neighbor(int cell, int dir) {
+        return neighbors[cell * directionCount + dir];
+    }
+
+    /**
+     * Fast reference to the flat neighbour table, indexed cell * directionCount() + dir.
+     * IMPORTANT: callers must NOT mutate the returned array.
+     */
+    public int[] neighbors() {
+        return neighbors;
+    }
+
+    /**
+     * Opposites of the four Direction values, by ordinal.
+     */
+    protected static int[] squareOpposites() {
+        Direction[] dirs = Direction.values();
+        int[] opposite = new int[dirs.length];
+        for (Direction d : dirs) {
+            opposite[d.ordinal()] = d.opposite().ordinal();
+        }
+        return opposite;
+    }
+}
@@ -1,12 +1,21 @@
 package com.rizikh.wfc.model;
 
+import java.util.Arrays;
 import java.util.BitSet;
 
 public class Domain {
-    private final BitSet possible;
+    // Packed bits: the domain owns words[offset .. offset + wordCount).
+    // Standalone domains own their array; grid domains are views into the Wave.
+    private final long[] words;
+    private final int offset;
+    private final int wordCount;
+    private final DomainKernel kernel;
 
-    private Domain(BitSet possible) {
-        this.possible = possible;
+    private Domain(long[] words, int offset, int wordCount) {
+        this.words = words;
+        this.offset = offset;
+        this.wordCount = wordCount;
+        this.kernel = DomainKernel.forWords(wordCount);
     }
 
     /**
@@ -16,9 +25,23 @@ public class Domain {
      * @return A new Domain instance with all options set.
      */
     public static Domain full(int TileSize) {
-        BitSet bits = new BitSet();
-        bits.set(0, TileSize);
-        return new Domain(bits);
+        long[] bits = new long[Wave.wordsFor(TileSize)];
+        for (int t = 0; t < TileSize; t++) {
+            bits[t >>> 6] |= 1L << t;
+        }
+        return new Domain(bits, 0, bits.length);
+    }
+
+    /**
+     * Creates a domain backed by the given cell of a Wave.
+     * Changes through the domain are visible in the wave and vice versa.
+     * 
+     * @param wave The wave holding the packed bits.
+     * @param cell The cell index inside the wave.
+     * @return A Domain view of that cell.
+     */
+    static Domain view(Wave wave, int cell) {
+        return new Domain(wave.words(), wave.offset(cell), wave.wordsPerCell());
     }
 
     /**
@@ -27,7 +50,7 @@ public class Domain {
      * @return The count of possible options.
      */
     public int size() {
-        return possible.cardinality();
+        return kernel.popcount(words, offset, wordCount);
     }
 
     /**
@@ -36,7 +59,12 @@ public class Domain {
      * @return True if the domain is empty, false otherwise.
      */
     public boolean isEmpty() {
-        return possible.isEmpty();
+        for (int w = 0; w < wordCount; w++) {
+            if (words[offset + w] != 0L) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -58,7 +86,13 @@ public class Domain {
         if (!isCollapsed()) {
             throw new IllegalStateException("Domain is not collapsed");
         }
-        return possible.nextSetBit(0);
+        for (int w = 0; w < wordCount; w++) {
+            long word = words[offset + w];
+            if (word != 0L) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        throw new IllegalStateException("Domain is not collapsed");
     }
 
     /**
@@ -68,9 +102,11 @@ public class Domain {
      * @return True if the domain was modified, false otherwise.
      */
     public boolean restrictTo(BitSet allowed) {
-        BitSet before = (BitSet) possible.clone();
-        possible.and(allowed);
-        return !possible.equals(before);
+        long[] mask = allowed.toLongArray();
+        if (mask.length < wordCount) {
+            mask = Arrays.copyOf(mask, wordCount);
+        }
+        return kernel.and(words, offset, mask, 0, wordCount);
     }
 
     /**
@@ -80,7 +116,9 @@ public class Domain {
      * @return A new Domain instance that is a copy of this one.
      */
     public Domain copy() {
-        return new Domain((BitSet) possible.clone());
+        long[] own = new long[wordCount];
+        System.arraycopy(words, offset, own, 0, wordCount);
+        return new Domain(own, 0, wordCount);
     }
 
     /**
@@ -89,7 +127,9 @@ public class Domain {
      * @return A copy of the BitSet of possible options.
      */
     public BitSet asBitSetCopy() {
-        return (BitSet) possible.clone();
+        long[] own = new long[wordCount];
+        System.arraycopy(words, offset, own, 0, wordCount);
+        return BitSet.valueOf(own);
     }
 
     @Override
@@ -98,12 +138,18 @@ public class Domain {
         boolean first = true;
 
         // Iterate through all set bits and append their indices to the string
-        for (int i = possible.nextSetBit(0); i >= 0; i = possible.nextSetBit(i + 1)) {
-            if (!first) {
-                sb.append(", ");
+        for (int w = 0; w < wordCount; w++) {
+            long word = words[offset + w];
+            while (word != 0L) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+
+                if (!first) {
+                    sb.append(", ");
+                }
+                sb.append(i);
+                first = false;
             }
-            sb.append(i);
-            first = false;
         }
         return sb.toString();
     }
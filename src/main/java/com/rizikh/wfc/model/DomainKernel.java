@@ -0,0 +1,66 @@
+package com.rizikh.wfc.model;
+
+/**
+ * Word-level operations on packed domains and masks.
+ *
+ * Every hot multi-word loop (support OR-accumulation, restriction AND,
+ * change detection, popcount) goes through a kernel so tilesets wider than
+ * 64 tiles can use SIMD when the jdk.incubator.vector module is present.
+ */
+public interface DomainKernel {
+
+    /**
+     * dst[dstOff + i] |= src[srcOff + i] for i in [0, len).
+     */
+    void or(long[] dst, int dstOff, long[] src, int srcOff, int len);
+
+    /**
+     * dst[dstOff + i] &= mask[maskOff + i] for i in [0, len).
+     *
+     * @return True if any bit of dst was cleared, false otherwise.
+     */
+    boolean and(long[] dst, int dstOff, long[] mask, int maskOff, int len);
+
+    /**
+     * Returns the number of set bits in src[off .. off + len).
+     */
+    int popcount(long[] src, int off, int len);
+
+    /**
+     * Returns the portable scalar kernel.
+     */
+    static DomainKernel scalar() {
+        return ScalarDomainKernel.INSTANCE;
+    }
+
+    /**
+     * Checks whether the Vector API kernel can be used in this JVM
+     * (requires --add-modules jdk.incubator.vector at runtime).
+     */
+    static boolean isVectorAvailable() {
+        return VectorSupport.AVAILABLE;
+    }
+
+    /**
+     * Returns the Vector API kernel.
+     *
+     * @throws UnsupportedOperationException if jdk.incubator.vector is not available.
+     */
+    static DomainKernel vector() {
+        if (!VectorSupport.AVAILABLE) {
+            throw new UnsupportedOperationException("jdk.incubator.vector is not available");
+        }
+        return VectorSupport.INSTANCE;
+    }
+
+    /**
+     * Picks the best kernel for domains spanning the given number of words.
+     * Narrow domains stay scalar: a single vector would be mostly tail handling.
+     */
+    static DomainKernel forWords(int words) {
+        if (VectorSupport.AVAILABLE && words >= VectorSupport.MIN_WORDS) {
+            return VectorSupport.INSTANCE;
+        }
+        return ScalarDomainKernel.INSTANCE;
+    }
+}
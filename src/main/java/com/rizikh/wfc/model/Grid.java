@@ -1,36 +1,61 @@
 package com.rizikh.wfc.model;
 
+import com.rizikh.wfc.core.BoundedTopology;
+import com.rizikh.wfc.core.Topology;
+
+/**
+ * A map to solve: its topology plus a dense on-heap {@link Wave}.
+ *
+ * Construction allocates and fills every cell's domain, so it costs
+ * O(cells x words per cell) in time and memory whatever the solve touches.
+ * {@link SparseWave} and {@link MappedWave} avoid that, but only
+ * {@link com.rizikh.wfc.solver.StorageSolver} runs on them.
+ */
 public class Grid {
     private final int width;
     private final int height;
     private final int tileCount;
-    private final Cell[][] cells;
+    private final Topology topology;
+    private final Wave wave;
 
     /**
-     * Constructs a Grid with the specified dimensions and tile count.
+     * Constructs a bounded rectangular Grid with the specified dimensions and tile count.
      * 
      * @param width     The width of the grid.
      * @param height    The height of the grid.
      * @param tileCount The number of different tile types.
      */
     public Grid(int width, int height, int tileCount) {
-        if (width <= 0 || height <= 0) {
-            throw new IllegalArgumentException("Width and height must be positive integers.");
+        this(checkedTopology(width, height), tileCount);
+    }
+
+    /**
+     * Constructs a Grid over an arbitrary topology (periodic, hex, 3D, ...).
+     * Width and height are the topology's 2D footprint.
+     * 
+     * @param topology  The cell connectivity.
+     * @param tileCount The number of different tile types.
+     */
+    public Grid(Topology topology, int tileCount) {
+        if (topology == null) {
+            throw new IllegalArgumentException("Topology cannot be null");
         }
         if (tileCount <= 0) {
             throw new IllegalArgumentException("Tile count must be a positive integer.");
         }
 
-        this.width = width;
-        this.height = height;
+        this.width = topology.width();
+        this.height = topology.height();
         this.tileCount = tileCount;
-        this.cells = new Cell[width][height];
+        this.topology = topology;
+        this.wave = new Wave(topology.cellCount(), tileCount);
+    }
 
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                cells[x][y] = new Cell(tileCount);
-            }
+    private static Topology checkedTopology(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Width and height must be positive integers.");
         }
+        return new BoundedTopology(width, height);
     }
 
     public int getWidth() {
@@ -45,15 +70,50 @@ public class Grid {
         return tileCount;
     }
 
+    public int cellCount() {
+        return wave.cellCount();
+    }
+
+    public Topology getTopology() {
+        return topology;
+    }
+
+    /**
+     * Returns the packed domain storage shared by every cell of this grid.
+     */
+    public Wave getWave() {
+        return wave;
+    }
+
+    /**
+     * Flat cell index used by the wave: y * width + x.
+     */
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    public int xOf(int index) {
+        return index % width;
+    }
+
+    public int yOf(int index) {
+        return index / width;
+    }
+
     public boolean inBounds(int x, int y) {
         return x >= 0 && x < width && y >= 0 && y < height;
     }
 
+    /**
+     * Returns a view of the cell at (x, y) over the packed wave. Views hold no
+     * state of their own, so they are created on demand rather than kept per
+     * cell.
+     */
     public Cell getCell(int x, int y) {
         if (!inBounds(x, y)) {
             throw new IndexOutOfBoundsException("Coordinates out of bounds: (" + x + ", " + y + ")");
         }
-        return cells[x][y];
+        return new Cell(Domain.view(wave, index(x, y)));
     }
 
     public boolean isCollapsed(int x, int y) {
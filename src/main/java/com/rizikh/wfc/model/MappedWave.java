@@ -0,0 +1,309 @@
+package com.rizikh.wfc.model;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Wave storage in a memory-mapped file, for maps larger than the heap.
+ *
+ * Cells are grouped into 32 x 32 blocks stored contiguously. Blocks are laid
+ * out in Z-order (Morton order) inside square super-tiles, whose side is the
+ * largest power of two that fits the shorter side of the map, and the
+ * super-tiles follow each other row by row. Cells that are close on the map
+ * are then close in the file, and the file grows with the map's area even
+ * when one side is much longer than the other. Propagation then touches few
+ * pages, and the OS page cache keeps the working set resident while the rest
+ * of the map stays on disk. The heap only holds the mapping objects.
+ *
+ * The file is mapped in chunks of up to 1 GiB (a mapped buffer cannot exceed
+ * 2 GiB). Mappings are released by the garbage collector after close; the
+ * file itself is kept. Not thread-safe.
+ */
+public final class MappedWave implements WaveStorage, AutoCloseable {
+    private static final int BLOCK_SHIFT = 5;
+    private static final int BLOCK_SIDE = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_SIDE - 1;
+    private static final int BLOCK_CELLS = BLOCK_SIDE * BLOCK_SIDE;
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+
+    private final int width;
+    private final int height;
+    private final int cellCount;
+    private final int tileCount;
+    private final int wordsPerCell;
+    private final long[] fullDomain;
+
+    private final FileChannel channel;
+    private final LongBuffer[] chunks;
+    private final long chunkWords;
+
+    // Super-tile side in blocks (log2), and super-tiles per row
+    private final int superShift;
+    private final int superColumns;
+
+    /**
+     * Creates (or truncates) the backing file and fills every cell with the
+     * full domain.
+     *
+     * @param file      The backing file.
+     * @param width     Map width in cells.
+     * @param height    Map height in cells.
+     * @param tileCount The number of different tile types.
+     * @throws IOException              if the file cannot be created or mapped.
+     * @throws IllegalArgumentException if a dimension is not positive or the
+     *                                  map has more than Integer.MAX_VALUE cells.
+     */
+    public MappedWave(Path file, int width, int height, int tileCount) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Width and height must be positive integers.");
+        }
+        if (tileCount <= 0) {
+            throw new IllegalArgumentException("Tile count must be a positive integer.");
+        }
+        if ((long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Map has more than " + Integer.MAX_VALUE + " cells");
+        }
+
+        this.width = width;
+        this.height = height;
+        this.cellCount = width * height;
+        this.tileCount = tileCount;
+        this.wordsPerCell = Wave.wordsFor(tileCount);
+
+        this.fullDomain = new long[wordsPerCell];
+        for (int t = 0; t < tileCount; t++) {
+            fullDomain[t >>> 6] |= 1L << t;
+        }
+
+        int blockColumns = ((width - 1) >>> BLOCK_SHIFT) + 1;
+        int blockRows = ((height - 1) >>> BLOCK_SHIFT) + 1;
+        this.superShift = 31 - Integer.numberOfLeadingZeros(Math.min(blockColumns, blockRows));
+        this.superColumns = ((blockColumns - 1) >>> superShift) + 1;
+
+        // Blocks up to the last one (last super-tile, highest Morton code); gaps stay sparse in the file
+        long blocks = blockIndex(blockColumns - 1, blockRows - 1) + 1;
+        long blockWords = (long) BLOCK_CELLS * wordsPerCell;
+        long blocksPerChunk = Math.max(1, MAX_CHUNK_BYTES / (blockWords * 8));
+        this.chunkWords = blocksPerChunk * blockWords;
+
+        long totalWords = blocks * blockWords;
+        int chunkCount = (int) ((totalWords + chunkWords - 1) / chunkWords);
+
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.chunks = new LongBuffer[chunkCount];
+        try {
+            for (int c = 0; c < chunkCount; c++) {
+                long start = c * chunkWords;
+                long words = Math.min(chunkWords, totalWords - start);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, start * 8, words * 8);
+                chunks[c] = buffer.order(ByteOrder.nativeOrder()).asLongBuffer();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        fill();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int cellCount() {
+        return cellCount;
+    }
+
+    @Override
+    public int tileCount() {
+        return tileCount;
+    }
+
+    @Override
+    public int wordsPerCell() {
+        return wordsPerCell;
+    }
+
+    /**
+     * Flushes dirty pages to the file and closes it.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.force(false);
+        channel.close();
+    }
+
+    // ------------------------------------------------------------
+    // Layout
+    // ------------------------------------------------------------
+
+    // Interleaves the bits of bx and by (bx in the even positions).
+    private static long morton(int bx, int by) {
+        return spread(bx) | (spread(by) << 1);
+    }
+
+    private static long spread(int v) {
+        long x = v & 0xFFFFFFFFL;
+        x = (x | (x << 16)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x << 8)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x << 2)) & 0x3333333333333333L;
+        x = (x | (x << 1)) & 0x5555555555555555L;
+        return x;
+    }
+
+    // Position of block (bx, by) in the file, in blocks.
+    private long blockIndex(int bx, int by) {
+        long superTile = (long) (by >>> superShift) * superColumns + (bx >>> superShift);
+        int superMask = (1 << superShift) - 1;
+        return (superTile << (2 * superShift)) + morton(bx & superMask, by & superMask);
+    }
+
+    // Global index of the cell's first word.
+    private long wordIndex(int cell) {
+        int x = cell % width;
+        int y = cell / width;
+        long block = blockIndex(x >>> BLOCK_SHIFT, y >>> BLOCK_SHIFT);
+        int local = ((y & BLOCK_MASK) << BLOCK_SHIFT) | (x & BLOCK_MASK);
+        return (block * BLOCK_CELLS + local) * wordsPerCell;
+    }
+
+    // ------------------------------------------------------------
+    // WaveStorage
+    // ------------------------------------------------------------
+
+    @Override
+    public void fill() {
+        // Block by block, so writes stream through the file in order
+        for (int by = 0; by * BLOCK_SIDE < height; by++) {
+            for (int bx = 0; bx * BLOCK_SIDE < width; bx++) {
+                int yEnd = Math.min(height, (by + 1) * BLOCK_SIDE);
+                int xEnd = Math.min(width, (bx + 1) * BLOCK_SIDE);
+                for (int y = by * BLOCK_SIDE; y < yEnd; y++) {
+                    for (int x = bx * BLOCK_SIDE; x < xEnd; x++) {
+                        write(y * width + x, fullDomain);
+                    }
+                }
+            }
+        }
+    }
+
+    private void write(int cell, long[] domain) {
+        long index = wordIndex(cell);
+        LongBuffer chunk = chunks[(int) (index / chunkWords)];
+        int at = (int) (index % chunkWords);
+        for (int w = 0; w < wordsPerCell; w++) {
+            chunk.put(at + w, domain[w]);
+        }
+    }
+
+    @Override
+    public void readDomain(int cell, long[] dst, int dstOffset) {
+        long index = wordIndex(cell);
+        LongBuffer chunk = chunks[(int) (index / chunkWords)];
+        int at = (int) (index % chunkWords);
+        for (int w = 0; w < wordsPerCell; w++) {
+            dst[dstOffset + w] = chunk.get(at + w);
+        }
+    }
+
+    @Override
+    public boolean and(int cell, long[] mask, int maskOffset) {
+        long index = wordIndex(cell);
+        LongBuffer chunk = chunks[(int) (index / chunkWords)];
+        int at = (int) (index % chunkWords);
+
+        boolean changed = false;
+        for (int w = 0; w < wordsPerCell; w++) {
+            long old = chunk.get(at + w);
+            long next = old & mask[maskOffset + w];
+            if (next != old) {
+                chunk.put(at + w, next);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public int count(int cell) {
+        long index = wordIndex(cell);
+        LongBuffer chunk = chunks[(int) (index / chunkWords)];
+        int at = (int) (index % chunkWords);
+
+        int count = 0;
+        for (int w = 0; w < wordsPerCell; w++) {
+            count += Long.bitCount(chunk.get(at + w));
+        }
+        return count;
+    }
+
+    @Override
+    public boolean isEmpty(int cell) {
+        long index = wordIndex(cell);
+        LongBuffer chunk = chunks[(int) (index / chunkWords)];
+        int at = (int) (index % chunkWords);
+
+        for (int w = 0; w < wordsPerCell; w++) {
+            if (chunk.get(at + w) != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(int cell, int tile) {
+        long index = wordIndex(cell) + (tile >>> 6);
+        return (chunks[(int) (index / chunkWords)].get((int) (index % chunkWords)) & (1L << tile)) != 0L;
+    }
+
+    @Override
+    public int firstTile(int cell) {
+        long index = wordIndex(cell);
+        LongBuffer chunk = chunks[(int) (index / chunkWords)];
+        int at = (int) (index % chunkWords);
+
+        for (int w = 0; w < wordsPerCell; w++) {
+            long word = chunk.get(at + w);
+            if (word != 0L) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void collapse(int cell, int tile) {
+        long index = wordIndex(cell);
+        LongBuffer chunk = chunks[(int) (index / chunkWords)];
+        int at = (int) (index % chunkWords);
+
+        for (int w = 0; w < wordsPerCell; w++) {
+            chunk.put(at + w, w == (tile >>> 6) ? 1L << tile : 0L);
+        }
+    }
+
+    @Override
+    public boolean ban(int cell, int tile) {
+        long index = wordIndex(cell) + (tile >>> 6);
+        LongBuffer chunk = chunks[(int) (index / chunkWords)];
+        int at = (int) (index % chunkWords);
+
+        long word = chunk.get(at);
+        long bit = 1L << tile;
+        chunk.put(at, word & ~bit);
+        return (word & bit) != 0L;
+    }
+}
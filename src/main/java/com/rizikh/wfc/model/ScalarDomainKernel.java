@@ -0,0 +1,39 @@
+package com.rizikh.wfc.model;
+
+/**
+ * Plain loop implementation of DomainKernel; always available.
+ */
+final class ScalarDomainKernel implements DomainKernel {
+    static final ScalarDomainKernel INSTANCE = new ScalarDomainKernel();
+
+    private ScalarDomainKernel() {
+    }
+
+    @Override
+    public void or(long[] dst, int dstOff, long[] src, int srcOff, int len) {
+        for (int i = 0; i < len; i++) {
+            dst[dstOff + i] |= src[srcOff + i];
+        }
+    }
+
+    @Override
+    public boolean and(long[] dst, int dstOff, long[] mask, int maskOff, int len) {
+        long removed = 0L;
+        for (int i = 0; i < len; i++) {
+            long before = dst[dstOff + i];
+            long after = before & mask[maskOff + i];
+            removed |= before ^ after;
+            dst[dstOff + i] = after;
+        }
+        return removed != 0L;
+    }
+
+    @Override
+    public int popcount(long[] src, int off, int len) {
+        int n = 0;
+        for (int i = 0; i < len; i++) {
+            n += Long.bitCount(src[off + i]);
+        }
+        return n;
+    }
+}
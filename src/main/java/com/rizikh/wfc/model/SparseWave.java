@@ -0,0 +1,300 @@
+package com.rizikh.wfc.model;
+
+import java.util.Arrays;
+
+/**
+ * Copy-on-write wave storage for mostly untouched maps: huge maps early in
+ * a solve, or chunked and streaming uses that only ever restrict a small
+ * region.
+ *
+ * Cells are grouped into 32 x 32 blocks. A block that was never written has
+ * no storage at all and every cell in it implicitly holds the full domain;
+ * the first write that actually removes a tile allocates the block (filled
+ * with full domains) and only then applies the change. ANDs with a mask
+ * that keeps the full domain, the common case while propagating into fresh
+ * territory, never allocate. Memory is therefore proportional to the
+ * touched area plus one reference per block, and construction allocates
+ * nothing per cell.
+ *
+ * {@link #fill()} costs O(touched blocks): their arrays go back to a free
+ * list and are reused by later allocations. Not thread-safe.
+ */
+public final class SparseWave implements WaveStorage {
+    private static final int BLOCK_SHIFT = 5;
+    private static final int BLOCK_SIDE = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_SIDE - 1;
+    private static final int BLOCK_CELLS = BLOCK_SIDE * BLOCK_SIDE;
+
+    private final int width;
+    private final int height;
+    private final int cellCount;
+    private final int tileCount;
+    private final int wordsPerCell;
+    private final int blocksPerRow;
+    private final long[] fullDomain;
+
+    // blocks[b] == null: every cell of block b holds the full domain
+    private final long[][] blocks;
+    private int[] allocated = new int[16];
+    private int allocatedCount;
+    private long[][] free = new long[16][];
+    private int freeCount;
+
+    /**
+     * Constructs a SparseWave with every cell at the full domain.
+     *
+     * @param width     Map width in cells.
+     * @param height    Map height in cells.
+     * @param tileCount The number of different tile types.
+     * @throws IllegalArgumentException if a dimension is not positive or the
+     *                                  map has more than Integer.MAX_VALUE cells.
+     */
+    public SparseWave(int width, int height, int tileCount) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Width and height must be positive integers.");
+        }
+        if (tileCount <= 0) {
+            throw new IllegalArgumentException("Tile count must be a positive integer.");
+        }
+        if ((long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Map has more than " + Integer.MAX_VALUE + " cells");
+        }
+
+        this.width = width;
+        this.height = height;
+        this.cellCount = width * height;
+        this.tileCount = tileCount;
+        this.wordsPerCell = Wave.wordsFor(tileCount);
+        this.blocksPerRow = (width + BLOCK_MASK) >>> BLOCK_SHIFT;
+        this.blocks = new long[blocksPerRow * ((height + BLOCK_MASK) >>> BLOCK_SHIFT)][];
+
+        this.fullDomain = new long[wordsPerCell];
+        for (int t = 0; t < tileCount; t++) {
+            fullDomain[t >>> 6] |= 1L << t;
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int cellCount() {
+        return cellCount;
+    }
+
+    @Override
+    public int tileCount() {
+        return tileCount;
+    }
+
+    @Override
+    public int wordsPerCell() {
+        return wordsPerCell;
+    }
+
+    /**
+     * Number of blocks that currently have storage.
+     */
+    public int allocatedBlocks() {
+        return allocatedCount;
+    }
+
+    /**
+     * Bytes of domain storage currently allocated (excluding the free list).
+     */
+    public long allocatedBytes() {
+        return (long) allocatedCount * BLOCK_CELLS * wordsPerCell * Long.BYTES;
+    }
+
+    // ------------------------------------------------------------
+    // Layout
+    // ------------------------------------------------------------
+
+    private int blockOf(int x, int y) {
+        return (y >>> BLOCK_SHIFT) * blocksPerRow + (x >>> BLOCK_SHIFT);
+    }
+
+    // Offset of the cell's first word inside its block.
+    private int localOffset(int x, int y) {
+        return (((y & BLOCK_MASK) << BLOCK_SHIFT) | (x & BLOCK_MASK)) * wordsPerCell;
+    }
+
+    // The block at index b, allocating it (all full domains) on first write.
+    private long[] writableBlock(int b) {
+        long[] block = blocks[b];
+        if (block != null) {
+            return block;
+        }
+
+        block = freeCount > 0 ? free[--freeCount] : new long[BLOCK_CELLS * wordsPerCell];
+        if (wordsPerCell == 1) {
+            Arrays.fill(block, fullDomain[0]);
+        } else {
+            System.arraycopy(fullDomain, 0, block, 0, wordsPerCell);
+            for (int filled = wordsPerCell; filled < block.length; filled <<= 1) {
+                System.arraycopy(block, 0, block, filled, Math.min(filled, block.length - filled));
+            }
+        }
+
+        blocks[b] = block;
+        if (allocatedCount == allocated.length) {
+            allocated = Arrays.copyOf(allocated, allocatedCount * 2);
+        }
+        allocated[allocatedCount++] = b;
+        return block;
+    }
+
+    // ------------------------------------------------------------
+    // WaveStorage
+    // ------------------------------------------------------------
+
+    @Override
+    public void fill() {
+        for (int i = 0; i < allocatedCount; i++) {
+            int b = allocated[i];
+            if (freeCount == free.length) {
+                free = Arrays.copyOf(free, freeCount * 2);
+            }
+            free[freeCount++] = blocks[b];
+            blocks[b] = null;
+        }
+        allocatedCount = 0;
+    }
+
+    @Override
+    public void readDomain(int cell, long[] dst, int dstOffset) {
+        int y = cell / width;
+        int x = cell - y * width;
+        long[] block = blocks[blockOf(x, y)];
+        if (block == null) {
+            System.arraycopy(fullDomain, 0, dst, dstOffset, wordsPerCell);
+        } else {
+            System.arraycopy(block, localOffset(x, y), dst, dstOffset, wordsPerCell);
+        }
+    }
+
+    @Override
+    public boolean and(int cell, long[] mask, int maskOffset) {
+        int y = cell / width;
+        int x = cell - y * width;
+        long[] block = blocks[blockOf(x, y)];
+        if (block == null) {
+            boolean keepsAll = true;
+            for (int w = 0; w < wordsPerCell; w++) {
+                keepsAll &= (fullDomain[w] & ~mask[maskOffset + w]) == 0L;
+            }
+            if (keepsAll) {
+                return false;
+            }
+            block = writableBlock(blockOf(x, y));
+        }
+
+        int at = localOffset(x, y);
+        boolean changed = false;
+        for (int w = 0; w < wordsPerCell; w++) {
+            long old = block[at + w];
+            long next = old & mask[maskOffset + w];
+            if (next != old) {
+                block[at + w] = next;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public int count(int cell) {
+        int y = cell / width;
+        int x = cell - y * width;
+        long[] block = blocks[blockOf(x, y)];
+        if (block == null) {
+            return tileCount;
+        }
+
+        int at = localOffset(x, y);
+        int count = 0;
+        for (int w = 0; w < wordsPerCell; w++) {
+            count += Long.bitCount(block[at + w]);
+        }
+        return count;
+    }
+
+    @Override
+    public boolean isEmpty(int cell) {
+        int y = cell / width;
+        int x = cell - y * width;
+        long[] block = blocks[blockOf(x, y)];
+        if (block == null) {
+            return false;
+        }
+
+        int at = localOffset(x, y);
+        for (int w = 0; w < wordsPerCell; w++) {
+            if (block[at + w] != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(int cell, int tile) {
+        int y = cell / width;
+        int x = cell - y * width;
+        long[] block = blocks[blockOf(x, y)];
+        if (block == null) {
+            return tile >= 0 && tile < tileCount;
+        }
+        return (block[localOffset(x, y) + (tile >>> 6)] & (1L << tile)) != 0L;
+    }
+
+    @Override
+    public int firstTile(int cell) {
+        int y = cell / width;
+        int x = cell - y * width;
+        long[] block = blocks[blockOf(x, y)];
+        if (block == null) {
+            return 0;
+        }
+
+        int at = localOffset(x, y);
+        for (int w = 0; w < wordsPerCell; w++) {
+            long word = block[at + w];
+            if (word != 0L) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void collapse(int cell, int tile) {
+        int y = cell / width;
+        int x = cell - y * width;
+        long[] block = writableBlock(blockOf(x, y));
+        int at = localOffset(x, y);
+        for (int w = 0; w < wordsPerCell; w++) {
+            block[at + w] = w == (tile >>> 6) ? 1L << tile : 0L;
+        }
+    }
+
+    @Override
+    public boolean ban(int cell, int tile) {
+        if (tile < 0 || tile >= tileCount) {
+            return false;
+        }
+        int y = cell / width;
+        int x = cell - y * width;
+        long[] block = writableBlock(blockOf(x, y));
+        int at = localOffset(x, y) + (tile >>> 6);
+        long bit = 1L << tile;
+        boolean had = (block[at] & bit) != 0L;
+        block[at] &= ~bit;
+        return had;
+    }
+}
@@ -0,0 +1,73 @@
+package com.rizikh.wfc.model;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * DomainKernel built on the incubating Vector API.
+ * Only loaded through VectorSupport once the module is known to be present.
+ */
+final class VectorDomainKernel implements DomainKernel {
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    static int lanes() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public void or(long[] dst, int dstOff, long[] src, int srcOff, int len) {
+        int i = 0;
+        int upper = SPECIES.loopBound(len);
+
+        for (; i < upper; i += SPECIES.length()) {
+            LongVector a = LongVector.fromArray(SPECIES, dst, dstOff + i);
+            LongVector b = LongVector.fromArray(SPECIES, src, srcOff + i);
+            a.or(b).intoArray(dst, dstOff + i);
+        }
+        for (; i < len; i++) {
+            dst[dstOff + i] |= src[srcOff + i];
+        }
+    }
+
+    @Override
+    public boolean and(long[] dst, int dstOff, long[] mask, int maskOff, int len) {
+        int i = 0;
+        int upper = SPECIES.loopBound(len);
+        LongVector removed = LongVector.zero(SPECIES);
+
+        for (; i < upper; i += SPECIES.length()) {
+            LongVector before = LongVector.fromArray(SPECIES, dst, dstOff + i);
+            LongVector m = LongVector.fromArray(SPECIES, mask, maskOff + i);
+            removed = removed.or(before.and(m.not()));
+            before.and(m).intoArray(dst, dstOff + i);
+        }
+
+        long tail = 0L;
+        for (; i < len; i++) {
+            long before = dst[dstOff + i];
+            long after = before & mask[maskOff + i];
+            tail |= before ^ after;
+            dst[dstOff + i] = after;
+        }
+
+        return tail != 0L || removed.reduceLanes(VectorOperators.OR) != 0L;
+    }
+
+    @Override
+    public int popcount(long[] src, int off, int len) {
+        int i = 0;
+        int upper = SPECIES.loopBound(len);
+        LongVector acc = LongVector.zero(SPECIES);
+
+        for (; i < upper; i += SPECIES.length()) {
+            acc = acc.add(LongVector.fromArray(SPECIES, src, off + i).lanewise(VectorOperators.BIT_COUNT));
+        }
+
+        int n = (int) acc.reduceLanes(VectorOperators.ADD);
+        for (; i < len; i++) {
+            n += Long.bitCount(src[off + i]);
+        }
+        return n;
+    }
+}
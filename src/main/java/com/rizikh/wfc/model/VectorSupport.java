@@ -0,0 +1,32 @@
+package com.rizikh.wfc.model;
+
+/**
+ * Lazily probes for jdk.incubator.vector so the vector kernel class is never
+ * linked when the module is absent (it is not resolved by default).
+ */
+final class VectorSupport {
+    static final boolean AVAILABLE;
+    static final DomainKernel INSTANCE;
+    static final int MIN_WORDS;
+
+    static {
+        DomainKernel kernel = null;
+        int minWords = Integer.MAX_VALUE;
+
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                kernel = new VectorDomainKernel();
+                minWords = 2 * VectorDomainKernel.lanes();
+            } catch (LinkageError e) {
+                kernel = null;
+            }
+        }
+
+        INSTANCE = kernel;
+        AVAILABLE = kernel != null;
+        MIN_WORDS = minWords;
+    }
+
+    private VectorSupport() {
+    }
+}
@@ -0,0 +1,298 @@
+package com.rizikh.wfc.model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Word-packed storage for every cell's domain.
+ *
+ * Cell i owns the words [i * wordsPerCell, (i + 1) * wordsPerCell); bit t of
+ * that slice is set while tile t is still possible. Keeping all domains in one
+ * flat long[] lets propagators work on raw words (including lock-free atomic
+ * AND) instead of allocating BitSets per visit.
+ */
+public final class Wave implements WaveStorage {
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final int cellCount;
+    private final int tileCount;
+    private final int wordsPerCell;
+    private final long[] words;
+    private final DomainKernel kernel;
+
+    // Change journal (optional): cells modified since the last clearChanges(),
+    // each listed once thanks to the per-cell mark bits
+    private int[] changed;
+    private long[] changedMarks;
+    private int changedCount;
+
+    /**
+     * Constructs a Wave where every cell starts with the full domain.
+     *
+     * @param cellCount The number of cells.
+     * @param tileCount The number of different tile types.
+     */
+    public Wave(int cellCount, int tileCount) {
+        if (cellCount <= 0) {
+            throw new IllegalArgumentException("Cell count must be a positive integer.");
+        }
+        if (tileCount <= 0) {
+            throw new IllegalArgumentException("Tile count must be a positive integer.");
+        }
+
+        this.cellCount = cellCount;
+        this.tileCount = tileCount;
+        this.wordsPerCell = wordsFor(tileCount);
+        this.words = new long[Math.multiplyExact(cellCount, wordsPerCell)];
+        this.kernel = DomainKernel.forWords(wordsPerCell);
+
+        fill();
+    }
+
+    /**
+     * Returns the number of 64-bit words needed to hold tileCount bits.
+     */
+    public static int wordsFor(int tileCount) {
+        return (tileCount + 63) >>> 6;
+    }
+
+    @Override
+    public int cellCount() {
+        return cellCount;
+    }
+
+    @Override
+    public int tileCount() {
+        return tileCount;
+    }
+
+    @Override
+    public int wordsPerCell() {
+        return wordsPerCell;
+    }
+
+    /**
+     * Kernel used for multi-word operations on this wave's domains.
+     */
+    public DomainKernel kernel() {
+        return kernel;
+    }
+
+    /**
+     * Index of the first word of the given cell in {@link #words()}.
+     */
+    public int offset(int cell) {
+        return cell * wordsPerCell;
+    }
+
+    /**
+     * Fast reference to the backing words.
+     * IMPORTANT: callers may only clear bits; setting bits breaks propagation.
+     */
+    public long[] words() {
+        return words;
+    }
+
+    // ------------------------------------------------------------
+    // Change journal
+    // ------------------------------------------------------------
+
+    /**
+     * Starts or stops recording which cells are modified through
+     * {@link #and}, {@link #ban}, {@link #collapse} and {@link #getAndAnd},
+     * so consumers that diff the wave per step (e.g. a solve log) only look
+     * at those cells. Writes through {@link #words()} and {@link #fill()} are
+     * not recorded. Costs one int and one bit per cell while enabled.
+     */
+    public void trackChanges(boolean enabled) {
+        if (!enabled) {
+            changed = null;
+            changedMarks = null;
+        } else if (changed == null) {
+            changed = new int[cellCount];
+            changedMarks = new long[(cellCount + 63) >>> 6];
+        }
+        changedCount = 0;
+    }
+
+    /**
+     * Number of distinct cells modified since the last {@link #clearChanges()}.
+     */
+    public int changeCount() {
+        return changedCount;
+    }
+
+    /**
+     * The i-th modified cell, in modification order.
+     */
+    public int changedCell(int i) {
+        return changed[i];
+    }
+
+    /**
+     * Sorts the modified cells into index order.
+     */
+    public void sortChanges() {
+        Arrays.sort(changed, 0, changedCount);
+    }
+
+    /**
+     * Empties the journal. O(modified cells).
+     */
+    public void clearChanges() {
+        for (int i = 0; i < changedCount; i++) {
+            int cell = changed[i];
+            changedMarks[cell >>> 6] &= ~(1L << cell);
+        }
+        changedCount = 0;
+    }
+
+    private void markChanged(int cell) {
+        long bit = 1L << cell;
+        if ((changedMarks[cell >>> 6] & bit) == 0L) {
+            changedMarks[cell >>> 6] |= bit;
+            changed[changedCount++] = cell;
+        }
+    }
+
+    /**
+     * Resets every cell to the full domain. Bulk copies only, so refilling
+     * a wave for the next solve costs about as much as a memset.
+     */
+    @Override
+    public void fill() {
+        int fullWords = tileCount >>> 6;
+        int rest = tileCount & 63;
+
+        if (wordsPerCell == 1) {
+            Arrays.fill(words, rest != 0 ? (1L << rest) - 1 : -1L);
+            return;
+        }
+
+        // Write the first cell, then keep doubling the filled prefix
+        Arrays.fill(words, 0, fullWords, -1L);
+        if (rest != 0) {
+            words[fullWords] = (1L << rest) - 1;
+        }
+        for (int filled = wordsPerCell; filled < words.length; filled <<= 1) {
+            System.arraycopy(words, 0, words, filled, Math.min(filled, words.length - filled));
+        }
+    }
+
+    @Override
+    public void readDomain(int cell, long[] dst, int dstOffset) {
+        System.arraycopy(words, cell * wordsPerCell, dst, dstOffset, wordsPerCell);
+    }
+
+    /**
+     * Returns the number of tiles still possible in the cell.
+     */
+    @Override
+    public int count(int cell) {
+        return kernel.popcount(words, cell * wordsPerCell, wordsPerCell);
+    }
+
+    @Override
+    public boolean isEmpty(int cell) {
+        int off = cell * wordsPerCell;
+        for (int w = 0; w < wordsPerCell; w++) {
+            if (words[off + w] != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(int cell, int tile) {
+        return (words[cell * wordsPerCell + (tile >>> 6)] & (1L << tile)) != 0L;
+    }
+
+    /**
+     * Returns the lowest tile id still possible in the cell, or -1 if empty.
+     */
+    @Override
+    public int firstTile(int cell) {
+        int off = cell * wordsPerCell;
+        for (int w = 0; w < wordsPerCell; w++) {
+            long word = words[off + w];
+            if (word != 0L) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Intersects the cell's domain with mask[maskOffset .. maskOffset + wordsPerCell).
+     *
+     * @return True if the domain was modified, false otherwise.
+     */
+    @Override
+    public boolean and(int cell, long[] mask, int maskOffset) {
+        boolean modified = kernel.and(words, cell * wordsPerCell, mask, maskOffset, wordsPerCell);
+        if (modified && changed != null) {
+            markChanged(cell);
+        }
+        return modified;
+    }
+
+    /**
+     * Collapses the cell to exactly one tile.
+     */
+    @Override
+    public void collapse(int cell, int tile) {
+        int off = cell * wordsPerCell;
+        for (int w = 0; w < wordsPerCell; w++) {
+            words[off + w] = 0L;
+        }
+        words[off + (tile >>> 6)] = 1L << tile;
+        if (changed != null) {
+            markChanged(cell);
+        }
+    }
+
+    /**
+     * Removes a single tile from the cell's domain.
+     *
+     * @return True if the tile was possible before, false otherwise.
+     */
+    @Override
+    public boolean ban(int cell, int tile) {
+        int i = cell * wordsPerCell + (tile >>> 6);
+        long bit = 1L << tile;
+        boolean had = (words[i] & bit) != 0L;
+        words[i] &= ~bit;
+        if (had && changed != null) {
+            markChanged(cell);
+        }
+        return had;
+    }
+
+    /**
+     * Atomically ANDs a single backing word with mask.
+     * Safe to call concurrently with other atomic updates of the same word;
+     * the change journal, when enabled, is updated under a lock.
+     *
+     * @param wordIndex Absolute index into {@link #words()}.
+     * @return The previous value of the word.
+     */
+    public long getAndAnd(int wordIndex, long mask) {
+        long before = (long) WORDS.getAndBitwiseAnd(words, wordIndex, mask);
+        int[] journal = changed;
+        if (journal != null && (before & ~mask) != 0L) {
+            synchronized (journal) {
+                markChanged(wordIndex / wordsPerCell);
+            }
+        }
+        return before;
+    }
+
+    /**
+     * Reads a single backing word with volatile semantics.
+     */
+    public long getVolatile(int wordIndex) {
+        return (long) WORDS.getVolatile(words, wordIndex);
+    }
+}
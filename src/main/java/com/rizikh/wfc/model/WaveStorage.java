@@ -0,0 +1,62 @@
+package com.rizikh.wfc.model;
+
+/**
+ * Cell-index view of a wave: per-cell tile domains that only ever shrink
+ * between fills. Cells are addressed as y * width + x regardless of how the
+ * implementation lays them out.
+ *
+ * {@link Wave} keeps everything in one on-heap array; {@link MappedWave}
+ * keeps it in memory-mapped files for maps larger than the heap, and
+ * {@link SparseWave} only stores the blocks a solve has restricted.
+ */
+public interface WaveStorage {
+
+    int cellCount();
+
+    int tileCount();
+
+    int wordsPerCell();
+
+    /**
+     * Resets every cell to the full domain.
+     */
+    void fill();
+
+    /**
+     * Copies the cell's domain words into dst[dstOffset .. dstOffset + wordsPerCell).
+     */
+    void readDomain(int cell, long[] dst, int dstOffset);
+
+    /**
+     * Intersects the cell's domain with mask[maskOffset .. maskOffset + wordsPerCell).
+     *
+     * @return True if the domain was modified, false otherwise.
+     */
+    boolean and(int cell, long[] mask, int maskOffset);
+
+    /**
+     * Returns the number of tiles still possible in the cell.
+     */
+    int count(int cell);
+
+    boolean isEmpty(int cell);
+
+    boolean contains(int cell, int tile);
+
+    /**
+     * Returns the lowest tile id still possible in the cell, or -1 if empty.
+     */
+    int firstTile(int cell);
+
+    /**
+     * Collapses the cell to exactly one tile.
+     */
+    void collapse(int cell, int tile);
+
+    /**
+     * Removes a single tile from the cell's domain.
+     *
+     * @return True if the tile was possible before, false otherwise.
+     */
+    boolean ban(int cell, int tile);
+}
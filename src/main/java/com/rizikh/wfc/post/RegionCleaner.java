@@ -0,0 +1,289 @@
+package com.rizikh.wfc.post;
+
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.Ruleset;
+import com.rizikh.wfc.solver.WfcSolver;
+
+/**
+ * Minimum region cleanup for solved maps.
+ *
+ * Regions smaller than the threshold are removed by re-solving a small
+ * window around them: the region and a ring of cells around it are
+ * reopened, the region's own class is banned from its cells, and every
+ * other cell in the window stays fixed. The solver fills the hole, so the
+ * result still satisfies the ruleset. A fill that leaves a new region below
+ * the threshold is rejected, and larger rings are tried when the smaller
+ * ones fail; regions that cannot be replaced are left as is.
+ *
+ * Maps are treated as bounded (no wrap-around). Fill attempts draw their
+ * seeds from the cleaner's seed, so cleaning the same map twice gives the
+ * same result.
+ */
+public final class RegionCleaner {
+    // Ring sizes (Chebyshev distance around the region) tried in order.
+    private static final int[] RADII = { 1, 2, 4 };
+    // Solve attempts per ring size.
+    private static final int ATTEMPTS = 4;
+
+    private final Ruleset ruleset;
+    private final IntUnaryOperator classOf;
+    private final int minSize;
+    private final long seed;
+
+    /**
+     * Constructs a RegionCleaner.
+     *
+     * @param ruleset The ruleset the map was solved with (four directions).
+     * @param classOf Maps a tile id to its region class; negative = no region.
+     * @param minSize Regions with fewer cells than this are removed.
+     * @param seed    Seed the fill attempts' seeds are drawn from.
+     * @throws IllegalArgumentException if ruleset or classOf is null, the
+     *                                  ruleset is not four-directional, or
+     *                                  minSize is not positive.
+     */
+    public RegionCleaner(Ruleset ruleset, IntUnaryOperator classOf, int minSize, long seed) {
+        if (ruleset == null) {
+            throw new IllegalArgumentException("Ruleset cannot be null");
+        }
+        if (classOf == null) {
+            throw new IllegalArgumentException("Classifier cannot be null");
+        }
+        if (ruleset.directionCount() != 4) {
+            throw new IllegalArgumentException("Region cleanup requires a four-direction ruleset");
+        }
+        if (minSize <= 0) {
+            throw new IllegalArgumentException("Minimum size must be a positive integer.");
+        }
+        this.ruleset = ruleset;
+        this.classOf = classOf;
+        this.minSize = minSize;
+        this.seed = seed;
+    }
+
+    /**
+     * Per-call state: seeds for the fill attempts, and flood-fill marks
+     * stamped with a generation so they never need clearing.
+     */
+    private static final class Scratch {
+        final Random seeds;
+        final int[] stamp;
+        final int[] queue;
+        int generation;
+
+        Scratch(long seed, int cellCount) {
+            this.seeds = new Random(seed);
+            this.stamp = new int[cellCount];
+            this.queue = new int[cellCount];
+        }
+    }
+
+    /**
+     * Removes small regions in place.
+     *
+     * @param tiles  Tile ids, index = y * width + x.
+     * @param width  Map width in cells.
+     * @param height Map height in cells.
+     * @return The number of regions replaced.
+     */
+    public int clean(int[] tiles, int width, int height) {
+        RegionLabels regions = RegionLabeler.label(tiles, width, height, classOf);
+
+        // Bucket the cells of small regions by label (counting sort)
+        int count = regions.regionCount();
+        int[] start = new int[count + 1];
+        int[] labels = regions.labels();
+
+        for (int label : labels) {
+            if (label >= 0 && regions.size(label) < minSize) {
+                start[label + 1]++;
+            }
+        }
+        for (int r = 0; r < count; r++) {
+            start[r + 1] += start[r];
+        }
+
+        int[] cells = new int[start[count]];
+        int[] fill = start.clone();
+        for (int i = 0; i < labels.length; i++) {
+            int label = labels[i];
+            if (label >= 0 && regions.size(label) < minSize) {
+                cells[fill[label]++] = i;
+            }
+        }
+
+        Scratch scratch = new Scratch(seed, tiles.length);
+        int replaced = 0;
+        for (int r = 0; r < count; r++) {
+            if (start[r] == start[r + 1] || !stillIntact(tiles, cells, start[r], start[r + 1], regions.regionClass(r))) {
+                continue;
+            }
+            for (int radius : RADII) {
+                if (resolve(tiles, width, height, cells, start[r], start[r + 1], regions.regionClass(r), radius,
+                        scratch)) {
+                    replaced++;
+                    break;
+                }
+            }
+        }
+        return replaced;
+    }
+
+    // Earlier replacements may have rewritten part of this region already.
+    private boolean stillIntact(int[] tiles, int[] cells, int from, int to, int cls) {
+        for (int k = from; k < to; k++) {
+            if (classOf.applyAsInt(tiles[cells[k]]) != cls) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean resolve(int[] tiles, int width, int height, int[] cells, int from, int to, int cls, int radius,
+            Scratch scratch) {
+        int minX = width;
+        int minY = height;
+        int maxX = -1;
+        int maxY = -1;
+        for (int k = from; k < to; k++) {
+            int x = cells[k] % width;
+            int y = cells[k] / width;
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+
+        // Window: reopened cells plus one fixed ring around them
+        int x0 = Math.max(0, minX - radius - 1);
+        int y0 = Math.max(0, minY - radius - 1);
+        int x1 = Math.min(width - 1, maxX + radius + 1);
+        int y1 = Math.min(height - 1, maxY + radius + 1);
+        int w = x1 - x0 + 1;
+        int h = y1 - y0 + 1;
+
+        boolean[] open = new boolean[w * h];
+        for (int k = from; k < to; k++) {
+            int cx = cells[k] % width - x0;
+            int cy = cells[k] / width - y0;
+            for (int dy = -radius; dy <= radius; dy++) {
+                for (int dx = -radius; dx <= radius; dx++) {
+                    int x = cx + dx;
+                    int y = cy + dy;
+                    if (x >= 0 && y >= 0 && x < w && y < h) {
+                        open[y * w + x] = true;
+                    }
+                }
+            }
+        }
+
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            Grid grid = new Grid(w, h, ruleset.tileCount());
+            Wave wave = grid.getWave();
+
+            for (int i = 0; i < open.length; i++) {
+                if (!open[i]) {
+                    wave.collapse(i, tiles[(y0 + i / w) * width + x0 + i % w]);
+                }
+            }
+            for (int k = from; k < to; k++) {
+                int local = (cells[k] / width - y0) * w + cells[k] % width - x0;
+                for (int t = 0; t < ruleset.tileCount(); t++) {
+                    if (classOf.applyAsInt(t) == cls) {
+                        wave.ban(local, t);
+                    }
+                }
+            }
+
+            WfcSolver solver = new WfcSolver(grid, ruleset);
+            solver.setSeed(scratch.seeds.nextLong());
+            for (int i = 0; i < open.length; i++) {
+                solver.propagateFrom(i % w, i / w);
+            }
+            while (solver.step()) {
+            }
+
+            if (!solver.isSolved()) {
+                continue;
+            }
+
+            int[] saved = new int[open.length];
+            for (int i = 0; i < open.length; i++) {
+                if (open[i]) {
+                    int cell = (y0 + i / w) * width + x0 + i % w;
+                    saved[i] = tiles[cell];
+                    tiles[cell] = wave.firstTile(i);
+                }
+            }
+            if (!leavesSmallRegion(tiles, width, height, x0, y0, w, open, scratch)) {
+                return true;
+            }
+            for (int i = 0; i < open.length; i++) {
+                if (open[i]) {
+                    tiles[(y0 + i / w) * width + x0 + i % w] = saved[i];
+                }
+            }
+        }
+        return false;
+    }
+
+    // True if some reopened cell now lies in a region below the threshold.
+    private boolean leavesSmallRegion(int[] tiles, int width, int height, int x0, int y0, int w, boolean[] open,
+            Scratch scratch) {
+        int[] stamp = scratch.stamp;
+        int[] queue = scratch.queue;
+        // Cells stamped after this call began belong to regions already found big enough
+        int checked = scratch.generation;
+
+        for (int i = 0; i < open.length; i++) {
+            int start = (y0 + i / w) * width + x0 + i % w;
+            int cls = classOf.applyAsInt(tiles[start]);
+            if (!open[i] || cls < 0 || stamp[start] > checked) {
+                continue;
+            }
+
+            // Flood fill, stopping as soon as the region is big enough
+            int generation = ++scratch.generation;
+            stamp[start] = generation;
+            queue[0] = start;
+            int head = 0;
+            int tail = 1;
+
+            while (head < tail && tail < minSize) {
+                int c = queue[head++];
+                int x = c % width;
+                int y = c / width;
+
+                if (x > 0) {
+                    tail = visit(tiles, c - 1, cls, generation, stamp, queue, tail);
+                }
+                if (x < width - 1) {
+                    tail = visit(tiles, c + 1, cls, generation, stamp, queue, tail);
+                }
+                if (y > 0) {
+                    tail = visit(tiles, c - width, cls, generation, stamp, queue, tail);
+                }
+                if (y < height - 1) {
+                    tail = visit(tiles, c + width, cls, generation, stamp, queue, tail);
+                }
+            }
+
+            if (tail < minSize) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Queues the cell if it continues the region; returns the new queue tail.
+    private int visit(int[] tiles, int cell, int cls, int generation, int[] stamp, int[] queue, int tail) {
+        if (stamp[cell] != generation && classOf.applyAsInt(tiles[cell]) == cls) {
+            stamp[cell] = generation;
+            queue[tail++] = cell;
+        }
+        return tail;
+    }
+}
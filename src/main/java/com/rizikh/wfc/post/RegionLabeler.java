@@ -0,0 +1,169 @@
+package com.rizikh.wfc.post;
+
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Two-pass connected-component labelling of a flat tile-id map.
+ *
+ * Tiles are mapped to region classes (e.g. biomes); 4-neighbours of the same
+ * class belong to the same region, and tiles of a negative class are left
+ * unlabelled. The first pass runs union-find on independent row bands in
+ * parallel, the seams between bands are then merged, and a final parallel
+ * pass resolves every cell to a compact label.
+ */
+public final class RegionLabeler {
+
+    private RegionLabeler() {
+    }
+
+    /**
+     * Labels the connected regions of a map.
+     *
+     * @param tiles   Tile ids, index = y * width + x.
+     * @param width   Map width in cells.
+     * @param height  Map height in cells.
+     * @param classOf Maps a tile id to its region class; negative = no region.
+     * @return The region labels.
+     * @throws IllegalArgumentException if the arguments are inconsistent.
+     */
+    public static RegionLabels label(int[] tiles, int width, int height, IntUnaryOperator classOf) {
+        if (tiles == null || classOf == null) {
+            throw new IllegalArgumentException("Tiles and classifier cannot be null");
+        }
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Width and height must be positive integers.");
+        }
+        if (tiles.length != width * height) {
+            throw new IllegalArgumentException(
+                    "Tile array length (" + tiles.length + ") does not match " + width + "x" + height);
+        }
+
+        int bandCount = Math.min(height, Runtime.getRuntime().availableProcessors() * 4);
+        int[] bandStart = new int[bandCount + 1];
+        for (int b = 0; b <= bandCount; b++) {
+            bandStart[b] = (int) ((long) height * b / bandCount);
+        }
+
+        // ---- Pass 1: union-find inside each band (parent -1 = unlabelled)
+        int[] parent = new int[tiles.length];
+        IntStream.range(0, bandCount).parallel()
+                .forEach(b -> labelBand(tiles, width, bandStart[b], bandStart[b + 1], classOf, parent));
+
+        // ---- Seams: the first row of each band against the row above
+        for (int b = 1; b < bandCount; b++) {
+            int row = bandStart[b] * width;
+            for (int x = 0; x < width; x++) {
+                int i = row + x;
+                int j = i - width;
+                if (parent[i] >= 0 && parent[j] >= 0
+                        && classOf.applyAsInt(tiles[i]) == classOf.applyAsInt(tiles[j])) {
+                    union(parent, i, j);
+                }
+            }
+        }
+
+        // ---- Pass 2: compact labels, roots first (per-band offsets), then the rest
+        int[] roots = new int[bandCount + 1];
+        IntStream.range(0, bandCount).parallel().forEach(b -> {
+            int count = 0;
+            for (int i = bandStart[b] * width; i < bandStart[b + 1] * width; i++) {
+                if (parent[i] == i) {
+                    count++;
+                }
+            }
+            roots[b + 1] = count;
+        });
+        for (int b = 0; b < bandCount; b++) {
+            roots[b + 1] += roots[b];
+        }
+
+        int regionCount = roots[bandCount];
+        int[] labels = new int[tiles.length];
+        int[] classes = new int[regionCount];
+
+        IntStream.range(0, bandCount).parallel().forEach(b -> {
+            int next = roots[b];
+            for (int i = bandStart[b] * width; i < bandStart[b + 1] * width; i++) {
+                if (parent[i] == i) {
+                    classes[next] = classOf.applyAsInt(tiles[i]);
+                    labels[i] = next++;
+                }
+            }
+        });
+
+        // Reads only roots, which the previous pass has finished writing
+        IntStream.range(0, bandCount).parallel().forEach(b -> {
+            for (int i = bandStart[b] * width; i < bandStart[b + 1] * width; i++) {
+                int p = parent[i];
+                if (p < 0) {
+                    labels[i] = -1;
+                } else if (p != i) {
+                    int root = p;
+                    while (parent[root] != root) {
+                        root = parent[root];
+                    }
+                    labels[i] = labels[root];
+                }
+            }
+        });
+
+        int[] sizes = new int[regionCount];
+        for (int label : labels) {
+            if (label >= 0) {
+                sizes[label]++;
+            }
+        }
+
+        return new RegionLabels(width, height, labels, sizes, classes);
+    }
+
+    private static void labelBand(int[] tiles, int width, int y0, int y1, IntUnaryOperator classOf, int[] parent) {
+        int[] prev = new int[width];
+        int[] cur = new int[width];
+
+        for (int y = y0; y < y1; y++) {
+            int row = y * width;
+
+            for (int x = 0; x < width; x++) {
+                int i = row + x;
+                int c = classOf.applyAsInt(tiles[i]);
+                cur[x] = c;
+
+                if (c < 0) {
+                    parent[i] = -1;
+                    continue;
+                }
+
+                // A fresh cell joins its left neighbour's tree directly
+                parent[i] = x > 0 && cur[x - 1] == c ? find(parent, i - 1) : i;
+                if (y > y0 && prev[x] == c) {
+                    union(parent, i - width, i);
+                }
+            }
+
+            int[] t = prev;
+            prev = cur;
+            cur = t;
+        }
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    // Links the larger root under the smaller so roots are the first cell of a region.
+    private static void union(int[] parent, int a, int b) {
+        int ra = find(parent, a);
+        int rb = find(parent, b);
+        if (ra < rb) {
+            parent[rb] = ra;
+        } else if (rb < ra) {
+            parent[ra] = rb;
+        }
+    }
+}
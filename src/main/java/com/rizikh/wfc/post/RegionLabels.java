@@ -0,0 +1,63 @@
+package com.rizikh.wfc.post;
+
+/**
+ * Connected regions of a labelled tile map.
+ *
+ * Each cell holds a compact region label in [0, regionCount), or -1 if its
+ * tile belongs to no region class.
+ */
+public final class RegionLabels {
+    private final int width;
+    private final int height;
+    private final int[] labels;
+    private final int[] sizes;
+    private final int[] classes;
+
+    RegionLabels(int width, int height, int[] labels, int[] sizes, int[] classes) {
+        this.width = width;
+        this.height = height;
+        this.labels = labels;
+        this.sizes = sizes;
+        this.classes = classes;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int regionCount() {
+        return sizes.length;
+    }
+
+    /**
+     * Returns the region label of the cell at (x, y), or -1 if unlabelled.
+     */
+    public int label(int x, int y) {
+        return labels[y * width + x];
+    }
+
+    /**
+     * Returns the backing label array (index = y * width + x). Do not modify.
+     */
+    public int[] labels() {
+        return labels;
+    }
+
+    /**
+     * Returns the number of cells in the region.
+     */
+    public int size(int label) {
+        return sizes[label];
+    }
+
+    /**
+     * Returns the class shared by every tile in the region.
+     */
+    public int regionClass(int label) {
+        return classes[label];
+    }
+}
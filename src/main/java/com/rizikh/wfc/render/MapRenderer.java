@@ -0,0 +1,223 @@
+package com.rizikh.wfc.render;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Headless map rendering: composes a solved tile map from a
+ * {@link TileAtlas} without Processing or a display.
+ *
+ * Every pixel row of a cell is one array copy out of the atlas, and cell
+ * rows are rendered in parallel bands, so rendering runs at memory-copy
+ * speed. Images are drawn with y pointing up, as in the sketches: cell row
+ * height - 1 is at the top.
+ *
+ * In-memory images (and PNG) are limited to 2^31 pixels. The streamed
+ * formats (binary PPM and raw RGB) render a stripe of rows at a time,
+ * overlapping rendering of the next stripe with writing the current one,
+ * so they handle maps of any size in bounded memory.
+ */
+public final class MapRenderer {
+    // Cell rows rendered by one parallel task.
+    private static final int BAND_ROWS = 8;
+    // Target pixels per streamed stripe (two stripes are held at a time).
+    private static final int STRIPE_PIXELS = 1 << 22;
+
+    private final TileAtlas atlas;
+
+    /**
+     * Constructs a MapRenderer.
+     *
+     * @param atlas The tile images, indexed by tile id.
+     * @throws IllegalArgumentException if atlas is null.
+     */
+    public MapRenderer(TileAtlas atlas) {
+        if (atlas == null) {
+            throw new IllegalArgumentException("Atlas cannot be null");
+        }
+        this.atlas = atlas;
+    }
+
+    public TileAtlas getAtlas() {
+        return atlas;
+    }
+
+    // ------------------------------------------------------------
+    // In-memory rasters
+    // ------------------------------------------------------------
+
+    /**
+     * Renders the map into a new image (RGB if the atlas is opaque, ARGB
+     * otherwise) whose pixels are written in place.
+     *
+     * @param tiles  Tile ids, index = y * width + x.
+     * @param width  Map width in cells.
+     * @param height Map height in cells.
+     * @throws IllegalArgumentException if the map is malformed or the image
+     *                                  would exceed 2^31 pixels.
+     */
+    public BufferedImage render(int[] tiles, int width, int height) {
+        check(tiles, width, height);
+        int ts = atlas.tileSize();
+        long pixels = (long) width * ts * height * ts;
+        if ((long) width * ts > Integer.MAX_VALUE || pixels > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Map is too large for an in-memory image; stream it instead");
+        }
+
+        int type = atlas.isOpaque() ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        BufferedImage image = new BufferedImage(width * ts, height * ts, type);
+        int[] raster = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        renderInto(tiles, width, height, raster);
+        return image;
+    }
+
+    /**
+     * Renders the map into an ARGB raster of (width * tileSize) x
+     * (height * tileSize) pixels, rows top to bottom.
+     *
+     * @param tiles  Tile ids, index = y * width + x.
+     * @param width  Map width in cells.
+     * @param height Map height in cells.
+     * @param raster The destination, exactly as long as the image.
+     * @throws IllegalArgumentException if the map is malformed or the raster
+     *                                  has the wrong length.
+     */
+    public void renderInto(int[] tiles, int width, int height, int[] raster) {
+        check(tiles, width, height);
+        int ts = atlas.tileSize();
+        if (raster == null || raster.length != (long) width * ts * height * ts) {
+            throw new IllegalArgumentException("Raster must hold exactly " + width * ts + " x " + height * ts
+                    + " pixels");
+        }
+
+        int[] src = atlas.pixels();
+        int stride = width * ts;
+        int bands = (height + BAND_ROWS - 1) / BAND_ROWS;
+
+        IntStream.range(0, bands).parallel().forEach(band -> {
+            int top = band * BAND_ROWS;
+            for (int row = top; row < Math.min(height, top + BAND_ROWS); row++) {
+                int y = height - 1 - row;
+                for (int r = 0; r < ts; r++) {
+                    int dst = (row * ts + r) * stride;
+                    for (int x = 0; x < width; x++) {
+                        System.arraycopy(src, (tiles[y * width + x] * ts + r) * ts, raster, dst + x * ts, ts);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Renders the map and writes it as PNG.
+     *
+     * @throws IOException              if writing fails.
+     * @throws IllegalArgumentException as for {@link #render(int[], int, int)}.
+     */
+    public void writePng(int[] tiles, int width, int height, OutputStream out) throws IOException {
+        BufferedImage image = render(tiles, width, height);
+        if (!ImageIO.write(image, "png", out)) {
+            throw new IOException("No PNG writer available");
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Streamed formats
+    // ------------------------------------------------------------
+
+    /**
+     * Streams the map as a binary PPM (P6, 8-bit RGB). Transparency is
+     * dropped.
+     *
+     * @throws IOException              if writing fails.
+     * @throws IllegalArgumentException if the map is malformed.
+     */
+    public void writePpm(int[] tiles, int width, int height, OutputStream out) throws IOException {
+        check(tiles, width, height);
+        long ts = atlas.tileSize();
+        String header = "P6\n" + width * ts + " " + height * ts + "\n255\n";
+        out.write(header.getBytes(StandardCharsets.US_ASCII));
+        stream(tiles, width, height, out);
+    }
+
+    /**
+     * Streams the map as headerless 8-bit RGB, rows top to bottom.
+     * Transparency is dropped.
+     *
+     * @throws IOException              if writing fails.
+     * @throws IllegalArgumentException if the map is malformed.
+     */
+    public void writeRaw(int[] tiles, int width, int height, OutputStream out) throws IOException {
+        check(tiles, width, height);
+        stream(tiles, width, height, out);
+    }
+
+    private void stream(int[] tiles, int width, int height, OutputStream out) throws IOException {
+        int ts = atlas.tileSize();
+        long rowBytes = (long) width * ts * 3;
+        if (rowBytes * ts > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A single cell row does not fit in memory");
+        }
+
+        int stripeRows = (int) Math.max(1, Math.min(height, STRIPE_PIXELS / ((long) width * ts * ts)));
+        byte[] current = new byte[(int) (rowBytes * ts * stripeRows)];
+        byte[] next = new byte[current.length];
+
+        CompletableFuture<Void> pending = renderStripeAsync(tiles, width, height, 0, stripeRows, current);
+        for (int top = 0; top < height; top += stripeRows) {
+            pending.join();
+            int rows = Math.min(stripeRows, height - top);
+
+            byte[] ready = current;
+            current = next;
+            next = ready;
+            if (top + stripeRows < height) {
+                pending = renderStripeAsync(tiles, width, height, top + stripeRows, stripeRows, current);
+            }
+
+            out.write(ready, 0, (int) (rowBytes * ts * rows));
+        }
+        out.flush();
+    }
+
+    // Renders cell rows [top, top + count) (counted from the image top) into dst as RGB.
+    private CompletableFuture<Void> renderStripeAsync(int[] tiles, int width, int height, int top, int count,
+            byte[] dst) {
+        byte[] src = atlas.rgb();
+        int ts = atlas.tileSize();
+        int tileRow = ts * 3;
+        int stride = width * tileRow;
+        int rows = Math.min(count, height - top);
+
+        return CompletableFuture.runAsync(() -> IntStream.range(0, rows).parallel().forEach(i -> {
+            int y = height - 1 - (top + i);
+            for (int r = 0; r < ts; r++) {
+                int off = (i * ts + r) * stride;
+                for (int x = 0; x < width; x++) {
+                    System.arraycopy(src, (tiles[y * width + x] * ts + r) * tileRow, dst, off + x * tileRow, tileRow);
+                }
+            }
+        }));
+    }
+
+    private void check(int[] tiles, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Width and height must be positive integers.");
+        }
+        if (tiles == null || tiles.length != (long) width * height) {
+            throw new IllegalArgumentException("Tiles must hold exactly width * height entries");
+        }
+        for (int tile : tiles) {
+            if (tile < 0 || tile >= atlas.tileCount()) {
+                throw new IllegalArgumentException("Tile id " + tile + " has no image in the atlas");
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.rizikh.wfc.render;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+import com.rizikh.wfc.rules.TerrainRuleset;
+import com.rizikh.wfc.tiles.RoadTile;
+import com.rizikh.wfc.tiles.TerrainTile;
+
+/**
+ * Pre-decoded tile images: tileSize x tileSize ARGB pixels per tile id, rows
+ * top to bottom, all in one flat array. Decoding and scaling happen once
+ * here, so rendering a map is nothing but row copies.
+ */
+public final class TileAtlas {
+    private final int tileCount;
+    private final int tileSize;
+    private final int[] pixels;
+    private final boolean opaque;
+    private byte[] rgb;
+
+    private TileAtlas(int tileCount, int tileSize, int[] pixels) {
+        this.tileCount = tileCount;
+        this.tileSize = tileSize;
+        this.pixels = pixels;
+
+        boolean allOpaque = true;
+        for (int p : pixels) {
+            allOpaque &= (p >>> 24) == 0xFF;
+        }
+        this.opaque = allOpaque;
+    }
+
+    private static void checkSize(int tileCount, int tileSize) {
+        if (tileCount <= 0) {
+            throw new IllegalArgumentException("Tile count must be a positive integer.");
+        }
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Tile size must be a positive integer.");
+        }
+    }
+
+    /**
+     * One flat colour per tile id, with golden-ratio hues so that
+     * neighbouring ids stay visually distinct.
+     *
+     * @param tileCount Number of tile ids.
+     * @param tileSize  Pixels per tile side.
+     * @throws IllegalArgumentException if either argument is not positive.
+     */
+    public static TileAtlas palette(int tileCount, int tileSize) {
+        checkSize(tileCount, tileSize);
+
+        int area = tileSize * tileSize;
+        int[] pixels = new int[Math.multiplyExact(tileCount, area)];
+        for (int t = 0; t < tileCount; t++) {
+            float hue = (t * 0.618034f) % 1f;
+            int argb = Color.HSBtoRGB(hue, 0.55f, 0.9f);
+            Arrays.fill(pixels, t * area, (t + 1) * area, argb);
+        }
+        return new TileAtlas(tileCount, tileSize, pixels);
+    }
+
+    /**
+     * Decodes one image per tile id, scaled to tileSize if needed.
+     *
+     * @param images   Image of tile id i at index i.
+     * @param tileSize Pixels per tile side.
+     * @throws IllegalArgumentException if images is empty or holds null, or
+     *                                  tileSize is not positive.
+     */
+    public static TileAtlas fromImages(BufferedImage[] images, int tileSize) {
+        if (images == null) {
+            throw new IllegalArgumentException("Images cannot be null");
+        }
+        checkSize(images.length, tileSize);
+
+        int area = tileSize * tileSize;
+        int[] pixels = new int[Math.multiplyExact(images.length, area)];
+        for (int t = 0; t < images.length; t++) {
+            if (images[t] == null) {
+                throw new IllegalArgumentException("Image of tile " + t + " is null");
+            }
+            scaled(images[t], tileSize).getRGB(0, 0, tileSize, tileSize, pixels, t * area, tileSize);
+        }
+        return new TileAtlas(images.length, tileSize, pixels);
+    }
+
+    /**
+     * Terrain tiles from the bundled images. Only the six base tiles have
+     * images; every transition tile is drawn as its biome's base tile (see
+     * {@link TerrainRuleset#biomeOf(int)}).
+     *
+     * @param tileSize Pixels per tile side.
+     */
+    public static TileAtlas terrain(int tileSize) {
+        TerrainRuleset ruleset = new TerrainRuleset();
+        TerrainTile[] tiles = TerrainTile.values();
+
+        BufferedImage[] base = new BufferedImage[TerrainRuleset.BIOME_COUNT];
+        for (int b = 0; b < base.length; b++) {
+            base[b] = resource("terrain/" + tiles[b].name().toLowerCase() + ".png");
+        }
+
+        BufferedImage[] images = new BufferedImage[tiles.length];
+        for (int t = 0; t < tiles.length; t++) {
+            images[t] = base[ruleset.biomeOf(t)];
+        }
+        return fromImages(images, tileSize);
+    }
+
+    /**
+     * Road tiles from the bundled images.
+     *
+     * @param tileSize Pixels per tile side.
+     */
+    public static TileAtlas roads(int tileSize) {
+        RoadTile[] tiles = RoadTile.values();
+        BufferedImage[] images = new BufferedImage[tiles.length];
+        for (int t = 0; t < tiles.length; t++) {
+            images[t] = resource("roads/" + tiles[t].name().toLowerCase() + ".png");
+        }
+        return fromImages(images, tileSize);
+    }
+
+    private static BufferedImage resource(String name) {
+        try (InputStream in = TileAtlas.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing tile image: " + name);
+            }
+            BufferedImage image = ImageIO.read(in);
+            if (image == null) {
+                throw new IllegalStateException("Unreadable tile image: " + name);
+            }
+            return image;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static BufferedImage scaled(BufferedImage image, int tileSize) {
+        if (image.getWidth() == tileSize && image.getHeight() == tileSize) {
+            return image;
+        }
+
+        BufferedImage out = new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = out.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(image, 0, 0, tileSize, tileSize, null);
+        g.dispose();
+        return out;
+    }
+
+    public int tileCount() {
+        return tileCount;
+    }
+
+    public int tileSize() {
+        return tileSize;
+    }
+
+    /**
+     * True if no pixel is (partly) transparent.
+     */
+    public boolean isOpaque() {
+        return opaque;
+    }
+
+    /**
+     * Flat pixel array: row r of tile t starts at (t * tileSize + r) * tileSize.
+     */
+    int[] pixels() {
+        return pixels;
+    }
+
+    /**
+     * The same pixels as packed 8-bit RGB (alpha dropped), three bytes per
+     * pixel, for the streamed formats. Built on first use.
+     */
+    synchronized byte[] rgb() {
+        if (rgb == null) {
+            byte[] bytes = new byte[Math.multiplyExact(pixels.length, 3)];
+            for (int i = 0; i < pixels.length; i++) {
+                int p = pixels[i];
+                bytes[3 * i] = (byte) (p >>> 16);
+                bytes[3 * i + 1] = (byte) (p >>> 8);
+                bytes[3 * i + 2] = (byte) p;
+            }
+            rgb = bytes;
+        }
+        return rgb;
+    }
+}
@@ -0,0 +1,244 @@
+package com.rizikh.wfc.rules;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import com.rizikh.wfc.model.DomainKernel;
+import com.rizikh.wfc.model.Wave;
+
+/**
+ * Flattened copy of a Ruleset's allowed masks, in the word layout of a cell
+ * in the Wave, so propagators can OR/AND them against domains without
+ * touching BitSets.
+ *
+ * Each (tileId, dir) entry is stored either as a dense word mask or, when
+ * few tiles are allowed, as a sorted list of tile ids: a list is used when
+ * it has at most one id per mask word, so it takes at most half the memory
+ * of the mask and no more writes to apply than ORing it.
+ * Tilesets of up to 64 tiles stay fully dense, while tilesets with thousands
+ * of tiles and few compatibilities per tile cost memory and propagation
+ * time in proportion to their compatibilities rather than tiles^2. The
+ * kernels below ({@link #supportInto}, {@link #allows}, {@link #maskInto},
+ * {@link #supportCount}) handle both representations.
+ */
+public final class CompiledRuleset {
+    private final int tileCount;
+    private final int directionCount;
+    private final int wordsPerMask;
+    private final DomainKernel kernel;
+    private final long[] fullDomain;
+
+    // Entry e = tileId * directionCount + dir: dense mask at denseMasks[denseOffset[e] ..],
+    // or, if denseOffset[e] < 0, sorted ids at ids[idStart[e] .. idStart[e + 1]).
+    private final long[] denseMasks;
+    private final int[] denseOffset;
+    private final int[] ids;
+    private final int[] idStart;
+
+    private CompiledRuleset(int tileCount, int directionCount, long[] denseMasks, int[] denseOffset, int[] ids,
+            int[] idStart) {
+        this.tileCount = tileCount;
+        this.directionCount = directionCount;
+        this.wordsPerMask = Wave.wordsFor(tileCount);
+        this.kernel = DomainKernel.forWords(wordsPerMask);
+        this.fullDomain = new long[wordsPerMask];
+        for (int t = 0; t < tileCount; t++) {
+            fullDomain[t >>> 6] |= 1L << t;
+        }
+        this.denseMasks = denseMasks;
+        this.denseOffset = denseOffset;
+        this.ids = ids;
+        this.idStart = idStart;
+    }
+
+    /**
+     * Compiles the allowed masks of a ruleset, choosing per (tile, direction)
+     * between a dense mask and a sorted id list by density.
+     *
+     * @param ruleset The ruleset to compile.
+     * @return A new CompiledRuleset.
+     * @throws IllegalArgumentException if ruleset is null.
+     */
+    public static CompiledRuleset compile(Ruleset ruleset) {
+        int words = Wave.wordsFor(checked(ruleset).tileCount());
+        return compile(ruleset, words > 1 ? words : -1);
+    }
+
+    /**
+     * Compiles every entry as a dense mask, whatever its density.
+     *
+     * @throws IllegalArgumentException if ruleset is null.
+     */
+    public static CompiledRuleset compileDense(Ruleset ruleset) {
+        return compile(checked(ruleset), -1);
+    }
+
+    private static Ruleset checked(Ruleset ruleset) {
+        if (ruleset == null) {
+            throw new IllegalArgumentException("Ruleset cannot be null");
+        }
+        return ruleset;
+    }
+
+    // Entries allowing at most maxSparseIds tiles become id lists.
+    private static CompiledRuleset compile(Ruleset ruleset, int maxSparseIds) {
+        int tileCount = ruleset.tileCount();
+        int dirCount = ruleset.directionCount();
+        int words = Wave.wordsFor(tileCount);
+        int entries = tileCount * dirCount;
+
+        int[] denseOffset = new int[entries];
+        int[] idStart = new int[entries + 1];
+        int denseCount = 0;
+        int idCount = 0;
+
+        for (int e = 0; e < entries; e++) {
+            int allowed = ruleset.allowedMaskRef(e / dirCount, e % dirCount).cardinality();
+            if (allowed <= maxSparseIds) {
+                denseOffset[e] = -1;
+                idCount += allowed;
+            } else {
+                denseOffset[e] = denseCount++ * words;
+            }
+        }
+
+        long[] denseMasks = new long[Math.multiplyExact(denseCount, words)];
+        int[] ids = new int[idCount];
+        int next = 0;
+
+        for (int e = 0; e < entries; e++) {
+            BitSet mask = ruleset.allowedMaskRef(e / dirCount, e % dirCount);
+            idStart[e] = next;
+            if (denseOffset[e] >= 0) {
+                long[] src = mask.toLongArray();
+                System.arraycopy(src, 0, denseMasks, denseOffset[e], Math.min(src.length, words));
+            } else {
+                for (int t = mask.nextSetBit(0); t >= 0 && t < tileCount; t = mask.nextSetBit(t + 1)) {
+                    ids[next++] = t;
+                }
+            }
+        }
+        idStart[entries] = next;
+
+        return new CompiledRuleset(tileCount, dirCount, denseMasks, denseOffset, ids, idStart);
+    }
+
+    public int tileCount() {
+        return tileCount;
+    }
+
+    public int directionCount() {
+        return directionCount;
+    }
+
+    public int wordsPerMask() {
+        return wordsPerMask;
+    }
+
+    /**
+     * Whether (tileId, dir) is stored as a sorted id list rather than a mask.
+     */
+    public boolean isSparse(int tileId, int dir) {
+        return denseOffset[tileId * directionCount + dir] < 0;
+    }
+
+    /**
+     * Heap bytes taken by the compiled entries.
+     */
+    public long footprintBytes() {
+        return (long) denseMasks.length * Long.BYTES
+                + ((long) ids.length + denseOffset.length + idStart.length) * Integer.BYTES;
+    }
+
+    // ------------------------------------------------------------
+    // Kernels
+    // ------------------------------------------------------------
+
+    /**
+     * ORs together the masks in direction dir of every tile set in
+     * domain[domainOffset .. + wordsPerMask()), writing into support[0 .. wordsPerMask()).
+     * Stops early once the support holds every tile, which large domains
+     * reach long before their last tile.
+     */
+    public void supportInto(long[] domain, int domainOffset, int dir, long[] support) {
+        for (int w = 0; w < wordsPerMask; w++) {
+            support[w] = 0L;
+        }
+
+        for (int w = 0; w < wordsPerMask; w++) {
+            long word = domain[domainOffset + w];
+            while (word != 0L) {
+                int t = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+
+                int e = t * directionCount + dir;
+                int off = denseOffset[e];
+                if (off >= 0) {
+                    kernel.or(support, 0, denseMasks, off, wordsPerMask);
+                } else {
+                    for (int i = idStart[e], end = idStart[e + 1]; i < end; i++) {
+                        int id = ids[i];
+                        support[id >>> 6] |= 1L << id;
+                    }
+                }
+            }
+            if (Arrays.equals(support, 0, wordsPerMask, fullDomain, 0, wordsPerMask)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Whether tileId allows other as its neighbour in direction dir.
+     */
+    public boolean allows(int tileId, int dir, int other) {
+        int e = tileId * directionCount + dir;
+        int off = denseOffset[e];
+        if (off >= 0) {
+            return (denseMasks[off + (other >>> 6)] & (1L << other)) != 0L;
+        }
+        return Arrays.binarySearch(ids, idStart[e], idStart[e + 1], other) >= 0;
+    }
+
+    /**
+     * Writes the mask of (tileId, dir) into dst[dstOffset .. + wordsPerMask()).
+     */
+    public void maskInto(int tileId, int dir, long[] dst, int dstOffset) {
+        int e = tileId * directionCount + dir;
+        int off = denseOffset[e];
+        if (off >= 0) {
+            System.arraycopy(denseMasks, off, dst, dstOffset, wordsPerMask);
+            return;
+        }
+
+        Arrays.fill(dst, dstOffset, dstOffset + wordsPerMask, 0L);
+        for (int i = idStart[e], end = idStart[e + 1]; i < end; i++) {
+            int id = ids[i];
+            dst[dstOffset + (id >>> 6)] |= 1L << id;
+        }
+    }
+
+    /**
+     * Number of tiles in domain[domainOffset .. + wordsPerMask()) that
+     * tileId allows in direction dir: popcount(mask & domain).
+     */
+    public int supportCount(int tileId, int dir, long[] domain, int domainOffset) {
+        int e = tileId * directionCount + dir;
+        int off = denseOffset[e];
+        int count = 0;
+
+        if (off >= 0) {
+            for (int w = 0; w < wordsPerMask; w++) {
+                count += Long.bitCount(denseMasks[off + w] & domain[domainOffset + w]);
+            }
+            return count;
+        }
+        for (int i = idStart[e], end = idStart[e + 1]; i < end; i++) {
+            int id = ids[i];
+            if ((domain[domainOffset + (id >>> 6)] & (1L << id)) != 0L) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
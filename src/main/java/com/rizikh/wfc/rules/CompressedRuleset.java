@@ -0,0 +1,245 @@
+package com.rizikh.wfc.rules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+
+/**
+ * A Ruleset over propagation-equivalence classes of another ruleset.
+ *
+ * Two tiles are equivalent when they allow the same neighbours in every
+ * direction and are allowed by the same neighbours in every direction
+ * (e.g. FOREST_TREES and FOREST_EDGE_DENSE, which are FOREST on all four
+ * sides). Propagation cannot tell them apart, so the solver works over
+ * class ids and {@link #expand} picks a concrete member per cell, weighted
+ * by the source ruleset's tile weights, only once the map is solved. Solve
+ * with a weighted value heuristic to keep the source tile distribution.
+ */
+public final class CompressedRuleset implements Ruleset {
+    private final Ruleset source;
+    private final int[] classOf;
+    private final int[][] members;
+    private final double[][] cumulative;
+    private final double[] classWeights;
+    private final BitSet[][] allowed;
+
+    private CompressedRuleset(Ruleset source, int[] classOf, int[][] members) {
+        this.source = source;
+        this.classOf = classOf;
+        this.members = members;
+
+        int classCount = members.length;
+        int dirCount = source.directionCount();
+
+        this.cumulative = new double[classCount][];
+        this.classWeights = new double[classCount];
+        this.allowed = new BitSet[classCount][dirCount];
+
+        for (int c = 0; c < classCount; c++) {
+            int[] tiles = members[c];
+            double[] cum = new double[tiles.length];
+            double sum = 0.0;
+
+            for (int i = 0; i < tiles.length; i++) {
+                sum += source.weight(tiles[i]);
+                cum[i] = sum;
+            }
+            cumulative[c] = cum;
+            classWeights[c] = sum;
+
+            // All members share the same rows, so the representative speaks for the class.
+            int rep = tiles[0];
+            for (int d = 0; d < dirCount; d++) {
+                BitSet tileMask = source.allowedMaskRef(rep, d);
+                BitSet classMask = new BitSet(classCount);
+
+                for (int t = tileMask.nextSetBit(0); t >= 0; t = tileMask.nextSetBit(t + 1)) {
+                    classMask.set(classOf[t]);
+                }
+                allowed[c][d] = classMask;
+            }
+        }
+    }
+
+    /**
+     * Partitions the tiles of a ruleset into propagation-equivalence classes.
+     * 
+     * @param source The ruleset to analyse.
+     * @return A ruleset over class ids; class ids follow the first member's tile id order.
+     * @throws IllegalArgumentException if source is null.
+     */
+    public static CompressedRuleset compress(Ruleset source) {
+        if (source == null) {
+            throw new IllegalArgumentException("Ruleset cannot be null");
+        }
+
+        int tileCount = source.tileCount();
+        int dirCount = source.directionCount();
+
+        // Incoming masks: incoming[d][t] = tiles that allow t as their neighbour in direction d.
+        BitSet[][] incoming = new BitSet[dirCount][tileCount];
+        for (int d = 0; d < dirCount; d++) {
+            for (int t = 0; t < tileCount; t++) {
+                incoming[d][t] = new BitSet(tileCount);
+            }
+        }
+        for (int a = 0; a < tileCount; a++) {
+            for (int d = 0; d < dirCount; d++) {
+                BitSet mask = source.allowedMaskRef(a, d);
+                for (int b = mask.nextSetBit(0); b >= 0; b = mask.nextSetBit(b + 1)) {
+                    incoming[d][b].set(a);
+                }
+            }
+        }
+
+        Map<Signature, Integer> classIds = new HashMap<>();
+        List<List<Integer>> groups = new ArrayList<>();
+        int[] classOf = new int[tileCount];
+
+        for (int t = 0; t < tileCount; t++) {
+            BitSet[] rows = new BitSet[2 * dirCount];
+            for (int d = 0; d < dirCount; d++) {
+                rows[d] = source.allowedMaskRef(t, d);
+                rows[dirCount + d] = incoming[d][t];
+            }
+
+            Signature sig = new Signature(rows);
+            Integer id = classIds.get(sig);
+            if (id == null) {
+                id = groups.size();
+                classIds.put(sig, id);
+                groups.add(new ArrayList<>());
+            }
+
+            classOf[t] = id;
+            groups.get(id).add(t);
+        }
+
+        int[][] members = new int[groups.size()][];
+        for (int c = 0; c < members.length; c++) {
+            members[c] = groups.get(c).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        return new CompressedRuleset(source, classOf, members);
+    }
+
+    public Ruleset source() {
+        return source;
+    }
+
+    /**
+     * Number of equivalence classes; same as {@link #tileCount()}.
+     */
+    public int classCount() {
+        return members.length;
+    }
+
+    public int classOf(int tileId) {
+        return classOf[tileId];
+    }
+
+    /**
+     * Returns the concrete tile ids in the class.
+     */
+    public int[] members(int classId) {
+        return Arrays.copyOf(members[classId], members[classId].length);
+    }
+
+    @Override
+    public int tileCount() {
+        return members.length;
+    }
+
+    @Override
+    public int directionCount() {
+        return source.directionCount();
+    }
+
+    @Override
+    public BitSet allowedMaskRef(int classId, int dir) {
+        return allowed[classId][dir];
+    }
+
+    /**
+     * The class weight is the sum of its members' weights. A weighted value
+     * heuristic (WeightedValueHeuristic) then collapses over classes as it
+     * would over concrete tiles; the default UniformValueHeuristic ignores
+     * weights and favours the members of small classes.
+     */
+    @Override
+    public double weight(int classId) {
+        return classWeights[classId];
+    }
+
+    /**
+     * Picks a concrete member of the class, weighted by the source ruleset.
+     */
+    public int sampleTile(int classId, Random rng) {
+        int[] tiles = members[classId];
+        if (tiles.length == 1) {
+            return tiles[0];
+        }
+
+        double[] cum = cumulative[classId];
+        double r = rng.nextDouble() * cum[cum.length - 1];
+
+        for (int i = 0; i < cum.length - 1; i++) {
+            if (r < cum[i]) {
+                return tiles[i];
+            }
+        }
+        return tiles[tiles.length - 1];
+    }
+
+    /**
+     * Expands a solved grid of class ids into concrete tile ids.
+     * 
+     * @param grid A grid solved against this ruleset.
+     * @param rng  Source of randomness for the weighted member choice.
+     * @return Flat tile-id array indexed like the grid's wave (-1 for uncollapsed cells).
+     * @throws IllegalArgumentException if the grid does not use this ruleset's class count.
+     */
+    public int[] expand(Grid grid, Random rng) {
+        if (grid.getTileCount() != members.length) {
+            throw new IllegalArgumentException(
+                    "Grid tileCount (" + grid.getTileCount() +
+                            ") does not match class count (" + members.length + ")");
+        }
+
+        Wave wave = grid.getWave();
+        int[] tiles = new int[wave.cellCount()];
+
+        for (int cell = 0; cell < tiles.length; cell++) {
+            tiles[cell] = wave.count(cell) == 1 ? sampleTile(wave.firstTile(cell), rng) : -1;
+        }
+        return tiles;
+    }
+
+    // Row/column fingerprint of a tile; BitSet equality defines equivalence.
+    private static final class Signature {
+        private final BitSet[] rows;
+        private final int hash;
+
+        Signature(BitSet[] rows) {
+            this.rows = rows;
+            this.hash = Arrays.hashCode(rows);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Signature other && Arrays.equals(rows, other.rows);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
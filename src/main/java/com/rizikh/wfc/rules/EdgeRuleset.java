@@ -0,0 +1,22 @@
+package com.rizikh.wfc.rules;
+
+/**
+ * A pure edge-matching ruleset: every tile exposes one socket per side, and
+ * tile b may sit next to tile a in direction d exactly when
+ * socket(a, d) == socket(b, opposite(d)).
+ *
+ * allowedMaskRef must agree with that rule. Knowing the sockets lets the
+ * solver propagate socket sets instead of OR-ing one mask per remaining tile.
+ */
+public interface EdgeRuleset extends Ruleset {
+
+    /**
+     * Number of distinct socket values (at most 63).
+     */
+    int socketCount();
+
+    /**
+     * Socket id in [0, socketCount()) exposed by tileId on side dir.
+     */
+    int socket(int tileId, int dir);
+}
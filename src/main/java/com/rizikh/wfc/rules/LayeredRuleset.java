@@ -0,0 +1,394 @@
+package com.rizikh.wfc.rules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.tiles.RoadTile;
+import com.rizikh.wfc.tiles.TerrainTile;
+
+/**
+ * Several rulesets solved together on one grid, e.g. terrain with roads on
+ * top.
+ *
+ * Each joint tile is one tile per layer, and only combinations that pass
+ * the cross-layer rule exist at all. A cell's joint domain therefore holds
+ * one domain per layer (see {@link #layerDomain}) together with the
+ * cross-layer compatibility between them. Two joint tiles may be
+ * neighbours when every layer allows its pair, so a ban in one layer
+ * propagates into the others within the same wave, and a single solve
+ * yields combined maps that are valid in every layer.
+ *
+ * If every layer is an {@link EdgeRuleset}, the result is one too (its
+ * sockets are the tuples of layer sockets) and gets socket propagation.
+ */
+public class LayeredRuleset implements Ruleset {
+
+    /**
+     * Decides which tiles may share a cell across two layers.
+     */
+    @FunctionalInterface
+    public interface CrossLayerRule {
+        /**
+         * Whether tileA of layerA and tileB of layerB may share a cell;
+         * called with layerA < layerB.
+         */
+        boolean compatible(int layerA, int tileA, int layerB, int tileB);
+    }
+
+    // Joint tiles above this count make the per-direction masks too large to be useful.
+    private static final int MAX_JOINT_TILES = 1 << 14;
+
+    private final Ruleset[] layers;
+    private final int[] tuples;
+    // Mixed-radix key of each joint tile's layer tiles; ascending, since
+    // joint tiles are enumerated in key order
+    private final long[] keys;
+    private final long[] radix;
+    private final BitSet[] allowed;
+    private final double[] weights;
+
+    private LayeredRuleset(Ruleset[] layers, int[] tuples, long[] keys, long[] radix) {
+        this.layers = layers;
+        this.tuples = tuples;
+        this.keys = keys;
+        this.radix = radix;
+
+        int layerCount = layers.length;
+        int jointCount = tuples.length / layerCount;
+        int dirs = layers[0].directionCount();
+
+        // with[k][t] = joint tiles whose layer k tile is t
+        BitSet[][] with = new BitSet[layerCount][];
+        for (int k = 0; k < layerCount; k++) {
+            with[k] = new BitSet[layers[k].tileCount()];
+            for (int t = 0; t < with[k].length; t++) {
+                with[k][t] = new BitSet(jointCount);
+            }
+        }
+        for (int j = 0; j < jointCount; j++) {
+            for (int k = 0; k < layerCount; k++) {
+                with[k][tuples[j * layerCount + k]].set(j);
+            }
+        }
+
+        // reach[k][t * dirs + d] = joint tiles whose layer k tile layer k allows next to t in d
+        BitSet[][] reach = new BitSet[layerCount][];
+        for (int k = 0; k < layerCount; k++) {
+            reach[k] = new BitSet[layers[k].tileCount() * dirs];
+            for (int t = 0; t < layers[k].tileCount(); t++) {
+                for (int d = 0; d < dirs; d++) {
+                    BitSet mask = new BitSet(jointCount);
+                    BitSet layerMask = layers[k].allowedMaskRef(t, d);
+                    for (int b = layerMask.nextSetBit(0); b >= 0; b = layerMask.nextSetBit(b + 1)) {
+                        mask.or(with[k][b]);
+                    }
+                    reach[k][t * dirs + d] = mask;
+                }
+            }
+        }
+
+        this.allowed = new BitSet[jointCount * dirs];
+        this.weights = new double[jointCount];
+        for (int j = 0; j < jointCount; j++) {
+            double weight = 1.0;
+            for (int k = 0; k < layerCount; k++) {
+                weight *= layers[k].weight(tuples[j * layerCount + k]);
+            }
+            weights[j] = weight;
+
+            for (int d = 0; d < dirs; d++) {
+                BitSet mask = (BitSet) reach[0][tuples[j * layerCount] * dirs + d].clone();
+                for (int k = 1; k < layerCount; k++) {
+                    mask.and(reach[k][tuples[j * layerCount + k] * dirs + d]);
+                }
+                allowed[j * dirs + d] = mask;
+            }
+        }
+    }
+
+    /**
+     * Couples rulesets into one joint ruleset.
+     *
+     * @param layers The layer rulesets, bottom first; all must share a
+     *               direction count.
+     * @param rule   Which tiles of two layers may share a cell.
+     * @return A ruleset over joint tiles, ordered by their layer tiles with
+     *         the bottom layer most significant; an {@link EdgeRuleset} if
+     *         every layer is one.
+     * @throws IllegalArgumentException if layers is empty or holds null,
+     *                                  directions differ, rule is null, no
+     *                                  combination is compatible or there
+     *                                  are too many of them.
+     */
+    public static LayeredRuleset couple(List<? extends Ruleset> layers, CrossLayerRule rule) {
+        if (layers == null || layers.isEmpty()) {
+            throw new IllegalArgumentException("At least one layer is required");
+        }
+        if (rule == null) {
+            throw new IllegalArgumentException("Cross-layer rule cannot be null");
+        }
+        Ruleset[] rulesets = layers.toArray(new Ruleset[0]);
+        for (Ruleset r : rulesets) {
+            if (r == null) {
+                throw new IllegalArgumentException("Layer rulesets cannot be null");
+            }
+            if (r.directionCount() != rulesets[0].directionCount()) {
+                throw new IllegalArgumentException("All layers must have the same direction count");
+            }
+        }
+
+        int layerCount = rulesets.length;
+        long[] radix = new long[layerCount];
+        long combinations = 1;
+        for (int k = layerCount - 1; k >= 0; k--) {
+            radix[k] = combinations;
+            if (combinations > Long.MAX_VALUE / rulesets[k].tileCount()) {
+                throw new IllegalArgumentException("Too many layer combinations to index");
+            }
+            combinations *= rulesets[k].tileCount();
+        }
+
+        // Cross masks: cross[a][b][t] = tiles of layer b that may share a cell with tile t of layer a.
+        BitSet[][][] cross = new BitSet[layerCount][layerCount][];
+        for (int a = 0; a < layerCount; a++) {
+            for (int b = a + 1; b < layerCount; b++) {
+                cross[a][b] = new BitSet[rulesets[a].tileCount()];
+                for (int t = 0; t < rulesets[a].tileCount(); t++) {
+                    BitSet mask = new BitSet(rulesets[b].tileCount());
+                    for (int u = 0; u < rulesets[b].tileCount(); u++) {
+                        if (rule.compatible(a, t, b, u)) {
+                            mask.set(u);
+                        }
+                    }
+                    cross[a][b][t] = mask;
+                }
+            }
+        }
+
+        List<int[]> found = new ArrayList<>();
+        enumerate(rulesets, cross, new int[layerCount], 0, found);
+        if (found.isEmpty()) {
+            throw new IllegalArgumentException("No combination of layer tiles is compatible");
+        }
+
+        // Only the joint tiles are indexed, however many combinations the layers allow
+        int[] tuples = new int[found.size() * layerCount];
+        long[] keys = new long[found.size()];
+        for (int j = 0; j < found.size(); j++) {
+            for (int k = 0; k < layerCount; k++) {
+                tuples[j * layerCount + k] = found.get(j)[k];
+                keys[j] += found.get(j)[k] * radix[k];
+            }
+        }
+
+        if (allEdges(rulesets)) {
+            EdgeRuleset[] edges = new EdgeRuleset[layerCount];
+            long sockets = 1;
+            for (int k = 0; k < layerCount; k++) {
+                edges[k] = (EdgeRuleset) rulesets[k];
+                sockets *= edges[k].socketCount();
+            }
+            if (sockets <= 63) {
+                return new Edges(rulesets, tuples, keys, radix, edges, (int) sockets);
+            }
+        }
+        return new LayeredRuleset(rulesets, tuples, keys, radix);
+    }
+
+    // Depth-first over layers, each layer limited to tiles compatible with all layers below.
+    private static void enumerate(Ruleset[] layers, BitSet[][][] cross, int[] tuple, int k, List<int[]> out) {
+        if (k == layers.length) {
+            if (out.size() == MAX_JOINT_TILES) {
+                throw new IllegalArgumentException("Too many joint tiles: more than " + MAX_JOINT_TILES);
+            }
+            out.add(tuple.clone());
+            return;
+        }
+
+        BitSet options = new BitSet(layers[k].tileCount());
+        options.set(0, layers[k].tileCount());
+        for (int below = 0; below < k; below++) {
+            options.and(cross[below][k][tuple[below]]);
+        }
+        for (int t = options.nextSetBit(0); t >= 0; t = options.nextSetBit(t + 1)) {
+            tuple[k] = t;
+            enumerate(layers, cross, tuple, k + 1, out);
+        }
+    }
+
+    private static boolean allEdges(Ruleset[] layers) {
+        for (Ruleset r : layers) {
+            if (!(r instanceof EdgeRuleset)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Terrain (layer 0) with roads (layer 1) on top. Only BLANK may sit on
+     * the deep water biome; a road over water is a bridge. Base tile ids
+     * double as biome ids.
+     */
+    public static LayeredRuleset terrainWithRoads() {
+        TerrainRuleset terrain = new TerrainRuleset();
+        RoadRuleset roads = new RoadRuleset();
+        int blank = RoadTile.BLANK.ordinal();
+        int deepwater = TerrainTile.DEEPWATER.ordinal();
+
+        return couple(List.of(terrain, roads),
+                (layerA, tile, layerB, road) -> road == blank || terrain.biomeOf(tile) != deepwater);
+    }
+
+    // ------------------------------------------------------------
+    // Ruleset
+    // ------------------------------------------------------------
+
+    @Override
+    public int tileCount() {
+        return weights.length;
+    }
+
+    @Override
+    public int directionCount() {
+        return layers[0].directionCount();
+    }
+
+    @Override
+    public BitSet allowedMaskRef(int jointTile, int dir) {
+        return allowed[jointTile * directionCount() + dir];
+    }
+
+    /**
+     * The product of the layer tiles' weights.
+     */
+    @Override
+    public double weight(int jointTile) {
+        return weights[jointTile];
+    }
+
+    // ------------------------------------------------------------
+    // Layers
+    // ------------------------------------------------------------
+
+    public int layerCount() {
+        return layers.length;
+    }
+
+    public Ruleset layer(int layer) {
+        return layers[layer];
+    }
+
+    /**
+     * The tile of one layer in a joint tile.
+     */
+    public int layerTile(int jointTile, int layer) {
+        return tuples[jointTile * layers.length + layer];
+    }
+
+    /**
+     * The joint tile of one tile per layer, bottom first.
+     *
+     * @return The joint tile id, or -1 if the tiles may not share a cell.
+     * @throws IllegalArgumentException if there is not one valid tile per
+     *                                  layer.
+     */
+    public int jointTile(int... layerTiles) {
+        if (layerTiles == null || layerTiles.length != layers.length) {
+            throw new IllegalArgumentException("Expected one tile per layer (" + layers.length + ")");
+        }
+        long key = 0;
+        for (int k = 0; k < layers.length; k++) {
+            if (layerTiles[k] < 0 || layerTiles[k] >= layers[k].tileCount()) {
+                throw new IllegalArgumentException("Tile " + layerTiles[k] + " is out of range for layer " + k);
+            }
+            key += layerTiles[k] * radix[k];
+        }
+        int joint = Arrays.binarySearch(keys, key);
+        return joint >= 0 ? joint : -1;
+    }
+
+    /**
+     * The joint tiles whose given layer holds tile, e.g. to pin one layer
+     * of a cell before solving.
+     */
+    public BitSet jointTilesWith(int layer, int tile) {
+        BitSet out = new BitSet(tileCount());
+        for (int j = 0; j < tileCount(); j++) {
+            if (tuples[j * layers.length + layer] == tile) {
+                out.set(j);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * The tiles of one layer still possible in a cell: the projection of
+     * its joint domain.
+     */
+    public BitSet layerDomain(Wave wave, int cell, int layer) {
+        BitSet out = new BitSet(layers[layer].tileCount());
+        for (int j = 0; j < tileCount(); j++) {
+            if (wave.contains(cell, j)) {
+                out.set(tuples[j * layers.length + layer]);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Extracts one layer of a solved grid.
+     *
+     * @return Flat layer tile ids indexed like the grid's wave (-1 for
+     *         uncollapsed cells).
+     * @throws IllegalArgumentException if the grid does not use this
+     *                                  ruleset's joint tile count.
+     */
+    public int[] layerMap(Grid grid, int layer) {
+        if (grid.getTileCount() != tileCount()) {
+            throw new IllegalArgumentException(
+                    "Grid tileCount (" + grid.getTileCount() +
+                            ") does not match joint tile count (" + tileCount() + ")");
+        }
+
+        Wave wave = grid.getWave();
+        int[] tiles = new int[wave.cellCount()];
+        for (int cell = 0; cell < tiles.length; cell++) {
+            tiles[cell] = wave.count(cell) == 1 ? layerTile(wave.firstTile(cell), layer) : -1;
+        }
+        return tiles;
+    }
+
+    /**
+     * Joint ruleset over edge-matching layers: a joint socket is the tuple of
+     * layer sockets, so joint masks agree with socket equality.
+     */
+    private static final class Edges extends LayeredRuleset implements EdgeRuleset {
+        private final EdgeRuleset[] edges;
+        private final int socketCount;
+
+        Edges(Ruleset[] layers, int[] tuples, long[] keys, long[] radix, EdgeRuleset[] edges, int socketCount) {
+            super(layers, tuples, keys, radix);
+            this.edges = edges;
+            this.socketCount = socketCount;
+        }
+
+        @Override
+        public int socketCount() {
+            return socketCount;
+        }
+
+        @Override
+        public int socket(int jointTile, int dir) {
+            int socket = 0;
+            for (int k = 0; k < edges.length; k++) {
+                socket = socket * edges[k].socketCount() + edges[k].socket(layerTile(jointTile, k), dir);
+            }
+            return socket;
+        }
+    }
+}
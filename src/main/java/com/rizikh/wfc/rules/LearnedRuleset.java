@@ -0,0 +1,88 @@
+package com.rizikh.wfc.rules;
+
+import java.util.BitSet;
+
+import com.rizikh.wfc.core.Direction;
+
+/**
+ * Square-grid ruleset inferred from example maps by {@link RulesetLearner}.
+ *
+ * Tile b is allowed next to tile a in a direction if that adjacency was
+ * observed at least minSupport times. Weights are the observed tile
+ * frequencies; tiles never observed keep weight 1 but allow no neighbours,
+ * so propagation removes them wherever a neighbour exists.
+ */
+public final class LearnedRuleset implements Ruleset {
+    private final int tileCount;
+    private final long[] frequencies;
+    private final long[] northCounts;
+    private final long[] eastCounts;
+    private final BitSet[] allowed;
+
+    LearnedRuleset(int tileCount, long[] frequencies, long[] northCounts, long[] eastCounts, int minSupport) {
+        this.tileCount = tileCount;
+        this.frequencies = frequencies;
+        this.northCounts = northCounts;
+        this.eastCounts = eastCounts;
+
+        int dirs = Direction.values().length;
+        int north = Direction.NORTH.ordinal();
+        int east = Direction.EAST.ordinal();
+        int south = Direction.SOUTH.ordinal();
+        int west = Direction.WEST.ordinal();
+
+        this.allowed = new BitSet[tileCount * dirs];
+        for (int i = 0; i < allowed.length; i++) {
+            allowed[i] = new BitSet(tileCount);
+        }
+
+        // Pair (a, b) counted north means b above a, i.e. a below b
+        for (int a = 0; a < tileCount; a++) {
+            for (int b = 0; b < tileCount; b++) {
+                int pair = a * tileCount + b;
+                if (northCounts[pair] >= minSupport) {
+                    allowed[a * dirs + north].set(b);
+                    allowed[b * dirs + south].set(a);
+                }
+                if (eastCounts[pair] >= minSupport) {
+                    allowed[a * dirs + east].set(b);
+                    allowed[b * dirs + west].set(a);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int tileCount() {
+        return tileCount;
+    }
+
+    @Override
+    public BitSet allowedMaskRef(int tileId, int dir) {
+        return allowed[tileId * Direction.values().length + dir];
+    }
+
+    @Override
+    public double weight(int tileId) {
+        return Math.max(1L, frequencies[tileId]);
+    }
+
+    /**
+     * Number of cells holding the tile across all samples.
+     */
+    public long frequency(int tileId) {
+        return frequencies[tileId];
+    }
+
+    /**
+     * Number of times neighbor was observed next to tileId in direction dir.
+     */
+    public long observations(int tileId, Direction dir, int neighbor) {
+        return switch (dir) {
+            case NORTH -> northCounts[tileId * tileCount + neighbor];
+            case SOUTH -> northCounts[neighbor * tileCount + tileId];
+            case EAST -> eastCounts[tileId * tileCount + neighbor];
+            case WEST -> eastCounts[neighbor * tileCount + tileId];
+        };
+    }
+}
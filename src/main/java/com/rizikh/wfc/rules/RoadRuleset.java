@@ -8,7 +8,7 @@ import com.rizikh.wfc.tiles.RoadTile;
 /**
  * Road rules: edges must match open/closed.
  */
-public final class RoadRuleset implements Ruleset {
+public final class RoadRuleset implements EdgeRuleset {
 
     private final BitSet[][] allowed;
 
@@ -50,7 +50,18 @@ public final class RoadRuleset implements Ruleset {
     }
 
     @Override
-    public BitSet allowedMaskRef(int tileId, Direction dir) {
-        return allowed[tileId][dir.ordinal()];
+    public BitSet allowedMaskRef(int tileId, int dir) {
+        return allowed[tileId][dir];
+    }
+
+    // Sockets: 0 = closed, 1 = open
+    @Override
+    public int socketCount() {
+        return 2;
+    }
+
+    @Override
+    public int socket(int tileId, int dir) {
+        return RoadTile.values()[tileId].isOpen(Direction.values()[dir]) ? 1 : 0;
     }
 }
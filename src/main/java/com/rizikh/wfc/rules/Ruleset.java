@@ -8,14 +8,38 @@ import com.rizikh.wfc.core.Direction;
  * Generic adjacency rules for WFC.
  * The solver only needs:
  *  - how many tile types exist
+ *  - how many directions a cell has (must match the grid's Topology)
  *  - for a given tileId + direction, which neighbor tileIds are allowed
+ *  - optionally, how likely each tile is relative to the others
  */
 public interface Ruleset {
     int tileCount();
 
     /**
-     * Fast reference to the allowed-neighbor mask for tileId in direction dir.
+     * Number of neighbour directions. Defaults to the four square directions.
+     */
+    default int directionCount() {
+        return Direction.values().length;
+    }
+
+    /**
+     * Fast reference to the allowed-neighbor mask for tileId in direction dir,
+     * where dir is numbered as in the grid's Topology.
      * IMPORTANT: callers must NOT mutate the returned BitSet.
      */
-    BitSet allowedMaskRef(int tileId, Direction dir);
+    BitSet allowedMaskRef(int tileId, int dir);
+
+    /**
+     * Relative frequency of tileId; must be positive. Defaults to uniform.
+     */
+    default double weight(int tileId) {
+        return 1.0;
+    }
+
+    /**
+     * Square-grid convenience for {@link #allowedMaskRef(int, int)}.
+     */
+    default BitSet allowedMaskRef(int tileId, Direction dir) {
+        return allowedMaskRef(tileId, dir.ordinal());
+    }
 }
@@ -0,0 +1,255 @@
+package com.rizikh.wfc.rules;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.rizikh.wfc.core.Topology;
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+
+/**
+ * Load-time arc consistency over a ruleset's compatibility graph.
+ *
+ * Cells are grouped by which directions actually have a neighbour (interior,
+ * edges, corners; a periodic topology has only "all directions"). A tile is
+ * placeable in such a group only if, for each of those directions, some live
+ * tile may sit next to it. Tiles placeable nowhere are dead and are removed
+ * iteratively until a fixpoint is reached, so they never enter a domain.
+ *
+ * The analysis is sound (it only removes tiles that can never appear) but not
+ * complete: surviving tiles may still be unable to form a full map.
+ */
+public final class RulesetAnalysis {
+    private final Ruleset ruleset;
+    private final Topology topology;
+    private final int[] cellSignature;
+    private final BitSet[] placeable;
+    private final BitSet live;
+    private final List<String> warnings;
+    private final boolean satisfiable;
+
+    private RulesetAnalysis(Ruleset ruleset, Topology topology, int[] cellSignature, BitSet[] placeable,
+            BitSet live, List<String> warnings, boolean satisfiable) {
+        this.ruleset = ruleset;
+        this.topology = topology;
+        this.cellSignature = cellSignature;
+        this.placeable = placeable;
+        this.live = live;
+        this.warnings = Collections.unmodifiableList(warnings);
+        this.satisfiable = satisfiable;
+    }
+
+    /**
+     * Analyses a ruleset for use on the given topology.
+     *
+     * @param ruleset  The ruleset to analyse.
+     * @param topology The topology the ruleset will be solved on.
+     * @return The analysis result.
+     * @throws IllegalArgumentException if either argument is null or their
+     *                                  direction counts differ.
+     */
+    public static RulesetAnalysis analyze(Ruleset ruleset, Topology topology) {
+        if (ruleset == null) {
+            throw new IllegalArgumentException("Ruleset cannot be null");
+        }
+        if (topology == null) {
+            throw new IllegalArgumentException("Topology cannot be null");
+        }
+        if (ruleset.directionCount() != topology.directionCount()) {
+            throw new IllegalArgumentException("Ruleset directions (" + ruleset.directionCount() +
+                    ") do not match topology directions (" + topology.directionCount() + ")");
+        }
+
+        int tileCount = ruleset.tileCount();
+        int dirCount = ruleset.directionCount();
+        List<String> warnings = new ArrayList<>();
+
+        // ---- Group cells by the set of directions that have a neighbour
+        // (a BitSet, since stencil topologies have more than 64 directions)
+        Map<BitSet, Integer> signatureIds = new HashMap<>();
+        List<BitSet> signatures = new ArrayList<>();
+        int[] cellSignature = new int[topology.cellCount()];
+
+        for (int cell = 0; cell < cellSignature.length; cell++) {
+            BitSet sig = new BitSet(dirCount);
+            for (int d = 0; d < dirCount; d++) {
+                if (topology.neighbor(cell, d) >= 0) {
+                    sig.set(d);
+                }
+            }
+
+            Integer id = signatureIds.get(sig);
+            if (id == null) {
+                id = signatures.size();
+                signatureIds.put(sig, id);
+                signatures.add(sig);
+            }
+            cellSignature[cell] = id;
+        }
+
+        // ---- Symmetry: a allows b in d should imply b allows a in opposite(d)
+        int asymmetric = 0;
+        for (int a = 0; a < tileCount; a++) {
+            for (int d = 0; d < dirCount; d++) {
+                BitSet mask = ruleset.allowedMaskRef(a, d);
+                int back = topology.opposite(d);
+
+                for (int b = mask.nextSetBit(0); b >= 0; b = mask.nextSetBit(b + 1)) {
+                    if (!ruleset.allowedMaskRef(b, back).get(a)) {
+                        if (asymmetric++ < 5) {
+                            warnings.add("Asymmetric rule: " + a + " allows " + b + " in direction " + d
+                                    + " but not the reverse");
+                        }
+                    }
+                }
+            }
+        }
+        if (asymmetric > 5) {
+            warnings.add("... " + (asymmetric - 5) + " more asymmetric rules");
+        }
+
+        // ---- Fixpoint: drop tiles that cannot be supported anywhere
+        BitSet live = new BitSet(tileCount);
+        live.set(0, tileCount);
+        BitSet[] placeable = new BitSet[signatures.size()];
+        boolean[][] supported = new boolean[tileCount][dirCount];
+
+        while (true) {
+            for (int t = live.nextSetBit(0); t >= 0; t = live.nextSetBit(t + 1)) {
+                for (int d = 0; d < dirCount; d++) {
+                    supported[t][d] = ruleset.allowedMaskRef(t, d).intersects(live);
+                }
+            }
+
+            BitSet next = new BitSet(tileCount);
+            for (int s = 0; s < placeable.length; s++) {
+                BitSet sig = signatures.get(s);
+                BitSet here = new BitSet(tileCount);
+
+                for (int t = live.nextSetBit(0); t >= 0; t = live.nextSetBit(t + 1)) {
+                    boolean ok = true;
+                    for (int d = 0; d < dirCount && ok; d++) {
+                        ok = !sig.get(d) || supported[t][d];
+                    }
+                    if (ok) {
+                        here.set(t);
+                    }
+                }
+                placeable[s] = here;
+                next.or(here);
+            }
+
+            if (next.equals(live)) {
+                break;
+            }
+            live = next;
+        }
+
+        // ---- Report
+        BitSet dead = new BitSet(tileCount);
+        dead.set(0, tileCount);
+        dead.andNot(live);
+        if (!dead.isEmpty()) {
+            warnings.add("Dead tiles (can never be placed): " + dead);
+        }
+
+        boolean satisfiable = true;
+        for (int s = 0; s < placeable.length; s++) {
+            if (placeable[s].isEmpty()) {
+                satisfiable = false;
+                warnings.add("No tile can be placed in cells with neighbours in directions "
+                        + signatures.get(s) + "; every solve will contradict");
+            }
+        }
+
+        for (int t = live.nextSetBit(0); t >= 0; t = live.nextSetBit(t + 1)) {
+            for (int d = 0; d < dirCount; d++) {
+                BitSet support = (BitSet) ruleset.allowedMaskRef(t, d).clone();
+                support.and(live);
+                if (support.cardinality() == 1 && support.nextSetBit(0) != t) {
+                    warnings.add("Tile " + t + " has a single partner (" + support.nextSetBit(0)
+                            + ") in direction " + d + "; likely source of contradictions");
+                }
+            }
+        }
+
+        return new RulesetAnalysis(ruleset, topology, cellSignature, placeable, live, warnings, satisfiable);
+    }
+
+    public Ruleset ruleset() {
+        return ruleset;
+    }
+
+    /**
+     * Tiles that can appear somewhere on the topology.
+     */
+    public BitSet liveTiles() {
+        return (BitSet) live.clone();
+    }
+
+    /**
+     * Tiles that can never appear and are pruned from every domain.
+     */
+    public BitSet deadTiles() {
+        BitSet dead = new BitSet(ruleset.tileCount());
+        dead.set(0, ruleset.tileCount());
+        dead.andNot(live);
+        return dead;
+    }
+
+    /**
+     * Tiles that may start in the given cell's domain.
+     */
+    public BitSet placeableAt(int cell) {
+        return (BitSet) placeable[cellSignature[cell]].clone();
+    }
+
+    /**
+     * False if some cell has no placeable tile, i.e. every solve is doomed.
+     */
+    public boolean isSatisfiable() {
+        return satisfiable;
+    }
+
+    /**
+     * Human-readable findings: dead tiles, asymmetric rules, fragile tiles.
+     */
+    public List<String> warnings() {
+        return warnings;
+    }
+
+    /**
+     * Shrinks every cell's initial domain to the tiles placeable there.
+     *
+     * @param grid A grid built on the analysed topology.
+     * @throws IllegalArgumentException if the grid uses a different topology or tile count.
+     */
+    public void applyTo(Grid grid) {
+        if (grid.getTopology().cellCount() != topology.cellCount()
+                || grid.getTopology().directionCount() != topology.directionCount()) {
+            throw new IllegalArgumentException("Grid topology does not match the analysed topology");
+        }
+        if (grid.getTileCount() != ruleset.tileCount()) {
+            throw new IllegalArgumentException(
+                    "Grid tileCount (" + grid.getTileCount() +
+                            ") does not match Ruleset tileCount (" + ruleset.tileCount() + ")");
+        }
+
+        Wave wave = grid.getWave();
+        int words = wave.wordsPerCell();
+        long[] masks = new long[placeable.length * words];
+
+        for (int s = 0; s < placeable.length; s++) {
+            long[] bits = placeable[s].toLongArray();
+            System.arraycopy(bits, 0, masks, s * words, Math.min(bits.length, words));
+        }
+
+        for (int cell = 0; cell < cellSignature.length; cell++) {
+            wave.and(cell, masks, cellSignature[cell] * words);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.rizikh.wfc.rules;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Infers a square-grid ruleset from example tile maps.
+ *
+ * Samples are cut into chunks of rows that are dealt out to one partition
+ * per worker of the common pool. Each partition counts into its own
+ * primitive arrays (tile frequencies plus one count per (tile, neighbour)
+ * pair for north and east; south and west are the same pairs seen from the
+ * other side), and the partitions are summed at the end, so counting costs a
+ * few array increments per cell and no boxing.
+ *
+ * A partition holds 2 * tileCount^2 longs, which is fine for libraries of up
+ * to a few thousand tiles. Counts are longs so that large sample sets cannot
+ * overflow them.
+ */
+public final class RulesetLearner {
+    // Cells counted by one parallel task.
+    private static final int CHUNK_CELLS = 1 << 16;
+
+    private final int tileCount;
+    private final long[] frequencies;
+    private final long[] northCounts;
+    private final long[] eastCounts;
+    private long cellCount;
+
+    /**
+     * An example map: tile ids with index = y * width + x, y pointing up as
+     * in the solver. Negative ids mark unknown cells, which are skipped
+     * together with their adjacencies.
+     */
+    public record Sample(int width, int height, int[] tiles) {
+        public Sample {
+            if (width <= 0 || height <= 0) {
+                throw new IllegalArgumentException("Width and height must be positive integers.");
+            }
+            if (tiles == null || tiles.length != (long) width * height) {
+                throw new IllegalArgumentException("Tiles must hold exactly width * height entries");
+            }
+        }
+    }
+
+    /**
+     * Constructs a RulesetLearner.
+     *
+     * @param tileCount Number of tile ids in the library.
+     * @throws IllegalArgumentException if tileCount is not positive or too
+     *                                  large to count pairs for.
+     */
+    public RulesetLearner(int tileCount) {
+        if (tileCount <= 0) {
+            throw new IllegalArgumentException("Tile count must be a positive integer.");
+        }
+        if ((long) tileCount * tileCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many tiles to count adjacencies: " + tileCount);
+        }
+        this.tileCount = tileCount;
+        this.frequencies = new long[tileCount];
+        this.northCounts = new long[tileCount * tileCount];
+        this.eastCounts = new long[tileCount * tileCount];
+    }
+
+    public int getTileCount() {
+        return tileCount;
+    }
+
+    /**
+     * Number of known cells counted so far.
+     */
+    public long getCellCount() {
+        return cellCount;
+    }
+
+    // ------------------------------------------------------------
+    // Counting
+    // ------------------------------------------------------------
+
+    /**
+     * Counts the tiles and adjacencies of the samples, in parallel.
+     *
+     * @throws IllegalArgumentException if a sample holds a tile id of
+     *                                  tileCount or more.
+     */
+    public RulesetLearner add(List<Sample> samples) {
+        for (Sample sample : samples) {
+            for (int tile : sample.tiles()) {
+                if (tile >= tileCount) {
+                    throw new IllegalArgumentException("Tile id " + tile + " is out of range");
+                }
+            }
+        }
+
+        List<int[]> chunks = new ArrayList<>();
+        for (int s = 0; s < samples.size(); s++) {
+            Sample sample = samples.get(s);
+            int rows = Math.max(1, CHUNK_CELLS / sample.width());
+            for (int y = 0; y < sample.height(); y += rows) {
+                chunks.add(new int[] { s, y, Math.min(sample.height(), y + rows) });
+            }
+        }
+
+        // One Counts per partition; chunks are dealt round-robin to balance them
+        int partitions = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), chunks.size()));
+        List<Counts> partial = IntStream.range(0, partitions).parallel().mapToObj(p -> {
+            Counts counts = new Counts(tileCount);
+            for (int c = p; c < chunks.size(); c += partitions) {
+                int[] chunk = chunks.get(c);
+                counts.add(samples.get(chunk[0]), chunk[1], chunk[2]);
+            }
+            return counts;
+        }).toList();
+
+        for (Counts counts : partial) {
+            merge(counts);
+        }
+        return this;
+    }
+
+    public RulesetLearner add(Sample... samples) {
+        return add(Arrays.asList(samples));
+    }
+
+    /**
+     * Reads and counts the files, in parallel. See {@link #read(Path)}.
+     *
+     * @throws IOException if a file cannot be read.
+     */
+    public RulesetLearner addFiles(List<Path> paths) throws IOException {
+        Sample[] samples = new Sample[paths.size()];
+        try {
+            IntStream.range(0, samples.length).parallel().forEach(i -> {
+                try {
+                    samples[i] = read(paths.get(i));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return add(samples);
+    }
+
+    private void merge(Counts counts) {
+        for (int t = 0; t < tileCount; t++) {
+            frequencies[t] += counts.frequencies[t];
+        }
+        for (int i = 0; i < northCounts.length; i++) {
+            northCounts[i] += counts.north[i];
+            eastCounts[i] += counts.east[i];
+        }
+        cellCount += counts.cells;
+    }
+
+    /**
+     * Per-partition counting arrays.
+     */
+    private static final class Counts {
+        final int tileCount;
+        final long[] frequencies;
+        final long[] north;
+        final long[] east;
+        long cells;
+
+        Counts(int tileCount) {
+            this.tileCount = tileCount;
+            this.frequencies = new long[tileCount];
+            this.north = new long[tileCount * tileCount];
+            this.east = new long[tileCount * tileCount];
+        }
+
+        void add(Sample sample, int fromRow, int toRow) {
+            int[] tiles = sample.tiles();
+            int width = sample.width();
+            int height = sample.height();
+            int n = tileCount;
+
+            for (int y = fromRow; y < toRow; y++) {
+                int row = y * width;
+                boolean top = y + 1 == height;
+                for (int x = 0; x < width; x++) {
+                    int t = tiles[row + x];
+                    if (t < 0) {
+                        continue;
+                    }
+                    frequencies[t]++;
+                    cells++;
+                    if (x + 1 < width) {
+                        int e = tiles[row + x + 1];
+                        if (e >= 0) {
+                            east[t * n + e]++;
+                        }
+                    }
+                    if (!top) {
+                        int u = tiles[row + width + x];
+                        if (u >= 0) {
+                            north[t * n + u]++;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Output
+    // ------------------------------------------------------------
+
+    /**
+     * Ruleset allowing every adjacency observed at least once.
+     */
+    public LearnedRuleset build() {
+        return build(1);
+    }
+
+    /**
+     * Ruleset allowing every adjacency observed at least minSupport times;
+     * rarer pairs are treated as noise in the samples. Pass the result to
+     * {@link CompiledRuleset#compile(Ruleset)} for the solver kernels.
+     *
+     * @throws IllegalArgumentException if minSupport is not positive.
+     */
+    public LearnedRuleset build(int minSupport) {
+        if (minSupport <= 0) {
+            throw new IllegalArgumentException("Minimum support must be a positive integer.");
+        }
+        return new LearnedRuleset(tileCount, frequencies.clone(), northCounts.clone(), eastCounts.clone(),
+                minSupport);
+    }
+
+    // ------------------------------------------------------------
+    // Sample formats
+    // ------------------------------------------------------------
+
+    /**
+     * Reads a sample file: CSV if the name ends in .csv, otherwise the binary
+     * map format.
+     *
+     * @throws IOException if the file cannot be read or is malformed.
+     */
+    public static Sample read(Path path) throws IOException {
+        if (path.getFileName().toString().toLowerCase().endsWith(".csv")) {
+            try (BufferedReader in = Files.newBufferedReader(path)) {
+                return readCsv(in);
+            }
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            return readBinary(in);
+        }
+    }
+
+    /**
+     * Reads the binary map format served by the generation service: width,
+     * height, tileCount (big-endian ints), then one tile id per cell in row
+     * order, as unsigned bytes when tileCount fits in a byte and as unsigned
+     * shorts otherwise.
+     *
+     * @throws IOException if the stream is truncated or the header is invalid.
+     */
+    public static Sample readBinary(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        int width = data.readInt();
+        int height = data.readInt();
+        int tileCount = data.readInt();
+        if (width <= 0 || height <= 0 || tileCount <= 0 || (long) width * height > Integer.MAX_VALUE - 8) {
+            throw new IOException("Invalid map header: " + width + " x " + height + ", " + tileCount + " tiles");
+        }
+
+        boolean wide = tileCount > 256;
+        int cells = width * height;
+        byte[] bytes = data.readNBytes(wide ? Math.multiplyExact(cells, 2) : cells);
+        if (bytes.length < (wide ? 2L * cells : cells)) {
+            throw new IOException("Map data is truncated");
+        }
+
+        int[] tiles = new int[cells];
+        for (int i = 0; i < cells; i++) {
+            tiles[i] = wide ? ((bytes[2 * i] & 0xFF) << 8) | (bytes[2 * i + 1] & 0xFF) : bytes[i] & 0xFF;
+        }
+        return new Sample(width, height, tiles);
+    }
+
+    /**
+     * Reads a CSV grid: one line per row of integer tile ids, top row first
+     * as the map is drawn (so the last line is y = 0). Blank lines are
+     * skipped; empty fields are unknown cells.
+     *
+     * @throws IOException if reading fails or the rows are ragged or hold
+     *                     something other than integers.
+     */
+    public static Sample readCsv(BufferedReader in) throws IOException {
+        List<int[]> rows = new ArrayList<>();
+        int width = -1;
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            int[] row = parseRow(line);
+            if (width >= 0 && row.length != width) {
+                throw new IOException("Row " + rows.size() + " has " + row.length + " cells, expected " + width);
+            }
+            width = row.length;
+            rows.add(row);
+        }
+        if (rows.isEmpty()) {
+            throw new IOException("CSV grid is empty");
+        }
+
+        int height = rows.size();
+        int[] tiles = new int[width * height];
+        for (int r = 0; r < height; r++) {
+            System.arraycopy(rows.get(r), 0, tiles, (height - 1 - r) * width, width);
+        }
+        return new Sample(width, height, tiles);
+    }
+
+    private static int[] parseRow(String line) throws IOException {
+        int fields = 1;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == ',') {
+                fields++;
+            }
+        }
+
+        int[] row = new int[fields];
+        int start = 0;
+        for (int f = 0; f < fields; f++) {
+            int end = line.indexOf(',', start);
+            if (end < 0) {
+                end = line.length();
+            }
+            String field = line.substring(start, end).strip();
+            try {
+                row[f] = field.isEmpty() ? -1 : Integer.parseInt(field);
+            } catch (NumberFormatException e) {
+                throw new IOException("Not a tile id: '" + field + "'", e);
+            }
+            start = end + 1;
+        }
+        return row;
+    }
+}
@@ -0,0 +1,280 @@
+package com.rizikh.wfc.rules;
+
+import java.util.BitSet;
+
+import com.rizikh.wfc.core.Direction;
+import com.rizikh.wfc.core.Stencil;
+
+/**
+ * A square-grid ruleset extended to an arbitrary {@link Stencil}, for use
+ * with a {@link com.rizikh.wfc.core.StencilTopology} over the same stencil.
+ *
+ * The four orthogonal offsets keep the square ruleset's masks; every other
+ * offset gets its own precomputed mask table per tile, so propagation over
+ * the stencil is the usual one mask (or socket set) per direction. Tile
+ * weights are the square ruleset's.
+ */
+public class StencilRuleset implements Ruleset {
+
+    /**
+     * Decides whether tileB may sit at offset (dx, dy) from tileA. Must be
+     * symmetric: allows(a, dx, dy, b) == allows(b, -dx, -dy, a).
+     */
+    @FunctionalInterface
+    public interface OffsetRule {
+        boolean allows(int tileA, int dx, int dy, int tileB);
+    }
+
+    /**
+     * The socket tileId exposes towards offset (dx, dy); two tiles match
+     * when the sockets they expose towards each other are equal.
+     */
+    @FunctionalInterface
+    public interface OffsetSocket {
+        int socket(int tileId, int dx, int dy);
+    }
+
+    private final Ruleset square;
+    private final Stencil stencil;
+    // allowed[tile * stencil.size() + dir]
+    private final BitSet[] allowed;
+
+    private StencilRuleset(Ruleset square, Stencil stencil, BitSet[] allowed) {
+        this.square = square;
+        this.stencil = stencil;
+        this.allowed = allowed;
+    }
+
+    private static void check(Ruleset square, Stencil stencil) {
+        if (square == null) {
+            throw new IllegalArgumentException("Ruleset cannot be null");
+        }
+        if (stencil == null) {
+            throw new IllegalArgumentException("Stencil cannot be null");
+        }
+        if (square.directionCount() != Direction.values().length) {
+            throw new IllegalArgumentException("Only square-grid rulesets can be extended to a stencil");
+        }
+    }
+
+    // The Direction ordinal of an orthogonal unit offset, -1 otherwise.
+    private static int squareDir(Stencil stencil, int dir) {
+        for (Direction d : Direction.values()) {
+            if (d.dx == stencil.dx(dir) && d.dy == stencil.dy(dir)) {
+                return d.ordinal();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Extends a square ruleset with explicit rules for the other offsets.
+     *
+     * @param square  Rules for the four orthogonal offsets.
+     * @param stencil The neighbourhood.
+     * @param rule    Rules for every other offset.
+     * @throws IllegalArgumentException if an argument is null, square is not
+     *                                  a square-grid ruleset or rule is not
+     *                                  symmetric.
+     */
+    public static StencilRuleset extend(Ruleset square, Stencil stencil, OffsetRule rule) {
+        check(square, stencil);
+        if (rule == null) {
+            throw new IllegalArgumentException("Offset rule cannot be null");
+        }
+
+        int tileCount = square.tileCount();
+        int dirs = stencil.size();
+        BitSet[] allowed = new BitSet[tileCount * dirs];
+
+        for (int d = 0; d < dirs; d++) {
+            int sq = squareDir(stencil, d);
+            for (int a = 0; a < tileCount; a++) {
+                BitSet mask;
+                if (sq >= 0) {
+                    mask = square.allowedMaskRef(a, sq);
+                } else {
+                    mask = new BitSet(tileCount);
+                    for (int b = 0; b < tileCount; b++) {
+                        if (rule.allows(a, stencil.dx(d), stencil.dy(d), b)) {
+                            mask.set(b);
+                        }
+                    }
+                }
+                allowed[a * dirs + d] = mask;
+            }
+        }
+
+        for (int d = 0; d < dirs; d++) {
+            int back = stencil.opposite(d);
+            for (int a = 0; a < tileCount; a++) {
+                BitSet mask = allowed[a * dirs + d];
+                for (int b = mask.nextSetBit(0); b >= 0; b = mask.nextSetBit(b + 1)) {
+                    if (!allowed[b * dirs + back].get(a)) {
+                        throw new IllegalArgumentException("Offset rule is not symmetric for tiles " + a + " and "
+                                + b + " at (" + stencil.dx(d) + ", " + stencil.dy(d) + ")");
+                    }
+                }
+            }
+        }
+        return new StencilRuleset(square, stencil, allowed);
+    }
+
+    /**
+     * Extends a square ruleset with the constraints it already implies: tile
+     * b is allowed at a farther offset from a only if the orthogonal masks
+     * connect a to b along both L-shaped paths (x steps first, or y steps
+     * first). Every solution of the square ruleset satisfies these, so the
+     * solutions stay the same, but propagation sees dead ends sooner.
+     *
+     * @throws IllegalArgumentException if an argument is null or square is
+     *                                  not a square-grid ruleset.
+     */
+    public static StencilRuleset implied(Ruleset square, Stencil stencil) {
+        check(square, stencil);
+
+        int tileCount = square.tileCount();
+        int dirs = stencil.size();
+        BitSet[] allowed = new BitSet[tileCount * dirs];
+
+        for (int d = 0; d < dirs; d++) {
+            int sq = squareDir(stencil, d);
+            int dx = stencil.dx(d);
+            int dy = stencil.dy(d);
+            int xDir = (dx > 0 ? Direction.EAST : Direction.WEST).ordinal();
+            int yDir = (dy > 0 ? Direction.NORTH : Direction.SOUTH).ordinal();
+
+            for (int a = 0; a < tileCount; a++) {
+                if (sq >= 0) {
+                    allowed[a * dirs + d] = square.allowedMaskRef(a, sq);
+                    continue;
+                }
+
+                BitSet xFirst = walk(square, walk(square, single(tileCount, a), xDir, Math.abs(dx)), yDir,
+                        Math.abs(dy));
+                BitSet yFirst = walk(square, walk(square, single(tileCount, a), yDir, Math.abs(dy)), xDir,
+                        Math.abs(dx));
+                xFirst.and(yFirst);
+                allowed[a * dirs + d] = xFirst;
+            }
+        }
+        return new StencilRuleset(square, stencil, allowed);
+    }
+
+    private static BitSet single(int tileCount, int tile) {
+        BitSet set = new BitSet(tileCount);
+        set.set(tile);
+        return set;
+    }
+
+    // Tiles reachable from any tile in from after steps moves in direction dir.
+    private static BitSet walk(Ruleset square, BitSet from, int dir, int steps) {
+        BitSet current = from;
+        for (int s = 0; s < steps; s++) {
+            BitSet next = new BitSet(square.tileCount());
+            for (int t = current.nextSetBit(0); t >= 0; t = current.nextSetBit(t + 1)) {
+                next.or(square.allowedMaskRef(t, dir));
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    /**
+     * Extends an edge-matching ruleset with sockets for the other offsets
+     * (e.g. corner types towards diagonal neighbours). The result is again
+     * an {@link EdgeRuleset}, so it gets socket propagation.
+     *
+     * @param square  Rules and sockets for the four orthogonal offsets.
+     * @param stencil The neighbourhood.
+     * @param sockets Sockets towards every other offset, in the square
+     *                ruleset's socket range.
+     * @throws IllegalArgumentException if an argument is null, square is not
+     *                                  a square-grid ruleset or a socket is
+     *                                  out of range.
+     */
+    public static StencilRuleset sockets(EdgeRuleset square, Stencil stencil, OffsetSocket sockets) {
+        check(square, stencil);
+        if (sockets == null) {
+            throw new IllegalArgumentException("Offset sockets cannot be null");
+        }
+
+        int tileCount = square.tileCount();
+        int dirs = stencil.size();
+        int[] table = new int[tileCount * dirs];
+
+        for (int d = 0; d < dirs; d++) {
+            int sq = squareDir(stencil, d);
+            for (int t = 0; t < tileCount; t++) {
+                int s = sq >= 0 ? square.socket(t, sq) : sockets.socket(t, stencil.dx(d), stencil.dy(d));
+                if (s < 0 || s >= square.socketCount()) {
+                    throw new IllegalArgumentException("Socket " + s + " of tile " + t + " is out of range");
+                }
+                table[t * dirs + d] = s;
+            }
+        }
+
+        BitSet[] allowed = new BitSet[tileCount * dirs];
+        for (int d = 0; d < dirs; d++) {
+            int back = stencil.opposite(d);
+            for (int a = 0; a < tileCount; a++) {
+                BitSet mask = new BitSet(tileCount);
+                for (int b = 0; b < tileCount; b++) {
+                    if (table[a * dirs + d] == table[b * dirs + back]) {
+                        mask.set(b);
+                    }
+                }
+                allowed[a * dirs + d] = mask;
+            }
+        }
+        return new Edges(square, stencil, allowed, table, square.socketCount());
+    }
+
+    public Stencil stencil() {
+        return stencil;
+    }
+
+    @Override
+    public int tileCount() {
+        return square.tileCount();
+    }
+
+    @Override
+    public int directionCount() {
+        return stencil.size();
+    }
+
+    @Override
+    public BitSet allowedMaskRef(int tileId, int dir) {
+        return allowed[tileId * stencil.size() + dir];
+    }
+
+    @Override
+    public double weight(int tileId) {
+        return square.weight(tileId);
+    }
+
+    /**
+     * Stencil ruleset whose every offset is matched by sockets.
+     */
+    private static final class Edges extends StencilRuleset implements EdgeRuleset {
+        private final int[] sockets;
+        private final int socketCount;
+
+        Edges(Ruleset square, Stencil stencil, BitSet[] allowed, int[] sockets, int socketCount) {
+            super(square, stencil, allowed);
+            this.sockets = sockets;
+            this.socketCount = socketCount;
+        }
+
+        @Override
+        public int socketCount() {
+            return socketCount;
+        }
+
+        @Override
+        public int socket(int tileId, int dir) {
+            return sockets[tileId * directionCount() + dir];
+        }
+    }
+}
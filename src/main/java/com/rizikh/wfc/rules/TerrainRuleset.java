@@ -1,16 +1,23 @@
 package com.rizikh.wfc.rules;
 
 import com.rizikh.wfc.core.Direction;
+import com.rizikh.wfc.core.Stencil;
 import com.rizikh.wfc.tiles.TerrainTile;
 
 import java.util.BitSet;
 import java.util.EnumMap;
 
-public class TerrainRuleset implements Ruleset {
+public class TerrainRuleset implements EdgeRuleset {
 
     // Biome/edge categories
     private enum Edge { DEEPWATER, WATER, SAND, GRASS, GRASS_TREES, FOREST }
 
+    /**
+     * Number of biome classes: deep water, water, sand, grass, grass with
+     * trees and forest, in that order.
+     */
+    public static final int BIOME_COUNT = Edge.values().length;
+
     private final EnumMap<TerrainTile, EnumMap<Direction, BitSet>> rules =
             new EnumMap<>(TerrainTile.class);
 
@@ -42,8 +49,74 @@ public class TerrainRuleset implements Ruleset {
     }
 
     @Override
-    public BitSet allowedMaskRef(int tileId, Direction dir) {
-        return rules.get(TerrainTile.values()[tileId]).get(dir);
+    public BitSet allowedMaskRef(int tileId, int dir) {
+        return rules.get(TerrainTile.values()[tileId]).get(Direction.values()[dir]);
+    }
+
+    // Sockets are the Edge ordinals
+    @Override
+    public int socketCount() {
+        return Edge.values().length;
+    }
+
+    @Override
+    public int socket(int tileId, int dir) {
+        return edges.get(TerrainTile.values()[tileId]).get(Direction.values()[dir]).ordinal();
+    }
+
+    /**
+     * Biome class of a tile (0 .. BIOME_COUNT-1): its most common edge type.
+     * Corner tiles have two edges of each kind and belong to the later
+     * (landward) biome, which is their own base: SAND_WATER_NE is sand with
+     * water in one corner.
+     */
+    public int biomeOf(int tileId) {
+        int[] counts = new int[BIOME_COUNT];
+        for (Edge e : edges.get(TerrainTile.values()[tileId]).values()) {
+            counts[e.ordinal()]++;
+        }
+
+        int biome = 0;
+        for (int b = 1; b < BIOME_COUNT; b++) {
+            if (counts[b] >= counts[biome]) {
+                biome = b;
+            }
+        }
+        return biome;
+    }
+
+    /**
+     * The 8-neighbour version of these rules: diagonal neighbours must agree
+     * on the type of the corner they share, so corner tiles such as
+     * SAND_WATER_NE also constrain the cell across their corner. Biomes
+     * without corner tiles (deep water, forest) cannot turn a convex corner
+     * under these rules, so they only appear in regions that reach the map
+     * border.
+     *
+     * Solve it on a {@link com.rizikh.wfc.core.StencilTopology} over
+     * {@link Stencil#moore()}.
+     */
+    public StencilRuleset withCorners() {
+        return StencilRuleset.sockets(this, Stencil.moore(), this::cornerSocket);
+    }
+
+    // A corner takes its two edges' type if they agree; otherwise the edge
+    // that differs from the tile's biome reaches into the corner.
+    private int cornerSocket(int tileId, int dx, int dy) {
+        if (Math.abs(dx) != 1 || Math.abs(dy) != 1) {
+            throw new IllegalArgumentException("Terrain corners only face diagonal neighbours");
+        }
+        EnumMap<Direction, Edge> sides = edges.get(TerrainTile.values()[tileId]);
+        Edge vertical = sides.get(dy > 0 ? Direction.NORTH : Direction.SOUTH);
+        Edge horizontal = sides.get(dx > 0 ? Direction.EAST : Direction.WEST);
+
+        if (vertical == horizontal || horizontal.ordinal() == biomeOf(tileId)) {
+            return vertical.ordinal();
+        }
+        if (vertical.ordinal() == biomeOf(tileId)) {
+            return horizontal.ordinal();
+        }
+        return Math.min(vertical.ordinal(), horizontal.ordinal());
     }
 
     // ------------------------------------------------------------
@@ -0,0 +1,178 @@
+package com.rizikh.wfc.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import com.rizikh.wfc.rules.RoadRuleset;
+import com.rizikh.wfc.rules.TerrainRuleset;
+
+/**
+ * Embedded HTTP front end for {@link GenerationService}, one virtual thread
+ * per request.
+ *
+ * Endpoints:
+ * <pre>
+ * GET /generate?ruleset=terrain&amp;width=64&amp;height=64&amp;seed=1[&amp;format=png&amp;scale=4][&amp;connected=true]
+ * GET /stats
+ * </pre>
+ */
+public final class GenerationServer {
+    private static final long DEFAULT_CACHE_BYTES = 256L << 20;
+    private static final int DEFAULT_ATTEMPTS = 20;
+
+    private final GenerationService service;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Constructs a server bound to the given address; call {@link #start()} to serve.
+     *
+     * @throws IOException if the address cannot be bound.
+     */
+    public GenerationServer(GenerationService service, InetSocketAddress address) throws IOException {
+        if (service == null) {
+            throw new IllegalArgumentException("Service cannot be null");
+        }
+        this.service = service;
+        this.server = HttpServer.create(address, 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+
+        server.setExecutor(executor);
+        server.createContext("/generate", this::handleGenerate);
+        server.createContext("/stats", this::handleStats);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+
+        GenerationService service = new GenerationService(DEFAULT_CACHE_BYTES, DEFAULT_ATTEMPTS);
+        service.register("terrain", new TerrainRuleset(), -1);
+        service.register("road", new RoadRuleset(), 1); // socket 1 = open road
+
+        GenerationServer server = new GenerationServer(service, new InetSocketAddress(port));
+        server.start();
+        System.out.println("Serving " + service.rulesetNames() + " on http://localhost:" + server.port());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.close();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    // ------------------------------------------------------------
+    // Handlers
+    // ------------------------------------------------------------
+
+    private void handleGenerate(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "text/plain", "GET only");
+                return;
+            }
+
+            GenerationService.Request request;
+            try {
+                request = parse(query(exchange));
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, "text/plain", e.getMessage());
+                return;
+            }
+
+            try {
+                byte[] body = service.generate(request);
+                String type = request.format() == GenerationService.Format.PNG
+                        ? "image/png"
+                        : "application/octet-stream";
+                send(exchange, 200, type, body);
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, "text/plain", e.getMessage());
+            } catch (GenerationService.GenerationFailedException e) {
+                send(exchange, 422, "text/plain", e.getMessage());
+            }
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String body = "cached=" + service.cachedCount()
+                    + "\nbytes=" + service.cachedBytes()
+                    + "\nhits=" + service.cacheHits()
+                    + "\nmisses=" + service.cacheMisses() + "\n";
+            send(exchange, 200, "text/plain", body);
+        }
+    }
+
+    private static GenerationService.Request parse(Map<String, String> q) {
+        GenerationService.Format format = switch (q.getOrDefault("format", "binary").toLowerCase(Locale.ROOT)) {
+            case "binary" -> GenerationService.Format.BINARY;
+            case "png" -> GenerationService.Format.PNG;
+            default -> throw new IllegalArgumentException("Unknown format: " + q.get("format"));
+        };
+        try {
+            return new GenerationService.Request(
+                    q.get("ruleset"),
+                    Integer.parseInt(required(q, "width")),
+                    Integer.parseInt(required(q, "height")),
+                    Long.parseLong(required(q, "seed")),
+                    Boolean.parseBoolean(q.getOrDefault("connected", "false")),
+                    format,
+                    Integer.parseInt(q.getOrDefault("scale", "1")));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed number: " + e.getMessage());
+        }
+    }
+
+    private static String required(Map<String, String> q, String name) {
+        String value = q.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.put(name, value);
+        }
+        return params;
+    }
+
+    private static void send(HttpExchange exchange, int status, String type, String body) throws IOException {
+        send(exchange, status, type, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, String type, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", type);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.rizikh.wfc.service;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.rules.CompiledRuleset;
+import com.rizikh.wfc.rules.EdgeRuleset;
+import com.rizikh.wfc.rules.Ruleset;
+import com.rizikh.wfc.solver.ConnectivityConstraint;
+import com.rizikh.wfc.solver.WfcSolver;
+
+/**
+ * Map generation with request coalescing and result caching.
+ *
+ * Results are cached under a content address: a hash of the compiled
+ * ruleset plus size, seed, constraints and output format. Identical
+ * requests that arrive while a map is being solved wait for that solve
+ * instead of starting their own. Callers run on their own threads (one
+ * virtual thread per request in {@link GenerationServer}), so independent
+ * requests solve in parallel.
+ */
+public final class GenerationService {
+    public enum Format {
+        BINARY,
+        PNG
+    }
+
+    /**
+     * One generation request.
+     *
+     * @param ruleset   Registered ruleset name.
+     * @param width     Map width in cells.
+     * @param height    Map height in cells.
+     * @param seed      Seed of the first attempt; later attempts derive from it.
+     * @param connected Whether to enforce a single connected network.
+     * @param format    Output format.
+     * @param scale     Pixels per cell for PNG output.
+     */
+    public record Request(String ruleset, int width, int height, long seed, boolean connected, Format format,
+            int scale) {
+    }
+
+    /**
+     * Thrown when no attempt produced a map.
+     */
+    public static final class GenerationFailedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        GenerationFailedException(String message) {
+            super(message);
+        }
+    }
+
+    // Upper bounds that keep a single request from monopolising the service
+    public static final int MAX_CELLS = 1 << 20;
+    public static final int MAX_SCALE = 16;
+    // PNG rasters are built in memory: 2^24 pixels is 64 MiB
+    public static final long MAX_PIXELS = 1L << 24;
+
+    private static final long ATTEMPT_STRIDE = 0x9E3779B97F4A7C15L;
+    // Contradictions are repaired locally; attempts only restart what repair gave up on
+    private static final int REPAIR_RADIUS = 4;
+
+    private final Map<String, Entry> rulesets = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+    private final ResultCache cache;
+    private final int maxAttempts;
+
+    private record Entry(Ruleset ruleset, String hash, int connectSocket) {
+    }
+
+    /**
+     * Constructs a GenerationService.
+     *
+     * @param cacheBytes  Maximum total size of cached results.
+     * @param maxAttempts Solve attempts per request before giving up.
+     * @throws IllegalArgumentException if either argument is not positive.
+     */
+    public GenerationService(long cacheBytes, int maxAttempts) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Attempts must be a positive integer.");
+        }
+        this.cache = new ResultCache(cacheBytes);
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Makes a ruleset available under a name.
+     *
+     * @param name          The name used in requests.
+     * @param ruleset       The ruleset (must be immutable; it is shared by concurrent solves).
+     * @param connectSocket Socket that forms the network for connected requests,
+     *                      or -1 if the ruleset does not support them.
+     * @throws IllegalArgumentException if name or ruleset is null, or a socket is
+     *                                  given for a ruleset that is not an EdgeRuleset.
+     */
+    public void register(String name, Ruleset ruleset, int connectSocket) {
+        if (name == null || ruleset == null) {
+            throw new IllegalArgumentException("Name and ruleset cannot be null");
+        }
+        if (connectSocket >= 0 && !(ruleset instanceof EdgeRuleset)) {
+            throw new IllegalArgumentException("Connectivity requires an EdgeRuleset");
+        }
+        rulesets.put(name, new Entry(ruleset, hash(ruleset), connectSocket));
+    }
+
+    public Set<String> rulesetNames() {
+        return Set.copyOf(rulesets.keySet());
+    }
+
+    /**
+     * Returns the encoded map for a request, from the cache when possible.
+     *
+     * Callers waiting on another caller's solve see whatever that solve threw,
+     * errors included.
+     *
+     * @throws IllegalArgumentException  if the request is invalid.
+     * @throws GenerationFailedException if every attempt contradicted.
+     */
+    public byte[] generate(Request request) {
+        Entry entry = validate(request);
+        String key = entry.hash() + "/" + request.width() + "x" + request.height() + "/" + request.seed()
+                + (request.connected() ? "/connected" : "") + "/" + request.format()
+                + (request.format() == Format.PNG ? "@" + request.scale() : "");
+
+        byte[] cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<byte[]> mine = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw e.getCause() instanceof RuntimeException r ? r : e;
+            }
+        }
+
+        try {
+            // A producer may have finished between the cache miss and our claim
+            byte[] bytes = cache.get(key);
+            if (bytes == null) {
+                bytes = produce(entry, request);
+                cache.put(key, bytes);
+            }
+            mine.complete(bytes);
+            return bytes;
+        } catch (Throwable e) {
+            // Anything less leaves waiters blocked forever once mine leaves inFlight
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public int cachedCount() {
+        return cache.size();
+    }
+
+    public long cachedBytes() {
+        return cache.byteSize();
+    }
+
+    public long cacheHits() {
+        return cache.hits();
+    }
+
+    public long cacheMisses() {
+        return cache.misses();
+    }
+
+    private Entry validate(Request request) {
+        if (request == null) {
+            throw new IllegalArgumentException("Request cannot be null");
+        }
+        Entry entry = request.ruleset() != null ? rulesets.get(request.ruleset()) : null;
+        if (entry == null) {
+            throw new IllegalArgumentException("Unknown ruleset: " + request.ruleset());
+        }
+        if (request.width() <= 0 || request.height() <= 0
+                || (long) request.width() * request.height() > MAX_CELLS) {
+            throw new IllegalArgumentException("Size must be positive and at most " + MAX_CELLS + " cells");
+        }
+        if (request.format() == null) {
+            throw new IllegalArgumentException("Format cannot be null");
+        }
+        if (request.format() == Format.PNG && (request.scale() < 1 || request.scale() > MAX_SCALE)) {
+            throw new IllegalArgumentException("Scale must be between 1 and " + MAX_SCALE);
+        }
+        if (request.format() == Format.PNG
+                && (long) request.width() * request.height() * request.scale() * request.scale() > MAX_PIXELS) {
+            throw new IllegalArgumentException("PNG output must be at most " + MAX_PIXELS + " pixels");
+        }
+        if (request.connected() && entry.connectSocket() < 0) {
+            throw new IllegalArgumentException("Ruleset " + request.ruleset() + " does not support connectivity");
+        }
+        return entry;
+    }
+
+    private byte[] produce(Entry entry, Request request) {
+        Ruleset ruleset = entry.ruleset();
+        int width = request.width();
+        int height = request.height();
+
+        // One grid and solver for all attempts; retries only refill the wave
+        Grid grid = new Grid(width, height, ruleset.tileCount());
+        WfcSolver solver = new WfcSolver(grid, ruleset);
+        solver.setRepairRadius(REPAIR_RADIUS);
+        if (request.connected()) {
+            solver.setConnectivityConstraint(
+                    new ConnectivityConstraint(grid, (EdgeRuleset) ruleset, entry.connectSocket()));
+        }
+
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            solver.reset(request.seed() + attempt * ATTEMPT_STRIDE);
+            while (solver.step()) {
+            }
+            if (!solver.isSolved()) {
+                continue;
+            }
+
+            int[] tiles = new int[grid.cellCount()];
+            for (int i = 0; i < tiles.length; i++) {
+                tiles[i] = grid.getWave().firstTile(i);
+            }
+            return request.format() == Format.PNG
+                    ? MapEncoder.png(tiles, width, height, ruleset.tileCount(), request.scale())
+                    : MapEncoder.binary(tiles, width, height, ruleset.tileCount());
+        }
+        throw new GenerationFailedException("No solution after " + maxAttempts + " attempts");
+    }
+
+    // SHA-256 over the compiled masks and weights: equal rules, equal address.
+    private static String hash(Ruleset ruleset) {
+        CompiledRuleset compiled = CompiledRuleset.compile(ruleset);
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+
+        // Fed one mask at a time, so huge sparse tilesets never materialise tiles^2 bits
+        digest.update(ByteBuffer.allocate(8).putInt(ruleset.tileCount()).putInt(ruleset.directionCount()).array());
+        long[] mask = new long[compiled.wordsPerMask()];
+        ByteBuffer buffer = ByteBuffer.allocate(mask.length * 8);
+        for (int t = 0; t < ruleset.tileCount(); t++) {
+            for (int d = 0; d < ruleset.directionCount(); d++) {
+                compiled.maskInto(t, d, mask, 0);
+                buffer.clear();
+                for (long word : mask) {
+                    buffer.putLong(word);
+                }
+                digest.update(buffer.array());
+            }
+        }
+
+        ByteBuffer weights = ByteBuffer.allocate(ruleset.tileCount() * 8);
+        for (int t = 0; t < ruleset.tileCount(); t++) {
+            weights.putDouble(ruleset.weight(t));
+        }
+        digest.update(weights.array());
+
+        return HexFormat.of().formatHex(digest.digest(), 0, 16);
+    }
+}
@@ -0,0 +1,51 @@
+package com.rizikh.wfc.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+import com.rizikh.wfc.render.MapRenderer;
+import com.rizikh.wfc.render.TileAtlas;
+
+/**
+ * Encodes solved tile maps for the wire.
+ */
+final class MapEncoder {
+
+    private MapEncoder() {
+    }
+
+    /**
+     * Binary map: width, height, tileCount (big-endian ints), then one tile id
+     * per cell in row order (index = y * width + x), as unsigned bytes when
+     * tileCount fits in a byte and as unsigned shorts otherwise.
+     */
+    static byte[] binary(int[] tiles, int width, int height, int tileCount) {
+        boolean wide = tileCount > 256;
+        ByteBuffer out = ByteBuffer.allocate(12 + tiles.length * (wide ? 2 : 1));
+        out.putInt(width).putInt(height).putInt(tileCount);
+        for (int tile : tiles) {
+            if (wide) {
+                out.putShort((short) tile);
+            } else {
+                out.put((byte) tile);
+            }
+        }
+        return out.array();
+    }
+
+    /**
+     * PNG preview: one square of scale x scale pixels per cell, coloured by
+     * tile id, with y pointing up as in the sketches.
+     */
+    static byte[] png(int[] tiles, int width, int height, int tileCount, int scale) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            new MapRenderer(TileAtlas.palette(tileCount, scale)).writePng(tiles, width, height, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,66 @@
+package com.rizikh.wfc.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Content-addressed cache of encoded maps, bounded by total size in bytes.
+ * Least recently used entries are evicted first.
+ */
+final class ResultCache {
+    private final long maxBytes;
+    private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+
+    ResultCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be a positive integer.");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    synchronized byte[] get(String key) {
+        byte[] value = entries.get(key);
+        if (value != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return value;
+    }
+
+    synchronized void put(String key, byte[] value) {
+        if (value.length > maxBytes) {
+            return;
+        }
+
+        byte[] old = entries.put(key, value);
+        bytes += value.length - (old != null ? old.length : 0);
+
+        Iterator<Map.Entry<String, byte[]>> it = entries.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, byte[]> eldest = it.next();
+            bytes -= eldest.getValue().length;
+            it.remove();
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long byteSize() {
+        return bytes;
+    }
+
+    synchronized long hits() {
+        return hits;
+    }
+
+    synchronized long misses() {
+        return misses;
+    }
+}
@@ -0,0 +1,361 @@
+package com.rizikh.wfc.solver;
+
+import java.util.Arrays;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.CompiledRuleset;
+import com.rizikh.wfc.rules.Ruleset;
+
+/**
+ * Localized contradiction repair ("modifying in blocks").
+ *
+ * Instead of abandoning the whole solve, the block of cells within a radius
+ * of the failing cell is reopened to the domains it had when solving
+ * started, constraints are propagated back in from the block and the cells
+ * around it, and solving continues. The radius counts neighbour steps, so
+ * blocks work on every topology. A failure inside the previous block doubles
+ * the radius, at most twice and not past a quarter of the grid; larger
+ * blocks are restarts in all but name and fail more often than they help,
+ * so further failures there are retried at that size with fresh choices. Once every cell of the block is collapsed
+ * again, solving has moved past it: the next failure starts over at the
+ * base radius. Only when even the surroundings cannot be propagated into
+ * the block does it grow further, up to the whole grid.
+ *
+ * A contradiction aborts propagation part-way, so a few changes far from
+ * the block may never have been propagated. Finished maps are therefore
+ * checked for adjacency violations once if any repair happened, and a
+ * violation is repaired like a contradiction.
+ */
+final class BlockRepairer {
+    // Radius doubling stops here; by then the block covers any grid that fits in memory.
+    private static final int MAX_SHIFT = 30;
+    // Repeated failures double the radius at most this often, and not past a quarter of the grid
+    private static final int MAX_GROWTH = 2;
+    private final int maxBlock;
+
+    private final Wave wave;
+    private final int cellCount;
+    private final int directionCount;
+    private final int[] neighbors;
+    private final int words;
+    private final Propagator propagator;
+    private final CompiledRuleset rules;
+    private final int baseRadius;
+
+    private final long[] initialWords;
+
+    // Breadth-first search state, shared by the empty-cell search and block growth
+    private final int[] seenStamp;
+    private final int[] distance;
+    private final int[] queue;
+    private int stamp;
+
+    // Cells of the last block, in search order
+    private final int[] block;
+    private final int[] blockStamp;
+    private int blockSize;
+    private int blockGeneration;
+    // Block cells before this one are known to be collapsed again
+    private int settled;
+
+    private int streak;
+    private int repairs;
+
+    BlockRepairer(Grid grid, Ruleset ruleset, Propagator propagator, int baseRadius) {
+        this.wave = grid.getWave();
+        this.cellCount = grid.cellCount();
+        this.directionCount = grid.getTopology().directionCount();
+        this.neighbors = grid.getTopology().neighbors();
+        this.words = wave.wordsPerCell();
+        this.propagator = propagator;
+        this.rules = CompiledRuleset.compile(ruleset);
+        this.baseRadius = baseRadius;
+        this.maxBlock = Math.max(1, cellCount / 4);
+
+        this.initialWords = new long[wave.words().length];
+        this.seenStamp = new int[cellCount];
+        this.distance = new int[cellCount];
+        this.queue = new int[cellCount];
+        this.block = new int[cellCount];
+        this.blockStamp = new int[cellCount];
+    }
+
+    /**
+     * Takes the wave as it is now as the state blocks are reopened to.
+     */
+    void begin() {
+        System.arraycopy(wave.words(), 0, initialWords, 0, initialWords.length);
+        blockSize = 0;
+        blockGeneration++;
+        settled = 0;
+        streak = 0;
+        repairs = 0;
+    }
+
+    /**
+     * Notes a collapse. When the last block is collapsed again, solving has
+     * moved past it and the doubling streak ends. Each call checks block
+     * cells from where the previous one stopped, so the checks cost one pass
+     * over the block per repair.
+     */
+    void collapsed() {
+        while (settled < blockSize && wave.count(block[settled]) == 1) {
+            settled++;
+        }
+        if (settled == blockSize && blockSize > 0) {
+            blockGeneration++;
+            blockSize = 0;
+            settled = 0;
+            streak = 0;
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Checkpoints
+    // ------------------------------------------------------------
+
+    long[] initialWords() {
+        return initialWords.clone();
+    }
+
+    /**
+     * Repairs so far, the doubling streak, how many block cells are known to
+     * be collapsed again, then the last block's cells: with the initial wave,
+     * all a resumed solve needs to repair as the original would have.
+     */
+    int[] saveState() {
+        int[] state = new int[3 + blockSize];
+        state[0] = repairs;
+        state[1] = streak;
+        state[2] = settled;
+        System.arraycopy(block, 0, state, 3, blockSize);
+        return state;
+    }
+
+    /**
+     * Continues from a checkpoint instead of {@link #begin()}.
+     *
+     * @throws IllegalArgumentException if the state does not fit this grid.
+     */
+    void restore(long[] initial, int[] state) {
+        if (initial.length != initialWords.length || state.length < 3 || state.length - 3 > cellCount
+                || state[0] < 0 || state[1] < 0 || state[2] < 0 || state[2] > state.length - 3) {
+            throw new IllegalArgumentException("Corrupt repair state in checkpoint");
+        }
+        for (int i = 3; i < state.length; i++) {
+            if (state[i] < 0 || state[i] >= cellCount) {
+                throw new IllegalArgumentException("Corrupt repair state in checkpoint");
+            }
+        }
+
+        System.arraycopy(initial, 0, initialWords, 0, initialWords.length);
+        repairs = state[0];
+        streak = state[1];
+        settled = state[2];
+        blockGeneration++;
+        blockSize = state.length - 3;
+        for (int i = 0; i < blockSize; i++) {
+            block[i] = state[i + 3];
+            blockStamp[block[i]] = blockGeneration;
+        }
+    }
+
+    int repairCount() {
+        return repairs;
+    }
+
+    int[] block() {
+        return block;
+    }
+
+    int blockSize() {
+        return blockSize;
+    }
+
+    boolean inBlock(int cell) {
+        return blockStamp[cell] == blockGeneration;
+    }
+
+    // ------------------------------------------------------------
+    // Finding the failure
+    // ------------------------------------------------------------
+
+    /**
+     * The empty cell closest to origin, or -1 if no domain is empty.
+     *
+     * @param origin Where the failed propagation started, or -1 to scan in index order.
+     */
+    int nearestEmpty(int origin) {
+        if (origin < 0) {
+            for (int c = 0; c < cellCount; c++) {
+                if (wave.isEmpty(c)) {
+                    return c;
+                }
+            }
+            return -1;
+        }
+
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = origin;
+        seenStamp[origin] = nextStamp();
+        while (head < tail) {
+            int c = queue[head++];
+            if (wave.isEmpty(c)) {
+                return c;
+            }
+            int base = c * directionCount;
+            for (int d = 0; d < directionCount; d++) {
+                int n = neighbors[base + d];
+                if (n >= 0 && seenStamp[n] != stamp) {
+                    seenStamp[n] = stamp;
+                    queue[tail++] = n;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * An empty cell or, if any repair happened, a collapsed cell whose tile
+     * does not fit a collapsed neighbour; -1 for a valid map.
+     */
+    int findDefect() {
+        int empty = nearestEmpty(-1);
+        if (empty >= 0 || repairs == 0) {
+            return empty;
+        }
+
+        for (int c = 0; c < cellCount; c++) {
+            if (wave.count(c) != 1) {
+                continue;
+            }
+            int tile = wave.firstTile(c);
+            int base = c * directionCount;
+            for (int d = 0; d < directionCount; d++) {
+                int n = neighbors[base + d];
+                if (n < 0 || wave.count(n) != 1) {
+                    continue;
+                }
+                int other = wave.firstTile(n);
+                if (!rules.allows(tile, d, other)) {
+                    return c;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // ------------------------------------------------------------
+    // Repair
+    // ------------------------------------------------------------
+
+    /**
+     * Reopens a block around the cell and propagates into it. On return the
+     * block (see {@link #block()}) holds the reopened cells.
+     *
+     * @return False if even reopening the whole grid did not help, or the
+     *         repair budget (one repair per cell) is spent.
+     */
+    boolean repairAround(int cell) {
+        if (repairs >= cellCount) {
+            return false;
+        }
+        repairs++;
+
+        if (!inBlock(cell)) {
+            streak = 0;
+        } else if (streak < MAX_GROWTH && blockSize < maxBlock) {
+            streak++;
+        }
+
+        // Growth forced by an inconsistent surrounding is not kept in the streak
+        for (int shift = streak; ; shift++) {
+            int radius = baseRadius << Math.min(shift, MAX_SHIFT);
+            if (radius < baseRadius) {
+                radius = Integer.MAX_VALUE;
+            }
+
+            int boundaryCount = collectBlock(cell, radius);
+            settled = 0;
+            if (reopen(boundaryCount)) {
+                return true;
+            }
+            if (blockSize == cellCount) {
+                return false;
+            }
+        }
+    }
+
+    // Fills block[0, blockSize) with the cells within radius of center, and
+    // queue[0, return value) with the cells one step further out.
+    private int collectBlock(int center, int radius) {
+        blockGeneration++;
+        blockSize = 0;
+
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = center;
+        seenStamp[center] = nextStamp();
+        distance[center] = 0;
+
+        int boundary = 0;
+        while (head < tail) {
+            int c = queue[head++];
+            if (distance[c] > radius) {
+                queue[boundary++] = c;
+                continue;
+            }
+
+            block[blockSize++] = c;
+            blockStamp[c] = blockGeneration;
+
+            int base = c * directionCount;
+            for (int d = 0; d < directionCount; d++) {
+                int n = neighbors[base + d];
+                if (n >= 0 && seenStamp[n] != stamp) {
+                    seenStamp[n] = stamp;
+                    distance[n] = distance[c] + 1;
+                    queue[tail++] = n;
+                }
+            }
+        }
+        // Boundary cells were moved into queue slots already visited
+        return boundary;
+    }
+
+    private boolean reopen(int boundaryCount) {
+        long[] now = wave.words();
+        for (int i = 0; i < blockSize; i++) {
+            int off = block[i] * words;
+            System.arraycopy(initialWords, off, now, off, words);
+            propagator.forget(block[i]);
+        }
+        for (int i = 0; i < boundaryCount; i++) {
+            propagator.forget(queue[i]);
+        }
+
+        // Boundary cells push the surrounding map in; block cells re-apply
+        // whatever the initial wave fixed inside the block
+        for (int i = 0; i < boundaryCount; i++) {
+            if (wave.isEmpty(queue[i]) || !propagator.propagateFrom(queue[i])) {
+                return false;
+            }
+        }
+        for (int i = 0; i < blockSize; i++) {
+            if (wave.isEmpty(block[i]) || !propagator.propagateFrom(block[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int nextStamp() {
+        if (++stamp == 0) {
+            Arrays.fill(seenStamp, 0);
+            stamp = 1;
+        }
+        return stamp;
+    }
+}
@@ -0,0 +1,364 @@
+package com.rizikh.wfc.solver;
+
+import java.util.Arrays;
+
+import com.rizikh.wfc.core.Topology;
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.EdgeRuleset;
+
+/**
+ * Global constraint: every cell carrying a network (a tile with the given
+ * socket on some side) must belong to one connected network, e.g. a single
+ * road system instead of disconnected fragments.
+ *
+ * Once some cell is certain to carry the network (collapsed to, or left
+ * with only, network tiles) it becomes the anchor, and a search from it
+ * builds a spanning tree over every cell reachable through edges that may
+ * still be open on both sides. Network tiles are banned from every cell
+ * outside the tree, since they could only form a separate piece; a
+ * collapsed cell left outside empties, which surfaces as an ordinary
+ * contradiction.
+ *
+ * Domains only shrink, so the tree can only lose edges. After the first
+ * search, each call checks just the tree edges at the cells the step
+ * changed (the wave's change journal). A broken edge detaches the subtree
+ * below it, which tries to reattach through any other open edge; only the
+ * cells that cannot are pruned. A step therefore costs O(changed cells)
+ * plus the size of the subtrees it cuts off, instead of O(cells).
+ *
+ * Pruning is sound (it only removes tiles that cannot appear in a connected
+ * solution), so the solver produces connected maps without having to reject
+ * finished ones.
+ */
+public final class ConnectivityConstraint {
+    private final Grid grid;
+    private final Wave wave;
+    private final int cellCount;
+    private final int dirCount;
+    private final int words;
+    private final int[] neighbors;
+    private final int[] opposite;
+
+    // openMasks[d * words ..]: tiles with the socket on side d
+    private final long[] openMasks;
+    // Tiles with no side carrying the socket
+    private final long[] plainMask;
+
+    // Spanning tree of the cells reachable from the anchor: a cell is in the
+    // tree while reachedStamp[c] == stamp; parent[c] lies in direction parentDir[c]
+    private boolean fresh = true;
+    private int anchor = -1;
+    private final int[] reachedStamp;
+    private final int[] parent;
+    private final int[] parentDir;
+    private int stamp;
+
+    // Scratch: search queue, detached subtree (marked with orphanStamp) and pruned cells
+    private final int[] queue;
+    private final int[] orphans;
+    private final int[] orphanStamp;
+    private int orphanGeneration;
+    private final int[] lost;
+    private int lostCount;
+
+    /**
+     * Constructs a ConnectivityConstraint for the given grid.
+     *
+     * @param grid    The grid being solved.
+     * @param ruleset The edge ruleset used to solve it.
+     * @param socket  The socket that connects neighbours (1 = open road for
+     *                {@link com.rizikh.wfc.rules.RoadRuleset}).
+     * @throws IllegalArgumentException if grid or ruleset is null, their tile
+     *                                  or direction counts differ, or socket is
+     *                                  out of range.
+     */
+    public ConnectivityConstraint(Grid grid, EdgeRuleset ruleset, int socket) {
+        if (grid == null) {
+            throw new IllegalArgumentException("Grid cannot be null");
+        }
+        if (ruleset == null) {
+            throw new IllegalArgumentException("Ruleset cannot be null");
+        }
+        if (grid.getTileCount() != ruleset.tileCount()) {
+            throw new IllegalArgumentException(
+                    "Grid tileCount (" + grid.getTileCount() +
+                            ") does not match Ruleset tileCount (" + ruleset.tileCount() + ")");
+        }
+        if (grid.getTopology().directionCount() != ruleset.directionCount()) {
+            throw new IllegalArgumentException(
+                    "Grid topology directions (" + grid.getTopology().directionCount() +
+                            ") do not match Ruleset directions (" + ruleset.directionCount() + ")");
+        }
+        if (socket < 0 || socket >= ruleset.socketCount()) {
+            throw new IllegalArgumentException("Socket must be between 0 and " + (ruleset.socketCount() - 1));
+        }
+
+        Topology topology = grid.getTopology();
+        this.grid = grid;
+        this.wave = grid.getWave();
+        this.cellCount = grid.cellCount();
+        this.dirCount = topology.directionCount();
+        this.words = wave.wordsPerCell();
+        this.neighbors = topology.neighbors();
+        this.opposite = new int[dirCount];
+        for (int d = 0; d < dirCount; d++) {
+            opposite[d] = topology.opposite(d);
+        }
+
+        int tileCount = ruleset.tileCount();
+        this.openMasks = new long[dirCount * words];
+        this.plainMask = new long[words];
+
+        for (int t = 0; t < tileCount; t++) {
+            boolean carries = false;
+            for (int d = 0; d < dirCount; d++) {
+                if (ruleset.socket(t, d) == socket) {
+                    openMasks[d * words + (t >>> 6)] |= 1L << t;
+                    carries = true;
+                }
+            }
+            if (!carries) {
+                plainMask[t >>> 6] |= 1L << t;
+            }
+        }
+
+        this.reachedStamp = new int[cellCount];
+        this.parent = new int[cellCount];
+        this.parentDir = new int[cellCount];
+        this.queue = new int[cellCount];
+        this.orphans = new int[cellCount];
+        this.orphanStamp = new int[cellCount];
+        this.lost = new int[cellCount];
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Forgets the anchor and the tree. Must be called whenever the wave is
+     * refilled or cells are reopened.
+     */
+    public void reset() {
+        fresh = true;
+        anchor = -1;
+    }
+
+    /**
+     * Bans network tiles from every cell that can no longer join the network,
+     * propagating each ban, until nothing changes. Relies on the wave's
+     * change journal listing every cell modified since the previous call.
+     *
+     * @param propagator The propagator bound to the same grid.
+     * @return False if a domain became empty (contradiction), true otherwise.
+     */
+    boolean enforce(Propagator propagator) {
+        while (true) {
+            lostCount = 0;
+
+            if (anchor < 0) {
+                anchor = fresh ? firstForcedCell() : firstForcedChange();
+                fresh = false;
+                if (anchor < 0) {
+                    return true;
+                }
+                buildTree();
+            } else {
+                checkChangedEdges();
+            }
+
+            if (lostCount == 0) {
+                return true;
+            }
+            for (int i = 0; i < lostCount; i++) {
+                int c = lost[i];
+                if (!carriesNetwork(c)) {
+                    continue;
+                }
+                wave.and(c, plainMask, 0);
+                if (wave.isEmpty(c) || !propagator.propagateFrom(c)) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Anchor
+    // ------------------------------------------------------------
+
+    // A cell whose every remaining tile carries the network, or -1.
+    private int firstForcedCell() {
+        for (int c = 0; c < cellCount; c++) {
+            if (isForced(c)) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    private int firstForcedChange() {
+        for (int i = 0; i < wave.changeCount(); i++) {
+            int c = wave.changedCell(i);
+            if (isForced(c)) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isForced(int cell) {
+        return !wave.isEmpty(cell) && !intersects(cell, plainMask, 0);
+    }
+
+    // ------------------------------------------------------------
+    // Spanning tree through still-possible edges
+    // ------------------------------------------------------------
+
+    // Full search from the anchor; every network cell outside the tree is lost.
+    private void buildTree() {
+        if (++stamp == 0) {
+            Arrays.fill(reachedStamp, 0);
+            stamp = 1;
+        }
+
+        reachedStamp[anchor] = stamp;
+        parent[anchor] = -1;
+        queue[0] = anchor;
+        grow(1, false);
+
+        for (int c = 0; c < cellCount; c++) {
+            if (reachedStamp[c] != stamp && carriesNetwork(c)) {
+                lost[lostCount++] = c;
+            }
+        }
+    }
+
+    // Extends the tree breadth-first from queue[0 .. tail); while reattaching
+    // a subtree the search stays inside it.
+    private void grow(int tail, boolean orphansOnly) {
+        int head = 0;
+        while (head < tail) {
+            int c = queue[head++];
+            int base = c * dirCount;
+
+            for (int d = 0; d < dirCount; d++) {
+                int n = neighbors[base + d];
+                if (n < 0 || reachedStamp[n] == stamp || !edgeOpen(c, d)
+                        || (orphansOnly && orphanStamp[n] != orphanGeneration)) {
+                    continue;
+                }
+                reachedStamp[n] = stamp;
+                parent[n] = c;
+                parentDir[n] = opposite[d];
+                queue[tail++] = n;
+            }
+        }
+    }
+
+    // Tree edges at changed cells that closed cut off the subtree below them.
+    private void checkChangedEdges() {
+        for (int i = 0; i < wave.changeCount(); i++) {
+            int c = wave.changedCell(i);
+            if (reachedStamp[c] != stamp) {
+                continue;
+            }
+
+            if (c != anchor && !edgeOpen(c, parentDir[c])) {
+                detach(c);
+                continue;
+            }
+
+            int base = c * dirCount;
+            for (int d = 0; d < dirCount; d++) {
+                int n = neighbors[base + d];
+                if (n >= 0 && n != anchor && reachedStamp[n] == stamp && parent[n] == c
+                        && !edgeOpen(n, parentDir[n])) {
+                    detach(n);
+                }
+            }
+        }
+    }
+
+    // Removes the subtree rooted at root from the tree, reattaches what can
+    // still reach the rest of it and records the remainder as lost.
+    private void detach(int root) {
+        if (++orphanGeneration == 0) {
+            Arrays.fill(orphanStamp, 0);
+            orphanGeneration = 1;
+        }
+
+        int size = 0;
+        orphans[size++] = root;
+        reachedStamp[root] = 0;
+        orphanStamp[root] = orphanGeneration;
+        for (int i = 0; i < size; i++) {
+            int c = orphans[i];
+            int base = c * dirCount;
+            for (int d = 0; d < dirCount; d++) {
+                int n = neighbors[base + d];
+                if (n >= 0 && reachedStamp[n] == stamp && parent[n] == c) {
+                    reachedStamp[n] = 0;
+                    orphanStamp[n] = orphanGeneration;
+                    orphans[size++] = n;
+                }
+            }
+        }
+
+        // Orphans with an open edge into the remaining tree hang from it again
+        int tail = 0;
+        for (int i = 0; i < size; i++) {
+            int c = orphans[i];
+            int base = c * dirCount;
+            for (int d = 0; d < dirCount; d++) {
+                int n = neighbors[base + d];
+                if (n >= 0 && reachedStamp[n] == stamp && edgeOpen(c, d)) {
+                    reachedStamp[c] = stamp;
+                    parent[c] = n;
+                    parentDir[c] = d;
+                    queue[tail++] = c;
+                    break;
+                }
+            }
+        }
+        grow(tail, true);
+
+        for (int i = 0; i < size; i++) {
+            int c = orphans[i];
+            if (reachedStamp[c] != stamp) {
+                lost[lostCount++] = c;
+            }
+        }
+    }
+
+    // Both sides of the edge from cell in direction dir may still carry the network.
+    private boolean edgeOpen(int cell, int dir) {
+        int n = neighbors[cell * dirCount + dir];
+        return n >= 0 && mayOpen(cell, dir) && mayOpen(n, opposite[dir]);
+    }
+
+    private boolean carriesNetwork(int cell) {
+        for (int d = 0; d < dirCount; d++) {
+            if (mayOpen(cell, d)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean mayOpen(int cell, int dir) {
+        return intersects(cell, openMasks, dir * words);
+    }
+
+    private boolean intersects(int cell, long[] mask, int maskOffset) {
+        long[] w = wave.words();
+        int off = cell * words;
+        for (int i = 0; i < words; i++) {
+            if ((w[off + i] & mask[maskOffset + i]) != 0L) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,183 @@
+package com.rizikh.wfc.solver;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.Ruleset;
+
+/**
+ * The cell whose domain has the lowest Shannon entropy under the ruleset's
+ * tile weights, plus a little random noise to break ties. Each cell's noise
+ * is drawn once per solve, so a pick does not touch the random source.
+ *
+ * With uniform weights this orders cells like {@link MrvHeuristic}; with
+ * skewed weights it prefers cells dominated by one likely tile. Scans every
+ * cell on each pick. Weighted entropies are cached per cell and recomputed
+ * only when the option count changes: domains only shrink, so an unchanged
+ * count means an unchanged domain.
+ */
+public final class EntropyHeuristic implements SelectionHeuristic {
+    private static final double DEFAULT_NOISE = 1e-6;
+
+    private final double noise;
+
+    private Wave wave;
+    private int cellCount;
+    private double[] weights;
+    private double[] weightLogWeights;
+    private boolean uniform;
+    private double[] logCounts;
+    private double[] cellNoise;
+    private boolean noiseDrawn;
+
+    private int[] cachedCounts;
+    private double[] cachedEntropies;
+
+    /**
+     * Constructs an EntropyHeuristic with noise small enough to only break ties.
+     */
+    public EntropyHeuristic() {
+        this(DEFAULT_NOISE);
+    }
+
+    /**
+     * Constructs an EntropyHeuristic.
+     *
+     * @param noise Upper bound of the uniform noise added to each entropy.
+     * @throws IllegalArgumentException if noise is negative or not finite.
+     */
+    public EntropyHeuristic(double noise) {
+        if (!(noise >= 0.0) || Double.isInfinite(noise)) {
+            throw new IllegalArgumentException("Noise must be a non-negative finite number.");
+        }
+        this.noise = noise;
+    }
+
+    @Override
+    public void bind(Grid grid, Ruleset ruleset) {
+        int tileCount = ruleset.tileCount();
+
+        this.wave = grid.getWave();
+        this.cellCount = grid.cellCount();
+        this.weights = new double[tileCount];
+        this.weightLogWeights = new double[tileCount];
+        this.uniform = true;
+        this.logCounts = new double[tileCount + 1];
+        this.cellNoise = new double[cellCount];
+        this.noiseDrawn = false;
+        this.cachedCounts = new int[cellCount];
+        this.cachedEntropies = new double[cellCount];
+
+        for (int t = 0; t < tileCount; t++) {
+            double w = ruleset.weight(t);
+            if (!(w > 0.0)) {
+                throw new IllegalArgumentException("Tile " + t + " has a non-positive weight: " + w);
+            }
+            weights[t] = w;
+            weightLogWeights[t] = w * Math.log(w);
+            uniform &= w == weights[0];
+            logCounts[t + 1] = Math.log(t + 1);
+        }
+    }
+
+    @Override
+    public void reset() {
+        noiseDrawn = false;
+        // No cached count is 0, so every cell recomputes on its next visit
+        Arrays.fill(cachedCounts, 0);
+    }
+
+    /**
+     * Whether the noise was drawn, then each cell's noise: it came from the
+     * random source at the first pick, so it cannot be drawn again.
+     */
+    @Override
+    public long[] saveState() {
+        if (!noiseDrawn) {
+            return new long[] { 0L };
+        }
+        long[] state = new long[cellCount + 1];
+        state[0] = 1L;
+        for (int cell = 0; cell < cellCount; cell++) {
+            state[cell + 1] = Double.doubleToRawLongBits(cellNoise[cell]);
+        }
+        return state;
+    }
+
+    @Override
+    public void restoreState(long[] state) {
+        boolean drawn = state.length == cellCount + 1 && state[0] == 1L;
+        if (!drawn && !(state.length == 1 && state[0] == 0L)) {
+            throw new IllegalArgumentException("Checkpoint holds state of a different selection heuristic");
+        }
+        reset();
+        noiseDrawn = drawn;
+        for (int cell = 0; drawn && cell < cellCount; cell++) {
+            cellNoise[cell] = Double.longBitsToDouble(state[cell + 1]);
+        }
+    }
+
+    @Override
+    public void reopened(int cell) {
+        cachedCounts[cell] = 0;
+    }
+
+    @Override
+    public int select(Random rng) {
+        if (!noiseDrawn) {
+            noiseDrawn = true;
+            for (int cell = 0; cell < cellCount; cell++) {
+                cellNoise[cell] = noise * rng.nextDouble();
+            }
+        }
+
+        double minEntropy = Double.POSITIVE_INFINITY;
+        int best = -1;
+
+        for (int cell = 0; cell < cellCount; cell++) {
+            int count = wave.count(cell);
+            if (count <= 1) {
+                continue;
+            }
+
+            double entropy = (uniform ? logCounts[count] : cachedEntropy(cell, count)) + cellNoise[cell];
+            if (entropy < minEntropy) {
+                minEntropy = entropy;
+                best = cell;
+            }
+        }
+
+        return best;
+    }
+
+    private double cachedEntropy(int cell, int count) {
+        if (cachedCounts[cell] != count) {
+            cachedCounts[cell] = count;
+            cachedEntropies[cell] = entropy(cell);
+        }
+        return cachedEntropies[cell];
+    }
+
+    // H = log(sum w) - sum(w log w) / sum w, over the tiles left in the cell.
+    private double entropy(int cell) {
+        long[] words = wave.words();
+        int off = wave.offset(cell);
+
+        double sum = 0.0;
+        double sumWeightLog = 0.0;
+
+        for (int w = 0; w < wave.wordsPerCell(); w++) {
+            long word = words[off + w];
+            while (word != 0L) {
+                int tile = (w << 6) + Long.numberOfTrailingZeros(word);
+                sum += weights[tile];
+                sumWeightLog += weightLogWeights[tile];
+                word &= word - 1;
+            }
+        }
+
+        return Math.log(sum) - sumWeightLog / sum;
+    }
+}
@@ -0,0 +1,170 @@
+package com.rizikh.wfc.solver;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.Ruleset;
+
+/**
+ * Grows the map outward from collapsed cells: picks the most constrained
+ * cell (random tie) among the open neighbours of collapsed cells only.
+ *
+ * The frontier is an indexed set (dense member array plus slot per cell), so
+ * adds and removals are O(1) and a pick costs O(frontier) instead of
+ * O(cells). Cells that propagation collapsed are noticed lazily when a
+ * pick reaches them: they leave the frontier and their open neighbours join
+ * it. When the frontier is empty, the first open cell in index order starts
+ * a new region.
+ */
+public final class FrontierHeuristic implements SelectionHeuristic {
+    private Wave wave;
+    private int cellCount;
+    private int directionCount;
+    private int[] neighbors;
+
+    private int[] members;
+    private int[] slots;
+    private int size;
+    private int[] candidates;
+    private int cursor;
+
+    @Override
+    public void bind(Grid grid, Ruleset ruleset) {
+        this.wave = grid.getWave();
+        this.cellCount = grid.cellCount();
+        this.directionCount = grid.getTopology().directionCount();
+        this.neighbors = grid.getTopology().neighbors();
+
+        this.members = new int[cellCount];
+        this.slots = new int[cellCount];
+        Arrays.fill(slots, -1);
+        this.size = 0;
+        this.candidates = new int[cellCount];
+        this.cursor = 0;
+    }
+
+    @Override
+    public void reset() {
+        // O(frontier): only members have a slot
+        for (int i = 0; i < size; i++) {
+            slots[members[i]] = -1;
+        }
+        size = 0;
+        cursor = 0;
+    }
+
+    /**
+     * Number of cells currently on the frontier.
+     */
+    public int frontierSize() {
+        return size;
+    }
+
+    @Override
+    public int select(Random rng) {
+        int minCount = Integer.MAX_VALUE;
+        int n = 0;
+
+        for (int i = 0; i < size;) {
+            int cell = members[i];
+            int count = wave.count(cell);
+
+            if (count <= 1) {
+                // Collapsed by propagation: swaps the last member into slot i
+                remove(cell);
+                expand(cell);
+                continue;
+            }
+            if (count < minCount) {
+                minCount = count;
+                n = 0;
+            }
+            if (count == minCount) {
+                candidates[n++] = cell;
+            }
+            i++;
+        }
+
+        if (n > 0) {
+            return candidates[rng.nextInt(n)];
+        }
+
+        while (cursor < cellCount && wave.count(cursor) <= 1) {
+            cursor++;
+        }
+        return cursor < cellCount ? cursor : -1;
+    }
+
+    /**
+     * The cursor, then the frontier in member order: ties are broken by
+     * position in that order, so it is part of the state.
+     */
+    @Override
+    public long[] saveState() {
+        long[] state = new long[size + 1];
+        state[0] = cursor;
+        for (int i = 0; i < size; i++) {
+            state[i + 1] = members[i];
+        }
+        return state;
+    }
+
+    @Override
+    public void restoreState(long[] state) {
+        if (state.length == 0 || state.length > cellCount + 1 || state[0] < 0 || state[0] > cellCount) {
+            throw new IllegalArgumentException("Checkpoint holds state of a different selection heuristic");
+        }
+        reset();
+        for (int i = 1; i < state.length; i++) {
+            long cell = state[i];
+            if (cell < 0 || cell >= cellCount || slots[(int) cell] >= 0) {
+                reset();
+                throw new IllegalArgumentException("Corrupt frontier in checkpoint");
+            }
+            slots[(int) cell] = size;
+            members[size++] = (int) cell;
+        }
+        cursor = (int) state[0];
+    }
+
+    @Override
+    public void reopened(int cell) {
+        // Repaired blocks are refilled from the frontier before growth continues
+        if (slots[cell] < 0 && wave.count(cell) > 1) {
+            slots[cell] = size;
+            members[size++] = cell;
+        }
+        cursor = Math.min(cursor, cell);
+    }
+
+    @Override
+    public void collapsed(int cell) {
+        remove(cell);
+        expand(cell);
+    }
+
+    // Adds the open neighbours of a collapsed cell.
+    private void expand(int cell) {
+        int base = cell * directionCount;
+        for (int dir = 0; dir < directionCount; dir++) {
+            int n = neighbors[base + dir];
+            if (n >= 0 && slots[n] < 0 && wave.count(n) > 1) {
+                slots[n] = size;
+                members[size++] = n;
+            }
+        }
+    }
+
+    private void remove(int cell) {
+        int slot = slots[cell];
+        if (slot < 0) {
+            return;
+        }
+        int last = members[--size];
+        members[slot] = last;
+        slots[last] = slot;
+        slots[cell] = -1;
+    }
+}
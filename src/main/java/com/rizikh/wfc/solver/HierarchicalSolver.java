@@ -0,0 +1,452 @@
+package com.rizikh.wfc.solver;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+import com.rizikh.wfc.core.Direction;
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.CompiledRuleset;
+import com.rizikh.wfc.rules.Ruleset;
+import com.rizikh.wfc.rules.TerrainRuleset;
+
+/**
+ * Coarse-to-fine generation for large maps.
+ *
+ * Tiles are grouped into classes (biomes for terrain). A coarse grid with
+ * one cell per block of blockSize x blockSize tiles is solved first, over
+ * class adjacency projected from the tile rules: two classes may touch in a
+ * direction if some tiles of theirs may. Each coarse cell then restricts
+ * its block to tiles of its class; cells within {@link #MARGIN} of a block
+ * border may also take the neighbouring block's class, which leaves room
+ * for transition tiles. Long-range structure is therefore decided by a
+ * small solve instead of emerging from millions of tile choices.
+ *
+ * Fine blocks are solved in parallel in four phases, one per colour of a
+ * 2 x 2 block colouring, so blocks solved together are two blocks apart.
+ * From the second phase on, a block's window also reopens up to a quarter
+ * block of the neighbours solved in earlier phases, so every seam is solved
+ * with room on both sides, constrained only by the tiles around the window.
+ * Block seeds derive from the map seed and block position, so output does
+ * not depend on thread scheduling. A block that keeps failing is retried
+ * without its class restriction, and if that fails too, a growing window
+ * around it is re-solved afterwards, one block at a time.
+ *
+ * Maps are treated as bounded (no wrap-around), on the four square
+ * directions.
+ */
+public final class HierarchicalSolver {
+    // Cells from a block border that may take the neighbouring block's class.
+    private static final int MARGIN = 1;
+    // Solve attempts for the coarse grid.
+    private static final int COARSE_ATTEMPTS = 32;
+    // Solve attempts per block with class restriction; failures there are
+    // mostly structural (the classes around the block cannot meet), so few.
+    private static final int RESTRICTED_ATTEMPTS = 2;
+    // Solve attempts per block and per repair window without restriction.
+    private static final int ATTEMPTS = 6;
+
+    private final Ruleset ruleset;
+    private final CompiledRuleset rules;
+    private final int classCount;
+    private final int blockSize;
+
+    private final Ruleset coarseRules;
+    // Tiles of each class, packed like a wave cell
+    private final long[] classMasks;
+    private final int words;
+
+    /**
+     * Result of a hierarchical solve.
+     *
+     * @param width        Map width.
+     * @param height       Map height.
+     * @param tiles        Tile per cell, row-major (y * width + x).
+     * @param coarseWidth  Blocks per row.
+     * @param coarseHeight Blocks per column.
+     * @param coarse       Class per block, row-major.
+     * @param retries      Block attempts that ended in a contradiction.
+     * @param relaxed      Blocks that were only solved without class restriction.
+     * @param repaired     Blocks that were only solved by re-solving a window around them.
+     */
+    public record Result(int width, int height, int[] tiles, int coarseWidth, int coarseHeight, int[] coarse,
+            int retries, int relaxed, int repaired) {
+    }
+
+    /**
+     * Constructs a HierarchicalSolver.
+     *
+     * @param ruleset    The tile ruleset (four directions).
+     * @param classCount Number of tile classes.
+     * @param classOf    Maps a tile id to its class in [0, classCount).
+     * @param blockSize  Side of the square block of tiles each coarse cell covers.
+     * @throws IllegalArgumentException if ruleset or classOf is null, the ruleset
+     *                                  is not four-directional, classCount or
+     *                                  blockSize is not positive, or a tile maps
+     *                                  outside the class range.
+     */
+    public HierarchicalSolver(Ruleset ruleset, int classCount, IntUnaryOperator classOf, int blockSize) {
+        if (ruleset == null) {
+            throw new IllegalArgumentException("Ruleset cannot be null");
+        }
+        if (classOf == null) {
+            throw new IllegalArgumentException("Classifier cannot be null");
+        }
+        if (ruleset.directionCount() != 4) {
+            throw new IllegalArgumentException("Hierarchical solving requires a four-direction ruleset");
+        }
+        if (classCount <= 0 || blockSize <= 0) {
+            throw new IllegalArgumentException("Class count and block size must be positive integers.");
+        }
+
+        this.ruleset = ruleset;
+        this.rules = CompiledRuleset.compile(ruleset);
+        this.classCount = classCount;
+        this.blockSize = blockSize;
+        this.words = Wave.wordsFor(ruleset.tileCount());
+        this.classMasks = new long[classCount * words];
+
+        int[] classes = new int[ruleset.tileCount()];
+        for (int t = 0; t < classes.length; t++) {
+            classes[t] = classOf.applyAsInt(t);
+            if (classes[t] < 0 || classes[t] >= classCount) {
+                throw new IllegalArgumentException("Tile " + t + " maps to class " + classes[t]
+                        + " outside [0, " + classCount + ")");
+            }
+            classMasks[classes[t] * words + (t >>> 6)] |= 1L << t;
+        }
+        this.coarseRules = project(ruleset, classes, classCount);
+    }
+
+    /**
+     * Hierarchical solver for {@link TerrainRuleset} over its biome classes.
+     *
+     * @param ruleset   The terrain ruleset.
+     * @param blockSize Side of the block of tiles each coarse cell covers.
+     */
+    public static HierarchicalSolver forTerrain(TerrainRuleset ruleset, int blockSize) {
+        return new HierarchicalSolver(ruleset, TerrainRuleset.BIOME_COUNT, ruleset::biomeOf, blockSize);
+    }
+
+    /**
+     * The class adjacency the coarse grid is solved with.
+     */
+    public Ruleset coarseRuleset() {
+        return coarseRules;
+    }
+
+    // Classes a and b may touch in direction d if some tile of a allows some tile of b there.
+    private static Ruleset project(Ruleset ruleset, int[] classes, int classCount) {
+        BitSet[] masks = new BitSet[classCount * 4];
+        for (int i = 0; i < masks.length; i++) {
+            masks[i] = new BitSet(classCount);
+        }
+        for (int t = 0; t < classes.length; t++) {
+            for (int d = 0; d < 4; d++) {
+                BitSet allowed = ruleset.allowedMaskRef(t, d);
+                for (int u = allowed.nextSetBit(0); u >= 0; u = allowed.nextSetBit(u + 1)) {
+                    masks[classes[t] * 4 + d].set(classes[u]);
+                }
+            }
+        }
+
+        return new Ruleset() {
+            @Override
+            public int tileCount() {
+                return classCount;
+            }
+
+            @Override
+            public BitSet allowedMaskRef(int tileId, int dir) {
+                return masks[tileId * 4 + dir];
+            }
+        };
+    }
+
+    // ------------------------------------------------------------
+    // Solving
+    // ------------------------------------------------------------
+
+    /**
+     * Generates a map.
+     *
+     * @param width  Map width in tiles.
+     * @param height Map height in tiles.
+     * @param seed   Seed for every random choice.
+     * @return The solved map.
+     * @throws IllegalArgumentException if a dimension is not positive.
+     * @throws IllegalStateException    if the coarse grid or a block cannot be solved.
+     */
+    public Result solve(int width, int height, long seed) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Width and height must be positive integers.");
+        }
+
+        int cw = (width + blockSize - 1) / blockSize;
+        int ch = (height + blockSize - 1) / blockSize;
+        Pass pass = new Pass(width, height, cw, ch, solveCoarse(cw, ch, seed), seed);
+
+        boolean[] failed = new boolean[cw * ch];
+        for (int phase = 0; phase < 4; phase++) {
+            int colour = phase;
+            IntStream.range(0, cw * ch).parallel()
+                    .filter(b -> pass.colour(b % cw, b / cw) == colour)
+                    .forEach(b -> failed[b] = !pass.solveBlock(b % cw, b / cw));
+        }
+
+        // Rare, and windows of neighbouring failures overlap: repair one at a time
+        int repaired = 0;
+        for (int b = 0; b < failed.length; b++) {
+            if (!failed[b]) {
+                continue;
+            }
+            if (!pass.repairBlock(b % cw, b / cw)) {
+                throw new IllegalStateException("Block (" + b % cw + ", " + b / cw + ") could not be solved");
+            }
+            repaired++;
+        }
+
+        return new Result(width, height, pass.tiles, cw, ch, pass.coarse, pass.retries.get(), pass.relaxed.get(),
+                repaired);
+    }
+
+    private int[] solveCoarse(int cw, int ch, long seed) {
+        for (int attempt = 0; attempt < COARSE_ATTEMPTS; attempt++) {
+            Grid grid = new Grid(cw, ch, classCount);
+            WfcSolver solver = new WfcSolver(grid, coarseRules);
+            solver.setSeed(seed + attempt);
+            while (solver.step()) {
+            }
+
+            if (solver.isSolved()) {
+                int[] coarse = new int[cw * ch];
+                for (int i = 0; i < coarse.length; i++) {
+                    coarse[i] = grid.getWave().firstTile(i);
+                }
+                return coarse;
+            }
+        }
+        throw new IllegalStateException("Coarse grid could not be solved in " + COARSE_ATTEMPTS + " attempts");
+    }
+
+    // State of one solve(); blocks of the same colour run concurrently on it.
+    private final class Pass {
+        final int width;
+        final int height;
+        final int cw;
+        final int ch;
+        final int[] coarse;
+        final long seed;
+        final int[] tiles;
+        final AtomicInteger retries = new AtomicInteger();
+        final AtomicInteger relaxed = new AtomicInteger();
+
+        // Cells a window reaches into earlier-solved neighbours; below half a
+        // block, so same-colour windows and their border rings never overlap
+        final int overlap = (blockSize - 1) / 4;
+
+        Pass(int width, int height, int cw, int ch, int[] coarse, long seed) {
+            this.width = width;
+            this.height = height;
+            this.cw = cw;
+            this.ch = ch;
+            this.coarse = coarse;
+            this.seed = seed;
+            this.tiles = new int[width * height];
+            Arrays.fill(tiles, -1);
+        }
+
+        int colour(int bx, int by) {
+            return (bx & 1) | (by & 1) << 1;
+        }
+
+        // Reaches into a neighbouring block only if it was solved in an earlier phase.
+        private int reach(int bx, int by, int nx, int ny) {
+            boolean earlier = nx >= 0 && ny >= 0 && nx < cw && ny < ch && colour(nx, ny) < colour(bx, by);
+            return earlier ? overlap : 0;
+        }
+
+        boolean solveBlock(int bx, int by) {
+            int x0 = Math.max(0, bx * blockSize - reach(bx, by, bx - 1, by));
+            int y0 = Math.max(0, by * blockSize - reach(bx, by, bx, by - 1));
+            int x1 = Math.min(width, (bx + 1) * blockSize + reach(bx, by, bx + 1, by));
+            int y1 = Math.min(height, (by + 1) * blockSize + reach(bx, by, bx, by + 1));
+            long blockSeed = seed * 0x9E3779B97F4A7C15L + (long) by * cw + bx;
+
+            for (int attempt = 0; attempt < RESTRICTED_ATTEMPTS + ATTEMPTS; attempt++) {
+                boolean restricted = attempt < RESTRICTED_ATTEMPTS;
+                Grid grid = new Grid(x1 - x0, y1 - y0, ruleset.tileCount());
+                if (restricted) {
+                    restrictToClasses(grid, x0, y0);
+                } else {
+                    restrictToNearbyClasses(grid, x0, y0, x1, y1);
+                }
+
+                if (solveWindow(grid, x0, y0, blockSeed + attempt)) {
+                    if (!restricted) {
+                        relaxed.incrementAndGet();
+                    }
+                    return true;
+                }
+                retries.incrementAndGet();
+            }
+            return false;
+        }
+
+        /**
+         * Re-solves a growing window around a failed block, all other tiles
+         * fixed, up to the whole map: rules with long-range constraints (such
+         * as transitions without corner tiles) can make the tiles around a
+         * small window incompatible with each other.
+         */
+        boolean repairBlock(int bx, int by) {
+            for (int ring = 1; ; ring *= 2) {
+                int x0 = Math.max(0, bx * blockSize - ring);
+                int y0 = Math.max(0, by * blockSize - ring);
+                int x1 = Math.min(width, (bx + 1) * blockSize + ring);
+                int y1 = Math.min(height, (by + 1) * blockSize + ring);
+                boolean wholeMap = x0 == 0 && y0 == 0 && x1 == width && y1 == height;
+
+                for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+                    Grid grid = new Grid(x1 - x0, y1 - y0, ruleset.tileCount());
+                    if (solveWindow(grid, x0, y0, seed + (long) (by * cw + bx) * 31 + ring * 7L + attempt)) {
+                        return true;
+                    }
+                    retries.incrementAndGet();
+                }
+                if (wholeMap) {
+                    return false;
+                }
+            }
+        }
+
+        /**
+         * Solves grid as the window at (x0, y0) of the map, constrained by
+         * the tiles in the ring around it, and writes it into tiles on
+         * success. Tiles inside the window are ignored and replaced.
+         */
+        private boolean solveWindow(Grid grid, int x0, int y0, long windowSeed) {
+            int w = grid.getWidth();
+            WfcSolver solver = new WfcSolver(grid, ruleset);
+            solver.setSeed(windowSeed);
+            solver.setSelectionHeuristic(new FrontierHeuristic());
+            solver.setValueHeuristic(new LcvHeuristic());
+
+            constrainBorders(grid, x0, y0);
+            for (int i = 0; i < grid.cellCount(); i++) {
+                solver.propagateFrom(i % w, i / w);
+            }
+
+            while (solver.step()) {
+            }
+            if (!solver.isSolved()) {
+                return false;
+            }
+
+            Wave wave = grid.getWave();
+            for (int i = 0; i < grid.cellCount(); i++) {
+                tiles[(y0 + i / w) * width + x0 + i % w] = wave.firstTile(i);
+            }
+            return true;
+        }
+
+        // Limits each cell to its block's class, or a neighbouring block's near that border.
+        private void restrictToClasses(Grid grid, int x0, int y0) {
+            int w = grid.getWidth();
+            int h = grid.getHeight();
+            Wave wave = grid.getWave();
+            long[] mask = new long[words];
+
+            for (int y = 0; y < h; y++) {
+                int by = (y0 + y) / blockSize;
+                int ly = (y0 + y) - by * blockSize;
+                int bh = Math.min(blockSize, height - by * blockSize);
+                int ny = ly < MARGIN && by > 0 ? -1 : ly >= bh - MARGIN && by < ch - 1 ? 1 : 0;
+
+                for (int x = 0; x < w; x++) {
+                    int bx = (x0 + x) / blockSize;
+                    int lx = (x0 + x) - bx * blockSize;
+                    int bw = Math.min(blockSize, width - bx * blockSize);
+                    int nx = lx < MARGIN && bx > 0 ? -1 : lx >= bw - MARGIN && bx < cw - 1 ? 1 : 0;
+
+                    Arrays.fill(mask, 0L);
+                    addClass(mask, coarse[by * cw + bx]);
+                    if (nx != 0) {
+                        addClass(mask, coarse[by * cw + bx + nx]);
+                    }
+                    if (ny != 0) {
+                        addClass(mask, coarse[(by + ny) * cw + bx]);
+                    }
+                    if (nx != 0 && ny != 0) {
+                        addClass(mask, coarse[(by + ny) * cw + bx + nx]);
+                    }
+                    wave.and(y * w + x, mask, 0);
+                }
+            }
+        }
+
+        /**
+         * Limits every cell of the window [x0, x1) x [y0, y1) to the classes
+         * of the blocks it overlaps or touches. Looser than
+         * restrictToClasses, but keeps classes the coarse grid put nowhere
+         * near out of the window: some, like a biome whose tiles only match
+         * themselves on three sides, would force their class far beyond it.
+         */
+        private void restrictToNearbyClasses(Grid grid, int x0, int y0, int x1, int y1) {
+            long[] mask = new long[words];
+            int bx1 = Math.min(cw - 1, (x1 - 1) / blockSize + 1);
+            int by1 = Math.min(ch - 1, (y1 - 1) / blockSize + 1);
+            for (int by = Math.max(0, y0 / blockSize - 1); by <= by1; by++) {
+                for (int bx = Math.max(0, x0 / blockSize - 1); bx <= bx1; bx++) {
+                    addClass(mask, coarse[by * cw + bx]);
+                }
+            }
+
+            Wave wave = grid.getWave();
+            for (int i = 0; i < grid.cellCount(); i++) {
+                wave.and(i, mask, 0);
+            }
+        }
+
+        // Restricts edge cells to tiles compatible with solved tiles across the window border.
+        private void constrainBorders(Grid grid, int x0, int y0) {
+            int w = grid.getWidth();
+            int h = grid.getHeight();
+            Wave wave = grid.getWave();
+
+            for (int i = 0; i < w; i++) {
+                // The tile below the window allows its NORTH mask in our bottom row
+                constrain(wave, i, tileAt(x0 + i, y0 - 1), Direction.NORTH);
+                constrain(wave, (h - 1) * w + i, tileAt(x0 + i, y0 + h), Direction.SOUTH);
+            }
+            for (int j = 0; j < h; j++) {
+                constrain(wave, j * w, tileAt(x0 - 1, y0 + j), Direction.EAST);
+                constrain(wave, j * w + w - 1, tileAt(x0 + w, y0 + j), Direction.WEST);
+            }
+        }
+
+        private void constrain(Wave wave, int cell, int neighbourTile, Direction towardCell) {
+            if (neighbourTile >= 0) {
+                long[] mask = new long[words];
+                rules.maskInto(neighbourTile, towardCell.ordinal(), mask, 0);
+                wave.and(cell, mask, 0);
+            }
+        }
+
+        private int tileAt(int x, int y) {
+            if (x < 0 || y < 0 || x >= width || y >= height) {
+                return -1;
+            }
+            return tiles[y * width + x];
+        }
+    }
+
+    private void addClass(long[] mask, int cls) {
+        for (int i = 0; i < words; i++) {
+            mask[i] |= classMasks[cls * words + i];
+        }
+    }
+}
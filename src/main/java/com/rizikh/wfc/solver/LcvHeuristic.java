@@ -0,0 +1,65 @@
+package com.rizikh.wfc.solver;
+
+import java.util.Random;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.Ruleset;
+
+/**
+ * Least constraining value: the tile that keeps the most options open in
+ * the neighbouring domains, summed over all directions. Ties are broken
+ * uniformly at random.
+ *
+ * Deterministic apart from ties, so it trades variety for fewer
+ * contradictions; {@link SupportWeightedHeuristic} is the randomised
+ * counterpart.
+ */
+public final class LcvHeuristic implements ValueHeuristic {
+    private NeighborSupport support;
+
+    @Override
+    public void bind(Grid grid, Ruleset ruleset) {
+        this.support = new NeighborSupport(grid, ruleset);
+    }
+
+    @Override
+    public int choose(int cell, Random rng) {
+        Wave wave = support.wave();
+        long[] words = wave.words();
+        int off = wave.offset(cell);
+
+        int best = -1;
+        int bestScore = -1;
+        int ties = 0;
+
+        for (int w = 0; w < wave.wordsPerCell(); w++) {
+            long word = words[off + w];
+            while (word != 0L) {
+                int tile = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+
+                int score = 0;
+                for (int dir = 0; dir < support.directionCount(); dir++) {
+                    int n = support.neighbor(cell, dir);
+                    if (n >= 0) {
+                        score += support.support(tile, dir, n);
+                    }
+                }
+
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = tile;
+                    ties = 1;
+                } else if (score == bestScore && rng.nextInt(++ties) == 0) {
+                    best = tile;
+                }
+            }
+        }
+
+        if (best < 0) {
+            throw new IllegalStateException("Cannot choose a tile for empty cell " + cell);
+        }
+        return best;
+    }
+}
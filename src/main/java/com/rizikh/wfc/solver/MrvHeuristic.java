@@ -0,0 +1,53 @@
+package com.rizikh.wfc.solver;
+
+import java.util.Random;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.Ruleset;
+
+/**
+ * Minimum remaining values: the cell with the fewest options left, ties
+ * broken uniformly at random (the default).
+ *
+ * Scans every cell on each pick. Cells are visited column by column, as the
+ * solver always has, so a seeded solve reproduces earlier output.
+ */
+public final class MrvHeuristic implements SelectionHeuristic {
+    private Wave wave;
+    private int width;
+    private int height;
+    private int[] candidates;
+
+    @Override
+    public void bind(Grid grid, Ruleset ruleset) {
+        this.wave = grid.getWave();
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.candidates = new int[grid.cellCount()];
+    }
+
+    @Override
+    public int select(Random rng) {
+        int minCount = Integer.MAX_VALUE;
+        int n = 0;
+
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                int cell = y * width + x;
+                int count = wave.count(cell);
+
+                if (count <= 1 || count > minCount) {
+                    continue;
+                }
+                if (count < minCount) {
+                    minCount = count;
+                    n = 0;
+                }
+                candidates[n++] = cell;
+            }
+        }
+
+        return n == 0 ? -1 : candidates[rng.nextInt(n)];
+    }
+}
@@ -0,0 +1,47 @@
+package com.rizikh.wfc.solver;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.CompiledRuleset;
+import com.rizikh.wfc.rules.Ruleset;
+
+/**
+ * Counts how many of a neighbour's current options a tile would keep, from
+ * the compiled allowed masks: popcount(mask(tile, dir) & domain(neighbour)).
+ * Shared by the support-based value heuristics.
+ */
+final class NeighborSupport {
+    private final Wave wave;
+    private final int[] neighbors;
+    private final int directionCount;
+    private final CompiledRuleset rules;
+
+    NeighborSupport(Grid grid, Ruleset ruleset) {
+        this.wave = grid.getWave();
+        this.neighbors = grid.getTopology().neighbors();
+        this.directionCount = grid.getTopology().directionCount();
+        this.rules = CompiledRuleset.compile(ruleset);
+    }
+
+    Wave wave() {
+        return wave;
+    }
+
+    int directionCount() {
+        return directionCount;
+    }
+
+    /**
+     * Neighbour of cell in direction dir, or -1.
+     */
+    int neighbor(int cell, int dir) {
+        return neighbors[cell * directionCount + dir];
+    }
+
+    /**
+     * Options of neighbour n that tile (placed next to it in direction dir) still allows.
+     */
+    int support(int tile, int dir, int n) {
+        return rules.supportCount(tile, dir, wave.words(), wave.offset(n));
+    }
+}
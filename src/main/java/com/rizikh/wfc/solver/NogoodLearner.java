@@ -0,0 +1,465 @@
+package com.rizikh.wfc.solver;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import com.rizikh.wfc.core.BoundedTopology;
+import com.rizikh.wfc.core.PeriodicTopology;
+import com.rizikh.wfc.core.Topology;
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+
+/**
+ * Conflict analysis and nogood checks for one solve attempt.
+ *
+ * On contradiction the decisions closest to the emptied cell are replayed on
+ * a scratch copy of the initial wave; if they alone reproduce the
+ * contradiction they form a valid nogood, which is then shrunk by dropping
+ * decisions that are not needed. The cells the replay touched (and their
+ * neighbours) become the nogood's region.
+ *
+ * Propagation is monotone, so the pattern also contradicts at any position
+ * where every region cell exists and starts with a subset of the recorded
+ * initial domain. On square grids that makes nogoods translation-invariant;
+ * on other topologies they only match where they were learned. Either way,
+ * pruning with them never removes a tile that could appear in a solution.
+ */
+final class NogoodLearner {
+    // Search radii (in steps on the topology) for candidate decisions.
+    private static final int[] RADII = { 2, 4, 8 };
+    // Candidates above this size are not worth verifying.
+    private static final int MAX_CANDIDATES = 24;
+    // Minimised nogoods above this size are too specific to be useful.
+    private static final int MAX_NOGOOD_SIZE = 12;
+    // Regions above this many cells make matching too expensive.
+    private static final int MAX_REGION = 1024;
+
+    private final Grid grid;
+    private final Wave wave;
+    private final Topology topology;
+    private final int width;
+    private final int height;
+    private final boolean periodic;
+    private final boolean translatable;
+
+    private final Propagator propagator;
+    private final NogoodStore store;
+    private final long[] initialWords;
+
+    private final Grid scratch;
+    private final Propagator scratchPropagator;
+
+    private final int[] distance;
+    private final int[] bfsQueue;
+
+    NogoodLearner(Grid grid, Propagator propagator, NogoodStore store, Propagator scratchPropagator, Grid scratch) {
+        this.grid = grid;
+        this.wave = grid.getWave();
+        this.topology = grid.getTopology();
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.periodic = topology instanceof PeriodicTopology;
+        this.translatable = periodic || topology instanceof BoundedTopology;
+        this.propagator = propagator;
+        this.store = store;
+        this.initialWords = wave.words().clone();
+        this.scratch = scratch;
+        this.scratchPropagator = scratchPropagator;
+        this.distance = new int[grid.cellCount()];
+        this.bfsQueue = new int[grid.cellCount()];
+        Arrays.fill(distance, -1);
+    }
+
+    NogoodStore store() {
+        return store;
+    }
+
+    /**
+     * Takes the wave as it is now as the initial state of the solve, for a
+     * solver that was reset and restricted again since construction.
+     */
+    void begin() {
+        System.arraycopy(wave.words(), 0, initialWords, 0, initialWords.length);
+    }
+
+    // ------------------------------------------------------------
+    // Matching
+    // ------------------------------------------------------------
+
+    /**
+     * Checks whether assigning tile to cell would complete a stored nogood.
+     */
+    boolean forbids(int cell, int tile) {
+        int cx = grid.xOf(cell);
+        int cy = grid.yOf(cell);
+
+        for (NogoodStore.Nogood nogood : store.withTile(tile)) {
+            for (int i = 0; i < nogood.size(); i++) {
+                if (nogood.tile[i] != tile) {
+                    continue;
+                }
+
+                int ax = cx - nogood.dx[i];
+                int ay = cy - nogood.dy[i];
+
+                if (anchorMatches(nogood, ax, ay) && openLiteral(nogood, ax, ay, i) == -1
+                        && regionMatches(nogood, ax, ay)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Unit propagation after cell was collapsed: for every nogood placement
+     * with exactly one literal still open, ban that literal's tile.
+     *
+     * @return False if a ban emptied a domain.
+     */
+    boolean applyUnits(int cell) {
+        int tile = wave.firstTile(cell);
+        int cx = grid.xOf(cell);
+        int cy = grid.yOf(cell);
+
+        for (NogoodStore.Nogood nogood : store.withTile(tile)) {
+            for (int i = 0; i < nogood.size(); i++) {
+                if (nogood.tile[i] != tile) {
+                    continue;
+                }
+
+                int ax = cx - nogood.dx[i];
+                int ay = cy - nogood.dy[i];
+
+                if (!anchorMatches(nogood, ax, ay)) {
+                    continue;
+                }
+
+                int open = openLiteral(nogood, ax, ay, i);
+                if (open < 0 || !regionMatches(nogood, ax, ay)) {
+                    continue;
+                }
+
+                int target = locate(ax + nogood.dx[open], ay + nogood.dy[open]);
+                if (wave.ban(target, nogood.tile[open])) {
+                    store.recordPrune();
+                    if (!propagator.propagateFrom(target)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean anchorMatches(NogoodStore.Nogood nogood, int ax, int ay) {
+        int anchor = locate(ax, ay);
+        return anchor >= 0 && (nogood.translatable || anchor == nogood.anchorCell);
+    }
+
+    /**
+     * Returns -1 if every literal except skip is assigned, the index of the
+     * single literal that is still possible but unassigned, or -2 otherwise.
+     */
+    private int openLiteral(NogoodStore.Nogood nogood, int ax, int ay, int skip) {
+        int open = -1;
+
+        for (int j = 0; j < nogood.size(); j++) {
+            if (j == skip) {
+                continue;
+            }
+
+            int target = locate(ax + nogood.dx[j], ay + nogood.dy[j]);
+            if (target < 0 || !wave.contains(target, nogood.tile[j])) {
+                return -2;
+            }
+            if (wave.count(target) == 1) {
+                continue;
+            }
+            if (open >= 0) {
+                return -2;
+            }
+            open = j;
+        }
+        return open;
+    }
+
+    private boolean regionMatches(NogoodStore.Nogood nogood, int ax, int ay) {
+        int words = wave.wordsPerCell();
+
+        for (int k = 0; k < nogood.regionDx.length; k++) {
+            int target = locate(ax + nogood.regionDx[k], ay + nogood.regionDy[k]);
+            if (target < 0) {
+                return false;
+            }
+
+            int off = target * words;
+            for (int w = 0; w < words; w++) {
+                if ((initialWords[off + w] & ~nogood.regionInitial[k * words + w]) != 0L) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private int locate(int x, int y) {
+        if (periodic) {
+            return grid.index(Math.floorMod(x, width), Math.floorMod(y, height));
+        }
+        return grid.inBounds(x, y) ? grid.index(x, y) : -1;
+    }
+
+    // ------------------------------------------------------------
+    // Learning
+    // ------------------------------------------------------------
+
+    /**
+     * Learns a nogood from the contradiction currently in the wave.
+     *
+     * @param cells Decision cells in order.
+     * @param tiles Decision tiles in order.
+     * @param count Number of decisions.
+     * @return True if a new nogood was stored.
+     */
+    boolean learn(int[] cells, int[] tiles, int count) {
+        int empty = -1;
+        for (int c = 0; c < wave.cellCount() && empty < 0; c++) {
+            if (wave.isEmpty(c)) {
+                empty = c;
+            }
+        }
+        if (empty < 0 || count == 0) {
+            return false;
+        }
+
+        int reached = measureDistances(empty, RADII[RADII.length - 1]);
+        int[] kept = null;
+
+        try {
+            for (int radius : RADII) {
+                int[] candidates = decisionsWithin(cells, count, radius);
+
+                if (candidates.length == 0) {
+                    continue;
+                }
+                if (candidates.length > MAX_CANDIDATES) {
+                    return false;
+                }
+                if (contradicts(candidates, cells, tiles)) {
+                    kept = minimise(candidates, cells, tiles);
+                    break;
+                }
+            }
+        } finally {
+            for (int i = 0; i < reached; i++) {
+                distance[bfsQueue[i]] = -1;
+            }
+        }
+
+        if (kept == null || kept.length > MAX_NOGOOD_SIZE) {
+            return false;
+        }
+
+        NogoodStore.Nogood nogood = buildNogood(kept, cells, tiles);
+        return nogood != null && store.add(nogood);
+    }
+
+    private NogoodStore.Nogood buildNogood(int[] kept, int[] cells, int[] tiles) {
+        // Canonical literal order so translated copies of a pattern compare equal.
+        Integer[] order = new Integer[kept.length];
+        for (int i = 0; i < kept.length; i++) {
+            order[i] = kept[i];
+        }
+        Arrays.sort(order, (a, b) -> {
+            int ya = grid.yOf(cells[a]);
+            int yb = grid.yOf(cells[b]);
+            if (ya != yb) {
+                return Integer.compare(ya, yb);
+            }
+            int xa = grid.xOf(cells[a]);
+            int xb = grid.xOf(cells[b]);
+            return xa != xb ? Integer.compare(xa, xb) : Integer.compare(tiles[a], tiles[b]);
+        });
+
+        int anchor = cells[order[0]];
+        int ax = grid.xOf(anchor);
+        int ay = grid.yOf(anchor);
+
+        int[] dx = new int[order.length];
+        int[] dy = new int[order.length];
+        int[] lit = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            dx[i] = relative(grid.xOf(cells[order[i]]) - ax, width);
+            dy[i] = relative(grid.yOf(cells[order[i]]) - ay, height);
+            lit[i] = tiles[order[i]];
+        }
+
+        // Region: everything the replay changed, plus its neighbours.
+        contradicts(kept, cells, tiles);
+        int[] region = touchedRegion();
+        if (region == null) {
+            return null;
+        }
+
+        int words = wave.wordsPerCell();
+        int[] rdx = new int[region.length];
+        int[] rdy = new int[region.length];
+        long[] rinit = new long[region.length * words];
+        int minX = 0;
+        int maxX = 0;
+        int minY = 0;
+        int maxY = 0;
+
+        for (int k = 0; k < region.length; k++) {
+            rdx[k] = relative(grid.xOf(region[k]) - ax, width);
+            rdy[k] = relative(grid.yOf(region[k]) - ay, height);
+            System.arraycopy(initialWords, region[k] * words, rinit, k * words, words);
+
+            minX = Math.min(minX, rdx[k]);
+            maxX = Math.max(maxX, rdx[k]);
+            minY = Math.min(minY, rdy[k]);
+            maxY = Math.max(maxY, rdy[k]);
+        }
+
+        // On a torus, relative offsets are only unambiguous for regions under half the size.
+        boolean canTranslate = translatable
+                && (!periodic || (maxX - minX < width / 2 && maxY - minY < height / 2));
+
+        return new NogoodStore.Nogood(dx, dy, lit, anchor, canTranslate, rdx, rdy, rinit);
+    }
+
+    private int relative(int d, int size) {
+        if (!periodic) {
+            return d;
+        }
+        int m = Math.floorMod(d, size);
+        return m > size / 2 ? m - size : m;
+    }
+
+    // Cells whose scratch domain differs from the initial one, plus their neighbours.
+    private int[] touchedRegion() {
+        long[] now = scratch.getWave().words();
+        int words = wave.wordsPerCell();
+        int dirs = topology.directionCount();
+        int[] neighbors = topology.neighbors();
+        int size = 0;
+
+        for (int c = 0; c < wave.cellCount(); c++) {
+            int off = c * words;
+            boolean changed = false;
+            for (int w = 0; w < words && !changed; w++) {
+                changed = now[off + w] != initialWords[off + w];
+            }
+            if (!changed) {
+                continue;
+            }
+
+            size = mark(c, size);
+            for (int d = 0; d < dirs && size >= 0; d++) {
+                int n = neighbors[c * dirs + d];
+                if (n >= 0) {
+                    size = mark(n, size);
+                }
+            }
+            if (size < 0) {
+                break;
+            }
+        }
+
+        int[] region = size > 0 ? Arrays.copyOf(bfsQueue, size) : null;
+        for (int i = 0; i < Math.abs(size); i++) {
+            distance[bfsQueue[i]] = -1;
+        }
+        return region;
+    }
+
+    // Adds c to the region list in bfsQueue; returns the new size, or -size once over the limit.
+    private int mark(int c, int size) {
+        if (distance[c] >= 0) {
+            return size;
+        }
+        if (size == MAX_REGION) {
+            return -size;
+        }
+        distance[c] = 0;
+        bfsQueue[size] = c;
+        return size + 1;
+    }
+
+    private int measureDistances(int from, int maxRadius) {
+        int[] neighbors = topology.neighbors();
+        int dirs = topology.directionCount();
+
+        int head = 0;
+        int tail = 0;
+        bfsQueue[tail++] = from;
+        distance[from] = 0;
+
+        while (head < tail) {
+            int c = bfsQueue[head++];
+            if (distance[c] == maxRadius) {
+                continue;
+            }
+            for (int d = 0; d < dirs; d++) {
+                int n = neighbors[c * dirs + d];
+                if (n >= 0 && distance[n] < 0) {
+                    distance[n] = distance[c] + 1;
+                    bfsQueue[tail++] = n;
+                }
+            }
+        }
+        return tail;
+    }
+
+    // Indices of decisions within radius, nearest first.
+    private int[] decisionsWithin(int[] cells, int count, int radius) {
+        return IntStream.range(0, count)
+                .filter(i -> distance[cells[i]] >= 0 && distance[cells[i]] <= radius)
+                .boxed()
+                .sorted((a, b) -> Integer.compare(distance[cells[a]], distance[cells[b]]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    // Deletion-based minimisation, dropping the farthest decisions first.
+    private int[] minimise(int[] candidates, int[] cells, int[] tiles) {
+        int[] kept = candidates.clone();
+        int size = kept.length;
+
+        for (int i = size - 1; i >= 0 && size > 1; i--) {
+            int[] without = new int[size - 1];
+            for (int j = 0, k = 0; j < size; j++) {
+                if (j != i) {
+                    without[k++] = kept[j];
+                }
+            }
+            if (contradicts(without, cells, tiles)) {
+                kept = without;
+                size--;
+            }
+        }
+        return Arrays.copyOf(kept, size);
+    }
+
+    // Replays the chosen decisions on a scratch copy of the initial wave.
+    private boolean contradicts(int[] chosen, int[] cells, int[] tiles) {
+        Wave s = scratch.getWave();
+        System.arraycopy(initialWords, 0, s.words(), 0, initialWords.length);
+        scratchPropagator.reset();
+
+        for (int i : chosen) {
+            int c = cells[i];
+            int t = tiles[i];
+
+            if (!s.contains(c, t)) {
+                return true;
+            }
+            s.collapse(c, t);
+            if (!scratchPropagator.propagateFrom(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,169 @@
+package com.rizikh.wfc.solver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bounded store of learned nogoods, shared between solve attempts on grids
+ * of the same size and topology.
+ *
+ * A nogood is a small set of (offset, tile) assignments that, together,
+ * propagate to an empty domain. Offsets are relative to the first literal;
+ * on square grids a nogood may match anywhere its region fits, elsewhere
+ * only at the position it was learned. Each nogood is indexed under every
+ * tile it mentions so the solver only checks nogoods relevant to the tile
+ * it is about to place. When full, the oldest nogood is evicted.
+ */
+public final class NogoodStore {
+    private final int capacity;
+    private final ArrayDeque<Nogood> order = new ArrayDeque<>();
+    private final Set<Nogood> known = new HashSet<>();
+    private final Map<Integer, List<Nogood>> byTile = new HashMap<>();
+    private long pruned;
+
+    /**
+     * Constructs an empty NogoodStore.
+     *
+     * @param capacity Maximum number of nogoods kept.
+     * @throws IllegalArgumentException if capacity is not positive.
+     */
+    public NogoodStore(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be a positive integer.");
+        }
+        this.capacity = capacity;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return order.size();
+    }
+
+    /**
+     * Number of tile choices ruled out by stored nogoods so far.
+     */
+    public long prunedCount() {
+        return pruned;
+    }
+
+    public void clear() {
+        order.clear();
+        known.clear();
+        byTile.clear();
+        pruned = 0;
+    }
+
+    /**
+     * Adds a nogood; duplicates are ignored.
+     *
+     * @return True if the nogood was new.
+     */
+    boolean add(Nogood nogood) {
+        if (!known.add(nogood)) {
+            return false;
+        }
+
+        if (order.size() == capacity) {
+            evict(order.removeFirst());
+        }
+        order.addLast(nogood);
+
+        for (int tile : nogood.distinctTiles()) {
+            byTile.computeIfAbsent(tile, k -> new ArrayList<>()).add(nogood);
+        }
+        return true;
+    }
+
+    private void evict(Nogood nogood) {
+        known.remove(nogood);
+        for (int tile : nogood.distinctTiles()) {
+            List<Nogood> list = byTile.get(tile);
+            if (list != null) {
+                list.remove(nogood);
+                if (list.isEmpty()) {
+                    byTile.remove(tile);
+                }
+            }
+        }
+    }
+
+    List<Nogood> withTile(int tile) {
+        List<Nogood> list = byTile.get(tile);
+        return list != null ? list : List.of();
+    }
+
+    void recordPrune() {
+        pruned++;
+    }
+
+    /**
+     * A learned conflict pattern.
+     *
+     * Literal i says "the cell at (anchor + dx[i], anchor + dy[i]) holds tile[i]".
+     * The region lists every cell the original contradiction touched (plus
+     * their neighbours) with the initial domain it had; the pattern is only
+     * valid where the current attempt's initial domains are subsets of those.
+     */
+    static final class Nogood {
+        final int[] dx;
+        final int[] dy;
+        final int[] tile;
+        final int anchorCell;
+        final boolean translatable;
+
+        final int[] regionDx;
+        final int[] regionDy;
+        final long[] regionInitial;
+
+        private final int hash;
+
+        Nogood(int[] dx, int[] dy, int[] tile, int anchorCell, boolean translatable,
+                int[] regionDx, int[] regionDy, long[] regionInitial) {
+            this.dx = dx;
+            this.dy = dy;
+            this.tile = tile;
+            this.anchorCell = anchorCell;
+            this.translatable = translatable;
+            this.regionDx = regionDx;
+            this.regionDy = regionDy;
+            this.regionInitial = regionInitial;
+
+            int h = Arrays.hashCode(dx);
+            h = 31 * h + Arrays.hashCode(dy);
+            h = 31 * h + Arrays.hashCode(tile);
+            this.hash = translatable ? h : 31 * h + anchorCell;
+        }
+
+        int size() {
+            return tile.length;
+        }
+
+        int[] distinctTiles() {
+            return Arrays.stream(tile).distinct().toArray();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Nogood other
+                    && translatable == other.translatable
+                    && (translatable || anchorCell == other.anchorCell)
+                    && Arrays.equals(dx, other.dx)
+                    && Arrays.equals(dy, other.dy)
+                    && Arrays.equals(tile, other.tile);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
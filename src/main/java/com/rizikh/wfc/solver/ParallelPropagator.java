@@ -0,0 +1,212 @@
+package com.rizikh.wfc.solver;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.rizikh.wfc.core.Topology;
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.CompiledRuleset;
+import com.rizikh.wfc.rules.Ruleset;
+
+/**
+ * Wavefront propagation that processes each frontier in parallel.
+ *
+ * Every cell of the current frontier pushes its support to its neighbours
+ * using lock-free atomic AND on the packed wave; neighbours that lost tiles
+ * form the next frontier. Arc consistency has a unique fixpoint, so the
+ * resulting domains are identical to {@link QueuePropagator}'s regardless
+ * of scheduling. Frontiers smaller than the threshold run on the calling
+ * thread to avoid fork/join overhead.
+ *
+ * Reading a source domain while another thread shrinks it is safe: a stale
+ * (larger) domain only yields weaker support, and the source is re-queued
+ * in the next frontier because it changed.
+ */
+public final class ParallelPropagator implements Propagator {
+    public static final int DEFAULT_THRESHOLD = 512;
+
+    // Frontier slice processed by one leaf task.
+    private static final int LEAF_SIZE = 128;
+
+    private final Wave wave;
+    private final int[] neighbors;
+    private final int directionCount;
+    private final CompiledRuleset rules;
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    // Generation stamp per cell: a cell joins the next frontier at most once per wave.
+    private final AtomicIntegerArray queuedIn;
+    private final AtomicInteger nextSize = new AtomicInteger();
+    private int generation;
+
+    private int[] frontier;
+    private int[] next;
+    private volatile boolean contradiction;
+
+    public ParallelPropagator(Grid grid, Ruleset ruleset) {
+        this(grid, CompiledRuleset.compile(ruleset), ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Constructs a ParallelPropagator.
+     * 
+     * @param grid      The grid whose wave is updated.
+     * @param rules     The compiled adjacency masks.
+     * @param pool      The pool that runs large frontiers.
+     * @param threshold Frontiers with fewer cells than this run sequentially.
+     * @throws IllegalArgumentException if any argument is null or threshold is negative.
+     */
+    public ParallelPropagator(Grid grid, CompiledRuleset rules, ForkJoinPool pool, int threshold) {
+        if (grid == null) {
+            throw new IllegalArgumentException("Grid cannot be null");
+        }
+        if (rules == null) {
+            throw new IllegalArgumentException("Ruleset cannot be null");
+        }
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool cannot be null");
+        }
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold must be non-negative");
+        }
+
+        Topology topology = grid.getTopology();
+        if (rules.directionCount() != topology.directionCount()) {
+            throw new IllegalArgumentException("Ruleset directions (" + rules.directionCount() +
+                    ") do not match topology directions (" + topology.directionCount() + ")");
+        }
+
+        this.wave = grid.getWave();
+        this.neighbors = topology.neighbors();
+        this.directionCount = topology.directionCount();
+        this.rules = rules;
+        this.pool = pool;
+        this.threshold = threshold;
+        this.queuedIn = new AtomicIntegerArray(grid.cellCount());
+        this.frontier = new int[grid.cellCount()];
+        this.next = new int[grid.cellCount()];
+    }
+
+    @Override
+    public boolean propagateFrom(int start) {
+        if (wave.isEmpty(start)) {
+            return false;
+        }
+
+        frontier[0] = start;
+        int size = 1;
+        contradiction = false;
+
+        while (size > 0) {
+            nextGeneration();
+            nextSize.set(0);
+
+            if (size < threshold) {
+                processRange(0, size, new long[rules.wordsPerMask()]);
+            } else {
+                pool.invoke(new WaveTask(0, size));
+            }
+
+            if (contradiction) {
+                return false;
+            }
+
+            int[] tmp = frontier;
+            frontier = next;
+            next = tmp;
+            size = nextSize.get();
+        }
+
+        return true;
+    }
+
+    private void nextGeneration() {
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            for (int i = 0; i < queuedIn.length(); i++) {
+                queuedIn.set(i, 0);
+            }
+            generation = 1;
+        }
+    }
+
+    private void processRange(int from, int to, long[] support) {
+        long[] words = wave.words();
+        int wordsPerCell = wave.wordsPerCell();
+        int gen = generation;
+
+        for (int i = from; i < to && !contradiction; i++) {
+            int p = frontier[i];
+            int base = p * directionCount;
+
+            for (int dir = 0; dir < directionCount; dir++) {
+                int n = neighbors[base + dir];
+
+                if (n < 0) {
+                    continue;
+                }
+
+                rules.supportInto(words, wave.offset(p), dir, support);
+
+                int off = wave.offset(n);
+                boolean changed = false;
+
+                for (int w = 0; w < wordsPerCell; w++) {
+                    long before = wave.getAndAnd(off + w, support[w]);
+                    changed |= (before & ~support[w]) != 0L;
+                }
+
+                if (changed) {
+                    // Other threads may be clearing different words of the same
+                    // domain; re-reading after our own atomic writes guarantees the
+                    // thread that removes the last bit observes the empty domain.
+                    if (isEmptyVolatile(off, wordsPerCell)) {
+                        contradiction = true;
+                        return;
+                    }
+
+                    int seen = queuedIn.get(n);
+                    if (seen != gen && queuedIn.compareAndSet(n, seen, gen)) {
+                        next[nextSize.getAndIncrement()] = n;
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean isEmptyVolatile(int off, int wordsPerCell) {
+        for (int w = 0; w < wordsPerCell; w++) {
+            if (wave.getVolatile(off + w) != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final class WaveTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        WaveTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                processRange(from, to, new long[rules.wordsPerMask()]);
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new WaveTask(from, mid), new WaveTask(mid, to));
+        }
+    }
+}
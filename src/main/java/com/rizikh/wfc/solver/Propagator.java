@@ -0,0 +1,33 @@
+package com.rizikh.wfc.solver;
+
+/**
+ * Enforces arc consistency after a cell's domain has shrunk.
+ *
+ * Implementations operate directly on the grid's packed wave and must reach
+ * the same fixpoint for the same input, so they are interchangeable.
+ */
+public interface Propagator {
+
+    /**
+     * Propagates constraints outward from the given cell until nothing changes.
+     * 
+     * @param cell Flat cell index (see Grid.index).
+     * @return False if some domain became empty (contradiction), true otherwise.
+     */
+    boolean propagateFrom(int cell);
+
+    /**
+     * Drops any state cached between calls. Must be called whenever the wave
+     * is refilled or overwritten outside of propagation.
+     */
+    default void reset() {
+    }
+
+    /**
+     * Drops any state cached for one cell whose domain has grown again, e.g.
+     * when a repair reopened it. Cheaper than {@link #reset()} when only a
+     * few cells changed.
+     */
+    default void forget(int cell) {
+    }
+}
@@ -0,0 +1,108 @@
+package com.rizikh.wfc.solver;
+
+import com.rizikh.wfc.core.Topology;
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.CompiledRuleset;
+import com.rizikh.wfc.rules.Ruleset;
+
+/**
+ * Sequential, queue-based propagation (the default).
+ * Cells whose domain changed are visited in FIFO order, one at a time.
+ */
+public final class QueuePropagator implements Propagator {
+    private final Wave wave;
+    private final int[] neighbors;
+    private final int directionCount;
+    private final CompiledRuleset rules;
+
+    // Ring buffer of cell indices; each cell is queued at most once at a time.
+    private final int[] queue;
+    private final boolean[] inQueue;
+    private final long[] support;
+
+    public QueuePropagator(Grid grid, Ruleset ruleset) {
+        this(grid, CompiledRuleset.compile(ruleset));
+    }
+
+    public QueuePropagator(Grid grid, CompiledRuleset rules) {
+        if (grid == null) {
+            throw new IllegalArgumentException("Grid cannot be null");
+        }
+        if (rules == null) {
+            throw new IllegalArgumentException("Ruleset cannot be null");
+        }
+
+        Topology topology = grid.getTopology();
+        if (rules.directionCount() != topology.directionCount()) {
+            throw new IllegalArgumentException("Ruleset directions (" + rules.directionCount() +
+                    ") do not match topology directions (" + topology.directionCount() + ")");
+        }
+
+        this.wave = grid.getWave();
+        this.neighbors = topology.neighbors();
+        this.directionCount = topology.directionCount();
+        this.rules = rules;
+        this.queue = new int[grid.cellCount()];
+        this.inQueue = new boolean[grid.cellCount()];
+        this.support = new long[rules.wordsPerMask()];
+    }
+
+    @Override
+    public boolean propagateFrom(int start) {
+        long[] words = wave.words();
+        int capacity = queue.length;
+        int head = 0;
+        int size = 0;
+
+        queue[0] = start;
+        inQueue[start] = true;
+        size = 1;
+
+        while (size > 0) {
+            int p = queue[head];
+            head = (head + 1 == capacity) ? 0 : head + 1;
+            size--;
+            inQueue[p] = false;
+
+            if (wave.isEmpty(p)) {
+                clearQueued(head, size);
+                return false;
+            }
+
+            int base = p * directionCount;
+
+            for (int dir = 0; dir < directionCount; dir++) {
+                int n = neighbors[base + dir];
+
+                if (n < 0) {
+                    continue;
+                }
+
+                rules.supportInto(words, wave.offset(p), dir, support);
+                boolean changed = wave.and(n, support, 0);
+
+                if (wave.isEmpty(n)) {
+                    clearQueued(head, size);
+                    return false;
+                }
+
+                if (changed && !inQueue[n]) {
+                    int tail = head + size;
+                    queue[tail >= capacity ? tail - capacity : tail] = n;
+                    size++;
+                    inQueue[n] = true;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private void clearQueued(int head, int size) {
+        for (int i = 0; i < size; i++) {
+            int slot = head + i;
+            inQueue[queue[slot >= queue.length ? slot - queue.length : slot]] = false;
+        }
+    }
+}
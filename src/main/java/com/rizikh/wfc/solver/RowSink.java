@@ -0,0 +1,47 @@
+package com.rizikh.wfc.solver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Receives finished rows from a {@link StreamingSolver}.
+ */
+@FunctionalInterface
+public interface RowSink {
+
+    /**
+     * Accepts one finished row. The array is reused for the next row, so
+     * copy it if it must outlive the call.
+     *
+     * @param y     Row index, counting from 0.
+     * @param tiles Tile ids of the row, left to right.
+     * @throws IOException if the row cannot be written.
+     */
+    void accept(long y, int[] tiles) throws IOException;
+
+    /**
+     * A sink writing each row to a channel as one unsigned byte per tile
+     * (tile ids must be below 256).
+     */
+    static RowSink toChannel(WritableByteChannel channel) {
+        return new RowSink() {
+            private ByteBuffer buffer;
+
+            @Override
+            public void accept(long y, int[] tiles) throws IOException {
+                if (buffer == null || buffer.capacity() < tiles.length) {
+                    buffer = ByteBuffer.allocateDirect(tiles.length);
+                }
+                buffer.clear();
+                for (int tile : tiles) {
+                    buffer.put((byte) tile);
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        };
+    }
+}
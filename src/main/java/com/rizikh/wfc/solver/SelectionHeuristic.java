@@ -0,0 +1,87 @@
+package com.rizikh.wfc.solver;
+
+import java.util.Random;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.rules.Ruleset;
+
+/**
+ * Chooses the next cell for the solver to collapse.
+ *
+ * The choice trades output quality for throughput: collapsing the most
+ * constrained cell first avoids most contradictions but costs a scan of the
+ * grid per pick, while scanline order is O(1) per pick but commits to cells
+ * regardless of how constrained they are.
+ *
+ * Implementations keep per-solve state, so every solver needs its own
+ * instance. Domains only ever shrink during a solve, which lets them keep
+ * cursors and sets lazily instead of observing every propagation; the one
+ * exception, a repair reopening cells, is reported through
+ * {@link #reopened(int)}.
+ *
+ * @see WfcSolver#setSelectionHeuristic(SelectionHeuristic)
+ */
+public interface SelectionHeuristic {
+
+    /**
+     * Binds the heuristic to the grid about to be solved and clears any
+     * state from a previous binding.
+     *
+     * @param grid    The grid being solved.
+     * @param ruleset The ruleset it is solved with.
+     */
+    void bind(Grid grid, Ruleset ruleset);
+
+    /**
+     * Clears per-solve state after the bound grid's wave was refilled for a
+     * new solve. Unlike {@link #bind(Grid, Ruleset)}, keeps every buffer.
+     */
+    default void reset() {
+    }
+
+    /**
+     * Per-solve state that cannot be rebuilt from the wave, for checkpoints.
+     * Restoring it into a heuristic of the same type, bound to a grid with
+     * the checkpointed wave, continues the solve exactly. Heuristics whose
+     * picks depend only on the wave have none.
+     */
+    default long[] saveState() {
+        return new long[0];
+    }
+
+    /**
+     * Restores state returned by {@link #saveState()}. Called after
+     * {@link #reset()}, before the checkpointed domains are copied into the
+     * wave.
+     *
+     * @param state The saved state.
+     * @throws IllegalArgumentException if the state was not saved by this
+     *                                  kind of heuristic on this grid.
+     */
+    default void restoreState(long[] state) {
+        if (state.length != 0) {
+            throw new IllegalArgumentException("Checkpoint holds state of a different selection heuristic");
+        }
+    }
+
+    /**
+     * Picks the next cell to collapse.
+     *
+     * @param rng The solver's random source, for tie-breaking.
+     * @return Flat index of a cell with more than one option left, or -1 if
+     *         there is none.
+     */
+    int select(Random rng);
+
+    /**
+     * Called after the solver collapsed a cell returned by {@link #select(Random)}.
+     */
+    default void collapsed(int cell) {
+    }
+
+    /**
+     * Called when a repair gave the cell a larger domain again.
+     */
+    default void reopened(int cell) {
+    }
+}
@@ -0,0 +1,230 @@
+package com.rizikh.wfc.solver;
+
+import java.util.Arrays;
+
+import com.rizikh.wfc.core.Topology;
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.EdgeRuleset;
+
+/**
+ * Queue-based propagation specialised for {@link EdgeRuleset}s.
+ *
+ * Instead of OR-ing one allowed mask per remaining tile, a cell's support in
+ * direction d is the set of sockets its remaining tiles expose on side d
+ * (a small bit mask, e.g. 6 bits for terrain). A precomputed table maps that
+ * socket mask straight to the allowed neighbour tiles, so a visit costs
+ * O(sockets) word tests instead of O(tiles) mask ORs.
+ *
+ * The last socket mask pushed across each (cell, side) is remembered; if it
+ * has not changed, the neighbour cannot lose anything and is skipped.
+ */
+public final class SocketPropagator implements Propagator {
+    // Above this many sockets the mask -> tiles table is not materialised.
+    private static final int MAX_TABLE_SOCKETS = 10;
+    private static final long NOTHING_PUSHED = -1L;
+
+    private final Wave wave;
+    private final int[] neighbors;
+    private final int directionCount;
+    private final int[] opposite;
+    private final int socketCount;
+    private final int words;
+
+    // tilesBySocket[((d * socketCount) + s) * words ..]: tiles exposing socket s on side d
+    private final long[] tilesBySocket;
+    // allowedBySockets[((d << socketCount) + m) * words ..]: neighbour tiles accepted when
+    // sockets m are exposed towards them in direction d; null when the table would be too large
+    private final long[] allowedBySockets;
+
+    private final long[] pushed;
+    private final int[] queue;
+    private final boolean[] inQueue;
+    private final long[] support;
+
+    /**
+     * Constructs a SocketPropagator.
+     * 
+     * @param grid    The grid whose wave is updated.
+     * @param ruleset The edge-matching ruleset.
+     * @throws IllegalArgumentException if grid or ruleset is null, or they disagree
+     *                                  on tile or direction counts.
+     */
+    public SocketPropagator(Grid grid, EdgeRuleset ruleset) {
+        if (grid == null) {
+            throw new IllegalArgumentException("Grid cannot be null");
+        }
+        if (ruleset == null) {
+            throw new IllegalArgumentException("Ruleset cannot be null");
+        }
+
+        Topology topology = grid.getTopology();
+        if (ruleset.directionCount() != topology.directionCount()) {
+            throw new IllegalArgumentException("Ruleset directions (" + ruleset.directionCount() +
+                    ") do not match topology directions (" + topology.directionCount() + ")");
+        }
+        if (ruleset.tileCount() != grid.getTileCount()) {
+            throw new IllegalArgumentException("Ruleset tileCount (" + ruleset.tileCount() +
+                    ") does not match Grid tileCount (" + grid.getTileCount() + ")");
+        }
+        if (ruleset.socketCount() <= 0 || ruleset.socketCount() > 63) {
+            throw new IllegalArgumentException("Socket count must be in [1, 63]");
+        }
+
+        this.wave = grid.getWave();
+        this.neighbors = topology.neighbors();
+        this.directionCount = topology.directionCount();
+        this.opposite = new int[directionCount];
+        for (int d = 0; d < directionCount; d++) {
+            opposite[d] = topology.opposite(d);
+        }
+        this.socketCount = ruleset.socketCount();
+        this.words = wave.wordsPerCell();
+
+        this.tilesBySocket = new long[directionCount * socketCount * words];
+        for (int t = 0; t < ruleset.tileCount(); t++) {
+            for (int d = 0; d < directionCount; d++) {
+                int s = ruleset.socket(t, d);
+                tilesBySocket[(d * socketCount + s) * words + (t >>> 6)] |= 1L << t;
+            }
+        }
+
+        this.allowedBySockets = socketCount <= MAX_TABLE_SOCKETS ? buildTable() : null;
+
+        this.pushed = new long[Math.multiplyExact(grid.cellCount(), directionCount)];
+        this.queue = new int[grid.cellCount()];
+        this.inQueue = new boolean[grid.cellCount()];
+        this.support = new long[words];
+
+        reset();
+    }
+
+    /**
+     * Forgets which socket masks were already pushed.
+     */
+    @Override
+    public void reset() {
+        Arrays.fill(pushed, NOTHING_PUSHED);
+    }
+
+    @Override
+    public void forget(int cell) {
+        Arrays.fill(pushed, cell * directionCount, (cell + 1) * directionCount, NOTHING_PUSHED);
+    }
+
+    private long[] buildTable() {
+        int masks = 1 << socketCount;
+        long[] table = new long[directionCount * masks * words];
+
+        for (int d = 0; d < directionCount; d++) {
+            int back = opposite[d];
+
+            // table[m] = table[m without lowest socket] | tiles exposing that socket on the back side
+            for (int m = 1; m < masks; m++) {
+                int s = Integer.numberOfTrailingZeros(m);
+                int dst = ((d << socketCount) + m) * words;
+                int prev = ((d << socketCount) + (m & (m - 1))) * words;
+                int src = (back * socketCount + s) * words;
+
+                for (int w = 0; w < words; w++) {
+                    table[dst + w] = table[prev + w] | tilesBySocket[src + w];
+                }
+            }
+        }
+        return table;
+    }
+
+    @Override
+    public boolean propagateFrom(int start) {
+        int capacity = queue.length;
+        int head = 0;
+        int size = 1;
+
+        queue[0] = start;
+        inQueue[start] = true;
+
+        while (size > 0) {
+            int p = queue[head];
+            head = (head + 1 == capacity) ? 0 : head + 1;
+            size--;
+            inQueue[p] = false;
+
+            if (wave.isEmpty(p)) {
+                clearQueued(head, size);
+                return false;
+            }
+
+            int base = p * directionCount;
+
+            for (int dir = 0; dir < directionCount; dir++) {
+                int n = neighbors[base + dir];
+
+                if (n < 0) {
+                    continue;
+                }
+
+                long exposed = exposedSockets(p, dir);
+                if (exposed == pushed[base + dir]) {
+                    continue;
+                }
+                pushed[base + dir] = exposed;
+
+                boolean changed = restrict(n, dir, exposed);
+
+                if (wave.isEmpty(n)) {
+                    clearQueued(head, size);
+                    return false;
+                }
+
+                if (changed && !inQueue[n]) {
+                    int tail = head + size;
+                    queue[tail >= capacity ? tail - capacity : tail] = n;
+                    size++;
+                    inQueue[n] = true;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private long exposedSockets(int cell, int dir) {
+        long[] domain = wave.words();
+        int off = wave.offset(cell);
+        long mask = 0L;
+
+        for (int s = 0; s < socketCount; s++) {
+            int src = (dir * socketCount + s) * words;
+            for (int w = 0; w < words; w++) {
+                if ((domain[off + w] & tilesBySocket[src + w]) != 0L) {
+                    mask |= 1L << s;
+                    break;
+                }
+            }
+        }
+        return mask;
+    }
+
+    private boolean restrict(int neighbor, int dir, long exposed) {
+        if (allowedBySockets != null) {
+            return wave.and(neighbor, allowedBySockets, ((dir << socketCount) + (int) exposed) * words);
+        }
+
+        int back = opposite[dir];
+        for (int w = 0; w < words; w++) {
+            support[w] = 0L;
+        }
+        for (long m = exposed; m != 0L; m &= m - 1) {
+            int s = Long.numberOfTrailingZeros(m);
+            wave.kernel().or(support, 0, tilesBySocket, (back * socketCount + s) * words, words);
+        }
+        return wave.and(neighbor, support, 0);
+    }
+
+    private void clearQueued(int head, int size) {
+        for (int i = 0; i < size; i++) {
+            int slot = head + i;
+            inQueue[queue[slot >= queue.length ? slot - queue.length : slot]] = false;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.rizikh.wfc.solver;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Drives a solver and checkpoints it periodically in the background.
+ *
+ * Every interval steps the solver state is copied on the solving thread
+ * and written by a background thread while solving continues. The copy
+ * takes the whole wave, so each checkpoint pauses solving for O(cells x
+ * words per cell); on large maps choose the interval with that in mind. If
+ * the previous write is still running, that checkpoint is skipped rather
+ * than queued. Closing writes a final checkpoint.
+ */
+public final class SolveCheckpointer implements AutoCloseable {
+    private final WfcSolver solver;
+    private final Path path;
+    private final int interval;
+    private final ExecutorService writer;
+
+    private Future<?> pending;
+    private IOException failure;
+    private long steps;
+    private int written;
+
+    /**
+     * Constructs a SolveCheckpointer.
+     *
+     * @param solver   The solver to drive.
+     * @param path     The checkpoint file, replaced on every write.
+     * @param interval Steps between checkpoints.
+     * @throws IllegalArgumentException if solver or path is null, or interval
+     *                                  is not positive.
+     */
+    public SolveCheckpointer(WfcSolver solver, Path path, int interval) {
+        if (solver == null) {
+            throw new IllegalArgumentException("Solver cannot be null");
+        }
+        if (path == null) {
+            throw new IllegalArgumentException("Path cannot be null");
+        }
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Interval must be a positive integer.");
+        }
+        this.solver = solver;
+        this.path = path;
+        this.interval = interval;
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "wfc-checkpoint");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Advances the solver by one step, checkpointing when due.
+     *
+     * @return The result of {@link WfcSolver#step()}.
+     * @throws IOException if a background write has failed.
+     */
+    public boolean step() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+
+        boolean more = solver.step();
+        if (more && ++steps % interval == 0 && (pending == null || pending.isDone())) {
+            collect();
+            SolverSnapshot snapshot = solver.snapshot();
+            pending = writer.submit(() -> {
+                snapshot.writeTo(path);
+                return null;
+            });
+        }
+        return more;
+    }
+
+    /**
+     * Number of checkpoints written so far.
+     */
+    public int checkpointsWritten() {
+        return written;
+    }
+
+    /**
+     * Waits for any background write, then writes a final checkpoint.
+     *
+     * @throws IOException if a write failed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            collect();
+            if (failure != null) {
+                throw failure;
+            }
+            solver.checkpoint(path);
+            written++;
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    // Records the outcome of the previous (finished) write.
+    private void collect() {
+        if (pending == null) {
+            return;
+        }
+        try {
+            waitFor(pending);
+            written++;
+        } catch (IOException e) {
+            failure = e;
+        }
+        pending = null;
+    }
+
+    private static void waitFor(Future<?> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing checkpoint", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Checkpoint write failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package com.rizikh.wfc.solver;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import com.rizikh.wfc.model.Wave;
+
+/**
+ * Compact binary record of one solve, for replay without re-solving.
+ *
+ * The log starts with a keyframe of the initial wave. Each solver step then
+ * appends the collapsed cell and tile plus a batch of bans: every wave word
+ * that lost bits during the step, as a delta-coded word index and the
+ * removed bits, all varint-coded. A full keyframe is appended every
+ * keyframeInterval steps so a {@link SolveReplayer} can seek without
+ * replaying from the start. Keyframes are stored raw and dominate the size
+ * of the log, so the interval trades seek time against memory.
+ *
+ * Format (varints unless noted):
+ * <pre>
+ * header   : "WFCL" (4 bytes), version (1 byte), cellCount, tileCount, keyframeInterval
+ * KEYFRAME : 2, step, cellCount * wordsPerCell longs (8 bytes, little-endian)
+ * STEP     : 1, cell + 1 (0 = no collapse), [tile], word count, (index delta, removed bits)*
+ * END      : 3, final status ordinal
+ * </pre>
+ */
+public final class SolveLog {
+    private static final byte[] MAGIC = { 'W', 'F', 'C', 'L' };
+    private static final int VERSION = 1;
+
+    static final int STEP = 1;
+    static final int KEYFRAME = 2;
+    static final int END = 3;
+
+    private final int cellCount;
+    private final int tileCount;
+    private final int wordsPerCell;
+    private final int keyframeInterval;
+
+    private byte[] bytes = new byte[256];
+    private int length;
+
+    // Keyframe index: keyframeSteps[k] steps applied at byte keyframeOffsets[k]
+    private int[] keyframeSteps = new int[4];
+    private int[] keyframeOffsets = new int[4];
+    private int keyframeCount;
+
+    private int stepCount;
+    private int endStatus = -1;
+
+    // Wave as of the last record, for diffing (writer only)
+    private long[] shadow;
+
+    /**
+     * Constructs an empty SolveLog.
+     *
+     * @param cellCount        Number of cells of the recorded grid.
+     * @param tileCount        Number of tiles of the recorded ruleset.
+     * @param keyframeInterval Steps between full keyframes.
+     * @throws IllegalArgumentException if any argument is not positive.
+     */
+    public SolveLog(int cellCount, int tileCount, int keyframeInterval) {
+        if (cellCount <= 0 || tileCount <= 0) {
+            throw new IllegalArgumentException("Cell and tile counts must be positive integers.");
+        }
+        if (keyframeInterval <= 0) {
+            throw new IllegalArgumentException("Keyframe interval must be a positive integer.");
+        }
+        this.cellCount = cellCount;
+        this.tileCount = tileCount;
+        this.wordsPerCell = Wave.wordsFor(tileCount);
+        this.keyframeInterval = keyframeInterval;
+
+        for (byte b : MAGIC) {
+            writeByte(b);
+        }
+        writeByte(VERSION);
+        writeVarLong(cellCount);
+        writeVarLong(tileCount);
+        writeVarLong(keyframeInterval);
+    }
+
+    public int cellCount() {
+        return cellCount;
+    }
+
+    public int tileCount() {
+        return tileCount;
+    }
+
+    public int keyframeInterval() {
+        return keyframeInterval;
+    }
+
+    /**
+     * Number of recorded solver steps.
+     */
+    public int stepCount() {
+        return stepCount;
+    }
+
+    /**
+     * Size of the encoded log in bytes.
+     */
+    public int byteSize() {
+        return length;
+    }
+
+    /**
+     * Final solver status, or null while the solve is still running.
+     */
+    public WfcSolver.Status endStatus() {
+        return endStatus < 0 ? null : WfcSolver.Status.values()[endStatus];
+    }
+
+    // ------------------------------------------------------------
+    // Recording (called by WfcSolver)
+    // ------------------------------------------------------------
+
+    void begin(Wave wave) {
+        if (wave.cellCount() != cellCount || wave.tileCount() != tileCount) {
+            throw new IllegalArgumentException("Wave does not match the log dimensions");
+        }
+        if (shadow != null || keyframeCount > 0) {
+            throw new IllegalStateException("Log already holds a solve");
+        }
+        shadow = wave.words().clone();
+        writeKeyframe();
+    }
+
+    /**
+     * Appends one step. Only the cells in the wave's change journal are
+     * diffed, so a step costs O(changed cells) rather than O(cells); the
+     * solver keeps the journal on while recording and clears it per step.
+     *
+     * @param cell The collapsed cell, or -1 if the step did not collapse one.
+     * @param tile The tile it collapsed to.
+     */
+    void recordStep(Wave wave, int cell, int tile) {
+        long[] now = wave.words();
+
+        writeByte(STEP);
+        writeVarLong(cell + 1);
+        if (cell >= 0) {
+            writeVarLong(tile);
+            // The replayer applies the collapse first, so the collapsed cell
+            // is diffed against the single-bit pattern: it only contributes
+            // bans if propagation removed the chosen tile as well
+            int off = cell * wordsPerCell;
+            for (int w = 0; w < wordsPerCell; w++) {
+                shadow[off + w] = w == (tile >>> 6) ? 1L << tile : 0L;
+            }
+        }
+
+        wave.sortChanges();
+        int changed = 0;
+        for (int i = 0; i < wave.changeCount(); i++) {
+            int off = wave.changedCell(i) * wordsPerCell;
+            for (int w = off; w < off + wordsPerCell; w++) {
+                if (shadow[w] != now[w]) {
+                    changed++;
+                }
+            }
+        }
+        writeVarLong(changed);
+
+        int last = 0;
+        for (int i = 0; i < wave.changeCount(); i++) {
+            int off = wave.changedCell(i) * wordsPerCell;
+            for (int w = off; w < off + wordsPerCell; w++) {
+                if (shadow[w] != now[w]) {
+                    writeVarLong(w - last);
+                    writeVarLong(shadow[w] & ~now[w]);
+                    last = w;
+                    shadow[w] = now[w];
+                }
+            }
+        }
+
+        stepCount++;
+        if (stepCount % keyframeInterval == 0) {
+            writeKeyframe();
+        }
+    }
+
+    void end(WfcSolver.Status status) {
+        if (endStatus >= 0) {
+            return;
+        }
+        endStatus = status.ordinal();
+        writeByte(END);
+        writeVarLong(endStatus);
+        shadow = null;
+    }
+
+    private void writeKeyframe() {
+        if (keyframeCount == keyframeSteps.length) {
+            keyframeSteps = Arrays.copyOf(keyframeSteps, keyframeCount * 2);
+            keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframeCount * 2);
+        }
+        keyframeSteps[keyframeCount] = stepCount;
+        keyframeOffsets[keyframeCount] = length;
+        keyframeCount++;
+
+        writeByte(KEYFRAME);
+        writeVarLong(stepCount);
+        ensure(shadow.length * 8);
+        for (long word : shadow) {
+            for (int b = 0; b < 8; b++) {
+                bytes[length++] = (byte) (word >>> (b * 8));
+            }
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Reading (used by SolveReplayer)
+    // ------------------------------------------------------------
+
+    int wordsPerCell() {
+        return wordsPerCell;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int length() {
+        return length;
+    }
+
+    /**
+     * Byte offset of the last keyframe at or before the given step.
+     */
+    int keyframeOffsetFor(int step) {
+        int k = Arrays.binarySearch(keyframeSteps, 0, keyframeCount, step);
+        if (k < 0) {
+            k = -k - 2;
+        }
+        return keyframeOffsets[Math.max(k, 0)];
+    }
+
+    static long readVarLong(byte[] in, int[] pos) {
+        long value = 0L;
+        int shift = 0;
+        int p = pos[0];
+        while (true) {
+            byte b = in[p++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+            shift += 7;
+        }
+        pos[0] = p;
+        return value;
+    }
+
+    static long readLong(byte[] in, int p) {
+        long word = 0L;
+        for (int b = 0; b < 8; b++) {
+            word |= (in[p + b] & 0xFFL) << (b * 8);
+        }
+        return word;
+    }
+
+    // ------------------------------------------------------------
+    // Files
+    // ------------------------------------------------------------
+
+    /**
+     * Writes the encoded log to a file.
+     */
+    public void writeTo(Path path) throws IOException {
+        Files.write(path, Arrays.copyOf(bytes, length));
+    }
+
+    /**
+     * Reads a log written by {@link #writeTo(Path)}.
+     *
+     * @throws IOException if the file cannot be read or is not a solve log.
+     */
+    public static SolveLog read(Path path) throws IOException {
+        byte[] in = Files.readAllBytes(path);
+        if (in.length < MAGIC.length + 1 || !Arrays.equals(Arrays.copyOf(in, MAGIC.length), MAGIC)) {
+            throw new IOException("Not a solve log: " + path);
+        }
+        if (in[MAGIC.length] != VERSION) {
+            throw new IOException("Unsupported solve log version " + in[MAGIC.length]);
+        }
+
+        try {
+            int[] pos = { MAGIC.length + 1 };
+            int cells = (int) readVarLong(in, pos);
+            int tiles = (int) readVarLong(in, pos);
+            int interval = (int) readVarLong(in, pos);
+
+            SolveLog log = new SolveLog(cells, tiles, interval);
+            log.bytes = in;
+            log.length = in.length;
+            log.index(pos[0]);
+            return log;
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt solve log: " + path, e);
+        }
+    }
+
+    // Rebuilds the keyframe index and counters by scanning the records.
+    private void index(int start) {
+        int[] pos = { start };
+        int words = cellCount * wordsPerCell;
+
+        while (pos[0] < length) {
+            int recordOffset = pos[0];
+            int type = bytes[pos[0]++];
+
+            if (type == KEYFRAME) {
+                int step = (int) readVarLong(bytes, pos);
+                if (keyframeCount == keyframeSteps.length) {
+                    keyframeSteps = Arrays.copyOf(keyframeSteps, keyframeCount * 2);
+                    keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframeCount * 2);
+                }
+                keyframeSteps[keyframeCount] = step;
+                keyframeOffsets[keyframeCount] = recordOffset;
+                keyframeCount++;
+                pos[0] += words * 8;
+            } else if (type == STEP) {
+                if (readVarLong(bytes, pos) > 0) {
+                    readVarLong(bytes, pos);
+                }
+                long changed = readVarLong(bytes, pos);
+                for (long i = 0; i < changed; i++) {
+                    readVarLong(bytes, pos);
+                    readVarLong(bytes, pos);
+                }
+                stepCount++;
+            } else if (type == END) {
+                endStatus = (int) readVarLong(bytes, pos);
+            } else {
+                throw new IllegalStateException("Unknown record type " + type);
+            }
+        }
+
+        if (keyframeCount == 0) {
+            throw new IllegalStateException("Log has no initial keyframe");
+        }
+    }
+
+    // ------------------------------------------------------------
+    // Encoding
+    // ------------------------------------------------------------
+
+    private void ensure(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+        }
+    }
+
+    private void writeByte(int b) {
+        ensure(1);
+        bytes[length++] = (byte) b;
+    }
+
+    private void writeVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0L) {
+            bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[length++] = (byte) value;
+    }
+}
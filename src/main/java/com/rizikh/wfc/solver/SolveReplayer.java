@@ -0,0 +1,146 @@
+package com.rizikh.wfc.solver;
+
+import com.rizikh.wfc.model.Wave;
+
+/**
+ * Plays a {@link SolveLog} back onto a wave, one step at a time or by
+ * seeking to any step. Playback only decodes and applies recorded bans; the
+ * solver does not run.
+ */
+public final class SolveReplayer {
+    private final SolveLog log;
+    private final Wave wave;
+    private final int[] pos = new int[1];
+
+    private int position;
+    private int lastCell = -1;
+    private int lastTile = -1;
+
+    /**
+     * Constructs a SolveReplayer positioned before the first step, with the
+     * initial wave loaded into the target.
+     *
+     * @param log    The recorded solve.
+     * @param target The wave to play into (same cell and tile counts as the log).
+     * @throws IllegalArgumentException if log or target is null or they do not match.
+     */
+    public SolveReplayer(SolveLog log, Wave target) {
+        if (log == null) {
+            throw new IllegalArgumentException("Log cannot be null");
+        }
+        if (target == null) {
+            throw new IllegalArgumentException("Target wave cannot be null");
+        }
+        if (target.cellCount() != log.cellCount() || target.tileCount() != log.tileCount()) {
+            throw new IllegalArgumentException("Target wave does not match the log dimensions");
+        }
+        this.log = log;
+        this.wave = target;
+        seek(0);
+    }
+
+    public Wave getWave() {
+        return wave;
+    }
+
+    /**
+     * Number of steps applied so far.
+     */
+    public int position() {
+        return position;
+    }
+
+    public int stepCount() {
+        return log.stepCount();
+    }
+
+    /**
+     * Cell collapsed by the last applied step, or -1.
+     */
+    public int lastCell() {
+        return lastCell;
+    }
+
+    /**
+     * Tile chosen by the last applied step, or -1.
+     */
+    public int lastTile() {
+        return lastTile;
+    }
+
+    /**
+     * Applies the next step.
+     *
+     * @return False if the log has no more steps.
+     */
+    public boolean step() {
+        byte[] in = log.bytes();
+        long[] words = wave.words();
+
+        while (pos[0] < log.length()) {
+            int type = in[pos[0]++];
+
+            if (type == SolveLog.KEYFRAME) {
+                // Already in this state; skip over it
+                SolveLog.readVarLong(in, pos);
+                pos[0] += words.length * 8;
+            } else if (type == SolveLog.END) {
+                SolveLog.readVarLong(in, pos);
+            } else {
+                int cell = (int) SolveLog.readVarLong(in, pos) - 1;
+                int tile = cell >= 0 ? (int) SolveLog.readVarLong(in, pos) : -1;
+                if (cell >= 0) {
+                    wave.collapse(cell, tile);
+                }
+
+                long changed = SolveLog.readVarLong(in, pos);
+                int index = 0;
+                for (long i = 0; i < changed; i++) {
+                    index += (int) SolveLog.readVarLong(in, pos);
+                    words[index] &= ~SolveLog.readVarLong(in, pos);
+                }
+
+                lastCell = cell;
+                lastTile = tile;
+                position++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves to the state after the given number of steps, starting from the
+     * nearest earlier keyframe.
+     *
+     * @throws IllegalArgumentException if step is outside [0, stepCount].
+     */
+    public void seek(int step) {
+        if (step < 0 || step > log.stepCount()) {
+            throw new IllegalArgumentException("Step must be between 0 and " + log.stepCount());
+        }
+
+        if (step < position || step - position > log.keyframeInterval() || pos[0] == 0) {
+            loadKeyframe(log.keyframeOffsetFor(step));
+        }
+        while (position < step) {
+            step();
+        }
+    }
+
+    private void loadKeyframe(int offset) {
+        byte[] in = log.bytes();
+        long[] words = wave.words();
+
+        pos[0] = offset + 1;
+        position = (int) SolveLog.readVarLong(in, pos);
+
+        int p = pos[0];
+        for (int i = 0; i < words.length; i++, p += 8) {
+            words[i] = SolveLog.readLong(in, p);
+        }
+        pos[0] = p;
+        lastCell = -1;
+        lastTile = -1;
+    }
+}
@@ -0,0 +1,79 @@
+package com.rizikh.wfc.solver;
+
+import java.util.function.Supplier;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.rules.Ruleset;
+
+/**
+ * One reusable solver per worker thread, for batch generation of many maps
+ * of the same size.
+ *
+ * The first {@link #acquire(long)} on a thread builds a grid and solver;
+ * later calls hand back the same solver after {@link WfcSolver#reset(long)},
+ * so per-map setup is a refill of the wave instead of allocating cells,
+ * propagator tables and heuristic buffers again. The solver stays owned by
+ * its thread: finish with it (and copy out any tiles) before acquiring the
+ * next one. Long-lived worker threads benefit; virtual threads that run a
+ * single task do not.
+ */
+public final class SolverPool {
+    private final ThreadLocal<WfcSolver> solvers;
+
+    /**
+     * Constructs a SolverPool of default solvers for bounded grids.
+     *
+     * @param ruleset The ruleset shared by every solver.
+     * @param width   The map width.
+     * @param height  The map height.
+     * @throws IllegalArgumentException if ruleset is null or the size is not positive.
+     */
+    public SolverPool(Ruleset ruleset, int width, int height) {
+        this(checkedFactory(ruleset, width, height));
+    }
+
+    /**
+     * Constructs a SolverPool whose solvers are built by the given factory,
+     * e.g. to pick a topology, heuristics or a connectivity constraint. The
+     * configuration survives every reset.
+     *
+     * @param factory Builds a new solver on a fresh grid each time it is called.
+     * @throws IllegalArgumentException if factory is null.
+     */
+    public SolverPool(Supplier<WfcSolver> factory) {
+        if (factory == null) {
+            throw new IllegalArgumentException("Factory cannot be null");
+        }
+        this.solvers = ThreadLocal.withInitial(factory);
+    }
+
+    private static Supplier<WfcSolver> checkedFactory(Ruleset ruleset, int width, int height) {
+        if (ruleset == null) {
+            throw new IllegalArgumentException("Ruleset cannot be null");
+        }
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Width and height must be positive integers.");
+        }
+        return () -> new WfcSolver(new Grid(width, height, ruleset.tileCount()), ruleset);
+    }
+
+    /**
+     * Returns this thread's solver, reset for a new solve.
+     *
+     * @param seed The seed of the new solve.
+     * @return A solver ready to step; also returned by later calls on this thread.
+     */
+    public WfcSolver acquire(long seed) {
+        WfcSolver solver = solvers.get();
+        solver.reset(seed);
+        return solver;
+    }
+
+    /**
+     * Drops this thread's solver, e.g. before a worker thread is returned to
+     * a pool that outlives this one.
+     */
+    public void release() {
+        solvers.remove();
+    }
+}
@@ -0,0 +1,75 @@
+package com.rizikh.wfc.solver;
+
+import java.util.Random;
+
+/**
+ * The solver's random source: java.util.Random's linear congruential
+ * generator, with its 48-bit state kept in a field that checkpoints can
+ * read and write directly.
+ *
+ * For the same seed it produces exactly the sequence of java.util.Random,
+ * so seeded solves are unchanged. The one difference is
+ * {@link #nextGaussian()}, which does not cache its second value, so the
+ * state is the whole state.
+ */
+final class SolverRandom extends Random {
+    private static final long serialVersionUID = 1L;
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    // Assigned by setSeed, which Random's constructors call before our own
+    // field initializers would run; hence no initializer here
+    private long state;
+
+    SolverRandom() {
+        super();
+    }
+
+    SolverRandom(long seed) {
+        super(seed);
+    }
+
+    /**
+     * A generator continuing from a state returned by {@link #state()}.
+     */
+    static SolverRandom fromState(long state) {
+        SolverRandom random = new SolverRandom(0L);
+        random.state = state & MASK;
+        return random;
+    }
+
+    /**
+     * The current 48-bit generator state.
+     */
+    synchronized long state() {
+        return state;
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected synchronized int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    @Override
+    public double nextGaussian() {
+        // Marsaglia polar method, as Random, minus the cached second value
+        double v1;
+        double v2;
+        double s;
+        do {
+            v1 = 2 * nextDouble() - 1;
+            v2 = 2 * nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        return v1 * StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+    }
+}
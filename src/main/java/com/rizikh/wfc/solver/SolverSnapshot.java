@@ -0,0 +1,226 @@
+package com.rizikh.wfc.solver;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import com.rizikh.wfc.model.Wave;
+
+/**
+ * Immutable copy of a solver's state at one point in time.
+ *
+ * Taking a snapshot copies the whole wave (twice with repair), so it costs
+ * O(cells x words per cell) on the solving thread; writing it out can then
+ * happen on any thread. Files are written through a FileChannel to a
+ * temporary sibling and moved into place, so a crash mid-write never leaves
+ * a truncated checkpoint behind. The wave is streamed in bounded chunks, so
+ * neither side needs a buffer the size of the file. The
+ * format holds only numbers: the RNG is a {@link SolverRandom} whose state
+ * is written as a plain long, so reading a checkpoint never instantiates
+ * classes named by the file.
+ *
+ * Format (big-endian):
+ * <pre>
+ * "WFCS" (4 bytes), version (int), cellCount, tileCount, status ordinal,
+ * decision count, decision cells, decision tiles,
+ * RNG state (long), selection state length, selection state (longs),
+ * repair state length (-1 = no repair), repair state (ints),
+ * wave words (longs), [initial wave words (longs), with repair only]
+ * </pre>
+ */
+final class SolverSnapshot {
+    private static final int MAGIC = 0x57464353; // "WFCS"
+    private static final int VERSION = 4;
+    // Wave words are streamed through a buffer of at most this size
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    final int cellCount;
+    final int tileCount;
+    final WfcSolver.Status status;
+    final int[] decisionCells;
+    final int[] decisionTiles;
+    final long rngState;
+    final long[] selectionState;
+    final long[] words;
+    // Repair bookkeeping and the wave blocks are reopened to; null without repair
+    final int[] repairState;
+    final long[] initialWords;
+
+    SolverSnapshot(int cellCount, int tileCount, WfcSolver.Status status, int[] decisionCells,
+            int[] decisionTiles, long rngState, long[] selectionState, long[] words, int[] repairState,
+            long[] initialWords) {
+        this.cellCount = cellCount;
+        this.tileCount = tileCount;
+        this.status = status;
+        this.decisionCells = decisionCells;
+        this.decisionTiles = decisionTiles;
+        this.rngState = rngState;
+        this.selectionState = selectionState;
+        this.words = words;
+        this.repairState = repairState;
+        this.initialWords = initialWords;
+    }
+
+    void writeTo(Path path) throws IOException {
+        int repairInts = repairState != null ? repairState.length : 0;
+        int headerBytes = 4 * 8 + 4 * 2 * decisionCells.length + 8 * (1 + selectionState.length) + 4 * repairInts;
+        ByteBuffer header = ByteBuffer.allocate(headerBytes).order(ByteOrder.BIG_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(cellCount).putInt(tileCount).putInt(status.ordinal());
+        header.putInt(decisionCells.length);
+        for (int cell : decisionCells) {
+            header.putInt(cell);
+        }
+        for (int tile : decisionTiles) {
+            header.putInt(tile);
+        }
+        header.putLong(rngState).putInt(selectionState.length);
+        for (long value : selectionState) {
+            header.putLong(value);
+        }
+        header.putInt(repairState != null ? repairState.length : -1);
+        for (int i = 0; i < repairInts; i++) {
+            header.putInt(repairState[i]);
+        }
+        header.flip();
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            // The wave can exceed what one buffer may hold, so it goes out a chunk at a time
+            ByteBuffer chunk = chunkFor(repairState != null ? words.length * 2L : words.length);
+            writeLongs(channel, chunk, words);
+            if (repairState != null) {
+                writeLongs(channel, chunk, initialWords);
+            }
+            channel.force(false);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static SolverSnapshot read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            // Each length is checked against what is left of the file before anything is allocated for it
+            ByteBuffer in = readBytes(channel, 24, size, path);
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a solver snapshot: " + path);
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported solver snapshot version " + version);
+            }
+
+            int cellCount = in.getInt();
+            int tileCount = in.getInt();
+            int statusOrdinal = in.getInt();
+            WfcSolver.Status[] statuses = WfcSolver.Status.values();
+            if (cellCount <= 0 || tileCount <= 0 || statusOrdinal < 0 || statusOrdinal >= statuses.length) {
+                throw new IOException("Corrupt solver snapshot: " + path);
+            }
+
+            int decisions = in.getInt();
+            in = readBytes(channel, 8L * decisions + 12, size, path);
+            int[] cells = new int[decisions];
+            int[] tiles = new int[decisions];
+            for (int i = 0; i < decisions; i++) {
+                cells[i] = in.getInt();
+            }
+            for (int i = 0; i < decisions; i++) {
+                tiles[i] = in.getInt();
+            }
+
+            long rngState = in.getLong();
+            int selectionLongs = in.getInt();
+            in = readBytes(channel, 8L * selectionLongs + 4, size, path);
+            long[] selectionState = new long[selectionLongs];
+            for (int i = 0; i < selectionState.length; i++) {
+                selectionState[i] = in.getLong();
+            }
+
+            int repairInts = in.getInt();
+            in = readBytes(channel, 4L * Math.max(0, repairInts), size, path);
+            int[] repairState = repairInts >= 0 ? new int[repairInts] : null;
+            for (int i = 0; i < repairInts; i++) {
+                repairState[i] = in.getInt();
+            }
+
+            long waveWords = (long) cellCount * Wave.wordsFor(tileCount);
+            long bodyWords = repairState != null ? waveWords * 2 : waveWords;
+            if (waveWords > Integer.MAX_VALUE - 8 || size - channel.position() != bodyWords * 8) {
+                throw new IOException("Truncated solver snapshot: " + path);
+            }
+            ByteBuffer chunk = chunkFor(bodyWords);
+            long[] words = new long[(int) waveWords];
+            readLongs(channel, chunk, words, path);
+            long[] initialWords = null;
+            if (repairState != null) {
+                initialWords = new long[words.length];
+                readLongs(channel, chunk, initialWords, path);
+            }
+
+            return new SolverSnapshot(cellCount, tileCount, statuses[statusOrdinal], cells, tiles, rngState,
+                    selectionState, words, repairState, initialWords);
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IOException("Corrupt solver snapshot: " + path, e);
+        }
+    }
+
+    // Large enough to keep each channel call busy, small enough to never need a long size
+    private static ByteBuffer chunkFor(long words) {
+        int bytes = (int) Math.min(CHUNK_BYTES, Math.max(8, words * 8));
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.BIG_ENDIAN);
+    }
+
+    private static void writeLongs(FileChannel channel, ByteBuffer chunk, long[] values) throws IOException {
+        int perChunk = chunk.capacity() / 8;
+        for (int from = 0; from < values.length; from += perChunk) {
+            int count = Math.min(perChunk, values.length - from);
+            chunk.clear();
+            chunk.asLongBuffer().put(values, from, count);
+            chunk.limit(count * 8);
+            while (chunk.hasRemaining()) {
+                channel.write(chunk);
+            }
+        }
+    }
+
+    private static void readLongs(FileChannel channel, ByteBuffer chunk, long[] values, Path path)
+            throws IOException {
+        int perChunk = chunk.capacity() / 8;
+        for (int from = 0; from < values.length; from += perChunk) {
+            int count = Math.min(perChunk, values.length - from);
+            chunk.clear().limit(count * 8);
+            fill(channel, chunk, path);
+            chunk.flip();
+            chunk.asLongBuffer().get(values, from, count);
+        }
+    }
+
+    // Reads the next section of the file, rejecting lengths the file cannot hold
+    private static ByteBuffer readBytes(FileChannel channel, long bytes, long size, Path path) throws IOException {
+        if (bytes < 0 || bytes > size - channel.position()) {
+            throw new IOException("Truncated solver snapshot: " + path);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) bytes).order(ByteOrder.BIG_ENDIAN);
+        fill(channel, buffer, path);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void fill(FileChannel channel, ByteBuffer buffer, Path path) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Truncated solver snapshot: " + path);
+            }
+        }
+    }
+}
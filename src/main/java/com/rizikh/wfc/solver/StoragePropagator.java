@@ -0,0 +1,115 @@
+package com.rizikh.wfc.solver;
+
+import java.util.Arrays;
+
+import com.rizikh.wfc.core.Direction;
+import com.rizikh.wfc.model.WaveStorage;
+import com.rizikh.wfc.rules.CompiledRuleset;
+import com.rizikh.wfc.rules.Ruleset;
+
+/**
+ * Queue propagation over any {@link WaveStorage} on a bounded square grid.
+ *
+ * Unlike {@link QueuePropagator} it needs no Grid, no topology neighbour
+ * table and no per-cell queue flags: neighbours are computed from
+ * coordinates and the queue only grows with the propagation front. Heap use
+ * is therefore independent of the map size, which is what out-of-core
+ * storage such as {@link com.rizikh.wfc.model.MappedWave} needs.
+ */
+public final class StoragePropagator implements Propagator {
+    private static final Direction[] DIRS = Direction.values();
+
+    private final WaveStorage wave;
+    private final int width;
+    private final int height;
+    private final CompiledRuleset rules;
+
+    private final long[] domain;
+    private final long[] support;
+    private int[] queue = new int[1024];
+
+    /**
+     * Constructs a StoragePropagator.
+     *
+     * @param wave    The storage to propagate over (cell = y * width + x).
+     * @param width   Map width in cells.
+     * @param height  Map height in cells.
+     * @param ruleset Four-direction ruleset.
+     * @throws IllegalArgumentException if the arguments are inconsistent.
+     */
+    public StoragePropagator(WaveStorage wave, int width, int height, Ruleset ruleset) {
+        if (wave == null) {
+            throw new IllegalArgumentException("Wave cannot be null");
+        }
+        if (ruleset == null) {
+            throw new IllegalArgumentException("Ruleset cannot be null");
+        }
+        if (ruleset.directionCount() != DIRS.length) {
+            throw new IllegalArgumentException("StoragePropagator requires a four-direction ruleset");
+        }
+        if ((long) width * height != wave.cellCount()) {
+            throw new IllegalArgumentException("Wave does not hold " + width + "x" + height + " cells");
+        }
+        if (wave.tileCount() != ruleset.tileCount()) {
+            throw new IllegalArgumentException(
+                    "Wave tileCount (" + wave.tileCount() +
+                            ") does not match Ruleset tileCount (" + ruleset.tileCount() + ")");
+        }
+
+        this.wave = wave;
+        this.width = width;
+        this.height = height;
+        this.rules = CompiledRuleset.compile(ruleset);
+        this.domain = new long[wave.wordsPerCell()];
+        this.support = new long[wave.wordsPerCell()];
+    }
+
+    @Override
+    public boolean propagateFrom(int start) {
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+
+        while (head < tail) {
+            int p = queue[head++];
+
+            if (wave.isEmpty(p)) {
+                return false;
+            }
+            wave.readDomain(p, domain, 0);
+
+            int x = p % width;
+            int y = p / width;
+
+            for (int dir = 0; dir < DIRS.length; dir++) {
+                int nx = x + DIRS[dir].dx;
+                int ny = y + DIRS[dir].dy;
+                if (nx < 0 || ny < 0 || nx >= width || ny >= height) {
+                    continue;
+                }
+
+                int n = ny * width + nx;
+                rules.supportInto(domain, 0, dir, support);
+                if (!wave.and(n, support, 0)) {
+                    continue;
+                }
+                if (wave.isEmpty(n)) {
+                    return false;
+                }
+
+                // Compact the consumed prefix before growing
+                if (tail == queue.length) {
+                    if (head > queue.length / 2) {
+                        System.arraycopy(queue, head, queue, 0, tail - head);
+                        tail -= head;
+                        head = 0;
+                    } else {
+                        queue = Arrays.copyOf(queue, queue.length * 2);
+                    }
+                }
+                queue[tail++] = n;
+            }
+        }
+        return true;
+    }
+}
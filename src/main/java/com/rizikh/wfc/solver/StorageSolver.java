@@ -0,0 +1,93 @@
+package com.rizikh.wfc.solver;
+
+import java.util.Random;
+
+import com.rizikh.wfc.model.WaveStorage;
+import com.rizikh.wfc.rules.Ruleset;
+
+/**
+ * Solver for very large maps held in a {@link WaveStorage}.
+ *
+ * {@link WfcSolver} scans every cell for minimum entropy each step and keeps
+ * a Cell object per cell, neither of which scales to a billion cells. This
+ * solver collapses cells in scanline order instead, which keeps the active
+ * front (and so the pages being touched) to a couple of rows. A
+ * contradiction restarts the whole map.
+ */
+public final class StorageSolver {
+    private final WaveStorage wave;
+    private final StoragePropagator propagator;
+    private final Random rng;
+    private int attemptsUsed;
+
+    /**
+     * Constructs a StorageSolver.
+     *
+     * @param wave    The storage to solve (cell = y * width + x).
+     * @param width   Map width in cells.
+     * @param height  Map height in cells.
+     * @param ruleset Four-direction ruleset.
+     * @param seed    Seed for tile choices.
+     * @throws IllegalArgumentException if the arguments are inconsistent.
+     */
+    public StorageSolver(WaveStorage wave, int width, int height, Ruleset ruleset, long seed) {
+        this.propagator = new StoragePropagator(wave, width, height, ruleset);
+        this.wave = wave;
+        this.rng = new Random(seed);
+    }
+
+    /**
+     * Attempts used by the last {@link #solve(int)} call.
+     */
+    public int attemptsUsed() {
+        return attemptsUsed;
+    }
+
+    /**
+     * Solves the map, refilling and retrying after a contradiction.
+     *
+     * @param maxAttempts Attempts before giving up.
+     * @return True if every cell was collapsed without contradiction.
+     */
+    public boolean solve(int maxAttempts) {
+        for (attemptsUsed = 1; attemptsUsed <= maxAttempts; attemptsUsed++) {
+            if (attemptsUsed > 1) {
+                wave.fill();
+            }
+            if (solveOnce()) {
+                return true;
+            }
+        }
+        attemptsUsed = maxAttempts;
+        return false;
+    }
+
+    private boolean solveOnce() {
+        int cells = wave.cellCount();
+
+        for (int cell = 0; cell < cells; cell++) {
+            int count = wave.count(cell);
+            if (count == 0) {
+                return false;
+            }
+            if (count == 1) {
+                continue;
+            }
+
+            wave.collapse(cell, pickTile(cell, count));
+            if (!propagator.propagateFrom(cell)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int pickTile(int cell, int count) {
+        int r = rng.nextInt(count);
+        for (int t = wave.firstTile(cell); ; t++) {
+            if (wave.contains(cell, t) && r-- == 0) {
+                return t;
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.rizikh.wfc.solver;
+
+import java.io.IOException;
+import java.util.Random;
+
+import com.rizikh.wfc.core.Direction;
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.CompiledRuleset;
+import com.rizikh.wfc.rules.Ruleset;
+
+/**
+ * Generates arbitrarily long strips in scanline order with bounded memory.
+ *
+ * Only a window of K rows is kept in a small {@link Grid}. Cells are
+ * collapsed left to right, bottom row first; propagation reaches up through
+ * the whole window, so later rows constrain the current one. Once the
+ * bottom row is complete it is handed to the sink and dropped, the window
+ * shifts by one row, and a fresh row enters at the top. Memory stays at
+ * width x K cells however many rows are produced.
+ *
+ * Emitted rows are final. On contradiction the window is rebuilt from the
+ * last emitted row and solved again; if that keeps failing the solver gives up.
+ */
+public final class StreamingSolver {
+    // Consecutive window restarts allowed before giving up.
+    private static final int MAX_RETRIES = 64;
+
+    private final int width;
+    private final int windowRows;
+    private final CompiledRuleset rules;
+    private final Grid window;
+    private final Wave wave;
+    private final Propagator propagator;
+    private final long[] fullRow;
+    private final long[] anchorMask;
+    private final int[] row;
+    private final Random rng;
+
+    private int[] anchor;
+    private int restarts;
+
+    /**
+     * Constructs a StreamingSolver.
+     *
+     * @param width      Strip width in cells.
+     * @param windowRows Rows kept in memory (at least 2); more rows mean fewer
+     *                   contradictions at the cost of memory.
+     * @param ruleset    Four-direction ruleset to solve with.
+     * @param seed       Seed for tile choices.
+     * @throws IllegalArgumentException if ruleset is null or not four-directional,
+     *                                  width is not positive, or windowRows is below 2.
+     */
+    public StreamingSolver(int width, int windowRows, Ruleset ruleset, long seed) {
+        if (ruleset == null) {
+            throw new IllegalArgumentException("Ruleset cannot be null");
+        }
+        if (ruleset.directionCount() != 4) {
+            throw new IllegalArgumentException("Streaming requires a four-direction ruleset");
+        }
+        if (width <= 0) {
+            throw new IllegalArgumentException("Width must be a positive integer.");
+        }
+        if (windowRows < 2) {
+            throw new IllegalArgumentException("Window must hold at least 2 rows");
+        }
+
+        this.width = width;
+        this.windowRows = windowRows;
+        this.rules = CompiledRuleset.compile(ruleset);
+        this.window = new Grid(width, windowRows, ruleset.tileCount());
+        this.wave = window.getWave();
+        this.propagator = WfcSolver.defaultPropagator(window, ruleset);
+        this.row = new int[width];
+        this.anchorMask = new long[rules.wordsPerMask()];
+        this.rng = new Random(seed);
+
+        int words = wave.wordsPerCell();
+        this.fullRow = new long[width * words];
+        for (int x = 0; x < width; x++) {
+            for (int t = 0; t < ruleset.tileCount(); t++) {
+                fullRow[x * words + (t >>> 6)] |= 1L << t;
+            }
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getWindowRows() {
+        return windowRows;
+    }
+
+    /**
+     * Window restarts caused by contradictions so far.
+     */
+    public int restartCount() {
+        return restarts;
+    }
+
+    /**
+     * Generates rows and emits each one to the sink as soon as it is final.
+     *
+     * @param rows Number of rows to produce.
+     * @param sink Receiver of finished rows.
+     * @throws IOException           if the sink fails.
+     * @throws IllegalStateException if the window keeps contradicting.
+     */
+    public void generate(long rows, RowSink sink) throws IOException {
+        if (sink == null) {
+            throw new IllegalArgumentException("Sink cannot be null");
+        }
+
+        int cells = window.cellCount();
+        int failures = 0;
+        boolean ok = rebuild();
+        int next = 0;
+
+        for (long emitted = 0; emitted < rows;) {
+            if (!ok) {
+                restarts++;
+                if (++failures > MAX_RETRIES) {
+                    throw new IllegalStateException(
+                            "Streaming solve failed at row " + emitted + " after " + MAX_RETRIES + " restarts");
+                }
+                ok = rebuild();
+                next = 0;
+                continue;
+            }
+
+            // Bottom row complete: emit it, remember it, slide the window
+            if (next >= width) {
+                for (int x = 0; x < width; x++) {
+                    row[x] = wave.firstTile(x);
+                }
+                sink.accept(emitted++, row);
+                anchor = row.clone();
+                failures = 0;
+
+                ok = shift();
+                next -= width;
+                continue;
+            }
+
+            while (next < cells && wave.count(next) == 1) {
+                next++;
+            }
+            if (next >= width) {
+                continue;
+            }
+
+            wave.collapse(next, pickTile(next));
+            ok = propagator.propagateFrom(next);
+        }
+    }
+
+    // Fresh window, bottom row constrained by the last emitted row.
+    private boolean rebuild() {
+        wave.fill();
+        propagator.reset();
+
+        if (anchor == null) {
+            return true;
+        }
+
+        // The emitted row lies directly south of the window's bottom row
+        int north = Direction.NORTH.ordinal();
+        for (int x = 0; x < width; x++) {
+            rules.maskInto(anchor[x], north, anchorMask, 0);
+            wave.and(x, anchorMask, 0);
+            if (wave.isEmpty(x)) {
+                return false;
+            }
+        }
+        for (int x = 0; x < width; x++) {
+            if (!propagator.propagateFrom(x)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Drops the bottom row and opens a full row at the top.
+    private boolean shift() {
+        long[] words = wave.words();
+        int rowWords = fullRow.length;
+
+        System.arraycopy(words, rowWords, words, 0, words.length - rowWords);
+        System.arraycopy(fullRow, 0, words, words.length - rowWords, rowWords);
+        propagator.reset();
+
+        int below = (windowRows - 2) * width;
+        for (int x = 0; x < width; x++) {
+            if (!propagator.propagateFrom(below + x)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int pickTile(int cell) {
+        int r = rng.nextInt(wave.count(cell));
+        long[] words = wave.words();
+        int off = wave.offset(cell);
+
+        for (int w = 0; w < wave.wordsPerCell(); w++) {
+            long word = words[off + w];
+            int bits = Long.bitCount(word);
+            if (r >= bits) {
+                r -= bits;
+                continue;
+            }
+            while (r > 0) {
+                word &= word - 1;
+                r--;
+            }
+            return (w << 6) + Long.numberOfTrailingZeros(word);
+        }
+        throw new IllegalStateException("Failed to select a tile");
+    }
+}
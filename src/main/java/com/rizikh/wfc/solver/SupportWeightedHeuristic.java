@@ -0,0 +1,91 @@
+package com.rizikh.wfc.solver;
+
+import java.util.Random;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.Ruleset;
+
+/**
+ * Weighted random choice biased by remaining neighbour support.
+ *
+ * A tile's chance is its ruleset weight times, for every neighbour, the
+ * fraction of that neighbour's options the tile keeps. Tiles that would
+ * squeeze a neighbour down to one or two options become unlikely without
+ * being ruled out, so maps stay varied while contradictions drop.
+ */
+public final class SupportWeightedHeuristic implements ValueHeuristic {
+    private NeighborSupport support;
+    private double[] weights;
+    private double[] chances;
+
+    @Override
+    public void bind(Grid grid, Ruleset ruleset) {
+        this.support = new NeighborSupport(grid, ruleset);
+        this.weights = new double[ruleset.tileCount()];
+        this.chances = new double[ruleset.tileCount()];
+
+        for (int t = 0; t < weights.length; t++) {
+            double w = ruleset.weight(t);
+            if (!(w > 0.0)) {
+                throw new IllegalArgumentException("Tile " + t + " has a non-positive weight: " + w);
+            }
+            weights[t] = w;
+        }
+    }
+
+    @Override
+    public int choose(int cell, Random rng) {
+        Wave wave = support.wave();
+        long[] words = wave.words();
+        int off = wave.offset(cell);
+        int dirs = support.directionCount();
+
+        double total = 0.0;
+        int last = -1;
+
+        for (int w = 0; w < wave.wordsPerCell(); w++) {
+            long word = words[off + w];
+            while (word != 0L) {
+                int tile = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+
+                double chance = weights[tile];
+                for (int dir = 0; dir < dirs; dir++) {
+                    int n = support.neighbor(cell, dir);
+                    int options = n >= 0 ? wave.count(n) : 0;
+                    if (options > 0) {
+                        chance *= (double) support.support(tile, dir, n) / options;
+                    }
+                }
+
+                chances[tile] = chance;
+                total += chance;
+                last = tile;
+            }
+        }
+
+        if (last < 0) {
+            throw new IllegalStateException("Cannot choose a tile for empty cell " + cell);
+        }
+        if (!(total > 0.0)) {
+            // Every tile empties some neighbour; any choice contradicts
+            return last;
+        }
+
+        double r = rng.nextDouble() * total;
+        for (int w = 0; w < wave.wordsPerCell(); w++) {
+            long word = words[off + w];
+            while (word != 0L) {
+                int tile = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+
+                r -= chances[tile];
+                if (r < 0.0) {
+                    return tile;
+                }
+            }
+        }
+        return last;
+    }
+}
@@ -0,0 +1,46 @@
+package com.rizikh.wfc.solver;
+
+import java.util.Random;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.Ruleset;
+
+/**
+ * Every tile in the domain is equally likely; tile weights are ignored
+ * (the default).
+ */
+public final class UniformValueHeuristic implements ValueHeuristic {
+    private Wave wave;
+
+    @Override
+    public void bind(Grid grid, Ruleset ruleset) {
+        this.wave = grid.getWave();
+    }
+
+    @Override
+    public int choose(int cell, Random rng) {
+        int r = rng.nextInt(wave.count(cell));
+
+        long[] words = wave.words();
+        int off = wave.offset(cell);
+
+        for (int w = 0; w < wave.wordsPerCell(); w++) {
+            long word = words[off + w];
+            int bits = Long.bitCount(word);
+
+            if (r >= bits) {
+                r -= bits;
+                continue;
+            }
+
+            while (r > 0) {
+                word &= word - 1;
+                r--;
+            }
+            return (w << 6) + Long.numberOfTrailingZeros(word);
+        }
+
+        throw new IllegalStateException("Failed to select a tile for cell " + cell);
+    }
+}
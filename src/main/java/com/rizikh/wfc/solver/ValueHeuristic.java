@@ -0,0 +1,37 @@
+package com.rizikh.wfc.solver;
+
+import java.util.Random;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.rules.Ruleset;
+
+/**
+ * Chooses which tile a cell collapses to.
+ *
+ * A uniformly random tile ignores how much the choice constrains the
+ * neighbours; ordering by remaining neighbour support avoids choices that
+ * leave a neighbour with few options, and with them many contradictions.
+ * Implementations keep per-solve state, so every solver needs its own
+ * instance.
+ *
+ * @see WfcSolver#setValueHeuristic(ValueHeuristic)
+ */
+public interface ValueHeuristic {
+
+    /**
+     * Binds the heuristic to the grid about to be solved.
+     *
+     * @param grid    The grid being solved.
+     * @param ruleset The ruleset it is solved with.
+     */
+    void bind(Grid grid, Ruleset ruleset);
+
+    /**
+     * Picks a tile from the cell's domain.
+     *
+     * @param cell Flat index of a cell with at least two options left.
+     * @param rng  The solver's random source.
+     * @return A tile in the cell's domain.
+     */
+    int choose(int cell, Random rng);
+}
@@ -0,0 +1,68 @@
+package com.rizikh.wfc.solver;
+
+import java.util.Random;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.Ruleset;
+
+/**
+ * Random choice in proportion to the ruleset's tile weights, the classic
+ * WFC value choice. Use it when weights carry meaning, e.g. learned tile
+ * frequencies or the summed member weights of a compressed ruleset.
+ */
+public final class WeightedValueHeuristic implements ValueHeuristic {
+    private Wave wave;
+    private double[] weights;
+
+    @Override
+    public void bind(Grid grid, Ruleset ruleset) {
+        this.wave = grid.getWave();
+        this.weights = new double[ruleset.tileCount()];
+
+        for (int t = 0; t < weights.length; t++) {
+            double w = ruleset.weight(t);
+            if (!(w > 0.0)) {
+                throw new IllegalArgumentException("Tile " + t + " has a non-positive weight: " + w);
+            }
+            weights[t] = w;
+        }
+    }
+
+    @Override
+    public int choose(int cell, Random rng) {
+        long[] words = wave.words();
+        int off = wave.offset(cell);
+
+        double total = 0.0;
+        int last = -1;
+        for (int w = 0; w < wave.wordsPerCell(); w++) {
+            long word = words[off + w];
+            while (word != 0L) {
+                int tile = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                total += weights[tile];
+                last = tile;
+            }
+        }
+
+        if (last < 0) {
+            throw new IllegalStateException("Cannot choose a tile for empty cell " + cell);
+        }
+
+        double r = rng.nextDouble() * total;
+        for (int w = 0; w < wave.wordsPerCell(); w++) {
+            long word = words[off + w];
+            while (word != 0L) {
+                int tile = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+
+                r -= weights[tile];
+                if (r < 0.0) {
+                    return tile;
+                }
+            }
+        }
+        return last;
+    }
+}
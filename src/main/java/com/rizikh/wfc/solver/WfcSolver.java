@@ -1,15 +1,13 @@
 package com.rizikh.wfc.solver;
 
-import com.rizikh.wfc.core.Direction;
 import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.EdgeRuleset;
 import com.rizikh.wfc.rules.Ruleset;
-import com.rizikh.wfc.solver.Pos;
 
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.BitSet;
-import java.util.List;
-import java.util.Random;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 public class WfcSolver {
     public enum Status {
@@ -20,18 +18,58 @@ public class WfcSolver {
 
     private final Grid grid;
     private final Ruleset ruleset;
-    private final Random rng = new Random();
+    private final Propagator propagator;
+    private SolverRandom rng = new SolverRandom();
     private Status status;
+    private boolean started;
+    // Set by restore(): components continue from the checkpoint instead of beginning afresh
+    private boolean resumed;
+
+    // Cleared when propagation reports an emptied domain
+    private boolean consistent = true;
+
+    private SelectionHeuristic selection;
+    private ValueHeuristic valueOrder;
+
+    // Nogood learning (optional): decisions made so far, in order
+    private NogoodLearner learner;
+    private int[] decisionCells = new int[0];
+    private int[] decisionTiles = new int[0];
+    private int decisionCount;
+
+    // Global connectivity (optional)
+    private ConnectivityConstraint connectivity;
+
+    // Event recording (optional)
+    private SolveLog log;
+
+    // Localized contradiction repair (optional)
+    private BlockRepairer repairer;
 
     /**
-     * Constructs a WfcSolver with the specified Grid and Ruleset.
+     * Constructs a WfcSolver with the specified Grid and Ruleset, using
+     * sequential propagation (socket-based for an {@link EdgeRuleset}).
      * 
      * @param grid    The Grid instance representing the WFC grid.
      * @param ruleset The Ruleset instance defining tile adjacency rules.
      * @throws IllegalArgumentException if grid or ruleset is null, or if their
-     *                                  tile counts do not match.
+     *                                  tile or direction counts do not match.
      */
     public WfcSolver(Grid grid, Ruleset ruleset) {
+        this(grid, ruleset, null);
+    }
+
+    /**
+     * Constructs a WfcSolver with an explicit propagation strategy, e.g. a
+     * {@link ParallelPropagator} for large rulesets.
+     * 
+     * @param grid       The Grid instance representing the WFC grid.
+     * @param ruleset    The Ruleset instance defining tile adjacency rules.
+     * @param propagator The propagator bound to the same grid, or null for the default.
+     * @throws IllegalArgumentException if grid or ruleset is null, or if their
+     *                                  tile or direction counts do not match.
+     */
+    public WfcSolver(Grid grid, Ruleset ruleset, Propagator propagator) {
         if (grid == null) {
             throw new IllegalArgumentException("Grid cannot be null");
         }
@@ -44,219 +82,508 @@ public class WfcSolver {
                     "Grid tileCount (" + grid.getTileCount() +
                             ") does not match Ruleset tileCount (" + ruleset.tileCount() + ")");
         }
+        if (grid.getTopology().directionCount() != ruleset.directionCount()) {
+            throw new IllegalArgumentException(
+                    "Grid topology directions (" + grid.getTopology().directionCount() +
+                            ") do not match Ruleset directions (" + ruleset.directionCount() + ")");
+        }
         this.grid = grid;
         this.ruleset = ruleset;
+        this.propagator = propagator != null ? propagator : defaultPropagator(grid, ruleset);
         this.status = Status.RUNNING;
+        this.selection = new MrvHeuristic();
+        this.selection.bind(grid, ruleset);
+        this.valueOrder = new UniformValueHeuristic();
+        this.valueOrder.bind(grid, ruleset);
     }
 
-    public Status getStatus() {
-        return status;
+    /**
+     * Socket propagation for edge-matching rulesets, mask propagation otherwise.
+     * Both reach the same fixpoint, so the choice only affects speed.
+     */
+    static Propagator defaultPropagator(Grid grid, Ruleset ruleset) {
+        if (ruleset instanceof EdgeRuleset edges) {
+            return new SocketPropagator(grid, edges);
+        }
+        return new QueuePropagator(grid, ruleset);
     }
 
-    public boolean isSolved() {
-        return status == Status.SOLVED;
+    /**
+     * Seeds the solver's random choices, making the solve reproducible.
+     * 
+     * @param seed The seed.
+     * @throws IllegalStateException if solving has already started.
+     */
+    public void setSeed(long seed) {
+        if (started) {
+            throw new IllegalStateException("Seed must be set before solving starts");
+        }
+        rng = new SolverRandom(seed);
     }
 
-    public boolean hasContradiction() {
-        return status == Status.CONTRADICTION;
+    /**
+     * Chooses how the next cell to collapse is selected. The default is
+     * {@link MrvHeuristic}.
+     * 
+     * @param heuristic A heuristic instance not used by any other solver.
+     * @throws IllegalArgumentException if heuristic is null.
+     * @throws IllegalStateException    if solving has already started.
+     */
+    public void setSelectionHeuristic(SelectionHeuristic heuristic) {
+        if (started) {
+            throw new IllegalStateException("Selection heuristic must be set before solving starts");
+        }
+        if (heuristic == null) {
+            throw new IllegalArgumentException("Selection heuristic cannot be null");
+        }
+        heuristic.bind(grid, ruleset);
+        selection = heuristic;
     }
 
-    public Grid getGrid() {
-        return grid;
+    /**
+     * Chooses how a cell's tile is picked when it collapses. The default is
+     * {@link UniformValueHeuristic}.
+     * 
+     * @param heuristic A heuristic instance not used by any other solver.
+     * @throws IllegalArgumentException if heuristic is null.
+     * @throws IllegalStateException    if solving has already started.
+     */
+    public void setValueHeuristic(ValueHeuristic heuristic) {
+        if (started) {
+            throw new IllegalStateException("Value heuristic must be set before solving starts");
+        }
+        if (heuristic == null) {
+            throw new IllegalArgumentException("Value heuristic cannot be null");
+        }
+        heuristic.bind(grid, ruleset);
+        valueOrder = heuristic;
     }
 
     /**
-     * Checks if the entire grid is solved.
+     * Enables nogood learning with a store shared across attempts on grids of
+     * the same topology. Nogoods already in the store prune choices in this
+     * attempt; a contradiction in this attempt adds a new one.
      * 
-     * @return True if all cells in the grid are collapsed, false otherwise.
+     * @param store The shared store, or null to disable learning.
+     * @throws IllegalStateException if solving has already started.
      */
-    private boolean checkSolved() {
-        for (int x = 0; x < grid.getWidth(); ++x) {
-            for (int y = 0; y < grid.getHeight(); ++y) {
-                if (!grid.isCollapsed(x, y)) {
-                    return false;
-                }
-            }
+    public void setNogoodStore(NogoodStore store) {
+        if (started) {
+            throw new IllegalStateException("Nogood store must be set before solving starts");
         }
 
-        return true;
+        if (store == null) {
+            learner = null;
+            return;
+        }
+
+        Grid scratch = new Grid(grid.getTopology(), grid.getTileCount());
+        learner = new NogoodLearner(grid, propagator, store, defaultPropagator(scratch, ruleset), scratch);
+        decisionCells = new int[16];
+        decisionTiles = new int[16];
+        decisionCount = 0;
     }
 
     /**
-     * Checks if there is any contradiction in the grid.
+     * Enforces a global connectivity constraint during the solve, so only
+     * maps whose network forms a single piece are produced.
      * 
-     * @return True if a contradiction is found, false otherwise.
+     * @param constraint A constraint built for this solver's grid, or null to disable.
+     * @throws IllegalArgumentException if the constraint belongs to another grid.
+     * @throws IllegalStateException    if solving has already started.
      */
-    private boolean checkContradiction() {
-        for (int x = 0; x < grid.getWidth(); ++x) {
-            for (int y = 0; y < grid.getHeight(); ++y) {
-                if (grid.getCell(x, y).isEmpty()) {
-                    return true;
-                }
-            }
+    public void setConnectivityConstraint(ConnectivityConstraint constraint) {
+        if (started) {
+            throw new IllegalStateException("Connectivity constraint must be set before solving starts");
         }
+        if (constraint != null && constraint.getGrid() != grid) {
+            throw new IllegalArgumentException("Connectivity constraint was built for a different grid");
+        }
+        connectivity = constraint;
+    }
 
-        return false;
+    /**
+     * Records every step of this solve into the given log for later replay.
+     * 
+     * @param log An empty log sized for this grid, or null to disable recording.
+     * @throws IllegalArgumentException if the log does not match the grid.
+     * @throws IllegalStateException    if solving has already started.
+     */
+    public void setSolveLog(SolveLog log) {
+        if (started) {
+            throw new IllegalStateException("Solve log must be set before solving starts");
+        }
+        if (log != null && (log.cellCount() != grid.cellCount() || log.tileCount() != grid.getTileCount())) {
+            throw new IllegalArgumentException("Solve log does not match the grid dimensions");
+        }
+        if (log != null && repairer != null) {
+            throw new IllegalStateException("Solve logs record bans only and cannot be combined with repair");
+        }
+        this.log = log;
     }
 
-    public boolean step() {
-        if (status != Status.RUNNING) {
-            return false;
+    /**
+     * Enables localized repair: on a contradiction, the cells within the
+     * radius of the emptied cell are reopened and solved again, instead of
+     * the whole solve failing. Repeated failures in the same block double the
+     * radius, at most twice; once the block is solved again, the next failure
+     * starts at this radius. The radius counts neighbour steps. Solving gives
+     * up after one repair per cell.
+     * 
+     * @param radius The initial block radius, or 0 to disable repair.
+     * @throws IllegalArgumentException if radius is negative.
+     * @throws IllegalStateException    if solving has already started, or a
+     *                                  solve log is set.
+     */
+    public void setRepairRadius(int radius) {
+        if (started) {
+            throw new IllegalStateException("Repair radius must be set before solving starts");
         }
+        if (resumed) {
+            throw new IllegalStateException("Repair radius must be set before restoring a checkpoint");
+        }
+        if (radius < 0) {
+            throw new IllegalArgumentException("Repair radius cannot be negative");
+        }
+        if (radius > 0 && log != null) {
+            throw new IllegalStateException("Solve logs record bans only and cannot be combined with repair");
+        }
+        repairer = radius > 0 ? new BlockRepairer(grid, ruleset, propagator, radius) : null;
+    }
 
-        if (checkContradiction()) {
-            status = Status.CONTRADICTION;
-            return true;
+    /**
+     * Number of blocks repaired in the current solve.
+     */
+    public int getRepairCount() {
+        return repairer != null ? repairer.repairCount() : 0;
+    }
+
+    /**
+     * Writes the complete solver state (wave, status, RNG state, decision
+     * trail and selection heuristic state) to a file.
+     * 
+     * @param path The checkpoint file; replaced atomically.
+     * @throws IOException if the file cannot be written.
+     */
+    public void checkpoint(Path path) throws IOException {
+        snapshot().writeTo(path);
+    }
+
+    /**
+     * Restores state written by {@link #checkpoint(Path)}, so that solving
+     * continues exactly where the checkpointed solver left off. Heuristics
+     * and optional components (nogood store, connectivity constraint, solve
+     * log) are not part of the checkpoint; set the same ones before
+     * restoring.
+     * 
+     * @param path The checkpoint file.
+     * @throws IOException              if the file cannot be read or is corrupt.
+     * @throws IllegalArgumentException if the checkpoint is for a different grid size or tile count,
+     *                                  or was taken with a different selection heuristic.
+     * @throws IllegalStateException    if solving has already started.
+     */
+    public void restore(Path path) throws IOException {
+        if (started) {
+            throw new IllegalStateException("Cannot restore into a solver that has already started");
         }
 
-        if (checkSolved()) {
-            status = Status.SOLVED;
-            return true;
+        SolverSnapshot snapshot = SolverSnapshot.read(path);
+        if (snapshot.cellCount != grid.cellCount() || snapshot.tileCount != grid.getTileCount()) {
+            throw new IllegalArgumentException("Checkpoint (" + snapshot.cellCount + " cells, " + snapshot.tileCount
+                    + " tiles) does not match the grid (" + grid.cellCount() + " cells, " + grid.getTileCount()
+                    + " tiles)");
         }
 
-        Pos pos = pickMinEntropyCellRandomTie();
+        if ((snapshot.repairState != null) != (repairer != null)) {
+            throw new IllegalArgumentException(repairer != null
+                    ? "Checkpoint was taken without repair; it cannot be resumed with a repair radius"
+                    : "Checkpoint was taken with repair; set a repair radius before restoring");
+        }
 
-        if (pos == null) {
-            status = Status.SOLVED;
-            return true;
+        // First, as they may still reject the checkpoint
+        selection.reset();
+        selection.restoreState(snapshot.selectionState);
+        if (repairer != null) {
+            repairer.restore(snapshot.initialWords, snapshot.repairState);
         }
 
-        collapseAt(pos.x, pos.y);
-        propagateFrom(pos.x, pos.y);
+        long[] words = grid.getWave().words();
+        System.arraycopy(snapshot.words, 0, words, 0, words.length);
 
-        if (checkContradiction()) {
-            status = Status.CONTRADICTION;
-        } else if (checkSolved()) {
-            status = Status.SOLVED;
-        }
+        rng = SolverRandom.fromState(snapshot.rngState);
+        status = snapshot.status;
+        consistent = true;
+        decisionCount = snapshot.decisionCells.length;
+        decisionCells = Arrays.copyOf(snapshot.decisionCells, Math.max(16, decisionCount));
+        decisionTiles = Arrays.copyOf(snapshot.decisionTiles, Math.max(16, decisionCount));
+        resumed = true;
 
-        return true;
+        propagator.reset();
+        if (connectivity != null) {
+            connectivity.reset();
+        }
     }
 
-    private void collapseAt(int x, int y) {
-        if (!grid.inBounds(x, y)) {
-            throw new IndexOutOfBoundsException("Coordinates out of bounds: (" + x + ", " + y + ")");
+    /**
+     * Starts a new solve on the same grid, for batch workloads that would
+     * otherwise build a grid and solver per map. The wave is refilled in
+     * place and the random source reseeded; the ruleset, propagator,
+     * heuristics, nogood store and connectivity constraint are kept, with
+     * their per-solve state cleared. A solve log holds a single solve, so it
+     * is detached; set a fresh one before stepping to record this solve.
+     *
+     * Restrictions applied to the grid before solving (such as
+     * {@link com.rizikh.wfc.rules.RulesetAnalysis#applyTo(Grid)}) are
+     * cleared with the wave and must be applied again.
+     * 
+     * @param seed The seed of the new solve.
+     */
+    public void reset(long seed) {
+        grid.getWave().fill();
+        rng.setSeed(seed);
+        status = Status.RUNNING;
+        started = false;
+        resumed = false;
+        consistent = true;
+        decisionCount = 0;
+        log = null;
+        grid.getWave().trackChanges(false);
+
+        propagator.reset();
+        selection.reset();
+        if (connectivity != null) {
+            connectivity.reset();
         }
+    }
 
-        var cell = grid.getCell(x, y);
-        BitSet domain = cell.asBitSetCopy();
+    // Copies the whole wave: O(cells x words per cell), on the calling thread.
+    SolverSnapshot snapshot() {
+        return new SolverSnapshot(grid.cellCount(), grid.getTileCount(), status,
+                Arrays.copyOf(decisionCells, decisionCount), Arrays.copyOf(decisionTiles, decisionCount),
+                rng.state(), selection.saveState(), grid.getWave().words().clone(),
+                repairer != null ? repairer.saveState() : null, repairer != null ? repairer.initialWords() : null);
+    }
 
-        if (domain.isEmpty()) {
-            throw new IllegalStateException("Cannot collapse an empty domain at (" + x + ", " + y + ")");
-        }
+    public Status getStatus() {
+        return status;
+    }
 
-        if (cell.isCollapsed()) {
-            return;
-        }
+    public boolean isSolved() {
+        return status == Status.SOLVED;
+    }
 
-        int optionCount = domain.cardinality();
-        int r = rng.nextInt(optionCount);
+    public boolean hasContradiction() {
+        return status == Status.CONTRADICTION;
+    }
 
-        int chosenTileId = -1;
+    public Grid getGrid() {
+        return grid;
+    }
 
-        for (int bit = domain.nextSetBit(0); bit >= 0; bit = domain.nextSetBit(bit + 1)) {
-            if (r == 0) {
-                chosenTileId = bit;
-                break;
+    /**
+     * Checks if there is any contradiction in the grid.
+     * 
+     * @return True if a contradiction is found, false otherwise.
+     */
+    private boolean checkContradiction() {
+        Wave wave = grid.getWave();
+        for (int i = 0; i < grid.cellCount(); i++) {
+            if (wave.isEmpty(i)) {
+                return true;
             }
-            r--;
         }
 
-        if (chosenTileId < 0) {
-            throw new IllegalStateException("Failed to select a tile at (" + x + ", " + y + ")");
-        }
+        return false;
+    }
 
-        BitSet oneHot = new BitSet(grid.getTileCount());
-        oneHot.set(chosenTileId);
+    public boolean step() {
+        if (status != Status.RUNNING) {
+            return false;
+        }
 
-        cell.restrictTo(oneHot);
+        boolean stepped = advance();
+        // The journal lists the cells changed within one step
+        grid.getWave().clearChanges();
+        return stepped;
     }
 
-    public void propagateFrom(int startX, int startY) {
-        if (!grid.inBounds(startX, startY)) {
-            throw new IndexOutOfBoundsException("Coordinates out of bounds: (" + startX + ", " + startY + ")");
-        }
+    private boolean advance() {
+        if (!started) {
+            if (log != null || connectivity != null) {
+                grid.getWave().trackChanges(true);
+            }
+            if (log != null) {
+                log.begin(grid.getWave());
+            }
+            if (learner != null && decisionCount == 0) {
+                // Restrictions since setNogoodStore or reset() are part of the initial state
+                learner.begin();
+            }
+            if (repairer != null && !resumed) {
+                repairer.begin();
+            }
+            started = true;
 
-        ArrayDeque<Pos> queue = new ArrayDeque<>();
+            // Domains emptied before solving; afterwards propagation reports them
+            if (checkContradiction()) {
+                consistent = false;
+            }
+        }
 
-        boolean[][] inQueue = new boolean[grid.getWidth()][grid.getHeight()];
+        if (!consistent) {
+            finish(Status.CONTRADICTION);
+            return true;
+        }
 
-        queue.addLast(new Pos(startX, startY));
-        inQueue[startX][startY] = true;
+        int cell = selection.select(rng);
+
+        if (cell < 0) {
+            if (repairer == null) {
+                finish(checkContradiction() ? Status.CONTRADICTION : Status.SOLVED);
+            } else {
+                int defect = repairer.findDefect();
+                if (defect < 0) {
+                    finish(Status.SOLVED);
+                } else if (!repair(defect)) {
+                    finish(Status.CONTRADICTION);
+                }
+            }
+            return true;
+        }
 
-        BitSet support = new BitSet(ruleset.tileCount());
+        int x = grid.xOf(cell);
+        int y = grid.yOf(cell);
+        boolean collapsed = collapseAt(x, y);
+        int tile = collapsed ? grid.getWave().firstTile(cell) : -1;
+        propagateFrom(x, y);
 
-        while (!queue.isEmpty()) {
-            Pos p = queue.removeFirst();
-            inQueue[p.x][p.y] = false;
+        if (collapsed) {
+            selection.collapsed(cell);
+        }
+        if (consistent && collapsed && learner != null) {
+            consistent = learner.applyUnits(cell);
+        }
+        if (consistent && connectivity != null) {
+            consistent = connectivity.enforce(propagator);
+        }
+        if (log != null) {
+            log.recordStep(grid.getWave(), collapsed ? cell : -1, tile);
+        }
 
-            var sourceCell = grid.getCell(p.x, p.y);
-            BitSet sourceDomain = sourceCell.asBitSetCopy();
+        if (consistent && collapsed && repairer != null) {
+            repairer.collapsed();
+        }
 
-            if (sourceDomain.isEmpty()) {
-                return;
+        if (!consistent) {
+            if (learner != null) {
+                learner.learn(decisionCells, decisionTiles, decisionCount);
+            }
+            if (repairer != null && repair(repairer.nearestEmpty(cell))) {
+                consistent = true;
+            } else {
+                finish(Status.CONTRADICTION);
             }
+        }
 
-            for (var dir : Direction.values()) {
-                int nx = p.x + dir.dx;
-                int ny = p.y + dir.dy;
+        return true;
+    }
 
-                if (!grid.inBounds(nx, ny)) {
-                    continue;
-                }
+    /**
+     * Reopens a block around the failing cell and tells every component that
+     * tracks domains about it.
+     * 
+     * @return False if the failure could not be repaired.
+     */
+    private boolean repair(int cell) {
+        if (cell < 0 || !repairer.repairAround(cell)) {
+            return false;
+        }
 
-                var neighborCell = grid.getCell(nx, ny);
+        int[] block = repairer.block();
+        for (int i = 0; i < repairer.blockSize(); i++) {
+            selection.reopened(block[i]);
+        }
 
-                if (neighborCell.isEmpty()) {
-                    return;
+        if (learner != null) {
+            int kept = 0;
+            for (int i = 0; i < decisionCount; i++) {
+                if (!repairer.inBlock(decisionCells[i])) {
+                    decisionCells[kept] = decisionCells[i];
+                    decisionTiles[kept] = decisionTiles[i];
+                    kept++;
                 }
+            }
+            decisionCount = kept;
+        }
+        if (connectivity != null) {
+            connectivity.reset();
+        }
+        return true;
+    }
 
-                support.clear();
+    private void finish(Status result) {
+        status = result;
+        if (log != null) {
+            log.end(result);
+        }
+        grid.getWave().trackChanges(false);
+    }
 
-                for (int t = sourceDomain.nextSetBit(0); t >= 0; t = sourceDomain.nextSetBit(t + 1)) {
-                    support.or(ruleset.allowedMaskRef(t, dir));
-                }
+    /**
+     * Collapses the cell to a tile from its domain, chosen by the value heuristic.
+     * 
+     * @return True if the cell was collapsed; false if it was already collapsed or
+     *         the chosen tile was ruled out by a learned nogood and banned instead.
+     */
+    private boolean collapseAt(int x, int y) {
+        if (!grid.inBounds(x, y)) {
+            throw new IndexOutOfBoundsException("Coordinates out of bounds: (" + x + ", " + y + ")");
+        }
 
-                boolean changed = neighborCell.restrictTo(support);
+        Wave wave = grid.getWave();
+        int cell = grid.index(x, y);
+        int optionCount = wave.count(cell);
 
-                if (neighborCell.isEmpty()) {
-                    return;
-                }
+        if (optionCount == 0) {
+            throw new IllegalStateException("Cannot collapse an empty domain at (" + x + ", " + y + ")");
+        }
 
-                if(changed && !inQueue[nx][ny]) {
-                    queue.addLast(new Pos(nx, ny));
-                    inQueue[nx][ny] = true;
-                }
+        if (optionCount == 1) {
+            return false;
+        }
+
+        int chosenTileId = valueOrder.choose(cell, rng);
+
+        if (learner != null) {
+            if (learner.forbids(cell, chosenTileId)) {
+                learner.store().recordPrune();
+                wave.ban(cell, chosenTileId);
+                return false;
             }
+            recordDecision(cell, chosenTileId);
         }
+
+        wave.collapse(cell, chosenTileId);
+        return true;
     }
 
-    private Pos pickMinEntropyCellRandomTie() {
-        int minEntropy = Integer.MAX_VALUE;
-        List<Pos> candidates = new ArrayList<>();
-
-        for (int x = 0; x < grid.getWidth(); ++x) {
-            for (int y = 0; y < grid.getHeight(); ++y) {
-                var cell = grid.getCell(x, y);
-                int entropy = cell.optionsCount();
-
-                if (entropy > 1) {
-                    if (entropy < minEntropy) {
-                        minEntropy = entropy;
-                        candidates.clear();
-                        candidates.add(new Pos(x, y));
-                    } else if (entropy == minEntropy) {
-                        candidates.add(new Pos(x, y));
-                    }
-                }
-            }
+    private void recordDecision(int cell, int tile) {
+        if (decisionCount == decisionCells.length) {
+            decisionCells = Arrays.copyOf(decisionCells, decisionCount * 2);
+            decisionTiles = Arrays.copyOf(decisionTiles, decisionCount * 2);
         }
+        decisionCells[decisionCount] = cell;
+        decisionTiles[decisionCount] = tile;
+        decisionCount++;
+    }
 
-        if (candidates.isEmpty()) {
-            return null;
+    public void propagateFrom(int startX, int startY) {
+        if (!grid.inBounds(startX, startY)) {
+            throw new IndexOutOfBoundsException("Coordinates out of bounds: (" + startX + ", " + startY + ")");
         }
 
-        int r = rng.nextInt(candidates.size());
-        return candidates.get(r);
+        if (!propagator.propagateFrom(grid.index(startX, startY))) {
+            consistent = false;
+        }
     }
 }
@@ -0,0 +1,46 @@
+package com.rizikh.wfc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.rizikh.wfc.core.Topology;
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.Ruleset;
+
+/**
+ * Checks shared by the solver tests: a solved map has one tile per cell and
+ * every pair of neighbours is allowed by the ruleset.
+ */
+public final class Solutions {
+    private Solutions() {
+    }
+
+    public static void assertSolved(Grid grid, Ruleset ruleset) {
+        Wave wave = grid.getWave();
+        int[] tiles = new int[grid.cellCount()];
+        for (int cell = 0; cell < tiles.length; cell++) {
+            assertEquals("cell " + cell + " is not collapsed", 1, wave.count(cell));
+            tiles[cell] = wave.firstTile(cell);
+        }
+        assertValid(grid.getTopology(), tiles, ruleset);
+    }
+
+    /**
+     * @param tiles Tile id per cell, indexed like the topology.
+     */
+    public static void assertValid(Topology topology, int[] tiles, Ruleset ruleset) {
+        assertEquals(topology.cellCount(), tiles.length);
+        for (int cell = 0; cell < tiles.length; cell++) {
+            int tile = tiles[cell];
+            assertTrue("cell " + cell + " has no tile", tile >= 0 && tile < ruleset.tileCount());
+            for (int d = 0; d < topology.directionCount(); d++) {
+                int n = topology.neighbor(cell, d);
+                if (n >= 0) {
+                    assertTrue("tiles " + tile + " and " + tiles[n] + " may not meet at cell " + cell + " dir " + d,
+                            ruleset.allowedMaskRef(tile, d).get(tiles[n]));
+                }
+            }
+        }
+    }
+}
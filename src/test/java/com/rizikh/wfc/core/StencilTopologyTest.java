@@ -0,0 +1,73 @@
+package com.rizikh.wfc.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+
+public class StencilTopologyTest {
+
+    private static void assertMatchesCoordinates(Stencil stencil, int width, int height, boolean periodic) {
+        StencilTopology topology = new StencilTopology(stencil, width, height, periodic);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                for (int d = 0; d < stencil.size(); d++) {
+                    int nx = x + stencil.dx(d);
+                    int ny = y + stencil.dy(d);
+                    int expected;
+                    if (periodic) {
+                        expected = Math.floorMod(ny, height) * width + Math.floorMod(nx, width);
+                    } else {
+                        boolean inside = nx >= 0 && ny >= 0 && nx < width && ny < height;
+                        expected = inside ? ny * width + nx : -1;
+                    }
+                    assertEquals(width + "x" + height + " (" + x + ", " + y + ") dir " + d, expected,
+                            topology.neighbor(y * width + x, d));
+                }
+            }
+        }
+        TopologyTest.assertSymmetric(topology);
+    }
+
+    @Test
+    public void tablesMatchCoordinates() {
+        Stencil[] stencils = { Stencil.moore(), Stencil.diamond(2), Stencil.diamond(3) };
+        // Includes grids narrower than the stencil, where there is no interior
+        int[][] sizes = { { 9, 7 }, { 3, 2 }, { 1, 6 }, { 20, 3 } };
+        for (Stencil stencil : stencils) {
+            for (int[] size : sizes) {
+                assertMatchesCoordinates(stencil, size[0], size[1], false);
+                assertMatchesCoordinates(stencil, size[0], size[1], true);
+            }
+        }
+    }
+
+    @Test
+    public void vonNeumannMatchesSquareTopologies() {
+        assertArrayEquals(new BoundedTopology(8, 5).neighbors(),
+                new StencilTopology(Stencil.vonNeumann(), 8, 5, false).neighbors());
+        assertArrayEquals(new PeriodicTopology(8, 5).neighbors(),
+                new StencilTopology(Stencil.vonNeumann(), 8, 5, true).neighbors());
+    }
+
+    @Test
+    public void builtInStencilsKeepSquareDirectionsFirst() {
+        for (Stencil stencil : new Stencil[] { Stencil.moore(), Stencil.diamond(2) }) {
+            for (Direction d : Direction.values()) {
+                assertEquals(d.dx, stencil.dx(d.ordinal()));
+                assertEquals(d.dy, stencil.dy(d.ordinal()));
+            }
+        }
+        assertEquals(8, Stencil.moore().size());
+        for (int r = 1; r <= 4; r++) {
+            assertEquals(2 * r * (r + 1), Stencil.diamond(r).size());
+        }
+    }
+
+    @Test
+    public void rejectsOffsetsWithoutOpposite() {
+        assertThrows(IllegalArgumentException.class, () -> Stencil.of(new int[][] { { 1, 0 }, { 0, 1 } }));
+        assertThrows(IllegalArgumentException.class, () -> Stencil.of(new int[][] { { 0, 0 } }));
+    }
+}
@@ -0,0 +1,130 @@
+package com.rizikh.wfc.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.rizikh.wfc.Solutions;
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.rules.TerrainRuleset;
+import com.rizikh.wfc.solver.WfcSolver;
+
+public class TopologyTest {
+
+    // Every neighbour relation is mutual through the opposite direction.
+    static void assertSymmetric(Topology topology) {
+        for (int cell = 0; cell < topology.cellCount(); cell++) {
+            for (int d = 0; d < topology.directionCount(); d++) {
+                int n = topology.neighbor(cell, d);
+                if (n >= 0) {
+                    assertEquals("cell " + cell + " dir " + d, cell, topology.neighbor(n, topology.opposite(d)));
+                }
+                assertEquals(d, topology.opposite(topology.opposite(d)));
+            }
+        }
+    }
+
+    @Test
+    public void boundedMatchesCoordinates() {
+        int width = 7;
+        int height = 5;
+        Topology topology = new BoundedTopology(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int cell = y * width + x;
+                for (Direction d : Direction.values()) {
+                    int nx = x + d.dx;
+                    int ny = y + d.dy;
+                    boolean inside = nx >= 0 && ny >= 0 && nx < width && ny < height;
+                    assertEquals(inside ? ny * width + nx : -1, topology.neighbor(cell, d.ordinal()));
+                }
+            }
+        }
+        // North is y + 1
+        assertEquals(-1, topology.neighbor(0, Direction.SOUTH.ordinal()));
+        assertEquals(width, topology.neighbor(0, Direction.NORTH.ordinal()));
+        assertSymmetric(topology);
+    }
+
+    @Test
+    public void periodicWrapsBothAxes() {
+        int width = 6;
+        int height = 4;
+        Topology topology = new PeriodicTopology(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                for (Direction d : Direction.values()) {
+                    int nx = Math.floorMod(x + d.dx, width);
+                    int ny = Math.floorMod(y + d.dy, height);
+                    assertEquals(ny * width + nx, topology.neighbor(y * width + x, d.ordinal()));
+                }
+            }
+        }
+        assertSymmetric(topology);
+    }
+
+    @Test
+    public void hexNeighboursAreOneCellApart() {
+        // Cell centres: odd rows shifted half a cell east, rows sqrt(3)/2 apart
+        int width = 9;
+        int height = 8;
+        Topology topology = new HexTopology(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double cx = x + 0.5 * (y & 1);
+                for (int d = 0; d < 6; d++) {
+                    double angle = Math.toRadians(60 * d);
+                    int ny = y + (int) Math.round(Math.sin(angle) / (Math.sqrt(3) / 2));
+                    int nx = (int) Math.round(cx + Math.cos(angle) - 0.5 * (ny & 1));
+                    boolean inside = nx >= 0 && ny >= 0 && nx < width && ny < height;
+                    assertEquals("(" + x + ", " + y + ") dir " + d, inside ? ny * width + nx : -1,
+                            topology.neighbor(y * width + x, d));
+                }
+            }
+        }
+        assertSymmetric(topology);
+    }
+
+    @Test
+    public void cubeLinksLayers() {
+        CubeTopology topology = new CubeTopology(4, 3, 5);
+        assertEquals(4 * 3 * 5, topology.cellCount());
+        for (int z = 0; z < 5; z++) {
+            for (int y = 0; y < 3; y++) {
+                for (int x = 0; x < 4; x++) {
+                    int cell = topology.index(x, y, z);
+                    for (Direction d : Direction.values()) {
+                        int nx = x + d.dx;
+                        int ny = y + d.dy;
+                        boolean inside = nx >= 0 && ny >= 0 && nx < 4 && ny < 3;
+                        assertEquals(inside ? topology.index(nx, ny, z) : -1, topology.neighbor(cell, d.ordinal()));
+                    }
+                    assertEquals(z < 4 ? topology.index(x, y, z + 1) : -1, topology.neighbor(cell, CubeTopology.UP));
+                    assertEquals(z > 0 ? topology.index(x, y, z - 1) : -1,
+                            topology.neighbor(cell, CubeTopology.DOWN));
+                }
+            }
+        }
+        assertSymmetric(topology);
+    }
+
+    @Test
+    public void periodicSolvesTileSeamlessly() {
+        TerrainRuleset ruleset = new TerrainRuleset();
+        Grid grid = new Grid(new PeriodicTopology(24, 16), ruleset.tileCount());
+        WfcSolver solver = new WfcSolver(grid, ruleset);
+        int solved = 0;
+        for (long seed = 0; seed < 5; seed++) {
+            solver.reset(seed);
+            while (solver.step()) {
+            }
+            if (solver.isSolved()) {
+                // Checks the wrapped pairs too
+                Solutions.assertSolved(grid, ruleset);
+                solved++;
+            }
+        }
+        assertTrue(solved > 0);
+    }
+}
@@ -0,0 +1,85 @@
+package com.rizikh.wfc.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DomainKernelTest {
+
+    private static long[] randomWords(Random rng, int length) {
+        long[] words = new long[length];
+        for (int i = 0; i < length; i++) {
+            // Mix of empty, full and random words
+            words[i] = switch (rng.nextInt(4)) {
+                case 0 -> 0L;
+                case 1 -> -1L;
+                default -> rng.nextLong();
+            };
+        }
+        return words;
+    }
+
+    // Every length around the vector width, at odd offsets, against the scalar kernel.
+    private static void assertMatchesScalar(DomainKernel kernel) {
+        DomainKernel scalar = DomainKernel.scalar();
+        Random rng = new Random(5);
+        for (int len = 0; len <= 40; len++) {
+            for (int round = 0; round < 20; round++) {
+                int dstOff = rng.nextInt(5);
+                int srcOff = rng.nextInt(5);
+                long[] dst = randomWords(rng, dstOff + len + 3);
+                long[] src = randomWords(rng, srcOff + len + 3);
+
+                long[] expected = dst.clone();
+                long[] actual = dst.clone();
+                scalar.or(expected, dstOff, src, srcOff, len);
+                kernel.or(actual, dstOff, src, srcOff, len);
+                assertArrayEquals("or len " + len, expected, actual);
+
+                expected = dst.clone();
+                actual = dst.clone();
+                assertEquals("and len " + len, scalar.and(expected, dstOff, src, srcOff, len),
+                        kernel.and(actual, dstOff, src, srcOff, len));
+                assertArrayEquals("and len " + len, expected, actual);
+
+                // A mask covering dst changes nothing
+                long[] covering = new long[srcOff + len];
+                Arrays.fill(covering, -1L);
+                assertFalse(kernel.and(actual, dstOff, covering, srcOff, len));
+
+                assertEquals("popcount len " + len, scalar.popcount(src, srcOff, len),
+                        kernel.popcount(src, srcOff, len));
+            }
+        }
+    }
+
+    @Test
+    public void scalarKernelIsExact() {
+        long[] dst = { 0b1100L, 0L, -1L };
+        assertTrue(DomainKernel.scalar().and(dst, 0, new long[] { 0b0100L, 0L, -1L }, 0, 3));
+        assertArrayEquals(new long[] { 0b0100L, 0L, -1L }, dst);
+        assertEquals(65, DomainKernel.scalar().popcount(dst, 0, 3));
+    }
+
+    @Test
+    public void vectorKernelMatchesScalar() {
+        assumeTrue(DomainKernel.isVectorAvailable());
+        assertMatchesScalar(DomainKernel.vector());
+    }
+
+    @Test
+    public void chosenKernelMatchesScalar() {
+        for (int words = 1; words <= 16; words++) {
+            assertMatchesScalar(DomainKernel.forWords(words));
+        }
+        assertSame(DomainKernel.scalar(), DomainKernel.forWords(1));
+    }
+}
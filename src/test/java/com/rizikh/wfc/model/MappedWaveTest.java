@@ -0,0 +1,76 @@
+package com.rizikh.wfc.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.rizikh.wfc.rules.TerrainRuleset;
+import com.rizikh.wfc.solver.StorageSolver;
+
+public class MappedWaveTest {
+    private static final long BLOCK_BYTES = 32 * 32 * 8;
+
+    private Path file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = Files.createTempFile("wave", ".bin");
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void matchesWaveOnNonSquareMaps() throws IOException {
+        int[][] sizes = { { 70, 45 }, { 33, 300 }, { 500, 20 } };
+        for (int[] size : sizes) {
+            Wave wave = new Wave(size[0] * size[1], 100);
+            try (MappedWave mapped = new MappedWave(file, size[0], size[1], 100)) {
+                StorageChecks.assertSameDomains(wave, mapped);
+                StorageChecks.scramble(wave, mapped, size[0]);
+                StorageChecks.assertSameDomains(wave, mapped);
+
+                wave.fill();
+                mapped.fill();
+                StorageChecks.assertSameDomains(wave, mapped);
+            }
+        }
+    }
+
+    @Test
+    public void solvesLikeWave() throws IOException {
+        TerrainRuleset ruleset = new TerrainRuleset();
+        Wave wave = new Wave(96 * 40, ruleset.tileCount());
+        try (MappedWave mapped = new MappedWave(file, 96, 40, ruleset.tileCount())) {
+            assertTrue(new StorageSolver(wave, 96, 40, ruleset, 5).solve(20));
+            assertTrue(new StorageSolver(mapped, 96, 40, ruleset, 5).solve(20));
+            StorageChecks.assertSameDomains(wave, mapped);
+        }
+    }
+
+    @Test
+    public void fileGrowsWithAreaOnElongatedMaps() throws IOException {
+        // One tile word per cell, so a block is BLOCK_BYTES
+        try (MappedWave tall = new MappedWave(file, 32, 32 * 256, 1)) {
+            assertEquals(32 * 32 * 256, tall.cellCount());
+            assertEquals(256 * BLOCK_BYTES, Files.size(file));
+        }
+        try (MappedWave wide = new MappedWave(file, 32 * 1000, 32 * 3, 1)) {
+            assertEquals(32 * 1000 * 32 * 3, wide.cellCount());
+            assertTrue(Files.size(file) <= 2 * 1000 * 3 * BLOCK_BYTES);
+        }
+        try (MappedWave square = new MappedWave(file, 32 * 64, 32 * 64, 1)) {
+            assertEquals(32 * 64 * 32 * 64, square.cellCount());
+            assertEquals(64 * 64 * BLOCK_BYTES, Files.size(file));
+        }
+    }
+}
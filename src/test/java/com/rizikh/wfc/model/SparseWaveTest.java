@@ -0,0 +1,63 @@
+package com.rizikh.wfc.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.rizikh.wfc.rules.TerrainRuleset;
+import com.rizikh.wfc.solver.StorageSolver;
+
+public class SparseWaveTest {
+
+    @Test
+    public void matchesWaveUnderRandomEdits() {
+        int[][] sizes = { { 70, 45 }, { 1, 100 }, { 100, 1 } };
+        for (int[] size : sizes) {
+            for (int tiles : new int[] { 1, 33, 100 }) {
+                Wave wave = new Wave(size[0] * size[1], tiles);
+                SparseWave sparse = new SparseWave(size[0], size[1], tiles);
+                StorageChecks.assertSameDomains(wave, sparse);
+                StorageChecks.scramble(wave, sparse, tiles);
+                StorageChecks.assertSameDomains(wave, sparse);
+
+                // Refilled blocks come back from the free list and must look fresh
+                wave.fill();
+                sparse.fill();
+                StorageChecks.assertSameDomains(wave, sparse);
+                StorageChecks.scramble(wave, sparse, tiles + 1);
+                StorageChecks.assertSameDomains(wave, sparse);
+            }
+        }
+    }
+
+    @Test
+    public void allocatesOnlyTouchedBlocks() {
+        SparseWave sparse = new SparseWave(256, 256, 40);
+        long[] full = { (1L << 40) - 1 };
+        assertFalse(sparse.and(1000, full, 0));
+        assertEquals(0, sparse.allocatedBlocks());
+
+        assertTrue(sparse.ban(1000, 39));
+        assertEquals(1, sparse.allocatedBlocks());
+
+        sparse.collapse(256 * 200 + 200, 3);
+        assertEquals(2, sparse.allocatedBlocks());
+        assertTrue(sparse.contains(256 * 200 + 200, 3));
+
+        sparse.fill();
+        assertEquals(0, sparse.allocatedBlocks());
+        assertEquals(40, sparse.count(256 * 200 + 200));
+    }
+
+    @Test
+    public void solvesLikeWave() {
+        TerrainRuleset ruleset = new TerrainRuleset();
+        Wave wave = new Wave(80 * 50, ruleset.tileCount());
+        SparseWave sparse = new SparseWave(80, 50, ruleset.tileCount());
+        assertTrue(new StorageSolver(wave, 80, 50, ruleset, 8).solve(20));
+        assertTrue(new StorageSolver(sparse, 80, 50, ruleset, 8).solve(20));
+        StorageChecks.assertSameDomains(wave, sparse);
+    }
+}
@@ -0,0 +1,61 @@
+package com.rizikh.wfc.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+/**
+ * Comparisons between wave storages, which must behave alike whatever
+ * their layout.
+ */
+final class StorageChecks {
+    private StorageChecks() {
+    }
+
+    static void assertSameDomains(WaveStorage expected, WaveStorage actual) {
+        assertEquals(expected.cellCount(), actual.cellCount());
+        int words = expected.wordsPerCell();
+        long[] a = new long[words];
+        long[] b = new long[words];
+        for (int cell = 0; cell < expected.cellCount(); cell++) {
+            expected.readDomain(cell, a, 0);
+            actual.readDomain(cell, b, 0);
+            assertArrayEquals("cell " + cell, a, b);
+            assertEquals(expected.count(cell), actual.count(cell));
+            assertEquals(expected.firstTile(cell), actual.firstTile(cell));
+            assertEquals(expected.isEmpty(cell), actual.isEmpty(cell));
+        }
+    }
+
+    // The same random bans, masks and collapses applied to both storages.
+    static void scramble(WaveStorage reference, WaveStorage other, long seed) {
+        Random rng = new Random(seed);
+        int tiles = reference.tileCount();
+        long[] mask = new long[reference.wordsPerCell()];
+        for (int i = 0; i < reference.cellCount() * 2; i++) {
+            int cell = rng.nextInt(reference.cellCount());
+            switch (rng.nextInt(4)) {
+                case 0 -> {
+                    int tile = rng.nextInt(tiles);
+                    assertEquals(reference.ban(cell, tile), other.ban(cell, tile));
+                }
+                case 1 -> {
+                    for (int w = 0; w < mask.length; w++) {
+                        mask[w] = rng.nextLong() | rng.nextLong();
+                    }
+                    assertEquals(reference.and(cell, mask, 0), other.and(cell, mask, 0));
+                }
+                case 2 -> {
+                    int tile = rng.nextInt(tiles);
+                    reference.collapse(cell, tile);
+                    other.collapse(cell, tile);
+                }
+                default -> {
+                    int tile = rng.nextInt(tiles);
+                    assertEquals(reference.contains(cell, tile), other.contains(cell, tile));
+                }
+            }
+        }
+    }
+}
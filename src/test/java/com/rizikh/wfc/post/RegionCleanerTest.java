@@ -0,0 +1,78 @@
+package com.rizikh.wfc.post;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.function.IntUnaryOperator;
+
+import org.junit.Test;
+
+import com.rizikh.wfc.Solutions;
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.rules.TerrainRuleset;
+import com.rizikh.wfc.solver.WfcSolver;
+import com.rizikh.wfc.tiles.TerrainTile;
+
+public class RegionCleanerTest {
+    private static final int SIZE = 64;
+    private static final int MIN_SIZE = 6;
+
+    private final TerrainRuleset terrain = new TerrainRuleset();
+    // Base tiles are biomes; transition tiles are not counted as regions
+    private final IntUnaryOperator classOf = t -> t <= TerrainTile.FOREST_TREES.ordinal() ? t : -1;
+
+    private int[] solvedMap(long seed) {
+        Grid grid = new Grid(SIZE, SIZE, terrain.tileCount());
+        WfcSolver solver = new WfcSolver(grid, terrain);
+        solver.reset(seed);
+        while (solver.step()) {
+        }
+        assertTrue(solver.isSolved());
+
+        int[] tiles = new int[grid.cellCount()];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = grid.getWave().firstTile(i);
+        }
+        return tiles;
+    }
+
+    private int smallRegions(int[] tiles) {
+        RegionLabels regions = RegionLabeler.label(tiles, SIZE, SIZE, classOf);
+        int small = 0;
+        for (int r = 0; r < regions.regionCount(); r++) {
+            if (regions.size(r) < MIN_SIZE) {
+                small++;
+            }
+        }
+        return small;
+    }
+
+    @Test
+    public void cleanedMapsStayValidWithFewerSmallRegions() {
+        Grid grid = new Grid(SIZE, SIZE, terrain.tileCount());
+        int replacedTotal = 0;
+        for (long seed = 0; seed < 4; seed++) {
+            int[] tiles = solvedMap(seed);
+            int before = smallRegions(tiles);
+
+            int replaced = new RegionCleaner(terrain, classOf, MIN_SIZE, seed).clean(tiles, SIZE, SIZE);
+            Solutions.assertValid(grid.getTopology(), tiles, terrain);
+            if (replaced > 0) {
+                assertTrue(smallRegions(tiles) < before);
+            }
+            replacedTotal += replaced;
+        }
+        assertTrue("no small region was replaced", replacedTotal > 0);
+    }
+
+    @Test
+    public void sameSeedSameResult() {
+        for (long seed = 0; seed < 3; seed++) {
+            int[] first = solvedMap(seed);
+            int[] second = first.clone();
+            new RegionCleaner(terrain, classOf, MIN_SIZE, 42).clean(first, SIZE, SIZE);
+            new RegionCleaner(terrain, classOf, MIN_SIZE, 42).clean(second, SIZE, SIZE);
+            assertArrayEquals(first, second);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.rizikh.wfc.post;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+
+import org.junit.Test;
+
+public class RegionLabelerTest {
+    // Tiles 0..2 are classes 0..2; tile 3 is no region.
+    private static final IntUnaryOperator CLASS_OF = t -> t < 3 ? t : -1;
+
+    // Breadth-first labelling, regions numbered in order of their first cell.
+    private static int[] referenceLabels(int[] tiles, int width, int height) {
+        int[] labels = new int[tiles.length];
+        Arrays.fill(labels, -1);
+        int[] queue = new int[tiles.length];
+        int next = 0;
+        for (int start = 0; start < tiles.length; start++) {
+            int cls = CLASS_OF.applyAsInt(tiles[start]);
+            if (cls < 0 || labels[start] >= 0) {
+                continue;
+            }
+            int tail = 0;
+            queue[tail++] = start;
+            labels[start] = next;
+            for (int head = 0; head < tail; head++) {
+                int c = queue[head];
+                int x = c % width;
+                int y = c / width;
+                int[] neighbors = { x > 0 ? c - 1 : -1, x < width - 1 ? c + 1 : -1, y > 0 ? c - width : -1,
+                        y < height - 1 ? c + width : -1 };
+                for (int n : neighbors) {
+                    if (n >= 0 && labels[n] < 0 && CLASS_OF.applyAsInt(tiles[n]) == cls) {
+                        labels[n] = next;
+                        queue[tail++] = n;
+                    }
+                }
+            }
+            next++;
+        }
+        return labels;
+    }
+
+    // Same partition up to renaming, plus matching sizes and classes.
+    private static void assertSamePartition(int[] tiles, int[] expected, RegionLabels actual) {
+        int[] labels = actual.labels();
+        int regions = Arrays.stream(expected).max().orElse(-1) + 1;
+        assertEquals(regions, actual.regionCount());
+
+        int[] renamed = new int[regions];
+        Arrays.fill(renamed, -1);
+        int[] sizes = new int[regions];
+        for (int i = 0; i < tiles.length; i++) {
+            if (expected[i] < 0) {
+                assertEquals(-1, labels[i]);
+                continue;
+            }
+            if (renamed[expected[i]] < 0) {
+                renamed[expected[i]] = labels[i];
+            }
+            assertEquals("cell " + i, renamed[expected[i]], labels[i]);
+            assertEquals(CLASS_OF.applyAsInt(tiles[i]), actual.regionClass(labels[i]));
+            sizes[expected[i]]++;
+        }
+        for (int r = 0; r < regions; r++) {
+            assertEquals(sizes[r], actual.size(renamed[r]));
+        }
+    }
+
+    @Test
+    public void matchesReferenceOnRandomMaps() {
+        Random rng = new Random(11);
+        int[][] sizes = { { 1, 1 }, { 1, 50 }, { 50, 1 }, { 37, 23 }, { 200, 150 } };
+        for (int[] size : sizes) {
+            int width = size[0];
+            int height = size[1];
+            for (int round = 0; round < 3; round++) {
+                // Biased toward runs of one tile so regions span many rows and bands
+                int[] tiles = new int[width * height];
+                for (int i = 0; i < tiles.length; i++) {
+                    tiles[i] = i > 0 && rng.nextInt(4) != 0 ? tiles[i - 1] : rng.nextInt(4);
+                    if (i >= width && rng.nextInt(3) == 0) {
+                        tiles[i] = tiles[i - width];
+                    }
+                }
+                assertSamePartition(tiles, referenceLabels(tiles, width, height),
+                        RegionLabeler.label(tiles, width, height, CLASS_OF));
+            }
+        }
+    }
+
+    @Test
+    public void spiralIsOneRegion() {
+        // A one-cell-wide spiral crosses every band seam several times
+        int n = 41;
+        int[] tiles = new int[n * n];
+        Arrays.fill(tiles, 3);
+        int x = 0;
+        int y = 0;
+        int[][] steps = { { 1, 0 }, { 0, 1 }, { -1, 0 }, { 0, -1 } };
+        int dir = 0;
+        int minX = 0;
+        int minY = 0;
+        int maxX = n - 1;
+        int maxY = n - 1;
+        while (minX <= maxX && minY <= maxY) {
+            tiles[y * n + x] = 1;
+            int nx = x + steps[dir][0];
+            int ny = y + steps[dir][1];
+            if (nx < minX || nx > maxX || ny < minY || ny > maxY) {
+                if (dir == 0) {
+                    minY += 2;
+                } else if (dir == 1) {
+                    maxX -= 2;
+                } else if (dir == 2) {
+                    maxY -= 2;
+                } else {
+                    minX += 2;
+                }
+                dir = (dir + 1) & 3;
+                nx = x + steps[dir][0];
+                ny = y + steps[dir][1];
+                if (nx < minX || nx > maxX || ny < minY || ny > maxY) {
+                    break;
+                }
+            }
+            x = nx;
+            y = ny;
+        }
+
+        RegionLabels regions = RegionLabeler.label(tiles, n, n, CLASS_OF);
+        assertSamePartition(tiles, referenceLabels(tiles, n, n), regions);
+        assertEquals(1, regions.regionCount());
+    }
+
+    @Test
+    public void rejectsMismatchedSize() {
+        assertThrows(IllegalArgumentException.class, () -> RegionLabeler.label(new int[5], 2, 3, CLASS_OF));
+    }
+}
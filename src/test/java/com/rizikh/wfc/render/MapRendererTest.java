@@ -0,0 +1,130 @@
+package com.rizikh.wfc.render;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MapRendererTest {
+    private static final int TILES = 5;
+
+    // Opaque pixel that names its tile, row and column
+    private static int pixel(int tile, int row, int column) {
+        return 0xFF000000 | tile << 16 | row << 8 | column;
+    }
+
+    private static TileAtlas labelled(int tileSize) {
+        BufferedImage[] images = new BufferedImage[TILES];
+        for (int t = 0; t < TILES; t++) {
+            images[t] = new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_INT_ARGB);
+            for (int r = 0; r < tileSize; r++) {
+                for (int c = 0; c < tileSize; c++) {
+                    images[t].setRGB(c, r, pixel(t, r, c));
+                }
+            }
+        }
+        return TileAtlas.fromImages(images, tileSize);
+    }
+
+    private static int[] randomTiles(int width, int height, long seed) {
+        Random rng = new Random(seed);
+        int[] tiles = new int[width * height];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = rng.nextInt(TILES);
+        }
+        return tiles;
+    }
+
+    @Test
+    public void cellsLandWhereTheyBelongWithYUp() {
+        int ts = 3;
+        int width = 7;
+        int height = 4;
+        int[] tiles = randomTiles(width, height, 1);
+        int[] raster = new int[width * ts * height * ts];
+        new MapRenderer(labelled(ts)).renderInto(tiles, width, height, raster);
+
+        for (int py = 0; py < height * ts; py++) {
+            for (int px = 0; px < width * ts; px++) {
+                // Image row 0 shows cell row height - 1
+                int y = height - 1 - py / ts;
+                int x = px / ts;
+                assertEquals("pixel (" + px + ", " + py + ")", pixel(tiles[y * width + x], py % ts, px % ts),
+                        raster[py * width * ts + px]);
+            }
+        }
+    }
+
+    @Test
+    public void streamedBytesMatchTheRenderedImage() throws IOException {
+        // 4096 pixels per cell row against 2^22 per stripe: three stripes, the last partial
+        int ts = 8;
+        int width = 64;
+        int height = 2500;
+        int[] tiles = randomTiles(width, height, 2);
+        MapRenderer renderer = new MapRenderer(labelled(ts));
+
+        BufferedImage image = renderer.render(tiles, width, height);
+        int[] argb = image.getRGB(0, 0, width * ts, height * ts, null, 0, width * ts);
+        byte[] expected = new byte[argb.length * 3];
+        for (int i = 0; i < argb.length; i++) {
+            expected[3 * i] = (byte) (argb[i] >>> 16);
+            expected[3 * i + 1] = (byte) (argb[i] >>> 8);
+            expected[3 * i + 2] = (byte) argb[i];
+        }
+
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        renderer.writeRaw(tiles, width, height, raw);
+        assertArrayEquals(expected, raw.toByteArray());
+
+        ByteArrayOutputStream ppm = new ByteArrayOutputStream();
+        renderer.writePpm(tiles, width, height, ppm);
+        byte[] header = ("P6\n" + width * ts + " " + height * ts + "\n255\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] bytes = ppm.toByteArray();
+        assertArrayEquals(header, Arrays.copyOf(bytes, header.length));
+        assertArrayEquals(expected, Arrays.copyOfRange(bytes, header.length, bytes.length));
+    }
+
+    @Test
+    public void imageTypeFollowsAtlasOpacity() {
+        assertTrue(TileAtlas.palette(TILES, 2).isOpaque());
+        MapRenderer opaque = new MapRenderer(labelled(2));
+        assertEquals(BufferedImage.TYPE_INT_RGB, opaque.render(new int[] { 0, 1 }, 2, 1).getType());
+
+        BufferedImage clear = new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB);
+        TileAtlas translucent = TileAtlas.fromImages(new BufferedImage[] { clear }, 2);
+        assertFalse(translucent.isOpaque());
+        assertEquals(BufferedImage.TYPE_INT_ARGB,
+                new MapRenderer(translucent).render(new int[] { 0 }, 1, 1).getType());
+    }
+
+    @Test
+    public void rejectsMalformedMaps() {
+        MapRenderer renderer = new MapRenderer(labelled(2));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int bad : new int[] { -1, TILES }) {
+            int[] tiles = { 0, bad, 1, 2 };
+            assertThrows(IllegalArgumentException.class, () -> renderer.render(tiles, 2, 2));
+            assertThrows(IllegalArgumentException.class, () -> renderer.renderInto(tiles, 2, 2, new int[16]));
+            assertThrows(IllegalArgumentException.class, () -> renderer.writeRaw(tiles, 2, 2, out));
+            assertThrows(IllegalArgumentException.class, () -> renderer.writePpm(tiles, 2, 2, out));
+        }
+        assertEquals(0, out.size());
+
+        assertThrows(IllegalArgumentException.class, () -> renderer.render(new int[3], 2, 2));
+        assertThrows(IllegalArgumentException.class, () -> renderer.renderInto(new int[4], 2, 2, new int[15]));
+        assertThrows(IllegalArgumentException.class, () -> TileAtlas.palette(0, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> TileAtlas.fromImages(new BufferedImage[] { null }, 2));
+    }
+}
@@ -0,0 +1,131 @@
+package com.rizikh.wfc.rules;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.solver.QueuePropagator;
+import com.rizikh.wfc.solver.WfcSolver;
+
+public class CompiledRulesetTest {
+    private static final int TILES = 300;
+
+    /**
+     * Tile 0 meets everything; every other tile meets tile 0 and a few
+     * shifted ids, so its entries compile sparse and tile 0's stay dense.
+     */
+    private static Ruleset sparseRuleset() {
+        int[][] offsets = { { 0, 1, 7 }, { 0, 3 } };
+        BitSet[][] allowed = new BitSet[TILES][4];
+        for (int t = 0; t < TILES; t++) {
+            for (int d = 0; d < 4; d++) {
+                allowed[t][d] = new BitSet(TILES);
+            }
+        }
+        for (int a = 0; a < TILES; a++) {
+            // dir is N or E, opposite S or W
+            for (int dir = 0; dir < 2; dir++) {
+                int opposite = dir + 2;
+                for (int offset : offsets[dir]) {
+                    int b = (a + offset) % TILES;
+                    allowed[a][dir].set(b);
+                    allowed[b][opposite].set(a);
+                }
+                allowed[0][dir].set(a);
+                allowed[a][opposite].set(0);
+                allowed[a][dir].set(0);
+                allowed[0][opposite].set(a);
+            }
+        }
+        return new Ruleset() {
+            @Override
+            public int tileCount() {
+                return TILES;
+            }
+
+            @Override
+            public BitSet allowedMaskRef(int tileId, int dir) {
+                return allowed[tileId][dir];
+            }
+        };
+    }
+
+    @Test
+    public void sparseEntriesAnswerLikeDenseOnes() {
+        Ruleset ruleset = sparseRuleset();
+        CompiledRuleset mixed = CompiledRuleset.compile(ruleset);
+        CompiledRuleset dense = CompiledRuleset.compileDense(ruleset);
+        assertFalse(mixed.isSparse(0, 0));
+        assertTrue(mixed.isSparse(5, 0));
+        assertTrue(mixed.footprintBytes() < dense.footprintBytes());
+
+        int words = mixed.wordsPerMask();
+        long[] a = new long[words];
+        long[] b = new long[words];
+        Random rng = new Random(1);
+        long[] domain = new long[words];
+        for (int t = 0; t < TILES; t++) {
+            for (int d = 0; d < 4; d++) {
+                assertFalse(dense.isSparse(t, d));
+                mixed.maskInto(t, d, a, 0);
+                dense.maskInto(t, d, b, 0);
+                assertArrayEquals(b, a);
+                assertArrayEquals(ruleset.allowedMaskRef(t, d).toLongArray(),
+                        BitSet.valueOf(a).toLongArray());
+
+                for (int other = 0; other < TILES; other += 13) {
+                    assertEquals(dense.allows(t, d, other), mixed.allows(t, d, other));
+                }
+
+                for (int w = 0; w < words; w++) {
+                    domain[w] = rng.nextLong() & rng.nextLong();
+                }
+                domain[words - 1] &= (1L << (TILES & 63)) - 1;
+                assertEquals(dense.supportCount(t, d, domain, 0), mixed.supportCount(t, d, domain, 0));
+            }
+        }
+
+        for (int i = 0; i < 200; i++) {
+            for (int w = 0; w < words; w++) {
+                // Sparse domains, so supports stop short of the full set
+                domain[w] = rng.nextLong() & rng.nextLong() & rng.nextLong() & rng.nextLong();
+            }
+            domain[words - 1] &= (1L << (TILES & 63)) - 1;
+            for (int d = 0; d < 4; d++) {
+                mixed.supportInto(domain, 0, d, a);
+                dense.supportInto(domain, 0, d, b);
+                assertArrayEquals(b, a);
+            }
+        }
+    }
+
+    @Test
+    public void sparseAndDenseSolvesAgree() {
+        Ruleset ruleset = sparseRuleset();
+        CompiledRuleset mixed = CompiledRuleset.compile(ruleset);
+        CompiledRuleset dense = CompiledRuleset.compileDense(ruleset);
+        for (long seed = 0; seed < 4; seed++) {
+            Grid first = new Grid(24, 24, TILES);
+            WfcSolver sparseSolver = new WfcSolver(first, ruleset, new QueuePropagator(first, mixed));
+            sparseSolver.reset(seed);
+            while (sparseSolver.step()) {
+            }
+
+            Grid second = new Grid(24, 24, TILES);
+            WfcSolver denseSolver = new WfcSolver(second, ruleset, new QueuePropagator(second, dense));
+            denseSolver.reset(seed);
+            while (denseSolver.step()) {
+            }
+
+            assertEquals(denseSolver.getStatus(), sparseSolver.getStatus());
+            assertArrayEquals(second.getWave().words(), first.getWave().words());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.rizikh.wfc.rules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.rizikh.wfc.Solutions;
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.solver.WeightedValueHeuristic;
+import com.rizikh.wfc.solver.WfcSolver;
+
+public class CompressedRulesetTest {
+    private final TerrainRuleset terrain = new TerrainRuleset();
+
+    @Test
+    public void mergesOnlyIndistinguishableTiles() {
+        CompressedRuleset compressed = CompressedRuleset.compress(terrain);
+        assertEquals(terrain.tileCount() - 1, compressed.classCount());
+
+        int seen = 0;
+        for (int c = 0; c < compressed.classCount(); c++) {
+            int[] members = compressed.members(c);
+            seen += members.length;
+            for (int tile : members) {
+                assertEquals(c, compressed.classOf(tile));
+                for (int d = 0; d < terrain.directionCount(); d++) {
+                    assertEquals(terrain.allowedMaskRef(members[0], d), terrain.allowedMaskRef(tile, d));
+                    for (int other = 0; other < terrain.tileCount(); other++) {
+                        assertEquals(terrain.allowedMaskRef(other, d).get(members[0]),
+                                terrain.allowedMaskRef(other, d).get(tile));
+                    }
+                }
+            }
+        }
+        assertEquals(terrain.tileCount(), seen);
+    }
+
+    @Test
+    public void expandedMapsAreValid() {
+        CompressedRuleset compressed = CompressedRuleset.compress(terrain);
+        WfcSolver solver = new WfcSolver(new Grid(24, 24, compressed.tileCount()), compressed);
+        Random rng = new Random(7);
+        for (long seed = 0; seed < 5; seed++) {
+            solver.reset(seed);
+            while (solver.step()) {
+            }
+            assertTrue(solver.isSolved());
+            Solutions.assertValid(solver.getGrid().getTopology(), compressed.expand(solver.getGrid(), rng), terrain);
+        }
+    }
+
+    @Test
+    public void weightedSolvesKeepSourceDistribution() {
+        CompressedRuleset compressed = CompressedRuleset.compress(terrain);
+        WfcSolver solver = new WfcSolver(new Grid(1, 1, compressed.tileCount()), compressed);
+        solver.setValueHeuristic(new WeightedValueHeuristic());
+        Random rng = new Random(3);
+
+        int runs = 64_000;
+        int[] counts = new int[terrain.tileCount()];
+        for (int i = 0; i < runs; i++) {
+            solver.reset(i);
+            while (solver.step()) {
+            }
+            counts[compressed.expand(solver.getGrid(), rng)[0]]++;
+        }
+
+        // Terrain tiles weigh the same, merged ones included
+        double expected = (double) runs / terrain.tileCount();
+        for (int t = 0; t < counts.length; t++) {
+            assertEquals("tile " + t, expected, counts[t], expected * 0.15);
+        }
+    }
+
+    @Test
+    public void expandRejectsGridOfSourceTiles() {
+        CompressedRuleset compressed = CompressedRuleset.compress(terrain);
+        Grid grid = new Grid(4, 4, terrain.tileCount());
+        assertThrows(IllegalArgumentException.class, () -> compressed.expand(grid, new Random()));
+    }
+}
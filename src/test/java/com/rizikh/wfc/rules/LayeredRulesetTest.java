@@ -0,0 +1,137 @@
+package com.rizikh.wfc.rules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.rizikh.wfc.Solutions;
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.solver.WfcSolver;
+import com.rizikh.wfc.tiles.RoadTile;
+import com.rizikh.wfc.tiles.TerrainTile;
+
+public class LayeredRulesetTest {
+    private static final int SIZE = 16;
+
+    private final TerrainRuleset terrain = new TerrainRuleset();
+    private final RoadRuleset roads = new RoadRuleset();
+    private final LayeredRuleset layered = LayeredRuleset.terrainWithRoads();
+
+    private boolean crossAllowed(int tile, int road) {
+        return road == RoadTile.BLANK.ordinal() || terrain.biomeOf(tile) != TerrainTile.DEEPWATER.ordinal();
+    }
+
+    @Test
+    public void jointTilesAreExactlyTheCompatiblePairs() {
+        int joint = 0;
+        for (int t = 0; t < terrain.tileCount(); t++) {
+            for (int r = 0; r < roads.tileCount(); r++) {
+                int j = layered.jointTile(t, r);
+                if (crossAllowed(t, r)) {
+                    assertEquals(t, layered.layerTile(j, 0));
+                    assertEquals(r, layered.layerTile(j, 1));
+                    joint++;
+                } else {
+                    assertEquals(-1, j);
+                }
+            }
+        }
+        assertEquals(joint, layered.tileCount());
+        assertTrue(layered instanceof EdgeRuleset);
+        assertThrows(IllegalArgumentException.class, () -> layered.jointTile(0));
+    }
+
+    @Test
+    public void solvedLayersAreEachValid() {
+        WfcSolver solver = new WfcSolver(new Grid(SIZE, SIZE, layered.tileCount()), layered);
+        for (long seed = 0; seed < 4; seed++) {
+            solver.reset(seed);
+            while (solver.step()) {
+            }
+            assertEquals("seed " + seed, WfcSolver.Status.SOLVED, solver.getStatus());
+            Grid grid = solver.getGrid();
+            Solutions.assertSolved(grid, layered);
+
+            int[] base = layered.layerMap(grid, 0);
+            int[] top = layered.layerMap(grid, 1);
+            Solutions.assertValid(grid.getTopology(), base, terrain);
+            Solutions.assertValid(grid.getTopology(), top, roads);
+            for (int cell = 0; cell < base.length; cell++) {
+                assertTrue("cell " + cell + " breaks the cross-layer rule", crossAllowed(base[cell], top[cell]));
+            }
+        }
+    }
+
+    @Test
+    public void pinnedLayerTileIsKept() {
+        Grid grid = new Grid(SIZE, SIZE, layered.tileCount());
+        Wave wave = grid.getWave();
+        int cell = grid.index(5, 7);
+        int up = RoadTile.UP.ordinal();
+        BitSet keep = layered.jointTilesWith(1, up);
+        for (int j = 0; j < layered.tileCount(); j++) {
+            if (!keep.get(j)) {
+                wave.ban(cell, j);
+            }
+        }
+
+        WfcSolver solver = new WfcSolver(grid, layered);
+        solver.propagateFrom(5, 7);
+        BitSet domain = layered.layerDomain(wave, cell, 1);
+        assertEquals(1, domain.cardinality());
+        assertTrue(domain.get(up));
+        assertTrue(layered.layerDomain(wave, cell, 0).cardinality() < terrain.tileCount());
+    }
+
+    /**
+     * Tiles that may only sit next to themselves.
+     */
+    private static Ruleset isolated(int tileCount) {
+        BitSet[] self = new BitSet[tileCount];
+        for (int t = 0; t < tileCount; t++) {
+            self[t] = new BitSet();
+            self[t].set(t);
+        }
+        return new Ruleset() {
+            @Override
+            public int tileCount() {
+                return tileCount;
+            }
+
+            @Override
+            public BitSet allowedMaskRef(int tileId, int dir) {
+                return self[tileId];
+            }
+        };
+    }
+
+    @Test
+    public void fewJointTilesOfManyCombinations() {
+        // 1500^3 combinations overflow an int; only the 1500 diagonal tuples are joint tiles
+        Ruleset layer = isolated(1500);
+        LayeredRuleset diagonal = LayeredRuleset.couple(List.of(layer, layer, layer),
+                (layerA, tileA, layerB, tileB) -> tileA == tileB);
+
+        assertEquals(1500, diagonal.tileCount());
+        for (int t : new int[] { 0, 7, 1499 }) {
+            assertEquals(t, diagonal.jointTile(t, t, t));
+            assertEquals(t, diagonal.layerTile(t, 2));
+        }
+        assertEquals(-1, diagonal.jointTile(7, 7, 8));
+        assertEquals(-1, diagonal.jointTile(1499, 0, 0));
+    }
+
+    @Test
+    public void rejectsLayersWithoutCompatiblePairs() {
+        assertThrows(IllegalArgumentException.class,
+                () -> LayeredRuleset.couple(List.of(terrain, roads), (layerA, tileA, layerB, tileB) -> false));
+        assertThrows(IllegalArgumentException.class,
+                () -> LayeredRuleset.couple(List.of(), (layerA, tileA, layerB, tileB) -> true));
+    }
+}
@@ -0,0 +1,120 @@
+package com.rizikh.wfc.rules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+
+import org.junit.Test;
+
+import com.rizikh.wfc.core.BoundedTopology;
+import com.rizikh.wfc.core.Direction;
+import com.rizikh.wfc.core.PeriodicTopology;
+import com.rizikh.wfc.core.Stencil;
+import com.rizikh.wfc.core.StencilTopology;
+import com.rizikh.wfc.core.Topology;
+import com.rizikh.wfc.model.Grid;
+
+public class RulesetAnalysisTest {
+    private static final int OPEN = 0;
+    private static final int EDGE = 1;
+
+    /**
+     * OPEN fits anywhere; EDGE fits next to OPEN except in direction side,
+     * where nothing may sit, so EDGE is only placeable where side leads off
+     * the map.
+     */
+    private static Ruleset edgeOnly(Topology topology, int side) {
+        int back = topology.opposite(side);
+        BitSet both = new BitSet();
+        both.set(OPEN);
+        both.set(EDGE);
+        BitSet open = new BitSet();
+        open.set(OPEN);
+        BitSet none = new BitSet();
+
+        return new Ruleset() {
+            @Override
+            public int tileCount() {
+                return 2;
+            }
+
+            @Override
+            public int directionCount() {
+                return topology.directionCount();
+            }
+
+            @Override
+            public BitSet allowedMaskRef(int tileId, int dir) {
+                if (tileId == EDGE) {
+                    return dir == side ? none : open;
+                }
+                return dir == back ? open : both;
+            }
+        };
+    }
+
+    private static void assertPlaceableWhereSideIsOpen(Topology topology, int side) {
+        RulesetAnalysis analysis = RulesetAnalysis.analyze(edgeOnly(topology, side), topology);
+        for (int cell = 0; cell < topology.cellCount(); cell++) {
+            assertEquals("cell " + cell, topology.neighbor(cell, side) < 0, analysis.placeableAt(cell).get(EDGE));
+            assertTrue(analysis.placeableAt(cell).get(OPEN));
+        }
+    }
+
+    @Test
+    public void unsupportedSideIsPlaceableOnlyOnTheBorder() {
+        int west = Direction.WEST.ordinal();
+        BoundedTopology bounded = new BoundedTopology(6, 5);
+        assertPlaceableWhereSideIsOpen(bounded, west);
+
+        RulesetAnalysis analysis = RulesetAnalysis.analyze(edgeOnly(bounded, west), bounded);
+        assertTrue(analysis.deadTiles().isEmpty());
+        assertTrue(analysis.isSatisfiable());
+
+        Grid grid = new Grid(bounded, 2);
+        analysis.applyTo(grid);
+        for (int cell = 0; cell < grid.cellCount(); cell++) {
+            assertEquals(grid.xOf(cell) == 0, grid.getWave().contains(cell, EDGE));
+        }
+    }
+
+    @Test
+    public void unsupportedSideIsDeadOnPeriodicMaps() {
+        PeriodicTopology periodic = new PeriodicTopology(6, 5);
+        RulesetAnalysis analysis = RulesetAnalysis.analyze(edgeOnly(periodic, Direction.WEST.ordinal()), periodic);
+
+        assertEquals(BitSet.valueOf(new long[] { 1L << EDGE }), analysis.deadTiles());
+        assertFalse(analysis.liveTiles().get(EDGE));
+        assertTrue(analysis.isSatisfiable());
+        assertFalse(analysis.warnings().isEmpty());
+
+        Grid grid = new Grid(periodic, 2);
+        analysis.applyTo(grid);
+        for (int cell = 0; cell < grid.cellCount(); cell++) {
+            assertEquals(1, grid.getWave().count(cell));
+        }
+    }
+
+    @Test
+    public void stencilsWithMoreThan64DirectionsKeepEverySide() {
+        // Radius 6 has 84 offsets; a long signature would fold direction 70 onto 6
+        StencilTopology topology = new StencilTopology(Stencil.diamond(6), 16, 16, false);
+        assertTrue(topology.directionCount() > 64);
+        for (int side : new int[] { 6, 70, topology.directionCount() - 1 }) {
+            assertPlaceableWhereSideIsOpen(topology, side);
+        }
+    }
+
+    @Test
+    public void terrainHasNoDeadTiles() {
+        TerrainRuleset terrain = new TerrainRuleset();
+        for (Topology topology : new Topology[] { new BoundedTopology(8, 8), new PeriodicTopology(8, 8) }) {
+            RulesetAnalysis analysis = RulesetAnalysis.analyze(terrain, topology);
+            assertTrue(analysis.deadTiles().isEmpty());
+            assertTrue(analysis.isSatisfiable());
+            assertEquals(terrain.tileCount(), analysis.placeableAt(0).cardinality());
+        }
+    }
+}
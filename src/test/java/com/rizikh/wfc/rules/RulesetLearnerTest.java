@@ -0,0 +1,135 @@
+package com.rizikh.wfc.rules;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.rizikh.wfc.Solutions;
+import com.rizikh.wfc.core.Direction;
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.rules.RulesetLearner.Sample;
+import com.rizikh.wfc.service.GenerationService;
+import com.rizikh.wfc.solver.WfcSolver;
+
+public class RulesetLearnerTest {
+    private final TerrainRuleset terrain = new TerrainRuleset();
+
+    private Sample solvedSample(int width, int height, long seed) {
+        WfcSolver solver = new WfcSolver(new Grid(width, height, terrain.tileCount()), terrain);
+        solver.reset(seed);
+        while (solver.step()) {
+        }
+        assertTrue(solver.isSolved());
+
+        int[] tiles = new int[width * height];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = solver.getGrid().getWave().firstTile(i);
+        }
+        return new Sample(width, height, tiles);
+    }
+
+    @Test
+    public void countsMatchSequentialReference() {
+        // Counting does not need valid maps: random tiles over several chunks
+        // per sample, with unknown cells sprinkled in
+        List<Sample> samples = new ArrayList<>();
+        Random rng = new Random(1);
+        for (int s = 0; s < 3; s++) {
+            int width = 400;
+            int height = 200 + 50 * s;
+            int[] tiles = new int[width * height];
+            for (int i = 0; i < tiles.length; i++) {
+                tiles[i] = rng.nextInt(20) == 0 ? -1 : rng.nextInt(terrain.tileCount());
+            }
+            samples.add(new Sample(width, height, tiles));
+        }
+        LearnedRuleset learned = new RulesetLearner(terrain.tileCount()).add(samples).build();
+
+        int n = terrain.tileCount();
+        long[] frequencies = new long[n];
+        long[] north = new long[n * n];
+        long[] east = new long[n * n];
+        for (Sample sample : samples) {
+            int[] tiles = sample.tiles();
+            for (int y = 0; y < sample.height(); y++) {
+                for (int x = 0; x < sample.width(); x++) {
+                    int t = tiles[y * sample.width() + x];
+                    if (t < 0) {
+                        continue;
+                    }
+                    frequencies[t]++;
+                    if (x + 1 < sample.width() && tiles[y * sample.width() + x + 1] >= 0) {
+                        east[t * n + tiles[y * sample.width() + x + 1]]++;
+                    }
+                    if (y + 1 < sample.height() && tiles[(y + 1) * sample.width() + x] >= 0) {
+                        north[t * n + tiles[(y + 1) * sample.width() + x]]++;
+                    }
+                }
+            }
+        }
+
+        for (int a = 0; a < n; a++) {
+            assertEquals(frequencies[a], learned.frequency(a));
+            for (int b = 0; b < n; b++) {
+                assertEquals(north[a * n + b], learned.observations(a, Direction.NORTH, b));
+                assertEquals(north[b * n + a], learned.observations(a, Direction.SOUTH, b));
+                assertEquals(east[a * n + b], learned.observations(a, Direction.EAST, b));
+                assertEquals(east[b * n + a], learned.observations(a, Direction.WEST, b));
+            }
+        }
+    }
+
+    @Test
+    public void learnedRulesetAcceptsItsSamplesAndSolves() {
+        Sample sample = solvedSample(64, 64, 3);
+        LearnedRuleset learned = new RulesetLearner(terrain.tileCount()).add(sample).build();
+        Grid sampleGrid = new Grid(64, 64, terrain.tileCount());
+        Solutions.assertValid(sampleGrid.getTopology(), sample.tiles(), learned);
+
+        WfcSolver solver = new WfcSolver(new Grid(32, 32, learned.tileCount()), learned);
+        int solved = 0;
+        for (long seed = 0; seed < 5; seed++) {
+            solver.reset(seed);
+            while (solver.step()) {
+            }
+            if (solver.isSolved()) {
+                Solutions.assertSolved(solver.getGrid(), learned);
+                // Learned adjacencies are a subset of the source rules
+                Solutions.assertSolved(solver.getGrid(), terrain);
+                solved++;
+            }
+        }
+        assertTrue("no seed solved", solved > 0);
+    }
+
+    @Test
+    public void readsServiceMapsBack() throws IOException {
+        GenerationService service = new GenerationService(1 << 20, 10);
+        service.register("terrain", terrain, -1);
+        byte[] bytes = service.generate(new GenerationService.Request("terrain", 40, 30, 9, false,
+                GenerationService.Format.BINARY, 1));
+
+        Sample sample = RulesetLearner.readBinary(new ByteArrayInputStream(bytes));
+        assertEquals(40, sample.width());
+        assertEquals(30, sample.height());
+        Solutions.assertValid(new Grid(40, 30, terrain.tileCount()).getTopology(), sample.tiles(), terrain);
+    }
+
+    @Test
+    public void csvRowsAreReadTopDown() throws IOException {
+        Sample sample = RulesetLearner.readCsv(new BufferedReader(new StringReader("1,2,3\n\n4,,6\n")));
+        assertEquals(3, sample.width());
+        assertEquals(2, sample.height());
+        assertArrayEquals(new int[] { 4, -1, 6, 1, 2, 3 }, sample.tiles());
+    }
+}
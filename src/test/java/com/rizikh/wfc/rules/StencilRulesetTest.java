@@ -0,0 +1,81 @@
+package com.rizikh.wfc.rules;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.rizikh.wfc.Solutions;
+import com.rizikh.wfc.core.BoundedTopology;
+import com.rizikh.wfc.core.Stencil;
+import com.rizikh.wfc.core.StencilTopology;
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.solver.WfcSolver;
+
+public class StencilRulesetTest {
+    private static final int SIZE = 24;
+
+    private final TerrainRuleset terrain = new TerrainRuleset();
+
+    private int[] solve(Grid grid, Ruleset ruleset, long seed) {
+        WfcSolver solver = new WfcSolver(grid, ruleset);
+        solver.reset(seed);
+        while (solver.step()) {
+        }
+        if (!solver.isSolved()) {
+            return null;
+        }
+        int[] tiles = new int[grid.cellCount()];
+        for (int i = 0; i < tiles.length; i++) {
+            tiles[i] = grid.getWave().firstTile(i);
+        }
+        return tiles;
+    }
+
+    @Test
+    public void impliedRulesKeepSquareSolutions() {
+        for (Stencil stencil : new Stencil[] { Stencil.moore(), Stencil.diamond(2) }) {
+            StencilRuleset implied = StencilRuleset.implied(terrain, stencil);
+            StencilTopology topology = new StencilTopology(stencil, SIZE, SIZE, false);
+            for (long seed = 0; seed < 3; seed++) {
+                int[] square = solve(new Grid(SIZE, SIZE, terrain.tileCount()), terrain, seed);
+                if (square != null) {
+                    Solutions.assertValid(topology, square, implied);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void stencilSolvesAreSquareSolutions() {
+        StencilRuleset implied = StencilRuleset.implied(terrain, Stencil.moore());
+        Grid grid = new Grid(new StencilTopology(Stencil.moore(), SIZE, SIZE, false), implied.tileCount());
+        int solved = 0;
+        for (long seed = 0; seed < 4; seed++) {
+            int[] tiles = solve(grid, implied, seed);
+            if (tiles != null) {
+                Solutions.assertValid(grid.getTopology(), tiles, implied);
+                Solutions.assertValid(new BoundedTopology(SIZE, SIZE), tiles, terrain);
+                solved++;
+            }
+        }
+        assertTrue(solved > 0);
+    }
+
+    @Test
+    public void extendKeepsSquareMasksAndChecksSymmetry() {
+        Stencil moore = Stencil.moore();
+        StencilRuleset same = StencilRuleset.extend(terrain, moore, (a, dx, dy, b) -> a == b);
+        assertEquals(8, same.directionCount());
+        for (int t = 0; t < terrain.tileCount(); t++) {
+            for (int d = 0; d < 4; d++) {
+                assertEquals(terrain.allowedMaskRef(t, d), same.allowedMaskRef(t, d));
+            }
+            assertEquals(1, same.allowedMaskRef(t, 4).cardinality());
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> StencilRuleset.extend(terrain, moore, (a, dx, dy, b) -> a < b));
+    }
+}
@@ -0,0 +1,217 @@
+package com.rizikh.wfc.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.rizikh.wfc.rules.Ruleset;
+import com.rizikh.wfc.rules.TerrainRuleset;
+import com.rizikh.wfc.service.GenerationService.Format;
+import com.rizikh.wfc.service.GenerationService.GenerationFailedException;
+import com.rizikh.wfc.service.GenerationService.Request;
+
+public class GenerationServiceTest {
+    private final TerrainRuleset terrain = new TerrainRuleset();
+
+    private static Request request(String ruleset, int size, long seed) {
+        return new Request(ruleset, size, size, seed, false, Format.BINARY, 1);
+    }
+
+    /**
+     * Terrain rules whose solves stop at their first tileCount() call once
+     * armed, until released; they then throw failure if one is set.
+     */
+    private static final class GatedRuleset implements Ruleset {
+        private final Ruleset rules;
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile boolean armed;
+        volatile Error failure;
+
+        GatedRuleset(Ruleset rules) {
+            this.rules = rules;
+        }
+
+        @Override
+        public int tileCount() {
+            if (armed) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+            return rules.tileCount();
+        }
+
+        @Override
+        public BitSet allowedMaskRef(int tileId, int dir) {
+            return rules.allowedMaskRef(tileId, dir);
+        }
+    }
+
+    @Test
+    public void repeatedRequestsHitTheCache() {
+        GenerationService service = new GenerationService(1 << 20, 10);
+        service.register("terrain", terrain, -1);
+
+        byte[] first = service.generate(request("terrain", 32, 1));
+        byte[] second = service.generate(request("terrain", 32, 1));
+        assertSame(first, second);
+        assertEquals(1, service.cachedCount());
+        assertEquals(1, service.cacheHits());
+
+        byte[] other = service.generate(request("terrain", 32, 2));
+        assertNotSame(first, other);
+        assertEquals(2, service.cachedCount());
+    }
+
+    @Test
+    public void equalRulesetsShareResults() {
+        GenerationService service = new GenerationService(1 << 20, 10);
+        service.register("a", terrain, -1);
+        service.register("b", new TerrainRuleset(), -1);
+
+        assertSame(service.generate(request("a", 24, 3)), service.generate(request("b", 24, 3)));
+        assertEquals(1, service.cachedCount());
+    }
+
+    @Test
+    public void concurrentRequestsShareOneSolve() throws Exception {
+        GatedRuleset gated = new GatedRuleset(terrain);
+        GenerationService service = new GenerationService(1 << 20, 10);
+        service.register("gated", gated, -1);
+        gated.armed = true;
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            results.add(pool.submit(() -> service.generate(request("gated", 32, 4))));
+            assertTrue(gated.entered.await(10, TimeUnit.SECONDS));
+            for (int i = 1; i < 8; i++) {
+                results.add(pool.submit(() -> service.generate(request("gated", 32, 4))));
+            }
+            // Give the followers time to find the solve in flight
+            Thread.sleep(100);
+            gated.release.countDown();
+
+            byte[] bytes = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<byte[]> result : results) {
+                // A second solve would have produced a new array
+                assertSame(bytes, result.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, service.cachedCount());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void errorsReachCoalescedCallers() throws Exception {
+        GatedRuleset gated = new GatedRuleset(terrain);
+        GenerationService service = new GenerationService(1 << 20, 10);
+        service.register("gated", gated, -1);
+        gated.failure = new OutOfMemoryError("simulated");
+        gated.armed = true;
+
+        // Daemon workers, so callers stuck in a regression cannot keep the JVM alive
+        ExecutorService pool = Executors.newFixedThreadPool(4, r -> {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            results.add(pool.submit(() -> service.generate(request("gated", 32, 5))));
+            assertTrue(gated.entered.await(10, TimeUnit.SECONDS));
+            for (int i = 1; i < 4; i++) {
+                results.add(pool.submit(() -> service.generate(request("gated", 32, 5))));
+            }
+            Thread.sleep(100);
+            gated.release.countDown();
+
+            for (Future<byte[]> result : results) {
+                // Followers used to wait forever on a solve that died with an Error
+                ExecutionException e = assertThrows(ExecutionException.class,
+                        () -> result.get(10, TimeUnit.SECONDS));
+                assertSame(gated.failure, e.getCause());
+            }
+            assertEquals(0, service.cachedCount());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void rejectsOversizedPngs() {
+        GenerationService service = new GenerationService(1 << 20, 10);
+        service.register("terrain", terrain, -1);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.generate(new Request("terrain", 1024, 1024, 0, false, Format.PNG, 8)));
+        // Few cells, but one column more than the pixel bound allows at the largest scale
+        assertThrows(IllegalArgumentException.class, () -> service.generate(
+                new Request("terrain", 4097, 16, 0, false, Format.PNG, GenerationService.MAX_SCALE)));
+        assertEquals(0, service.cacheMisses());
+    }
+
+    @Test
+    public void failuresReachEveryCallerAndAreNotCached() {
+        // Tiles that may not touch any tile: the first collapse empties its neighbours
+        Ruleset lonely = new Ruleset() {
+            @Override
+            public int tileCount() {
+                return 2;
+            }
+
+            @Override
+            public BitSet allowedMaskRef(int tileId, int dir) {
+                return new BitSet();
+            }
+        };
+        GenerationService service = new GenerationService(1 << 20, 3);
+        service.register("lonely", lonely, -1);
+
+        assertThrows(GenerationFailedException.class, () -> service.generate(request("lonely", 2, 0)));
+        assertThrows(GenerationFailedException.class, () -> service.generate(request("lonely", 2, 0)));
+        assertEquals(0, service.cachedCount());
+    }
+
+    @Test
+    public void cacheEvictsLeastRecentlyUsed() {
+        // Binary maps of 32 x 32 terrain: 12 header bytes plus one byte per cell
+        int mapBytes = 12 + 32 * 32;
+        GenerationService service = new GenerationService(2 * mapBytes, 10);
+        service.register("terrain", terrain, -1);
+
+        byte[] first = service.generate(request("terrain", 32, 1));
+        service.generate(request("terrain", 32, 2));
+        assertSame(first, service.generate(request("terrain", 32, 1)));
+        service.generate(request("terrain", 32, 3));
+
+        assertEquals(2, service.cachedCount());
+        assertTrue(service.cachedBytes() <= 2 * mapBytes);
+        // Seed 1 was used more recently than seed 2, so it survived
+        assertSame(first, service.generate(request("terrain", 32, 1)));
+        assertArrayEquals(first, service.generate(request("terrain", 32, 1)));
+    }
+}
@@ -0,0 +1,209 @@
+package com.rizikh.wfc.solver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.rules.RoadRuleset;
+import com.rizikh.wfc.rules.TerrainRuleset;
+
+public class CheckpointTest {
+    private final TerrainRuleset ruleset = new TerrainRuleset();
+    private final RoadRuleset roads = new RoadRuleset();
+    private Path file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = Files.createTempFile("solver", ".wfcs");
+    }
+
+    @After
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    private WfcSolver solver(long seed) {
+        WfcSolver solver = new WfcSolver(new Grid(16, 16, ruleset.tileCount()), ruleset);
+        solver.setSeed(seed);
+        return solver;
+    }
+
+    private static void run(WfcSolver solver) {
+        while (solver.step()) {
+        }
+    }
+
+    @Test
+    public void restoredSolveMatchesUninterrupted() throws IOException {
+        for (long seed = 0; seed < 4; seed++) {
+            WfcSolver uninterrupted = solver(seed);
+            run(uninterrupted);
+
+            WfcSolver first = solver(seed);
+            for (int i = 0; i < 40 && first.step(); i++) {
+            }
+            first.checkpoint(file);
+
+            WfcSolver resumed = new WfcSolver(new Grid(16, 16, ruleset.tileCount()), ruleset);
+            resumed.restore(file);
+            run(resumed);
+
+            assertEquals(uninterrupted.getStatus(), resumed.getStatus());
+            assertArrayEquals(uninterrupted.getGrid().getWave().words(), resumed.getGrid().getWave().words());
+        }
+    }
+
+    private void assertResumesExactly(Supplier<SelectionHeuristic> heuristic) throws IOException {
+        for (long seed = 0; seed < 3; seed++) {
+            for (int stop : new int[] { 1, 25, 60 }) {
+                WfcSolver uninterrupted = solver(seed);
+                uninterrupted.setSelectionHeuristic(heuristic.get());
+                run(uninterrupted);
+
+                WfcSolver first = solver(seed);
+                first.setSelectionHeuristic(heuristic.get());
+                for (int i = 0; i < stop && first.step(); i++) {
+                }
+                first.checkpoint(file);
+
+                WfcSolver resumed = new WfcSolver(new Grid(16, 16, ruleset.tileCount()), ruleset);
+                resumed.setSelectionHeuristic(heuristic.get());
+                resumed.restore(file);
+                run(resumed);
+
+                assertEquals(uninterrupted.getStatus(), resumed.getStatus());
+                assertArrayEquals("seed " + seed + " stop " + stop, uninterrupted.getGrid().getWave().words(),
+                        resumed.getGrid().getWave().words());
+            }
+        }
+    }
+
+    @Test
+    public void frontierResumesExactly() throws IOException {
+        assertResumesExactly(FrontierHeuristic::new);
+    }
+
+    @Test
+    public void entropyNoiseResumesExactly() throws IOException {
+        // Noise large enough to reorder cells, so a redrawn noise field would diverge
+        assertResumesExactly(() -> new EntropyHeuristic(0.5));
+    }
+
+    @Test
+    public void scanlineResumesExactly() throws IOException {
+        assertResumesExactly(ScanlineHeuristic::new);
+    }
+
+    private WfcSolver repairingSolver(long seed) {
+        WfcSolver solver = new WfcSolver(new Grid(32, 32, roads.tileCount()), roads);
+        solver.setRepairRadius(4);
+        solver.setSeed(seed);
+        return solver;
+    }
+
+    @Test
+    public void repairingSolveResumesExactly() throws IOException {
+        // Road maps repair several blocks per solve at this size
+        for (long seed = 11; seed < 14; seed++) {
+            WfcSolver uninterrupted = repairingSolver(seed);
+            run(uninterrupted);
+
+            for (int stop : new int[] { 100, 400, 800 }) {
+                WfcSolver first = repairingSolver(seed);
+                for (int i = 0; i < stop && first.step(); i++) {
+                }
+                first.checkpoint(file);
+
+                WfcSolver resumed = repairingSolver(seed);
+                resumed.restore(file);
+                run(resumed);
+
+                assertEquals(uninterrupted.getStatus(), resumed.getStatus());
+                assertEquals(uninterrupted.getRepairCount(), resumed.getRepairCount());
+                assertArrayEquals("seed " + seed + " stop " + stop, uninterrupted.getGrid().getWave().words(),
+                        resumed.getGrid().getWave().words());
+            }
+        }
+    }
+
+    @Test
+    public void rejectsMismatchedRepairSetting() throws IOException {
+        WfcSolver first = repairingSolver(3);
+        for (int i = 0; i < 10; i++) {
+            first.step();
+        }
+        first.checkpoint(file);
+
+        WfcSolver plain = new WfcSolver(new Grid(32, 32, roads.tileCount()), roads);
+        assertThrows(IllegalArgumentException.class, () -> plain.restore(file));
+
+        solver(3).checkpoint(file);
+        WfcSolver repairing = new WfcSolver(new Grid(16, 16, ruleset.tileCount()), ruleset);
+        repairing.setRepairRadius(4);
+        assertThrows(IllegalArgumentException.class, () -> repairing.restore(file));
+    }
+
+    @Test
+    public void rejectsStateOfAnotherHeuristic() throws IOException {
+        WfcSolver first = solver(2);
+        first.setSelectionHeuristic(new FrontierHeuristic());
+        for (int i = 0; i < 10; i++) {
+            first.step();
+        }
+        first.checkpoint(file);
+
+        WfcSolver other = solver(2);
+        assertThrows(IllegalArgumentException.class, () -> other.restore(file));
+    }
+
+    @Test
+    public void rejectsMismatchedGrid() throws IOException {
+        solver(1).checkpoint(file);
+        WfcSolver other = new WfcSolver(new Grid(8, 8, ruleset.tileCount()), ruleset);
+        assertThrows(IllegalArgumentException.class, () -> other.restore(file));
+    }
+
+    @Test
+    public void waveLargerThanOneChunkRoundTrips() throws IOException {
+        // Several times the 1 MiB chunk the wave is streamed through
+        WfcSolver first = new WfcSolver(new Grid(640, 640, ruleset.tileCount()), ruleset);
+        first.setSeed(5);
+        for (int i = 0; i < 200 && first.step(); i++) {
+        }
+        first.checkpoint(file);
+        assertTrue(Files.size(file) > 3 << 20);
+
+        WfcSolver resumed = new WfcSolver(new Grid(640, 640, ruleset.tileCount()), ruleset);
+        resumed.restore(file);
+        assertEquals(first.getStatus(), resumed.getStatus());
+        assertArrayEquals(first.getGrid().getWave().words(), resumed.getGrid().getWave().words());
+    }
+
+    @Test
+    public void rejectsTruncatedWave() throws IOException {
+        solver(1).checkpoint(file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 8));
+        WfcSolver solver = solver(1);
+        assertThrows(IOException.class, () -> solver.restore(file));
+    }
+
+    @Test
+    public void rejectsGarbage() throws IOException {
+        Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+        WfcSolver solver = solver(1);
+        assertThrows(IOException.class, () -> solver.restore(file));
+    }
+}
@@ -0,0 +1,145 @@
+package com.rizikh.wfc.solver;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.rizikh.wfc.core.PeriodicTopology;
+import com.rizikh.wfc.core.Topology;
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.RoadRuleset;
+
+public class ConnectivityConstraintTest {
+    private static final int OPEN = 1;
+
+    private final RoadRuleset roads = new RoadRuleset();
+
+    private boolean mayOpen(Wave wave, int cell, int dir) {
+        for (int t = 0; t < roads.tileCount(); t++) {
+            if (wave.contains(cell, t) && roads.socket(t, dir) == OPEN) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean carries(Wave wave, int cell) {
+        for (int d = 0; d < 4; d++) {
+            if (mayOpen(wave, cell, d)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Cells reachable from start through edges that may be open on both sides.
+    private boolean[] reachable(Grid grid, int start) {
+        Topology topology = grid.getTopology();
+        Wave wave = grid.getWave();
+        boolean[] seen = new boolean[grid.cellCount()];
+        int[] queue = new int[grid.cellCount()];
+        int tail = 0;
+        queue[tail++] = start;
+        seen[start] = true;
+        for (int head = 0; head < tail; head++) {
+            int c = queue[head];
+            for (int d = 0; d < 4; d++) {
+                int n = topology.neighbor(c, d);
+                if (n >= 0 && !seen[n] && mayOpen(wave, c, d) && mayOpen(wave, n, topology.opposite(d))) {
+                    seen[n] = true;
+                    queue[tail++] = n;
+                }
+            }
+        }
+        return seen;
+    }
+
+    // A cell that must carry the network, or -1.
+    private int forcedCell(Wave wave) {
+        for (int c = 0; c < wave.cellCount(); c++) {
+            boolean plain = false;
+            for (int t = 0; t < roads.tileCount(); t++) {
+                boolean open = false;
+                for (int d = 0; d < 4; d++) {
+                    open |= roads.socket(t, d) == OPEN;
+                }
+                plain |= wave.contains(c, t) && !open;
+            }
+            if (!wave.isEmpty(c) && !plain) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    private void assertPruned(Grid grid) {
+        Wave wave = grid.getWave();
+        int forced = forcedCell(wave);
+        if (forced < 0) {
+            return;
+        }
+        boolean[] seen = reachable(grid, forced);
+        for (int c = 0; c < grid.cellCount(); c++) {
+            assertTrue("cell " + c + " can carry a separate network", seen[c] || !carries(wave, c));
+        }
+    }
+
+    private void solveConnected(Grid grid, long seed) {
+        WfcSolver solver = new WfcSolver(grid, roads);
+        solver.setSeed(seed);
+        solver.setConnectivityConstraint(new ConnectivityConstraint(grid, roads, OPEN));
+
+        while (solver.step()) {
+            if (solver.getStatus() == WfcSolver.Status.RUNNING) {
+                assertPruned(grid);
+            }
+        }
+        if (!solver.isSolved()) {
+            return;
+        }
+
+        Wave wave = grid.getWave();
+        int first = forcedCell(wave);
+        if (first < 0) {
+            return;
+        }
+        boolean[] seen = reachable(grid, first);
+        for (int c = 0; c < grid.cellCount(); c++) {
+            assertFalse("network cell " + c + " is disconnected", carries(wave, c) && !seen[c]);
+        }
+    }
+
+    @Test
+    public void solvedMapsHaveOneNetwork() {
+        for (long seed = 0; seed < 12; seed++) {
+            solveConnected(new Grid(14, 14, roads.tileCount()), seed);
+        }
+    }
+
+    @Test
+    public void periodicMapsHaveOneNetwork() {
+        for (long seed = 0; seed < 6; seed++) {
+            solveConnected(new Grid(new PeriodicTopology(10, 8), roads.tileCount()), seed);
+        }
+    }
+
+    @Test
+    public void restartAfterResetStaysConnected() {
+        Grid grid = new Grid(12, 12, roads.tileCount());
+        WfcSolver solver = new WfcSolver(grid, roads);
+        solver.setConnectivityConstraint(new ConnectivityConstraint(grid, roads, OPEN));
+        int solved = 0;
+        for (long seed = 0; seed < 6; seed++) {
+            solver.reset(seed);
+            while (solver.step()) {
+            }
+            if (solver.isSolved()) {
+                solved++;
+                assertPruned(grid);
+            }
+        }
+        assertTrue(solved > 0);
+    }
+}
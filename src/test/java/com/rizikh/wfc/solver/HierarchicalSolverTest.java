@@ -0,0 +1,96 @@
+package com.rizikh.wfc.solver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import com.rizikh.wfc.Solutions;
+import com.rizikh.wfc.core.BoundedTopology;
+import com.rizikh.wfc.rules.Ruleset;
+import com.rizikh.wfc.rules.TerrainRuleset;
+
+public class HierarchicalSolverTest {
+    private static final int BLOCK = 16;
+
+    private final TerrainRuleset terrain = new TerrainRuleset();
+    private final HierarchicalSolver solver = HierarchicalSolver.forTerrain(terrain, BLOCK);
+
+    private void assertValid(HierarchicalSolver.Result result, int width, int height) {
+        assertEquals(width, result.width());
+        assertEquals(height, result.height());
+        Solutions.assertValid(new BoundedTopology(width, height), result.tiles(), terrain);
+
+        assertEquals((width + BLOCK - 1) / BLOCK, result.coarseWidth());
+        assertEquals((height + BLOCK - 1) / BLOCK, result.coarseHeight());
+        Solutions.assertValid(new BoundedTopology(result.coarseWidth(), result.coarseHeight()), result.coarse(),
+                solver.coarseRuleset());
+    }
+
+    @Test
+    public void mapsAreValid() {
+        for (long seed = 0; seed < 3; seed++) {
+            assertValid(solver.solve(96, 64, seed), 96, 64);
+        }
+    }
+
+    @Test
+    public void partialBlocksAreValid() {
+        // Sizes that are not multiples of the block size, down to a single partial block
+        int[][] sizes = { { 70, 45 }, { 17, 33 }, { 5, 9 }, { 100, 1 } };
+        for (int[] size : sizes) {
+            assertValid(solver.solve(size[0], size[1], 7), size[0], size[1]);
+        }
+    }
+
+    @Test
+    public void sameSeedGivesSameMap() throws Exception {
+        HierarchicalSolver.Result first = solver.solve(200, 150, 11);
+        // Another solver on a two-worker pool schedules the blocks differently
+        ForkJoinPool pool = new ForkJoinPool(2);
+        HierarchicalSolver.Result second;
+        try {
+            second = pool.submit(() -> HierarchicalSolver.forTerrain(terrain, BLOCK).solve(200, 150, 11)).get();
+        } finally {
+            pool.shutdown();
+        }
+
+        assertArrayEquals(first.coarse(), second.coarse());
+        assertArrayEquals(first.tiles(), second.tiles());
+        assertEquals(first.retries(), second.retries());
+        assertEquals(first.relaxed(), second.relaxed());
+        assertEquals(first.repaired(), second.repaired());
+    }
+
+    @Test
+    public void coarseRulesetIsTheProjection() {
+        Ruleset coarse = solver.coarseRuleset();
+        assertEquals(TerrainRuleset.BIOME_COUNT, coarse.tileCount());
+        for (int d = 0; d < 4; d++) {
+            BitSet[] expected = new BitSet[TerrainRuleset.BIOME_COUNT];
+            for (int c = 0; c < expected.length; c++) {
+                expected[c] = new BitSet();
+            }
+            for (int t = 0; t < terrain.tileCount(); t++) {
+                BitSet allowed = terrain.allowedMaskRef(t, d);
+                for (int u = allowed.nextSetBit(0); u >= 0; u = allowed.nextSetBit(u + 1)) {
+                    expected[terrain.biomeOf(t)].set(terrain.biomeOf(u));
+                }
+            }
+            for (int c = 0; c < expected.length; c++) {
+                assertEquals("class " + c + " dir " + d, expected[c], coarse.allowedMaskRef(c, d));
+            }
+        }
+    }
+
+    @Test
+    public void rejectsBadArguments() {
+        assertThrows(IllegalArgumentException.class, () -> HierarchicalSolver.forTerrain(terrain, 0));
+        assertThrows(IllegalArgumentException.class, () -> new HierarchicalSolver(terrain, 2, t -> 2, BLOCK));
+        assertThrows(IllegalArgumentException.class, () -> solver.solve(0, 10, 1));
+    }
+}
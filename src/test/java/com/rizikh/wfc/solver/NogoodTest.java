@@ -0,0 +1,106 @@
+package com.rizikh.wfc.solver;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.rizikh.wfc.Solutions;
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.RoadRuleset;
+import com.rizikh.wfc.solver.NogoodStore.Nogood;
+
+public class NogoodTest {
+    private static final int SIZE = 24;
+
+    private final RoadRuleset roads = new RoadRuleset();
+
+    // Restarts that share a store, as a generation loop would run them.
+    private NogoodStore learnFromRestarts(int attempts, int[] solved) {
+        NogoodStore store = new NogoodStore(512);
+        WfcSolver solver = new WfcSolver(new Grid(SIZE, SIZE, roads.tileCount()), roads);
+        solver.setNogoodStore(store);
+        for (long seed = 0; seed < attempts; seed++) {
+            solver.reset(seed);
+            while (solver.step()) {
+            }
+            if (solver.isSolved()) {
+                // Pruned choices must never cost a valid map its validity
+                Solutions.assertSolved(solver.getGrid(), roads);
+                solved[0]++;
+            }
+        }
+        return store;
+    }
+
+    private Set<Nogood> stored(NogoodStore store) {
+        Set<Nogood> all = new LinkedHashSet<>();
+        for (int t = 0; t < roads.tileCount(); t++) {
+            all.addAll(store.withTile(t));
+        }
+        return all;
+    }
+
+    // Places the literals with anchor (ax, ay) on a fresh grid; true if that contradicts.
+    private boolean contradictsAt(Nogood nogood, int ax, int ay) {
+        Grid grid = new Grid(SIZE, SIZE, roads.tileCount());
+        Wave wave = grid.getWave();
+        Propagator propagator = WfcSolver.defaultPropagator(grid, roads);
+        for (int i = 0; i < nogood.size(); i++) {
+            int cell = grid.index(ax + nogood.dx[i], ay + nogood.dy[i]);
+            if (!wave.contains(cell, nogood.tile[i])) {
+                return true;
+            }
+            wave.collapse(cell, nogood.tile[i]);
+            if (!propagator.propagateFrom(cell)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean regionFits(Nogood nogood, int ax, int ay) {
+        for (int i = 0; i < nogood.regionDx.length; i++) {
+            int x = ax + nogood.regionDx[i];
+            int y = ay + nogood.regionDy[i];
+            if (x < 0 || y < 0 || x >= SIZE || y >= SIZE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    public void learnedNogoodsContradictWhereverTheyFit() {
+        int[] solved = new int[1];
+        NogoodStore store = learnFromRestarts(30, solved);
+        Set<Nogood> nogoods = stored(store);
+        assertTrue("no nogood was learned", !nogoods.isEmpty());
+
+        for (Nogood nogood : nogoods) {
+            int ax = nogood.anchorCell % SIZE;
+            int ay = nogood.anchorCell / SIZE;
+            assertTrue("nogood does not contradict where it was learned", contradictsAt(nogood, ax, ay));
+
+            // Initial domains are full everywhere, so every fitting translation must contradict too
+            assertTrue(nogood.translatable);
+            for (int shift = -3; shift <= 3; shift += 2) {
+                if (regionFits(nogood, ax + shift, ay - shift)) {
+                    assertTrue("translated nogood does not contradict", contradictsAt(nogood, ax + shift, ay - shift));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void solvesWithLearningStayValid() {
+        int[] solved = new int[1];
+        NogoodStore store = learnFromRestarts(40, solved);
+        assertTrue(solved[0] > 0);
+        assertTrue(store.size() > 0);
+        assertTrue(store.size() <= store.capacity());
+    }
+}
@@ -0,0 +1,99 @@
+package com.rizikh.wfc.solver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.CompiledRuleset;
+import com.rizikh.wfc.rules.EdgeRuleset;
+import com.rizikh.wfc.rules.RoadRuleset;
+import com.rizikh.wfc.rules.TerrainRuleset;
+
+public class PropagatorEquivalenceTest {
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdownPool() {
+        POOL.shutdown();
+    }
+
+    // Threshold 0 sends every frontier through the pool.
+    private static Function<Grid, Propagator> kinds(EdgeRuleset ruleset, int kind) {
+        return switch (kind) {
+            case 0 -> grid -> new QueuePropagator(grid, ruleset);
+            case 1 -> grid -> new SocketPropagator(grid, ruleset);
+            default -> grid -> new ParallelPropagator(grid, CompiledRuleset.compile(ruleset), POOL, 0);
+        };
+    }
+
+    // Bans the same random tiles in a copy per propagator, propagating after each.
+    private void assertSameFixpoints(EdgeRuleset ruleset) {
+        for (long seed = 0; seed < 20; seed++) {
+            long[] expectedWords = null;
+            boolean expectedResult = false;
+            for (int kind = 0; kind < 3; kind++) {
+                Grid grid = new Grid(40, 30, ruleset.tileCount());
+                Wave wave = grid.getWave();
+                Propagator propagator = kinds(ruleset, kind).apply(grid);
+                Random rng = new Random(seed);
+
+                boolean ok = true;
+                for (int i = 0; i < 40 && ok; i++) {
+                    int cell = rng.nextInt(grid.cellCount());
+                    for (int b = 0; b < 3; b++) {
+                        wave.ban(cell, rng.nextInt(ruleset.tileCount()));
+                    }
+                    ok = !wave.isEmpty(cell) && propagator.propagateFrom(cell);
+                }
+
+                if (kind == 0) {
+                    expectedWords = wave.words().clone();
+                    expectedResult = ok;
+                } else {
+                    assertEquals("seed " + seed + " kind " + kind, expectedResult, ok);
+                    if (ok) {
+                        assertArrayEquals("seed " + seed + " kind " + kind, expectedWords, wave.words());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void terrainFixpointsAgree() {
+        assertSameFixpoints(new TerrainRuleset());
+    }
+
+    @Test
+    public void roadFixpointsAgree() {
+        assertSameFixpoints(new RoadRuleset());
+    }
+
+    @Test
+    public void solvesAgree() {
+        TerrainRuleset ruleset = new TerrainRuleset();
+        for (long seed = 0; seed < 5; seed++) {
+            long[] expected = null;
+            for (int kind = 0; kind < 3; kind++) {
+                Grid grid = new Grid(48, 48, ruleset.tileCount());
+                WfcSolver solver = new WfcSolver(grid, ruleset, kinds(ruleset, kind).apply(grid));
+                solver.reset(seed);
+                while (solver.step()) {
+                }
+                if (expected == null) {
+                    expected = grid.getWave().words().clone();
+                } else {
+                    assertArrayEquals("seed " + seed + " kind " + kind, expected, grid.getWave().words());
+                }
+            }
+        }
+    }
+}
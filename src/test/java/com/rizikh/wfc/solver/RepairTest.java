@@ -0,0 +1,43 @@
+package com.rizikh.wfc.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.rizikh.wfc.Solutions;
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.rules.RoadRuleset;
+
+public class RepairTest {
+    private final RoadRuleset roads = new RoadRuleset();
+
+    // Solves seeds 0..seeds-1 with repair, all of which must succeed; returns how many needed a repair.
+    private int solveAll(int size, int seeds) {
+        WfcSolver solver = new WfcSolver(new Grid(size, size, roads.tileCount()), roads);
+        solver.setRepairRadius(4);
+        int repaired = 0;
+        for (long seed = 0; seed < seeds; seed++) {
+            solver.reset(seed);
+            while (solver.step()) {
+            }
+            assertEquals("seed " + seed, WfcSolver.Status.SOLVED, solver.getStatus());
+            Solutions.assertSolved(solver.getGrid(), roads);
+            if (solver.getRepairCount() > 0) {
+                repaired++;
+            }
+        }
+        return repaired;
+    }
+
+    @Test
+    public void repairedMapsAreValid() {
+        assertTrue("no solve needed a repair", solveAll(32, 10) > 0);
+    }
+
+    @Test
+    public void largeMapsDoNotGiveUp() {
+        // Failures here used to grow the block to the whole grid and then abandon the solve
+        assertTrue(solveAll(96, 10) > 0);
+    }
+}
@@ -0,0 +1,132 @@
+package com.rizikh.wfc.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.Ruleset;
+
+public class SelectionHeuristicTest {
+    private static final List<Supplier<SelectionHeuristic>> HEURISTICS = List.of(
+            MrvHeuristic::new,
+            EntropyHeuristic::new,
+            () -> new EntropyHeuristic(0.5),
+            FrontierHeuristic::new,
+            ScanlineHeuristic::new);
+
+    @Test
+    public void seededSolvesAreReproducible() {
+        for (Supplier<SelectionHeuristic> heuristic : HEURISTICS) {
+            int solved = SeededSolves.assertReproducible(solver -> solver.setSelectionHeuristic(heuristic.get()));
+            // Terrain at this size solves under every heuristic
+            assertEquals(heuristic.get().getClass().getSimpleName(), SeededSolves.SEEDS, solved);
+        }
+    }
+
+    private static void solveWith(SelectionHeuristic heuristic) {
+        assertTrue(SeededSolves.solve(SeededSolves.solver(solver -> solver.setSelectionHeuristic(heuristic)), 4));
+    }
+
+    /**
+     * Checks every pick against the wave it was made on.
+     */
+    private abstract static class Checked implements SelectionHeuristic {
+        private final SelectionHeuristic inner;
+        Grid grid;
+        Wave wave;
+        int picks;
+
+        Checked(SelectionHeuristic inner) {
+            this.inner = inner;
+        }
+
+        @Override
+        public void bind(Grid grid, Ruleset ruleset) {
+            this.grid = grid;
+            this.wave = grid.getWave();
+            inner.bind(grid, ruleset);
+        }
+
+        @Override
+        public void reset() {
+            inner.reset();
+        }
+
+        @Override
+        public int select(Random rng) {
+            int cell = inner.select(rng);
+            if (cell >= 0) {
+                assertTrue(wave.count(cell) > 1);
+                check(cell);
+                picks++;
+            }
+            return cell;
+        }
+
+        abstract void check(int cell);
+    }
+
+    @Test
+    public void mrvPicksAFewestOptionsCell() {
+        Checked mrv = new Checked(new MrvHeuristic()) {
+            @Override
+            void check(int cell) {
+                for (int i = 0; i < wave.cellCount(); i++) {
+                    if (wave.count(i) > 1) {
+                        assertTrue(wave.count(cell) <= wave.count(i));
+                    }
+                }
+            }
+        };
+        solveWith(mrv);
+        assertTrue(mrv.picks > 0);
+    }
+
+    @Test
+    public void scanlinePicksTheFirstOpenCell() {
+        Checked scanline = new Checked(new ScanlineHeuristic()) {
+            @Override
+            void check(int cell) {
+                for (int i = 0; i < cell; i++) {
+                    assertTrue(wave.count(i) <= 1);
+                }
+            }
+        };
+        solveWith(scanline);
+        assertTrue(scanline.picks > 0);
+    }
+
+    @Test
+    public void frontierGrowsFromDecidedCells() {
+        Checked frontier = new Checked(new FrontierHeuristic()) {
+            @Override
+            void check(int cell) {
+                // A new region starts only when no open cell touches a decided one
+                if (!touchesDecided(cell)) {
+                    for (int i = 0; i < wave.cellCount(); i++) {
+                        assertTrue(wave.count(i) <= 1 || !touchesDecided(i));
+                    }
+                }
+            }
+
+            private boolean touchesDecided(int cell) {
+                for (int d = 0; d < 4; d++) {
+                    int n = grid.getTopology().neighbor(cell, d);
+                    if (n >= 0 && wave.count(n) == 1) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+        solveWith(frontier);
+        assertTrue(frontier.picks > 0);
+    }
+}
@@ -0,0 +1,113 @@
+package com.rizikh.wfc.solver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.rizikh.wfc.core.PeriodicTopology;
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.model.Wave;
+import com.rizikh.wfc.rules.Ruleset;
+import com.rizikh.wfc.rules.TerrainRuleset;
+
+public class SolveLogTest {
+
+    // Records a solve and returns the wave after every step (index 0: initial wave).
+    private static List<long[]> record(WfcSolver solver, SolveLog log) {
+        solver.setSolveLog(log);
+        List<long[]> states = new ArrayList<>();
+        states.add(solver.getGrid().getWave().words().clone());
+        while (solver.step()) {
+            if (log.stepCount() == states.size()) {
+                states.add(solver.getGrid().getWave().words().clone());
+            }
+        }
+        return states;
+    }
+
+    @Test
+    public void replayMatchesEveryRecordedStep() {
+        TerrainRuleset ruleset = new TerrainRuleset();
+        for (long seed = 0; seed < 4; seed++) {
+            WfcSolver solver = new WfcSolver(new Grid(12, 12, ruleset.tileCount()), ruleset);
+            solver.setSeed(seed);
+            SolveLog log = new SolveLog(144, ruleset.tileCount(), 7);
+            List<long[]> states = record(solver, log);
+
+            assertEquals(states.size() - 1, log.stepCount());
+            assertEquals(solver.getStatus(), log.endStatus());
+
+            SolveReplayer replayer = new SolveReplayer(log, new Wave(144, ruleset.tileCount()));
+            assertArrayEquals(states.get(0), replayer.getWave().words());
+            for (int s = 1; s < states.size(); s++) {
+                assertTrue(replayer.step());
+                assertArrayEquals("seed " + seed + " step " + s, states.get(s), replayer.getWave().words());
+            }
+        }
+    }
+
+    @Test
+    public void seekMatchesSequentialReplay() throws Exception {
+        TerrainRuleset ruleset = new TerrainRuleset();
+        WfcSolver solver = new WfcSolver(new Grid(10, 10, ruleset.tileCount()), ruleset);
+        solver.setSeed(3);
+        SolveLog log = new SolveLog(100, ruleset.tileCount(), 5);
+        List<long[]> states = record(solver, log);
+
+        Path file = Files.createTempFile("solve", ".wfcl");
+        try {
+            log.writeTo(file);
+            SolveLog read = SolveLog.read(file);
+            assertEquals(log.stepCount(), read.stepCount());
+
+            SolveReplayer replayer = new SolveReplayer(read, new Wave(100, ruleset.tileCount()));
+            int[] targets = { states.size() - 1, 0, 13, 12, 31, 4, states.size() / 2 };
+            for (int target : targets) {
+                int step = Math.min(target, states.size() - 1);
+                replayer.seek(step);
+                assertEquals(step, replayer.position());
+                assertArrayEquals("step " + step, states.get(step), replayer.getWave().words());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void replayKeepsContradictionOnCollapsedCell() {
+        // A single cell that is its own neighbour, with tiles that must differ
+        // from their neighbours: collapsing it empties it in the same step
+        Ruleset differ = new Ruleset() {
+            @Override
+            public int tileCount() {
+                return 2;
+            }
+
+            @Override
+            public BitSet allowedMaskRef(int tileId, int dir) {
+                BitSet other = new BitSet(2);
+                other.set(1 - tileId);
+                return other;
+            }
+        };
+        WfcSolver solver = new WfcSolver(new Grid(new PeriodicTopology(1, 1), 2), differ);
+        SolveLog log = new SolveLog(1, 2, 4);
+        List<long[]> states = record(solver, log);
+
+        assertEquals(WfcSolver.Status.CONTRADICTION, log.endStatus());
+        assertEquals(2, states.size());
+        assertEquals(0L, states.get(1)[0]);
+
+        SolveReplayer replayer = new SolveReplayer(log, new Wave(1, 2));
+        assertTrue(replayer.step());
+        assertTrue(replayer.getWave().isEmpty(0));
+    }
+}
@@ -0,0 +1,47 @@
+package com.rizikh.wfc.solver;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SolverRandomTest {
+
+    @Test
+    public void matchesJavaUtilRandom() {
+        for (long seed : new long[] { 0L, 1L, 42L, -7L, Long.MAX_VALUE }) {
+            Random expected = new Random(seed);
+            SolverRandom actual = new SolverRandom(seed);
+            for (int i = 0; i < 200; i++) {
+                assertEquals(expected.nextInt(17), actual.nextInt(17));
+                assertEquals(expected.nextLong(), actual.nextLong());
+                assertEquals(expected.nextDouble(), actual.nextDouble(), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void setSeedRestartsTheSequence() {
+        SolverRandom random = new SolverRandom(5L);
+        random.nextInt();
+        random.setSeed(9L);
+        Random expected = new Random(9L);
+        for (int i = 0; i < 50; i++) {
+            assertEquals(expected.nextInt(), random.nextInt());
+        }
+    }
+
+    @Test
+    public void continuesFromState() {
+        SolverRandom original = new SolverRandom(123L);
+        for (int i = 0; i < 37; i++) {
+            original.nextInt(1000);
+        }
+        SolverRandom copy = SolverRandom.fromState(original.state());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(original.nextInt(), copy.nextInt());
+            assertEquals(original.nextGaussian(), copy.nextGaussian(), 0.0);
+        }
+    }
+}
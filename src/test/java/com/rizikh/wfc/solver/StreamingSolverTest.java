@@ -0,0 +1,72 @@
+package com.rizikh.wfc.solver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import org.junit.Test;
+
+import com.rizikh.wfc.Solutions;
+import com.rizikh.wfc.core.BoundedTopology;
+import com.rizikh.wfc.rules.RoadRuleset;
+import com.rizikh.wfc.rules.Ruleset;
+import com.rizikh.wfc.rules.TerrainRuleset;
+
+public class StreamingSolverTest {
+    private static final int WIDTH = 40;
+
+    // Collects the strip, checking rows arrive in order.
+    private static int[] stream(Ruleset ruleset, int windowRows, int rows, long seed) throws IOException {
+        int[] tiles = new int[WIDTH * rows];
+        long[] expectedY = { 0 };
+        new StreamingSolver(WIDTH, windowRows, ruleset, seed).generate(rows, (y, row) -> {
+            assertEquals(expectedY[0]++, y);
+            assertEquals(WIDTH, row.length);
+            System.arraycopy(row, 0, tiles, (int) y * WIDTH, WIDTH);
+        });
+        assertEquals(rows, expectedY[0]);
+        return tiles;
+    }
+
+    @Test
+    public void stripsAreValidAcrossEmittedRows() throws IOException {
+        TerrainRuleset terrain = new TerrainRuleset();
+        RoadRuleset roads = new RoadRuleset();
+        for (int windowRows : new int[] { 2, 4, 8 }) {
+            // Far more rows than the window holds, so every row boundary was once a window edge
+            Solutions.assertValid(new BoundedTopology(WIDTH, 300), stream(terrain, windowRows, 300, windowRows),
+                    terrain);
+            Solutions.assertValid(new BoundedTopology(WIDTH, 300), stream(roads, windowRows, 300, windowRows),
+                    roads);
+        }
+    }
+
+    @Test
+    public void sameSeedSameStrip() throws IOException {
+        TerrainRuleset terrain = new TerrainRuleset();
+        assertArrayEquals(stream(terrain, 4, 100, 7), stream(terrain, 4, 100, 7));
+    }
+
+    @Test
+    public void channelSinkWritesOneBytePerTile() throws IOException {
+        TerrainRuleset terrain = new TerrainRuleset();
+        int[] tiles = stream(terrain, 4, 50, 3);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new StreamingSolver(WIDTH, 4, terrain, 3).generate(50, RowSink.toChannel(Channels.newChannel(out)));
+        byte[] bytes = out.toByteArray();
+        assertEquals(tiles.length, bytes.length);
+        for (int i = 0; i < tiles.length; i++) {
+            assertEquals(tiles[i], bytes[i] & 0xFF);
+        }
+    }
+
+    @Test
+    public void rejectsWindowBelowTwoRows() {
+        assertThrows(IllegalArgumentException.class, () -> new StreamingSolver(WIDTH, 1, new TerrainRuleset(), 0));
+    }
+}
@@ -0,0 +1,175 @@
+package com.rizikh.wfc.solver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.rules.Ruleset;
+
+public class ValueHeuristicTest {
+    private static final List<Supplier<ValueHeuristic>> HEURISTICS = List.of(
+            UniformValueHeuristic::new,
+            WeightedValueHeuristic::new,
+            LcvHeuristic::new,
+            SupportWeightedHeuristic::new);
+
+    @Test
+    public void seededSolvesAreReproducible() {
+        for (Supplier<ValueHeuristic> heuristic : HEURISTICS) {
+            int solved = SeededSolves.assertReproducible(solver -> solver.setValueHeuristic(heuristic.get()));
+            assertEquals(heuristic.get().getClass().getSimpleName(), SeededSolves.SEEDS, solved);
+        }
+    }
+
+    /**
+     * Checks every choice against the neighbour support of each tile still in
+     * the cell.
+     */
+    private abstract static class Checked implements ValueHeuristic {
+        private final ValueHeuristic inner;
+        NeighborSupport support;
+        int choices;
+
+        Checked(ValueHeuristic inner) {
+            this.inner = inner;
+        }
+
+        @Override
+        public void bind(Grid grid, Ruleset ruleset) {
+            inner.bind(grid, ruleset);
+            support = new NeighborSupport(grid, ruleset);
+        }
+
+        @Override
+        public int choose(int cell, Random rng) {
+            int tile = inner.choose(cell, rng);
+            assertTrue(support.wave().contains(cell, tile));
+            check(cell, tile);
+            choices++;
+            return tile;
+        }
+
+        abstract void check(int cell, int tile);
+
+        // Options summed over the neighbours
+        int score(int cell, int tile) {
+            int score = 0;
+            for (int dir = 0; dir < support.directionCount(); dir++) {
+                int n = support.neighbor(cell, dir);
+                if (n >= 0) {
+                    score += support.support(tile, dir, n);
+                }
+            }
+            return score;
+        }
+
+        // Whether the tile leaves every neighbour at least one option
+        boolean keepsNeighbours(int cell, int tile) {
+            for (int dir = 0; dir < support.directionCount(); dir++) {
+                int n = support.neighbor(cell, dir);
+                if (n >= 0 && support.support(tile, dir, n) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static void solveWith(Checked heuristic) {
+        assertTrue(SeededSolves.solve(SeededSolves.solver(solver -> solver.setValueHeuristic(heuristic)), 5));
+        assertTrue(heuristic.choices > 0);
+    }
+
+    @Test
+    public void lcvPicksAMostSupportedTile() {
+        solveWith(new Checked(new LcvHeuristic()) {
+            @Override
+            void check(int cell, int tile) {
+                int chosen = score(cell, tile);
+                for (int t = 0; t < SeededSolves.TERRAIN.tileCount(); t++) {
+                    if (support.wave().contains(cell, t)) {
+                        assertTrue(score(cell, t) <= chosen);
+                    }
+                }
+            }
+        });
+    }
+
+    @Test
+    public void supportWeightedAvoidsEmptyingNeighbours() {
+        solveWith(new Checked(new SupportWeightedHeuristic()) {
+            @Override
+            void check(int cell, int tile) {
+                if (keepsNeighbours(cell, tile)) {
+                    return;
+                }
+                // Only when every tile would empty some neighbour
+                for (int t = 0; t < SeededSolves.TERRAIN.tileCount(); t++) {
+                    assertTrue(!support.wave().contains(cell, t) || !keepsNeighbours(cell, t));
+                }
+            }
+        });
+    }
+
+    /**
+     * Two tiles that fit anywhere, weighted 1 and second.
+     */
+    private static Ruleset weighted(double second) {
+        BitSet any = new BitSet();
+        any.set(0, 2);
+        return new Ruleset() {
+            @Override
+            public int tileCount() {
+                return 2;
+            }
+
+            @Override
+            public BitSet allowedMaskRef(int tileId, int dir) {
+                return any;
+            }
+
+            @Override
+            public double weight(int tileId) {
+                return tileId == 0 ? 1.0 : second;
+            }
+        };
+    }
+
+    // Share of single-cell solves that pick tile 1
+    private static double shareOfSecond(ValueHeuristic heuristic, Ruleset ruleset) {
+        WfcSolver solver = new WfcSolver(new Grid(1, 1, 2), ruleset);
+        solver.setValueHeuristic(heuristic);
+        int second = 0;
+        int runs = 4000;
+        for (long seed = 0; seed < runs; seed++) {
+            solver.reset(seed);
+            while (solver.step()) {
+            }
+            second += solver.getGrid().getWave().firstTile(0);
+        }
+        return (double) second / runs;
+    }
+
+    @Test
+    public void weightsSetTheOddsOnlyForWeightedChoice() {
+        Ruleset ruleset = weighted(3.0);
+        assertEquals(0.75, shareOfSecond(new WeightedValueHeuristic(), ruleset), 0.03);
+        assertEquals(0.5, shareOfSecond(new UniformValueHeuristic(), ruleset), 0.03);
+    }
+
+    @Test
+    public void weightedRejectsNonPositiveWeights() {
+        Ruleset ruleset = weighted(0.0);
+        Grid grid = new Grid(1, 1, 2);
+        assertThrows(IllegalArgumentException.class, () -> new WeightedValueHeuristic().bind(grid, ruleset));
+        assertThrows(IllegalArgumentException.class, () -> new SupportWeightedHeuristic().bind(grid, ruleset));
+    }
+}
@@ -0,0 +1,92 @@
+package com.rizikh.wfc.solver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import com.rizikh.wfc.model.Grid;
+import com.rizikh.wfc.rules.RoadRuleset;
+import com.rizikh.wfc.rules.TerrainRuleset;
+
+public class WfcSolverTest {
+    private final TerrainRuleset ruleset = new TerrainRuleset();
+
+    @Test
+    public void cellEmptiedBeforeSolvingIsAContradiction() {
+        // Scanned in index order: the last cell is found as well as the first
+        for (int cell : new int[] { 0, 37, 24 * 16 - 1 }) {
+            Grid grid = new Grid(24, 16, ruleset.tileCount());
+            for (int t = 0; t < ruleset.tileCount(); t++) {
+                grid.getWave().ban(cell, t);
+            }
+            WfcSolver solver = new WfcSolver(grid, ruleset);
+            assertTrue(solver.step());
+            assertEquals(WfcSolver.Status.CONTRADICTION, solver.getStatus());
+        }
+    }
+
+    private static void run(WfcSolver solver, int steps) {
+        for (int i = 0; i < steps && solver.step(); i++) {
+        }
+    }
+
+    private static void assertSameSolve(WfcSolver expected, WfcSolver actual) {
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertArrayEquals(expected.getGrid().getWave().words(), actual.getGrid().getWave().words());
+    }
+
+    private void assertResetMatchesFresh(Supplier<WfcSolver> factory) {
+        WfcSolver reused = factory.get();
+        for (long seed = 0; seed < 4; seed++) {
+            // Leave the reused solver mid-solve every other time
+            reused.reset(seed + 100);
+            run(reused, seed % 2 == 0 ? 40 : Integer.MAX_VALUE);
+
+            reused.reset(seed);
+            run(reused, Integer.MAX_VALUE);
+            WfcSolver fresh = factory.get();
+            fresh.setSeed(seed);
+            run(fresh, Integer.MAX_VALUE);
+            assertSameSolve(fresh, reused);
+        }
+    }
+
+    @Test
+    public void resetMatchesAFreshSolver() {
+        assertResetMatchesFresh(() -> new WfcSolver(new Grid(24, 24, ruleset.tileCount()), ruleset));
+    }
+
+    @Test
+    public void resetClearsHeuristicAndConstraintState() {
+        RoadRuleset roads = new RoadRuleset();
+        assertResetMatchesFresh(() -> {
+            Grid grid = new Grid(20, 20, roads.tileCount());
+            WfcSolver solver = new WfcSolver(grid, roads);
+            solver.setSelectionHeuristic(new FrontierHeuristic());
+            solver.setValueHeuristic(new LcvHeuristic());
+            solver.setConnectivityConstraint(new ConnectivityConstraint(grid, roads, 1));
+            return solver;
+        });
+    }
+
+    @Test
+    public void poolReusesTheThreadsSolver() {
+        SolverPool pool = new SolverPool(ruleset, 24, 24);
+        WfcSolver first = pool.acquire(1);
+        run(first, Integer.MAX_VALUE);
+        WfcSolver second = pool.acquire(2);
+        assertSame(first, second);
+        run(second, Integer.MAX_VALUE);
+
+        WfcSolver fresh = new WfcSolver(new Grid(24, 24, ruleset.tileCount()), ruleset);
+        fresh.setSeed(2);
+        run(fresh, Integer.MAX_VALUE);
+        assertSameSolve(fresh, second);
+        pool.release();
+    }
+}